@@ -1,36 +1,96 @@
 package com.mathias.electricitypriceaggregator.application.service;
 
-import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
+import com.mathias.electricitypriceaggregator.domain.aggregation.DailyAggregationKernel;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceEstonia;
 import com.mathias.electricitypriceaggregator.domain.model.WeatherData;
+import com.mathias.electricitypriceaggregator.domain.repository.DailyAggregationRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.DataVersionRepository;
 import com.mathias.electricitypriceaggregator.domain.repository.ElectricityPriceRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.ElectricityPriceRepository.PriceConsumer;
 import com.mathias.electricitypriceaggregator.domain.repository.WeatherDataRepository;
+import com.mathias.electricitypriceaggregator.domain.valueobject.AggregatedData;
 import com.mathias.electricitypriceaggregator.domain.valueobject.DailyAggregatedData;
+import com.mathias.electricitypriceaggregator.domain.valueobject.DataVersion;
+import com.mathias.electricitypriceaggregator.domain.valueobject.Granularity;
+import com.mathias.electricitypriceaggregator.infrastructure.cache.AggregationCache;
+import com.mathias.electricitypriceaggregator.infrastructure.config.AggregationProperties;
+import com.mathias.electricitypriceaggregator.infrastructure.config.AggregationProperties.Strategy;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.ColumnarPriceStore;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
-import static java.time.Instant.ofEpochSecond;
 import static java.time.ZoneOffset.UTC;
 
 /**
  * Application service for aggregating electricity price and weather data.
  * Provides functionality to retrieve aggregated daily data for electricity prices and weather.
+ * Weather data is collected for Tallinn, so prices are aggregated for the Estonian bidding zone only.
+ * By default the daily averages are read from the daily price rollup maintained on ingestion, so the cost of a request
+ * depends on the number of days rather than the number of hourly prices. The memory strategy scans an in-memory copy
+ * of the prices instead, for dashboards that need microsecond responses. Results are cached in monthly blocks that
+ * are invalidated when their prices or temperatures are written.
+ * Weekly, monthly and yearly periods are averaged in one grouped pass over the rollup, or over the in-memory prices
+ * with the memory strategy, so long ranges return one row per period instead of one per day; the sql and jvm
+ * strategies only apply to daily averages. Hourly periods are averaged from the hourly prices without the cache, and
+ * streamed to the caller one hour at a time.
  */
 @Service
-@Transactional(readOnly = true)
+// Strategies that query the database borrow a connection per statement; the memory strategy never takes one
+@Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
 public class AggregationService {
 
+    private static final long SECONDS_PER_HOUR = 3_600;
+
     private final ElectricityPriceRepository electricityPriceRepository;
     private final WeatherDataRepository weatherDataRepository;
+    private final DailyAggregationRepository dailyAggregationRepository;
+    private final AggregationProperties aggregationProperties;
+    private final ColumnarPriceStore columnarPriceStore;
+    private final AggregationCache aggregationCache;
+    private final DataVersionRepository dataVersionRepository;
 
     public AggregationService(ElectricityPriceRepository electricityPriceRepository,
-                              WeatherDataRepository weatherDataRepository) {
+                              WeatherDataRepository weatherDataRepository,
+                              DailyAggregationRepository dailyAggregationRepository,
+                              AggregationProperties aggregationProperties,
+                              ColumnarPriceStore columnarPriceStore,
+                              AggregationCache aggregationCache,
+                              DataVersionRepository dataVersionRepository) {
         this.electricityPriceRepository = electricityPriceRepository;
         this.weatherDataRepository = weatherDataRepository;
+        this.dailyAggregationRepository = dailyAggregationRepository;
+        this.aggregationProperties = aggregationProperties;
+        this.columnarPriceStore = columnarPriceStore;
+        this.aggregationCache = aggregationCache;
+        this.dataVersionRepository = dataVersionRepository;
+    }
+
+    /**
+     * Version of the prices and temperatures of a date range, which changes whenever any of them is written.
+     * Read without aggregating, so clients holding the data of an unchanged range can be answered cheaply.
+     * Read from the same source as the cached results: the in-memory store once the memory strategy has loaded it, as
+     * it may lag the database, and the data versions of the database otherwise.
+     *
+     * @param startDate the start date of the range (inclusive)
+     * @param endDate   the end date of the range (inclusive)
+     * @throws IllegalArgumentException if startDate is null, endDate is null, or endDate is before startDate
+     */
+    public DataVersion getDataVersion(LocalDate startDate, LocalDate endDate) {
+        validateDateRange(startDate, endDate);
+        if (readsColumnarPriceStore()) {
+            return columnarPriceStore.findDataVersion(startDate, endDate);
+        }
+        return dataVersionRepository.findDataVersion(startDate, endDate);
     }
 
     /**
@@ -44,34 +104,163 @@ public class AggregationService {
     public List<DailyAggregatedData> getAggregatedData(LocalDate startDate, LocalDate endDate) {
         validateDateRange(startDate, endDate);
 
-        List<ElectricityPrice> electricityPrices = electricityPriceRepository.findByDateBetween(startDate, endDate);
-        List<WeatherData> weatherDataList = weatherDataRepository.findByDateBetween(startDate, endDate);
-
-        if (electricityPrices.isEmpty() && weatherDataList.isEmpty()) {
-            return List.of();
-        }
-
-        // Group electricity prices by date and calculate daily averages
-        Map<LocalDate, Double> dailyPriceAverages = electricityPrices.stream()
-                .collect(Collectors.groupingBy(
-                        electricityPrice -> ofEpochSecond(electricityPrice.getRecordedAt())
-                                .atZone(UTC)
-                                .toLocalDate(),
-                        Collectors.averagingDouble(ElectricityPrice::getPrice)
-                ));
-
-        // Create a map of weather data by date
-        Map<LocalDate, Double> weatherByDate = weatherDataList.stream()
-                .collect(Collectors.toMap(
-                        WeatherData::getDate,
-                        WeatherData::getAverageTemperature
-                ));
-
-        // Create aggregated data for each date, filtering out days with no data
-        return startDate.datesUntil(endDate.plusDays(1))
-                .map(date -> createDailyAggregatedData(date, dailyPriceAverages, weatherByDate))
-                .filter(data -> data.averageElectricityPrice() != null || data.averageTemperature() != null)
-                .collect(Collectors.toList());
+        if (aggregationProperties.isCacheEnabled()) {
+            return aggregationCache.get(ElectricityPriceEstonia.COUNTRY, startDate, endDate,
+                    findMonthVersions(startDate, endDate), this::aggregate);
+        }
+        return aggregate(startDate, endDate);
+    }
+
+    /**
+     * Pass the aggregated data of a date range to the consumer day by day, without holding the whole range in memory.
+     * With the rollup strategy and the cache disabled, the days are read from a database cursor, which keeps a
+     * connection until the last day is consumed. Otherwise the range is aggregated one calendar month at a time, through
+     * the cache when it is enabled.
+     *
+     * @param startDate the start date of the range (inclusive)
+     * @param endDate   the end date of the range (inclusive)
+     * @param consumer  receives the days in date order, excluding days without any data
+     * @throws IllegalArgumentException if startDate is null, endDate is null, or endDate is before startDate
+     */
+    public void streamAggregatedData(LocalDate startDate, LocalDate endDate, Consumer<DailyAggregatedData> consumer) {
+        validateDateRange(startDate, endDate);
+
+        if (!aggregationProperties.isCacheEnabled() && aggregationProperties.getStrategy() == Strategy.ROLLUP) {
+            dailyAggregationRepository.streamDailyAveragesFromSummary(
+                    ElectricityPriceEstonia.COUNTRY, startDate, endDate, consumer);
+            return;
+        }
+        // Versions are read once for the range, before any month is aggregated
+        Map<YearMonth, Long> monthVersions = aggregationProperties.isCacheEnabled()
+                ? findMonthVersions(startDate, endDate)
+                : Map.of();
+        for (LocalDate monthStart = startDate; !monthStart.isAfter(endDate);
+             monthStart = monthStart.withDayOfMonth(1).plusMonths(1)) {
+            LocalDate monthEnd = monthStart.withDayOfMonth(monthStart.lengthOfMonth());
+            LocalDate end = monthEnd.isBefore(endDate) ? monthEnd : endDate;
+            List<DailyAggregatedData> month = aggregationProperties.isCacheEnabled()
+                    ? aggregationCache.get(ElectricityPriceEstonia.COUNTRY, monthStart, end, monthVersions, this::aggregate)
+                    : aggregate(monthStart, end);
+            month.forEach(consumer);
+        }
+    }
+
+    /**
+     * Get aggregated data for a date range in periods of the given granularity.
+     * Hourly periods are the hours with a price and carry the average temperature of their day, as weather is only
+     * stored per day. The periods at the ends of the range only cover the days within it.
+     *
+     * @param startDate   the start date of the range (inclusive)
+     * @param endDate     the end date of the range (inclusive)
+     * @param granularity the length of the periods
+     * @return list of aggregated data per period within the range, excluding periods without any data
+     * @throws IllegalArgumentException if a date or the granularity is null, or endDate is before startDate
+     */
+    public List<AggregatedData> getAggregatedData(LocalDate startDate, LocalDate endDate, Granularity granularity) {
+        validateDateRange(startDate, endDate);
+        if (granularity == null) {
+            throw new IllegalArgumentException("Granularity cannot be null");
+        }
+
+        return switch (granularity) {
+            case HOURLY -> {
+                List<AggregatedData> hours = new ArrayList<>();
+                aggregateHourly(startDate, endDate, hours::add);
+                yield hours;
+            }
+            case DAILY -> getAggregatedData(startDate, endDate).stream()
+                    .map(data -> new AggregatedData(data.date().atStartOfDay(), data.averageElectricityPrice(),
+                            data.averageTemperature()))
+                    .toList();
+            case WEEKLY, MONTHLY, YEARLY -> aggregatePeriods(startDate, endDate, granularity);
+        };
+    }
+
+    /**
+     * Pass the aggregated data of a date range in periods of the given granularity to the consumer period by period.
+     * Hourly periods are passed as they are read from the hourly prices, and daily ones as
+     * {@link #streamAggregatedData(LocalDate, LocalDate, Consumer)} passes the days, so neither holds the range in
+     * memory. Weekly, monthly and yearly periods are averaged in one grouped query first, at most one per week of the
+     * range.
+     *
+     * @param startDate   the start date of the range (inclusive)
+     * @param endDate     the end date of the range (inclusive)
+     * @param granularity the length of the periods
+     * @param consumer    receives the periods in time order, excluding periods without any data
+     * @throws IllegalArgumentException if a date or the granularity is null, or endDate is before startDate
+     */
+    public void streamAggregatedData(LocalDate startDate, LocalDate endDate, Granularity granularity,
+                                     Consumer<AggregatedData> consumer) {
+        validateDateRange(startDate, endDate);
+        if (granularity == null) {
+            throw new IllegalArgumentException("Granularity cannot be null");
+        }
+
+        switch (granularity) {
+            case HOURLY -> aggregateHourly(startDate, endDate, consumer);
+            case DAILY -> streamAggregatedData(startDate, endDate, data -> consumer.accept(new AggregatedData(
+                    data.date().atStartOfDay(), data.averageElectricityPrice(), data.averageTemperature())));
+            case WEEKLY, MONTHLY, YEARLY -> aggregatePeriods(startDate, endDate, granularity).forEach(consumer);
+        }
+    }
+
+    private Map<YearMonth, Long> findMonthVersions(LocalDate startDate, LocalDate endDate) {
+        if (readsColumnarPriceStore()) {
+            return columnarPriceStore.findMonthVersions(YearMonth.from(startDate), YearMonth.from(endDate));
+        }
+        return dataVersionRepository.findMonthVersions(YearMonth.from(startDate), YearMonth.from(endDate));
+    }
+
+    private boolean readsColumnarPriceStore() {
+        return aggregationProperties.getStrategy() == Strategy.MEMORY && columnarPriceStore.isLoaded();
+    }
+
+    private List<DailyAggregatedData> aggregate(LocalDate startDate, LocalDate endDate) {
+        return switch (aggregationProperties.getStrategy()) {
+            case ROLLUP -> dailyAggregationRepository.findDailyAveragesFromSummary(
+                    ElectricityPriceEstonia.COUNTRY, startDate, endDate);
+            case SQL -> dailyAggregationRepository.findDailyAverages(ElectricityPriceEstonia.COUNTRY, startDate, endDate);
+            // Until the in-memory store is loaded, the rollup answers
+            case MEMORY -> columnarPriceStore.isLoaded()
+                    ? columnarPriceStore.findDailyAverages(ElectricityPriceEstonia.COUNTRY, startDate, endDate)
+                    : dailyAggregationRepository.findDailyAveragesFromSummary(
+                    ElectricityPriceEstonia.COUNTRY, startDate, endDate);
+            case JVM -> aggregateInJvm(startDate, endDate);
+        };
+    }
+
+    private List<DailyAggregatedData> aggregateInJvm(LocalDate startDate, LocalDate endDate) {
+        // Prices are passed as primitives straight from the store or a cursor, without an object per hourly row
+        DailyAggregationKernel kernel = new DailyAggregationKernel(startDate, endDate);
+        electricityPriceRepository.forEachPrice(ElectricityPriceEstonia.COUNTRY, startDate, endDate, kernel::addPrice);
+        for (WeatherData weatherData : weatherDataRepository.findByDateBetween(startDate, endDate)) {
+            if (weatherData.getAverageTemperature() != null) {
+                kernel.setTemperature(weatherData.getDate(), weatherData.getAverageTemperature());
+            }
+        }
+        return kernel.result();
+    }
+
+    private List<AggregatedData> aggregatePeriods(LocalDate startDate, LocalDate endDate, Granularity granularity) {
+        // The other strategies exist to compare daily averages; the rollup answers them as it does before the load
+        if (aggregationProperties.getStrategy() == Strategy.MEMORY && columnarPriceStore.isLoaded()) {
+            return columnarPriceStore.findPeriodAverages(ElectricityPriceEstonia.COUNTRY, startDate, endDate, granularity);
+        }
+        return dailyAggregationRepository.findPeriodAveragesFromSummary(
+                ElectricityPriceEstonia.COUNTRY, startDate, endDate, granularity);
+    }
+
+    private void aggregateHourly(LocalDate startDate, LocalDate endDate, Consumer<AggregatedData> consumer) {
+        Map<LocalDate, Double> weatherByDate = new HashMap<>();
+        for (WeatherData weatherData : weatherDataRepository.findByDateBetween(startDate, endDate)) {
+            if (weatherData.getAverageTemperature() != null) {
+                weatherByDate.put(weatherData.getDate(), weatherData.getAverageTemperature());
+            }
+        }
+
+        HourlyAverages hourlyAverages = new HourlyAverages(weatherByDate, consumer);
+        electricityPriceRepository.forEachPrice(ElectricityPriceEstonia.COUNTRY, startDate, endDate, hourlyAverages);
+        hourlyAverages.finish();
     }
 
     private void validateDateRange(LocalDate startDate, LocalDate endDate) {
@@ -87,10 +276,47 @@ public class AggregationService {
         }
     }
 
-    private DailyAggregatedData createDailyAggregatedData(LocalDate date, Map<LocalDate, Double> dailyPriceAverages,
-                                                          Map<LocalDate, Double> weatherByDate) {
-        Double price = dailyPriceAverages.get(date);
-        Double temperature = weatherByDate.get(date);
-        return new DailyAggregatedData(date, price, temperature);
+    /**
+     * Passes one period per hour with a price to the consumer. Prices arrive in time order, normally one per hour, so
+     * every hour is passed on as soon as the next one starts, and the last one when the prices end; prices recorded
+     * within one hour, as of quarter-hour products, are averaged.
+     */
+    private static final class HourlyAverages implements PriceConsumer {
+
+        private final Map<LocalDate, Double> weatherByDate;
+        private final Consumer<AggregatedData> consumer;
+        private long hour = Long.MIN_VALUE;
+        private double sum;
+        private int count;
+
+        private HourlyAverages(Map<LocalDate, Double> weatherByDate, Consumer<AggregatedData> consumer) {
+            this.weatherByDate = weatherByDate;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void accept(long recordedAt, double price) {
+            long priceHour = Math.floorDiv(recordedAt, SECONDS_PER_HOUR);
+            if (priceHour != hour) {
+                emit();
+                hour = priceHour;
+            }
+            sum += price;
+            count++;
+        }
+
+        private void finish() {
+            emit();
+        }
+
+        private void emit() {
+            if (count == 0) {
+                return;
+            }
+            LocalDateTime start = LocalDateTime.ofEpochSecond(hour * SECONDS_PER_HOUR, 0, UTC);
+            consumer.accept(new AggregatedData(start, sum / count, weatherByDate.get(start.toLocalDate())));
+            sum = 0;
+            count = 0;
+        }
     }
 }
@@ -0,0 +1,86 @@
+package com.mathias.electricitypriceaggregator.application.service;
+
+import com.mathias.electricitypriceaggregator.domain.factory.ElectricityPriceFactory;
+import com.mathias.electricitypriceaggregator.domain.repository.ElectricityPriceRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.ElectricityPriceRepository.PriceConsumer;
+import com.mathias.electricitypriceaggregator.domain.valueobject.PriceStatistics;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Application service for reading the stored hourly electricity prices
+ */
+@Service
+public class ElectricityPriceQueryService {
+
+    private final ElectricityPriceRepository electricityPriceRepository;
+
+    public ElectricityPriceQueryService(ElectricityPriceRepository electricityPriceRepository) {
+        this.electricityPriceRepository = electricityPriceRepository;
+    }
+
+    /**
+     * Pass the hourly prices of a country in a date range to the consumer in time order
+     *
+     * @param startDate the start date of the range (inclusive)
+     * @param endDate   the end date of the range (inclusive)
+     * @throws IllegalArgumentException if the country is not supported, a date is null, or endDate is before startDate
+     */
+    public void forEachPrice(String country, LocalDate startDate, LocalDate endDate, PriceConsumer consumer) {
+        validate(country, startDate, endDate);
+        electricityPriceRepository.forEachPrice(country, startDate, endDate, consumer);
+    }
+
+    /**
+     * Count, average, minimum and maximum of the hourly prices of a country recorded in [from, to)
+     *
+     * @throws IllegalArgumentException if the country is not supported, a bound is null, or to is not after from
+     */
+    public PriceStatistics getStatistics(String country, Instant from, Instant to) {
+        validateCountry(country);
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("From and to cannot be null");
+        }
+        if (!to.isAfter(from)) {
+            throw new IllegalArgumentException(String.format("To %s must be after from %s", to, from));
+        }
+        return electricityPriceRepository.findStatistics(country, from, to);
+    }
+
+    /**
+     * Count, average, minimum and maximum of the hourly prices of a country recorded on the given UTC days
+     *
+     * @throws IllegalArgumentException if the country is not supported or no day is given
+     */
+    public PriceStatistics getStatistics(String country, Collection<LocalDate> days) {
+        validateCountry(country);
+        if (days == null || days.isEmpty() || days.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("At least one day must be given");
+        }
+        return electricityPriceRepository.findStatistics(country, days);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the country is not supported, a date is null, or endDate is before startDate
+     */
+    public void validate(String country, LocalDate startDate, LocalDate endDate) {
+        validateCountry(country);
+        if (startDate == null || endDate == null) {
+            throw new IllegalArgumentException("Start and end date cannot be null");
+        }
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException(
+                    String.format("End date %s cannot be before start date %s", endDate, startDate));
+        }
+    }
+
+    private static void validateCountry(String country) {
+        if (country == null || !ElectricityPriceFactory.isSupported(country)) {
+            throw new IllegalArgumentException("Unsupported country code: " + country);
+        }
+    }
+}
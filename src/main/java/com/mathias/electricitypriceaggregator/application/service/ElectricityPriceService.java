@@ -1,75 +1,329 @@
 package com.mathias.electricitypriceaggregator.application.service;
 
 import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
-import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceEstonia;
+import com.mathias.electricitypriceaggregator.domain.model.IngestedFile;
+import com.mathias.electricitypriceaggregator.domain.repository.IngestedFileRepository;
+import com.mathias.electricitypriceaggregator.domain.valueobject.UpsertResult;
+import com.mathias.electricitypriceaggregator.infrastructure.config.IngestionProperties;
+import com.mathias.electricitypriceaggregator.infrastructure.csv.CsvCompression;
+import com.mathias.electricitypriceaggregator.infrastructure.csv.ElectricityPriceCsvReader;
+import com.mathias.electricitypriceaggregator.infrastructure.csv.NpsCsvParser;
+import com.mathias.electricitypriceaggregator.infrastructure.csv.NpsPriceColumn;
+import com.mathias.electricitypriceaggregator.infrastructure.csv.OpenCsvElectricityPriceReader;
+import com.mathias.electricitypriceaggregator.infrastructure.csv.ParallelNpsCsvParser;
 import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.ElectricityPriceBulkRepository;
-import com.opencsv.CSVParserBuilder;
-import com.opencsv.CSVReader;
-import com.opencsv.CSVReaderBuilder;
-import com.opencsv.bean.CsvToBeanBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 /**
- * Application service for handling electricity price data operations
+ * Application service for handling electricity price data operations.
+ * CSV files are streamed: rows are collected into chunks and each chunk is upserted and committed in its own
+ * transaction, so heap usage does not grow with the file size and a database connection is only held while a chunk
+ * is written. Every configured bidding zone is read from the same pass over the file.
+ * Files whose content was already ingested completely are recognised by their digest and skipped.
+ * Large files on disk can be parsed in parallel segments; the parsed rows are still written in file order.
+ * Gzip and zstd compressed files are decompressed while they are parsed. Ingestion can checkpoint after every chunk and
+ * resume from the last checkpoint without parsing or writing the rows before it again.
+ * Every file ingestion is admitted by {@link IngestionAdmission}, which bounds the connections taken from the read path.
  */
 @Service
-@Transactional
 public class ElectricityPriceService {
     private static final Logger LOG = LoggerFactory.getLogger(ElectricityPriceService.class);
 
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final int DIGEST_BUFFER_SIZE = 64 * 1024;
+
     private final ElectricityPriceBulkRepository electricityPriceBulkRepository;
+    private final IngestedFileRepository ingestedFileRepository;
+    private final IngestionProperties ingestionProperties;
+    private final ForkJoinPool csvParserPool;
+    private final IngestionAdmission ingestionAdmission;
 
-    public ElectricityPriceService(ElectricityPriceBulkRepository electricityPriceBulkRepository) {
+    public ElectricityPriceService(ElectricityPriceBulkRepository electricityPriceBulkRepository,
+                                   IngestedFileRepository ingestedFileRepository,
+                                   IngestionProperties ingestionProperties,
+                                   ForkJoinPool csvParserPool,
+                                   IngestionAdmission ingestionAdmission) {
         this.electricityPriceBulkRepository = electricityPriceBulkRepository;
+        this.ingestedFileRepository = ingestedFileRepository;
+        this.ingestionProperties = ingestionProperties;
+        this.csvParserPool = csvParserPool;
+        this.ingestionAdmission = ingestionAdmission;
+    }
+
+    /**
+     * Process and save electricity price data from CSV upload, compressed as implied by its file extension
+     *
+     * @return the number of inserted, updated and unchanged rows
+     */
+    public UpsertResult processCsvUpload(MultipartFile file) {
+        return processCsvUpload(file, CsvCompression.forFileName(file.getOriginalFilename()));
     }
 
     /**
-     * Process and save electricity price data from CSV upload
+     * Process and save electricity price data from CSV upload, waiting in the bounded admission queue for a free
+     * ingestion slot
+     *
+     * @param compression compression of the uploaded content
+     * @return the number of inserted, updated and unchanged rows
+     * @throws IngestionRejectedException if the admission queue is full or no slot frees up in time
      */
-    @Transactional
-    public void processCsvUpload(MultipartFile file) {
+    public UpsertResult processCsvUpload(MultipartFile file, CsvCompression compression) {
         try {
-            List<ElectricityPrice> electricityPrices = parseCsvFile(file);
-            LOG.debug("Parsed {} electricity prices from CSV", electricityPrices.size());
-            upsertElectricityPrices(electricityPrices);
+            return ingestionAdmission.admit(() -> ingestCsvOnce(file, file.getOriginalFilename(), compression,
+                    IngestionProgress.NONE));
         } catch (IOException e) {
             throw new RuntimeException("Failed to process CSV file: " + e.getMessage(), e);
         }
     }
 
-    public List<ElectricityPrice> parseCsvFile(MultipartFile file) throws IOException {
-        try (Reader reader = new InputStreamReader(file.getInputStream(), StandardCharsets.ISO_8859_1)) {
-            var parser = new CSVParserBuilder()
-                    .withSeparator(';')
-                    .build();
-            CSVReader csvReader = new CSVReaderBuilder(reader)
-                    .withCSVParser(parser)
-                    .build();
-
-            var result = new CsvToBeanBuilder<ElectricityPrice>(csvReader)
-                    .withType(ElectricityPriceEstonia.class)
-                    .withIgnoreLeadingWhiteSpace(true)
-                    .withVerifyReader(true)
-                    .withFilter(line -> line.length >= 1 && !line[0].isBlank())
-                    .build()
-                    .parse();
-
-            LOG.debug("Found {} records in CSV file", result.size());
-            return result;
+    /**
+     * Ingest a CSV file unless a file with the same content was already ingested completely.
+     * The content is read twice: once to compute the digest of the uploaded bytes, then to parse it.
+     * Meant for queued background ingestion, so it waits for a free ingestion slot as long as it takes.
+     *
+     * @param source      the CSV content, encoded in ISO-8859-1 and compressed with {@code compression}
+     * @param fileName    the name recorded in the file registry
+     * @param compression compression of the content, decompressed while parsing
+     * @param progress    listener notified of the parsed and written row counts
+     * @return the number of inserted, updated and unchanged rows
+     */
+    public UpsertResult ingestCsv(InputStreamSource source, String fileName, CsvCompression compression,
+                                  IngestionProgress progress) throws IOException {
+        return ingestionAdmission.admitQueued(() -> ingestCsvOnce(source, fileName, compression, progress));
+    }
+
+    private UpsertResult ingestCsvOnce(InputStreamSource source, String fileName, CsvCompression compression,
+                                       IngestionProgress progress) throws IOException {
+        String digest = digest(source);
+        Optional<IngestedFile> ingestedFile = ingestedFileRepository.findByDigest(digest);
+        if (ingestedFile.isPresent()) {
+            LOG.info("File {} was already ingested at {}, skipping it", fileName, ingestedFile.get().getIngestedAt());
+            return UpsertResult.unchanged(ingestedFile.get().getRowCount());
+        }
+
+        UpsertResult result;
+        Optional<Path> parallelFile = compression == CsvCompression.NONE ? parallelParsingFile(source) : Optional.empty();
+        if (parallelFile.isPresent()) {
+            result = ingestCsvFile(parallelFile.get(), progress);
+        } else {
+            try (InputStream inputStream = compression.decompress(source.getInputStream())) {
+                result = ingestCsv(inputStream, progress);
+            }
+        }
+        try {
+            ingestedFileRepository.save(new IngestedFile(digest, fileName, result.rows(), Instant.now()));
+        } catch (DataIntegrityViolationException e) {
+            LOG.debug("File {} was registered concurrently", fileName);
+        }
+        return result;
+    }
+
+    /**
+     * Stream the CSV content and upsert it chunk by chunk.
+     * Chunks written before a parsing error stay committed; re-uploading the file is idempotent.
+     *
+     * @param inputStream the raw CSV content, encoded in ISO-8859-1
+     * @return the number of inserted, updated and unchanged rows
+     */
+    public UpsertResult ingestCsv(InputStream inputStream) throws IOException {
+        return ingestCsv(inputStream, IngestionProgress.NONE);
+    }
+
+    /**
+     * Stream the CSV content and upsert it chunk by chunk, reporting progress after every chunk.
+     *
+     * @param inputStream the raw CSV content, encoded in ISO-8859-1
+     * @param progress    listener notified of the parsed and written row counts
+     * @return the number of inserted, updated and unchanged rows
+     */
+    public UpsertResult ingestCsv(InputStream inputStream, IngestionProgress progress) throws IOException {
+        ChunkWriter chunkWriter = new ChunkWriter(ingestionProperties.getChunkSize(), progress, 0);
+        csvReader().read(inputStream, chunkWriter);
+        chunkWriter.flush();
+        return chunkWriter.result;
+    }
+
+    /**
+     * Ingest CSV content from a checkpoint with the NPS parser, reporting a new checkpoint after every committed chunk.
+     * Checkpoints are offsets right after a line, so resuming parses the header and then continues at the checkpoint.
+     * A checkpoint is reported after its chunk is committed; a chunk written again after a crash in between is an
+     * idempotent upsert.
+     *
+     * @param source      the CSV content, encoded in ISO-8859-1 and compressed with {@code compression}
+     * @param compression compression of the content; compressed content is decompressed and skipped up to the offset
+     * @param offset      checkpoint in the uncompressed content to resume from, 0 to ingest the whole content
+     * @param progress    listener notified of the parsed and written row counts and of every checkpoint
+     * @return the number of inserted, updated and unchanged rows written from the checkpoint on
+     */
+    public UpsertResult ingestCsvFrom(InputStreamSource source, CsvCompression compression, long offset,
+                                      IngestionProgress progress) throws IOException {
+        return ingestionAdmission.admitQueued(() -> resumeCsv(source, compression, offset, progress));
+    }
+
+    private UpsertResult resumeCsv(InputStreamSource source, CsvCompression compression, long offset,
+                                   IngestionProgress progress) throws IOException {
+        byte[] header = new byte[0];
+        if (offset > 0) {
+            try (InputStream inputStream = compression.decompress(source.getInputStream())) {
+                header = NpsCsvParser.readHeader(inputStream);
+            }
+            if (offset < header.length) {
+                throw new IllegalArgumentException("Checkpoint " + offset + " precedes the end of the CSV header");
+            }
+        }
+
+        ChunkWriter chunkWriter = new ChunkWriter(ingestionProperties.getChunkSize(), progress, offset);
+        // Line offsets are reported relative to the header followed by the content after the checkpoint
+        long base = offset - header.length;
+        try (InputStream inputStream = compression.decompress(source.getInputStream())) {
+            inputStream.skipNBytes(offset);
+            new NpsCsvParser(columns()).read(new SequenceInputStream(new ByteArrayInputStream(header), inputStream),
+                    chunkWriter, lineEnd -> chunkWriter.lineEnd(base + lineEnd));
+        }
+        chunkWriter.flush();
+        return chunkWriter.result;
+    }
+
+    /**
+     * Parse the CSV file in parallel segments and upsert the rows chunk by chunk in file order
+     *
+     * @param file     the CSV file, encoded in ISO-8859-1
+     * @param progress listener notified of the parsed and written row counts
+     * @return the number of inserted, updated and unchanged rows
+     */
+    public UpsertResult ingestCsvFile(Path file, IngestionProgress progress) throws IOException {
+        ChunkWriter chunkWriter = new ChunkWriter(ingestionProperties.getChunkSize(), progress, 0);
+        new ParallelNpsCsvParser(columns(), csvParserPool,
+                (int) ingestionProperties.getParallelSegmentSize().toBytes()).read(file, chunkWriter);
+        chunkWriter.flush();
+        return chunkWriter.result;
+    }
+
+    /**
+     * The file behind the source when the parallel parser is configured and the file is big enough to benefit
+     */
+    private Optional<Path> parallelParsingFile(InputStreamSource source) throws IOException {
+        if (ingestionProperties.getParser() != IngestionProperties.CsvParser.NPS_PARALLEL
+                || !(source instanceof Resource resource) || !resource.isFile()) {
+            return Optional.empty();
+        }
+        Path file = resource.getFile().toPath();
+        if (Files.size(file) < ingestionProperties.getParallelThreshold().toBytes()) {
+            return Optional.empty();
+        }
+        return Optional.of(file);
+    }
+
+    private ElectricityPriceCsvReader csvReader() {
+        return switch (ingestionProperties.getParser()) {
+            case NPS, NPS_PARALLEL -> new NpsCsvParser(columns());
+            case OPENCSV -> new OpenCsvElectricityPriceReader(columns());
+        };
+    }
+
+    private List<NpsPriceColumn> columns() {
+        return ingestionProperties.getCountries().stream()
+                .map(NpsPriceColumn::forCountry)
+                .toList();
+    }
+
+    /**
+     * SHA-256 of the ingested countries and the uploaded bytes, so changing the countries ingests known files again.
+     * Compressed files are digested as uploaded, so recompressing a file makes it parse again.
+     */
+    private String digest(InputStreamSource source) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
         }
+        digest.update((String.join(",", ingestionProperties.getCountries()) + "\n").getBytes(StandardCharsets.US_ASCII));
+        try (InputStream inputStream = source.getInputStream()) {
+            byte[] buffer = new byte[DIGEST_BUFFER_SIZE];
+            int read;
+            while ((read = inputStream.read(buffer)) >= 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private UpsertResult upsertElectricityPrices(List<ElectricityPrice> electricityPrices) {
+        UpsertResult result = electricityPriceBulkRepository.upsertAll(electricityPrices);
+        LOG.debug("Upserted chunk of {} electricity prices: {}", electricityPrices.size(), result);
+        return result;
     }
 
-    private void upsertElectricityPrices(List<ElectricityPrice> electricityPrices) {
-        electricityPriceBulkRepository.upsertAll(electricityPrices);
+    /**
+     * Collects parsed prices and upserts them once a chunk is full.
+     * Chunks are cut where the UTC day changes, so the rows of one day are written together and a day that is
+     * uploaded again unchanged can be skipped as a whole. A chunk is only cut mid-day past twice the chunk size.
+     * When line ends are reported, the checkpoint of a chunk is the end of the last line whose prices it completes.
+     */
+    private final class ChunkWriter implements Consumer<ElectricityPrice> {
+
+        private final int chunkSize;
+        private final IngestionProgress progress;
+        private List<ElectricityPrice> chunk;
+        private long lastDay = Long.MIN_VALUE;
+        private long lastLineEnd;
+        private long rows;
+        private UpsertResult result = UpsertResult.EMPTY;
+
+        private ChunkWriter(int chunkSize, IngestionProgress progress, long offset) {
+            this.chunkSize = chunkSize;
+            this.progress = progress;
+            this.chunk = new ArrayList<>(chunkSize);
+            this.lastLineEnd = offset;
+        }
+
+        @Override
+        public void accept(ElectricityPrice electricityPrice) {
+            long day = Math.floorDiv(electricityPrice.getRecordedAt(), SECONDS_PER_DAY);
+            if (chunk.size() >= chunkSize && (day != lastDay || chunk.size() >= 2 * chunkSize)) {
+                flush();
+                chunk = new ArrayList<>(chunkSize);
+            }
+            chunk.add(electricityPrice);
+            lastDay = day;
+        }
+
+        private void lineEnd(long offset) {
+            lastLineEnd = offset;
+        }
+
+        private void flush() {
+            progress.rowsParsed(rows + chunk.size());
+            UpsertResult chunkResult = upsertElectricityPrices(chunk);
+            result = result.plus(chunkResult);
+            rows += chunk.size();
+            progress.rowsWritten(rows);
+            // Prices of a line cut by a mid-day chunk boundary are written again when resuming, which is idempotent
+            progress.checkpoint(lastLineEnd, chunkResult);
+        }
     }
 }
@@ -0,0 +1,119 @@
+package com.mathias.electricitypriceaggregator.application.service;
+
+import com.mathias.electricitypriceaggregator.infrastructure.config.IngestionProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control for ingestion.
+ * At most {@code ingestion.max-concurrent-ingests} files are ingested at once, whether uploaded synchronously, as an
+ * upload job or through an upload session. Every admitted ingestion holds at most one database connection at a time,
+ * so the connections left for the read endpoints never drop below {@code ingestion.reserved-read-connections}; this is
+ * checked against the connection pool size at startup.
+ * Synchronous uploads wait for a free slot in a bounded queue and are rejected at once when the queue is full, or when
+ * no slot frees up within {@code ingestion.admission-timeout}. Background ingestions were already queued by their
+ * executor and wait without a bound. Permits are handed out in arrival order.
+ */
+@Component
+public class IngestionAdmission {
+    private static final Logger LOG = LoggerFactory.getLogger(IngestionAdmission.class);
+
+    private final IngestionProperties ingestionProperties;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    public IngestionAdmission(IngestionProperties ingestionProperties, DataSource dataSource) {
+        int maxConcurrentIngests = ingestionProperties.getMaxConcurrentIngests();
+        if (maxConcurrentIngests <= 0) {
+            throw new IllegalArgumentException("ingestion.max-concurrent-ingests must be positive");
+        }
+        if (dataSource instanceof HikariDataSource hikariDataSource) {
+            int poolSize = hikariDataSource.getMaximumPoolSize();
+            int reserved = ingestionProperties.getReservedReadConnections();
+            if (maxConcurrentIngests > poolSize - reserved) {
+                throw new IllegalStateException("ingestion.max-concurrent-ingests (" + maxConcurrentIngests
+                        + ") must leave ingestion.reserved-read-connections (" + reserved + ") of the " + poolSize
+                        + " pooled database connections for reads");
+            }
+        }
+        this.ingestionProperties = ingestionProperties;
+        this.permits = new Semaphore(maxConcurrentIngests, true);
+    }
+
+    /**
+     * Run an ingestion requested by a client once a slot is free
+     *
+     * @throws IngestionRejectedException if the wait queue is full or no slot frees up in time
+     */
+    public <T> T admit(Ingestion<T> ingestion) throws IOException {
+        try {
+            // A zero timeout honours the arrival order of waiting ingestions, unlike tryAcquire()
+            if (!permits.tryAcquire(0, TimeUnit.SECONDS)) {
+                if (waiting.incrementAndGet() > ingestionProperties.getAdmissionQueueCapacity()) {
+                    waiting.decrementAndGet();
+                    throw rejected("Ingestion queue is full");
+                }
+                try {
+                    if (!permits.tryAcquire(ingestionProperties.getAdmissionTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                        throw rejected("No ingestion slot became free within " + ingestionProperties.getAdmissionTimeout());
+                    }
+                } finally {
+                    waiting.decrementAndGet();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IngestionRejectedException("Interrupted while waiting for an ingestion slot",
+                    ingestionProperties.getRetryAfter(), e);
+        }
+        try {
+            return ingestion.run();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Run a background ingestion once a slot is free, waiting as long as it takes
+     */
+    public <T> T admitQueued(Ingestion<T> ingestion) throws IOException {
+        permits.acquireUninterruptibly();
+        try {
+            return ingestion.run();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public int getActiveIngests() {
+        return ingestionProperties.getMaxConcurrentIngests() - permits.availablePermits();
+    }
+
+    /**
+     * Ingestions waiting for a slot, background ingestions included
+     */
+    public int getWaitingIngests() {
+        return permits.getQueueLength();
+    }
+
+    private IngestionRejectedException rejected(String reason) {
+        LOG.warn("Rejected ingestion: {} ({} active, {} waiting)", reason, getActiveIngests(), getWaitingIngests());
+        return new IngestionRejectedException(reason, ingestionProperties.getRetryAfter());
+    }
+
+    /**
+     * An ingestion run once admitted
+     */
+    @FunctionalInterface
+    public interface Ingestion<T> {
+        T run() throws IOException;
+    }
+}
@@ -0,0 +1,121 @@
+package com.mathias.electricitypriceaggregator.application.service;
+
+import com.mathias.electricitypriceaggregator.domain.model.IngestionJob;
+import com.mathias.electricitypriceaggregator.domain.repository.IngestionJobRepository;
+import com.mathias.electricitypriceaggregator.domain.valueobject.UpsertResult;
+import com.mathias.electricitypriceaggregator.infrastructure.config.IngestionProperties;
+import com.mathias.electricitypriceaggregator.infrastructure.csv.CsvCompression;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Application service running CSV uploads as asynchronous jobs.
+ * Uploads are spooled to local disk and ingested on the bounded ingestion executor, so web threads are released
+ * as soon as the file is stored.
+ */
+@Service
+public class IngestionJobService {
+    private static final Logger LOG = LoggerFactory.getLogger(IngestionJobService.class);
+
+    private final ElectricityPriceService electricityPriceService;
+    private final IngestionJobRepository ingestionJobRepository;
+    private final IngestionProperties ingestionProperties;
+    private final TaskExecutor ingestionExecutor;
+
+    public IngestionJobService(ElectricityPriceService electricityPriceService,
+                               IngestionJobRepository ingestionJobRepository,
+                               IngestionProperties ingestionProperties,
+                               @Qualifier("ingestionExecutor") TaskExecutor ingestionExecutor) {
+        this.electricityPriceService = electricityPriceService;
+        this.ingestionJobRepository = ingestionJobRepository;
+        this.ingestionProperties = ingestionProperties;
+        this.ingestionExecutor = ingestionExecutor;
+    }
+
+    /**
+     * Spool the uploaded file as uploaded and queue it for ingestion; compressed files stay compressed on disk
+     *
+     * @param compression compression of the uploaded content
+     * @return the queued job
+     * @throws TaskRejectedException if the ingestion queue is full
+     */
+    public IngestionJob submit(MultipartFile file, CsvCompression compression) {
+        Path spoolFile = spool(file, compression);
+        IngestionJob job = ingestionJobRepository.save(
+                new IngestionJob(UUID.randomUUID().toString(), file.getOriginalFilename(), Instant.now()));
+        try {
+            ingestionExecutor.execute(() -> run(job, spoolFile, compression));
+        } catch (TaskRejectedException e) {
+            job.fail("Ingestion queue is full", Instant.now());
+            deleteSpoolFile(spoolFile);
+            throw new IngestionRejectedException("Ingestion queue is full", ingestionProperties.getRetryAfter(), e);
+        }
+        LOG.info("Queued ingestion job {} for file {}", job.getId(), job.getFileName());
+        return job;
+    }
+
+    public Optional<IngestionJob> findJob(String jobId) {
+        return ingestionJobRepository.findById(jobId);
+    }
+
+    private Path spool(MultipartFile file, CsvCompression compression) {
+        try {
+            Files.createDirectories(ingestionProperties.getSpoolDirectory());
+            Path spoolFile = Files.createTempFile(ingestionProperties.getSpoolDirectory(), "upload-", compression.getExtension());
+            file.transferTo(spoolFile);
+            return spoolFile;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to spool CSV file: " + e.getMessage(), e);
+        }
+    }
+
+    private void run(IngestionJob job, Path spoolFile, CsvCompression compression) {
+        job.start(Instant.now());
+        try {
+            UpsertResult result = electricityPriceService.ingestCsv(
+                    new FileSystemResource(spoolFile), job.getFileName(), compression, progressOf(job));
+            job.complete(result, Instant.now());
+            LOG.info("Ingestion job {} completed: {}", job.getId(), result);
+        } catch (Exception e) {
+            LOG.error("Ingestion job {} failed", job.getId(), e);
+            job.fail(e.getMessage(), Instant.now());
+        } finally {
+            deleteSpoolFile(spoolFile);
+        }
+    }
+
+    private static IngestionProgress progressOf(IngestionJob job) {
+        return new IngestionProgress() {
+            @Override
+            public void rowsParsed(long rows) {
+                job.setRowsParsed(rows);
+            }
+
+            @Override
+            public void rowsWritten(long rows) {
+                job.setRowsWritten(rows);
+            }
+        };
+    }
+
+    private static void deleteSpoolFile(Path spoolFile) {
+        try {
+            Files.deleteIfExists(spoolFile);
+        } catch (IOException e) {
+            LOG.warn("Failed to delete spooled upload {}", spoolFile, e);
+        }
+    }
+}
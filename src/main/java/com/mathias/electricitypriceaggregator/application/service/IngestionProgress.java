@@ -0,0 +1,38 @@
+package com.mathias.electricitypriceaggregator.application.service;
+
+import com.mathias.electricitypriceaggregator.domain.valueobject.UpsertResult;
+
+/**
+ * Listener notified while a CSV file is ingested. Counts are cumulative and reported once per chunk.
+ */
+public interface IngestionProgress {
+
+    IngestionProgress NONE = new IngestionProgress() {
+        @Override
+        public void rowsParsed(long rows) {
+        }
+
+        @Override
+        public void rowsWritten(long rows) {
+        }
+    };
+
+    /**
+     * @param rows total number of rows parsed so far
+     */
+    void rowsParsed(long rows);
+
+    /**
+     * @param rows total number of rows upserted and committed so far
+     */
+    void rowsWritten(long rows);
+
+    /**
+     * Called after every committed chunk when the content is read from a checkpoint
+     *
+     * @param offset offset in the uncompressed content up to which all rows are committed
+     * @param chunk  the rows inserted, updated and unchanged by the committed chunk
+     */
+    default void checkpoint(long offset, UpsertResult chunk) {
+    }
+}
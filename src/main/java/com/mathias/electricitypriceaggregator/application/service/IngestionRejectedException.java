@@ -0,0 +1,30 @@
+package com.mathias.electricitypriceaggregator.application.service;
+
+import org.springframework.core.task.TaskRejectedException;
+
+import java.time.Duration;
+
+/**
+ * Thrown when an ingestion is not admitted because the ingestion capacity and its wait queue are exhausted
+ */
+public class IngestionRejectedException extends TaskRejectedException {
+
+    private final Duration retryAfter;
+
+    public IngestionRejectedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public IngestionRejectedException(String message, Duration retryAfter, Throwable cause) {
+        super(message, cause);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * How long the client should wait before submitting again
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
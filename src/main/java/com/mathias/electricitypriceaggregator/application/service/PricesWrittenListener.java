@@ -0,0 +1,69 @@
+package com.mathias.electricitypriceaggregator.application.service;
+
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
+import com.mathias.electricitypriceaggregator.domain.repository.DataVersionRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.PendingWeatherRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.WeatherDataRepository;
+import com.mathias.electricitypriceaggregator.domain.valueobject.PricesWritten;
+import com.mathias.electricitypriceaggregator.infrastructure.cache.AggregationCache;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.ColumnarPriceStore;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps everything derived from the hourly prices current when prices are written.
+ * Runs within the writing transaction, so the data versions, the weather queue and the recomputed average temperatures
+ * commit or roll back with the prices. The in-memory store and the cached aggregation blocks are only updated after
+ * commit, the store first, so no block is computed from a store that misses the written rows.
+ */
+@Component
+public class PricesWrittenListener {
+
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final long SECONDS_PER_HOUR = 3_600;
+
+    private final DataVersionRepository dataVersionRepository;
+    private final PendingWeatherRepository pendingWeatherRepository;
+    private final WeatherDataRepository weatherDataRepository;
+    private final ColumnarPriceStore columnarPriceStore;
+    private final AggregationCache aggregationCache;
+
+    public PricesWrittenListener(DataVersionRepository dataVersionRepository,
+                                 PendingWeatherRepository pendingWeatherRepository,
+                                 WeatherDataRepository weatherDataRepository,
+                                 ColumnarPriceStore columnarPriceStore,
+                                 AggregationCache aggregationCache) {
+        this.dataVersionRepository = dataVersionRepository;
+        this.pendingWeatherRepository = pendingWeatherRepository;
+        this.weatherDataRepository = weatherDataRepository;
+        this.columnarPriceStore = columnarPriceStore;
+        this.aggregationCache = aggregationCache;
+    }
+
+    @EventListener
+    public void onPricesWritten(PricesWritten event) {
+        List<LocalDate> writtenDays = event.allDays();
+        dataVersionRepository.advance(writtenDays);
+        pendingWeatherRepository.enqueue(hourMasks(event.prices()));
+        // Days that already have weather are averaged again over their hours, which may now include new ones
+        weatherDataRepository.updateAverageTemperatures(writtenDays);
+        columnarPriceStore.putPricesAfterCommit(event.prices());
+        event.days().forEach(aggregationCache::invalidatePricesAfterCommit);
+    }
+
+    private static Map<LocalDate, Integer> hourMasks(List<ElectricityPrice> prices) {
+        Map<LocalDate, Integer> hourMasks = new HashMap<>();
+        for (ElectricityPrice price : prices) {
+            long recordedAt = price.getRecordedAt();
+            int hour = (int) (Math.floorMod(recordedAt, SECONDS_PER_DAY) / SECONDS_PER_HOUR);
+            hourMasks.merge(LocalDate.ofEpochDay(Math.floorDiv(recordedAt, SECONDS_PER_DAY)), 1 << hour,
+                    (mask, hourBit) -> mask | hourBit);
+        }
+        return hourMasks;
+    }
+}
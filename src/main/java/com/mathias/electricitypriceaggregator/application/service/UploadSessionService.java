@@ -0,0 +1,299 @@
+package com.mathias.electricitypriceaggregator.application.service;
+
+import com.mathias.electricitypriceaggregator.domain.model.UploadSession;
+import com.mathias.electricitypriceaggregator.domain.model.UploadSessionStatus;
+import com.mathias.electricitypriceaggregator.domain.repository.UploadSessionRepository;
+import com.mathias.electricitypriceaggregator.domain.valueobject.UpsertResult;
+import com.mathias.electricitypriceaggregator.infrastructure.config.IngestionProperties;
+import com.mathias.electricitypriceaggregator.infrastructure.csv.CsvCompression;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Application service for resumable uploads.
+ * A session's bytes are appended to a file in the spool directory, and each range is flushed to disk before it is
+ * acknowledged. Once the upload is complete it is ingested on the ingestion executor with a checkpoint persisted after
+ * every committed chunk. A failed or interrupted ingestion, including one cut short by a restart, resumes from that
+ * checkpoint when the session is completed again.
+ */
+@Service
+public class UploadSessionService {
+    private static final Logger LOG = LoggerFactory.getLogger(UploadSessionService.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ElectricityPriceService electricityPriceService;
+    private final UploadSessionRepository uploadSessionRepository;
+    private final IngestionProperties ingestionProperties;
+    private final TaskExecutor ingestionExecutor;
+    // Serialises appends and state changes of one session
+    private final Map<String, Lock> locks = new ConcurrentHashMap<>();
+    // Sessions ingested by this instance; a session left INGESTING by a previous run can be completed again
+    private final Set<String> ingesting = ConcurrentHashMap.newKeySet();
+
+    public UploadSessionService(ElectricityPriceService electricityPriceService,
+                                UploadSessionRepository uploadSessionRepository,
+                                IngestionProperties ingestionProperties,
+                                @Qualifier("ingestionExecutor") TaskExecutor ingestionExecutor) {
+        this.electricityPriceService = electricityPriceService;
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.ingestionProperties = ingestionProperties;
+        this.ingestionExecutor = ingestionExecutor;
+    }
+
+    /**
+     * Open an upload session with an empty file
+     *
+     * @param totalBytes size of the file, or {@code null} when it is announced with a later range
+     */
+    public UploadSession create(String fileName, CsvCompression compression, Long totalBytes) throws IOException {
+        if (totalBytes != null && totalBytes < 0) {
+            throw new IllegalArgumentException("File size must not be negative");
+        }
+        UploadSession session = new UploadSession(
+                UUID.randomUUID().toString(), fileName, compression.name(), totalBytes, Instant.now());
+        Files.createDirectories(sessionDirectory());
+        Files.createFile(dataFile(session.getId()));
+        LOG.info("Opened upload session {} for file {}", session.getId(), fileName);
+        return uploadSessionRepository.save(session);
+    }
+
+    public Optional<UploadSession> findSession(String sessionId) {
+        return uploadSessionRepository.findById(sessionId);
+    }
+
+    /**
+     * Append a byte range to the session's file. A range overlapping bytes already received is accepted and only its
+     * new bytes are written, so a range can be sent again when its acknowledgement was lost.
+     *
+     * @param offset     offset of the first byte of the range in the file
+     * @param length     number of bytes in the range
+     * @param totalBytes size of the file announced with the range, or {@code null} when unknown
+     * @throws IllegalStateException    if the range starts past the bytes received so far, or the session is not
+     *                                  receiving
+     * @throws IllegalArgumentException if the range does not fit the file size, or the body is shorter or longer than
+     *                                  the range
+     */
+    public UploadSession append(String sessionId, long offset, long length, Long totalBytes, InputStream body) throws IOException {
+        Lock lock = lockOf(sessionId);
+        lock.lock();
+        try {
+            UploadSession session = find(sessionId);
+            if (session.getStatus() != UploadSessionStatus.RECEIVING) {
+                throw new IllegalStateException("Upload session is " + session.getStatus());
+            }
+            if (totalBytes != null) {
+                if (session.getTotalBytes() != null && !session.getTotalBytes().equals(totalBytes)) {
+                    throw new IllegalArgumentException("File size " + totalBytes + " does not match the announced size "
+                            + session.getTotalBytes());
+                }
+                session.setTotalBytes(totalBytes);
+            }
+            long received = session.getReceivedBytes();
+            if (offset > received) {
+                throw new IllegalStateException("Range starts at byte " + offset + " but only " + received
+                        + " bytes were received");
+            }
+            if (session.getTotalBytes() != null && offset + length > session.getTotalBytes()) {
+                throw new IllegalArgumentException("Range ends past the file size " + session.getTotalBytes());
+            }
+
+            RangeWriter writer = new RangeWriter(offset, offset + length, received);
+            try (FileChannel channel = FileChannel.open(dataFile(sessionId), StandardOpenOption.WRITE)) {
+                // Bytes past the last acknowledged range are left over from an interrupted append
+                channel.truncate(received);
+                try {
+                    writer.write(body, channel);
+                } finally {
+                    // Bytes that arrived before the body ended or broke off are kept, so the client resumes after them
+                    channel.force(false);
+                    session.received(Math.max(received, writer.position), Instant.now());
+                    uploadSessionRepository.save(session);
+                }
+            }
+            if (writer.position != offset + length || writer.bodyTooLong) {
+                throw new IllegalArgumentException("Expected " + length + " bytes in the range but received "
+                        + (writer.bodyTooLong ? "more" : String.valueOf(writer.position - offset)));
+            }
+            return session;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queue the complete upload for ingestion, resuming from the last checkpoint of a previous attempt
+     *
+     * @throws IllegalStateException if bytes are missing, the session is being ingested or it is already completed
+     * @throws IngestionRejectedException if the ingestion queue is full
+     */
+    public UploadSession complete(String sessionId) {
+        Lock lock = lockOf(sessionId);
+        lock.lock();
+        try {
+            UploadSession session = find(sessionId);
+            if (session.getStatus() == UploadSessionStatus.COMPLETED) {
+                throw new IllegalStateException("Upload session is already completed");
+            }
+            if (session.getTotalBytes() != null && !session.isFullyReceived()) {
+                throw new IllegalStateException("Only " + session.getReceivedBytes() + " of " + session.getTotalBytes()
+                        + " bytes were received");
+            }
+            if (!ingesting.add(sessionId)) {
+                throw new IllegalStateException("Upload session is already being ingested");
+            }
+
+            session.startIngesting(Instant.now());
+            UploadSession saved = uploadSessionRepository.save(session);
+            try {
+                ingestionExecutor.execute(() -> ingest(sessionId));
+            } catch (TaskRejectedException e) {
+                ingesting.remove(sessionId);
+                session.fail("Ingestion queue is full", Instant.now());
+                uploadSessionRepository.save(session);
+                throw new IngestionRejectedException("Ingestion queue is full", ingestionProperties.getRetryAfter(), e);
+            }
+            LOG.info("Queued upload session {} for ingestion from offset {}", sessionId, session.getCommittedOffset());
+            return saved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Discard a session and its file
+     *
+     * @throws IllegalStateException if the session is being ingested
+     */
+    public void delete(String sessionId) {
+        Lock lock = lockOf(sessionId);
+        lock.lock();
+        try {
+            find(sessionId);
+            if (ingesting.contains(sessionId)) {
+                throw new IllegalStateException("Upload session is being ingested");
+            }
+            uploadSessionRepository.deleteById(sessionId);
+            deleteDataFile(sessionId);
+            locks.remove(sessionId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void ingest(String sessionId) {
+        UploadSession session = find(sessionId);
+        try {
+            electricityPriceService.ingestCsvFrom(new FileSystemResource(dataFile(sessionId)),
+                    CsvCompression.valueOf(session.getCompression()), session.getCommittedOffset(), checkpointsOf(session));
+            session.complete(Instant.now());
+            uploadSessionRepository.save(session);
+            deleteDataFile(sessionId);
+            LOG.info("Upload session {} ingested: {} rows written", sessionId, session.getRowsWritten());
+        } catch (Exception e) {
+            LOG.error("Ingestion of upload session {} failed at offset {}", sessionId, session.getCommittedOffset(), e);
+            session.fail(e.getMessage(), Instant.now());
+            uploadSessionRepository.save(session);
+        } finally {
+            ingesting.remove(sessionId);
+        }
+    }
+
+    private IngestionProgress checkpointsOf(UploadSession session) {
+        return new IngestionProgress() {
+            @Override
+            public void rowsParsed(long rows) {
+            }
+
+            @Override
+            public void rowsWritten(long rows) {
+            }
+
+            @Override
+            public void checkpoint(long offset, UpsertResult chunk) {
+                session.checkpoint(offset, chunk, Instant.now());
+                uploadSessionRepository.save(session);
+            }
+        };
+    }
+
+    /**
+     * Copies a range from the request body to the file, skipping the bytes before {@code received} that the file
+     * already holds and ignoring bytes past the end of the range
+     */
+    private static final class RangeWriter {
+
+        private final long end;
+        private final long received;
+        // Offset in the file of the next byte read from the body
+        private long position;
+        private boolean bodyTooLong;
+
+        private RangeWriter(long offset, long end, long received) {
+            this.position = offset;
+            this.end = end;
+            this.received = received;
+        }
+
+        private void write(InputStream body, FileChannel channel) throws IOException {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while (position < end && (read = body.read(buffer, 0, (int) Math.min(buffer.length, end - position))) >= 0) {
+                int skip = (int) Math.min(read, Math.max(0, received - position));
+                ByteBuffer bytes = ByteBuffer.wrap(buffer, skip, read - skip);
+                long writePosition = position + skip;
+                while (bytes.hasRemaining()) {
+                    writePosition += channel.write(bytes, writePosition);
+                }
+                position += read;
+            }
+            bodyTooLong = position == end && body.read() >= 0;
+        }
+    }
+
+    private UploadSession find(String sessionId) {
+        return uploadSessionRepository.findById(sessionId)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown upload session: " + sessionId));
+    }
+
+    private Lock lockOf(String sessionId) {
+        return locks.computeIfAbsent(sessionId, id -> new ReentrantLock());
+    }
+
+    private Path sessionDirectory() {
+        return ingestionProperties.getSpoolDirectory().resolve("sessions");
+    }
+
+    private Path dataFile(String sessionId) {
+        return sessionDirectory().resolve(sessionId + ".part");
+    }
+
+    private void deleteDataFile(String sessionId) {
+        try {
+            Files.deleteIfExists(dataFile(sessionId));
+        } catch (IOException e) {
+            LOG.warn("Failed to delete upload session file {}", dataFile(sessionId), e);
+        }
+    }
+}
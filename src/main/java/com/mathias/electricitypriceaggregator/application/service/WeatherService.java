@@ -2,16 +2,32 @@ package com.mathias.electricitypriceaggregator.application.service;
 
 import com.mathias.electricitypriceaggregator.domain.model.WeatherData;
 import com.mathias.electricitypriceaggregator.domain.repository.ElectricityPriceRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.PendingWeatherRepository;
 import com.mathias.electricitypriceaggregator.domain.repository.WeatherDataRepository;
+import com.mathias.electricitypriceaggregator.infrastructure.config.WeatherProperties;
+import com.mathias.electricitypriceaggregator.infrastructure.external.RequestQuotaExceededException;
 import com.mathias.electricitypriceaggregator.infrastructure.external.WeatherApiClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Application service for handling weather data operations
@@ -22,43 +38,131 @@ public class WeatherService {
     private static final Logger LOG = LoggerFactory.getLogger(WeatherService.class);
     private final WeatherDataRepository weatherDataRepository;
     private final ElectricityPriceRepository electricityPriceRepository;
+    private final PendingWeatherRepository pendingWeatherRepository;
     private final WeatherApiClient weatherApiClient;
+    private final TaskExecutor weatherSyncExecutor;
+    private final WeatherProperties weatherProperties;
 
     public WeatherService(WeatherDataRepository weatherDataRepository,
                           ElectricityPriceRepository electricityPriceRepository,
-                          WeatherApiClient weatherApiClient) {
+                          PendingWeatherRepository pendingWeatherRepository,
+                          WeatherApiClient weatherApiClient,
+                          @Qualifier("weatherSyncExecutor") TaskExecutor weatherSyncExecutor,
+                          WeatherProperties weatherProperties) {
         this.weatherDataRepository = weatherDataRepository;
         this.electricityPriceRepository = electricityPriceRepository;
+        this.pendingWeatherRepository = pendingWeatherRepository;
         this.weatherApiClient = weatherApiClient;
+        this.weatherSyncExecutor = weatherSyncExecutor;
+        this.weatherProperties = weatherProperties;
     }
 
     /**
-     * Scheduled method to fetch weather data every minute
+     * Queue the dates with prices but without weather data, such as those of prices stored before the queue existed.
+     * Prices ingested afterwards queue their dates together with their upsert.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void enqueueDatesWithoutWeather() {
+        pendingWeatherRepository.enqueue(electricityPriceRepository.findRecordedHourMasksWithoutWeather());
+    }
+
+    /**
+     * Scheduled method to fetch weather data every minute on every node.
+     * Dates are leased from the weather queue shared by all nodes, {@code weather.lease-days} at a time, so no two
+     * nodes fetch the same date; a date leaves the queue when its weather is saved, and the dates of failed requests
+     * are leased again once their lease has ended. Consecutive leased dates are fetched together in one request of at
+     * most {@code weather.max-days-per-request} days. Requests are sent concurrently on the weather sync executor and
+     * every date is saved in its own transaction; the method returns once the queue has no more dates to lease, so
+     * runs never overlap. The API client keeps the requests of all nodes within the configured rate limits. A request
+     * that gets no room in them within half of the lease releases its dates instead of waiting on, and no more dates
+     * are leased until the next run, so no lease ends while its dates wait for the API and no date is fetched twice.
      */
     @Scheduled(cron = "0 * * * * *")
+    // No connection is held while the dates wait for the API
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void syncWeatherData() {
         try {
-            List<LocalDate> pricesDateWithoutWeather = electricityPriceRepository.findPricesDateWithoutWeather();
-
-            // todo next: open threads to fetch data in parallel
-            pricesDateWithoutWeather
-                    .forEach(this::fetchAndSaveWeatherDataForDate);
+            int leaseDays = Math.max(1, weatherProperties.getLeaseDays());
+            AtomicBoolean quotaExceeded = new AtomicBoolean();
+            SortedMap<LocalDate, Integer> leased;
+            do {
+                leased = pendingWeatherRepository.lease(leaseDays, weatherProperties.getLeaseDuration());
+                Instant sendBy = Instant.now().plus(weatherProperties.getLeaseDuration().dividedBy(2));
+                CompletableFuture.allOf(consecutiveDates(leased).stream()
+                        .map(hourMasks -> CompletableFuture.runAsync(
+                                () -> fetchAndSaveWeatherData(hourMasks, sendBy, quotaExceeded), weatherSyncExecutor))
+                        .toArray(CompletableFuture[]::new)).join();
+                // A lease of fewer dates than asked for took every date not leased by another node
+            } while (leased.size() == leaseDays && !quotaExceeded.get());
         } catch (Exception e) {
             LOG.error("Error during weather data sync: {}", e.getMessage());
         }
     }
 
-    private void fetchAndSaveWeatherDataForDate(LocalDate date) {
+    /**
+     * Split the hour masks of the dates into runs of consecutive dates of at most the configured days per request
+     */
+    private List<SortedMap<LocalDate, Integer>> consecutiveDates(SortedMap<LocalDate, Integer> hourMasks) {
+        int maxDays = Math.max(1, weatherProperties.getMaxDaysPerRequest());
+        List<SortedMap<LocalDate, Integer>> runs = new ArrayList<>();
+        SortedMap<LocalDate, Integer> run = new TreeMap<>();
+        for (Map.Entry<LocalDate, Integer> entry : hourMasks.entrySet()) {
+            LocalDate date = entry.getKey();
+            if (!run.isEmpty() && (!date.equals(run.lastKey().plusDays(1)) || run.size() == maxDays)) {
+                runs.add(run);
+                run = new TreeMap<>();
+            }
+            run.put(date, entry.getValue());
+        }
+        if (!run.isEmpty()) {
+            runs.add(run);
+        }
+        return runs;
+    }
+
+    /**
+     * Fetch the hourly temperatures of consecutive dates in one request and save each date on its own, with its average
+     * over the hours with prices. The dates are released if the request cannot be sent by sendBy, or if another
+     * request of the run could not.
+     */
+    private void fetchAndSaveWeatherData(SortedMap<LocalDate, Integer> hourMasks, Instant sendBy,
+                                         AtomicBoolean quotaExceeded) {
+        if (hourMasks.values().stream().allMatch(hourMask -> hourMask == 0)) {
+            return;
+        }
+        LocalDate startDate = hourMasks.firstKey();
+        LocalDate endDate = hourMasks.lastKey();
+        Map<LocalDate, float[]> hourlyTemperatures;
         try {
-            List<Integer> recordedHours = electricityPriceRepository.findRecordedHoursByDate(date);
-            Double averageTemperature = weatherApiClient.fetchDailyAverageTemperature(date, recordedHours);
-            if (averageTemperature != null) {
-                WeatherData weatherData = new WeatherData(date, averageTemperature);
-                weatherDataRepository.save(weatherData);
-                LOG.debug("Saved weather data for date: {}, temp: {}", date, averageTemperature);
+            if (quotaExceeded.get()) {
+                throw new RequestQuotaExceededException("Request quota exceeded by another request of the run");
             }
+            Duration maxWait = Duration.between(Instant.now(), sendBy);
+            hourlyTemperatures = weatherApiClient.fetchHourlyTemperatures(startDate, endDate,
+                    maxWait.isNegative() ? Duration.ZERO : maxWait);
+        } catch (RequestQuotaExceededException e) {
+            quotaExceeded.set(true);
+            LOG.warn("Releasing weather dates from {} to {}: {}", startDate, endDate, e.getMessage());
+            pendingWeatherRepository.release(hourMasks.keySet());
+            return;
         } catch (Exception e) {
-            LOG.error("Failed to fetch weather data for date {}: {}", date, e.getMessage());
+            LOG.error("Failed to fetch weather data from {} to {}: {}", startDate, endDate, e.getMessage());
+            return;
         }
+        hourMasks.forEach((date, hourMask) -> {
+            WeatherData weatherData = new WeatherData(date, null);
+            weatherData.setHourlyTemperatures(hourlyTemperatures.get(date));
+            Double averageTemperature = weatherData.averageOfHours(hourMask);
+            if (averageTemperature == null) {
+                return;
+            }
+            weatherData.setAverageTemperature(averageTemperature);
+            try {
+                weatherDataRepository.save(weatherData, hourMask);
+                LOG.debug("Saved weather data for date: {}, temp: {}", date, averageTemperature);
+            } catch (Exception e) {
+                LOG.error("Failed to save weather data for date {}: {}", date, e.getMessage());
+            }
+        });
     }
 }
@@ -0,0 +1,66 @@
+package com.mathias.electricitypriceaggregator.application.service;
+
+import com.mathias.electricitypriceaggregator.domain.model.WeatherData;
+import com.mathias.electricitypriceaggregator.domain.repository.DataVersionRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.PendingWeatherRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.WeatherDataRepository;
+import com.mathias.electricitypriceaggregator.domain.valueobject.AverageTemperaturesUpdated;
+import com.mathias.electricitypriceaggregator.domain.valueobject.WeatherSaved;
+import com.mathias.electricitypriceaggregator.infrastructure.cache.AggregationCache;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.ColumnarPriceStore;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Keeps everything derived from the temperatures current when weather data is written.
+ * Runs within the writing transaction, so the data version and the removal from the weather queue commit or roll back
+ * with the temperature. The in-memory store and the cached aggregation blocks are only updated after commit.
+ */
+@Component
+public class WeatherWrittenListener {
+
+    private final DataVersionRepository dataVersionRepository;
+    private final PendingWeatherRepository pendingWeatherRepository;
+    private final WeatherDataRepository weatherDataRepository;
+    private final ColumnarPriceStore columnarPriceStore;
+    private final AggregationCache aggregationCache;
+
+    public WeatherWrittenListener(DataVersionRepository dataVersionRepository,
+                                  PendingWeatherRepository pendingWeatherRepository,
+                                  WeatherDataRepository weatherDataRepository,
+                                  ColumnarPriceStore columnarPriceStore,
+                                  AggregationCache aggregationCache) {
+        this.dataVersionRepository = dataVersionRepository;
+        this.pendingWeatherRepository = pendingWeatherRepository;
+        this.weatherDataRepository = weatherDataRepository;
+        this.columnarPriceStore = columnarPriceStore;
+        this.aggregationCache = aggregationCache;
+    }
+
+    @EventListener
+    public void onWeatherSaved(WeatherSaved event) {
+        WeatherData weatherData = event.weatherData();
+        LocalDate day = weatherData.getDate();
+        dataVersionRepository.advance(List.of(day));
+        putAfterCommit(weatherData);
+        int queuedHourMask = pendingWeatherRepository.remove(day);
+        if ((queuedHourMask & ~event.averagedHourMask()) != 0) {
+            // An upload queued further hours after the lease, and found no weather of the day to average again then;
+            // the recomputed average is put in the store after the saved one
+            weatherDataRepository.updateAverageTemperatures(List.of(day));
+        }
+    }
+
+    @EventListener
+    public void onAverageTemperaturesUpdated(AverageTemperaturesUpdated event) {
+        event.weather().forEach(this::putAfterCommit);
+    }
+
+    private void putAfterCommit(WeatherData weatherData) {
+        columnarPriceStore.putWeatherAfterCommit(weatherData);
+        aggregationCache.invalidateWeatherAfterCommit(weatherData.getDate());
+    }
+}
@@ -0,0 +1,76 @@
+package com.mathias.electricitypriceaggregator.domain.aggregation;
+
+import com.mathias.electricitypriceaggregator.domain.valueobject.DailyAggregatedData;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Averages hourly prices and daily temperatures per UTC day of a date range.
+ * Values are added as primitives and bucketed by their day's index in the range into a {@code double[]} of sums and an
+ * {@code int[]} of counts, so nothing is allocated per value; the result records are only created by {@link #result()}.
+ * Values outside the range are ignored. Not thread-safe: one kernel serves one request.
+ */
+public final class DailyAggregationKernel {
+
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    private final long firstDay;
+    private final double[] priceSums;
+    private final int[] priceCounts;
+    // NaN for days without a temperature
+    private final double[] temperatures;
+
+    /**
+     * @param startDate the first day of the range (inclusive)
+     * @param endDate   the last day of the range (inclusive)
+     */
+    public DailyAggregationKernel(LocalDate startDate, LocalDate endDate) {
+        this.firstDay = startDate.toEpochDay();
+        int days = Math.toIntExact(endDate.toEpochDay() - firstDay + 1);
+        this.priceSums = new double[days];
+        this.priceCounts = new int[days];
+        this.temperatures = new double[days];
+        Arrays.fill(temperatures, Double.NaN);
+    }
+
+    /**
+     * Add the price recorded at the given second since the epoch to its UTC day
+     */
+    public void addPrice(long recordedAt, double price) {
+        long day = Math.floorDiv(recordedAt, SECONDS_PER_DAY) - firstDay;
+        if (day >= 0 && day < priceSums.length) {
+            priceSums[(int) day] += price;
+            priceCounts[(int) day]++;
+        }
+    }
+
+    /**
+     * Set the average temperature of a day
+     */
+    public void setTemperature(LocalDate date, double temperature) {
+        long day = date.toEpochDay() - firstDay;
+        if (day >= 0 && day < temperatures.length) {
+            temperatures[(int) day] = temperature;
+        }
+    }
+
+    /**
+     * @return one entry per day with a price or a temperature, in date order
+     */
+    public List<DailyAggregatedData> result() {
+        List<DailyAggregatedData> result = new ArrayList<>();
+        for (int day = 0; day < priceSums.length; day++) {
+            boolean hasPrice = priceCounts[day] > 0;
+            boolean hasTemperature = !Double.isNaN(temperatures[day]);
+            if (hasPrice || hasTemperature) {
+                result.add(new DailyAggregatedData(LocalDate.ofEpochDay(firstDay + day),
+                        hasPrice ? priceSums[day] / priceCounts[day] : null,
+                        hasTemperature ? temperatures[day] : null));
+            }
+        }
+        return result;
+    }
+}
@@ -2,13 +2,30 @@ package com.mathias.electricitypriceaggregator.domain.factory;
 
 import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
 import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceEstonia;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceFinland;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceLatvia;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceLithuania;
 
 public class ElectricityPriceFactory {
 
+    public static boolean isSupported(String country) {
+        return switch (country) {
+            case ElectricityPriceEstonia.COUNTRY, ElectricityPriceLatvia.COUNTRY, ElectricityPriceLithuania.COUNTRY,
+                 ElectricityPriceFinland.COUNTRY -> true;
+            default -> false;
+        };
+    }
+
     public static ElectricityPrice create(String country) {
         switch (country) {
-            case "EE":
+            case ElectricityPriceEstonia.COUNTRY:
                 return new ElectricityPriceEstonia();
+            case ElectricityPriceLatvia.COUNTRY:
+                return new ElectricityPriceLatvia();
+            case ElectricityPriceLithuania.COUNTRY:
+                return new ElectricityPriceLithuania();
+            case ElectricityPriceFinland.COUNTRY:
+                return new ElectricityPriceFinland();
             default:
                 throw new IllegalArgumentException("Unsupported country code: " + country);
         }
@@ -1,13 +1,10 @@
 package com.mathias.electricitypriceaggregator.domain.model;
 
-import com.opencsv.bean.CsvBindByName;
-
 /**
  * Domain entity representing electricity price data
  */
 public abstract class ElectricityPrice {
 
-    @CsvBindByName(column = "Ajatempel (UTC)")
     private Long recordedAt;
 
     public abstract String getCountry();
@@ -1,7 +1,5 @@
 package com.mathias.electricitypriceaggregator.domain.model;
 
-import com.mathias.electricitypriceaggregator.infrastructure.csv.DoubleConverter;
-import com.opencsv.bean.CsvCustomBindByName;
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 
 import java.util.Objects;
@@ -13,9 +11,8 @@ import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
  */
 public class ElectricityPriceEstonia extends ElectricityPrice {
 
-    private static final String COUNTRY = "EE";
+    public static final String COUNTRY = "EE";
 
-    @CsvCustomBindByName(column = "NPS Eesti", converter = DoubleConverter.class, required = true)
     private Double price;
 
     @Override
@@ -0,0 +1,88 @@
+package com.mathias.electricitypriceaggregator.domain.model;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+
+import java.time.Instant;
+import java.util.Objects;
+
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
+/**
+ * Domain entity recording a CSV file that was fully ingested, identified by the digest of its content
+ */
+public class IngestedFile {
+
+    private Long id;
+    private String digest;
+    private String fileName;
+    private Long rowCount;
+    private Instant ingestedAt;
+
+    public IngestedFile() {
+    }
+
+    public IngestedFile(String digest, String fileName, Long rowCount, Instant ingestedAt) {
+        this.digest = digest;
+        this.fileName = fileName;
+        this.rowCount = rowCount;
+        this.ingestedAt = ingestedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    public void setDigest(String digest) {
+        this.digest = digest;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public Long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(Long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public Instant getIngestedAt() {
+        return ingestedAt;
+    }
+
+    public void setIngestedAt(Instant ingestedAt) {
+        this.ingestedAt = ingestedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        IngestedFile that = (IngestedFile) o;
+        return Objects.equals(digest, that.digest);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(digest);
+    }
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this, SHORT_PREFIX_STYLE);
+    }
+}
@@ -0,0 +1,143 @@
+package com.mathias.electricitypriceaggregator.domain.model;
+
+import com.mathias.electricitypriceaggregator.domain.valueobject.UpsertResult;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
+/**
+ * Domain entity tracking an asynchronous CSV ingestion job.
+ * The job is updated by the ingestion thread and read concurrently by status requests.
+ */
+public class IngestionJob {
+
+    private final String id;
+    private final String fileName;
+    private final Instant createdAt;
+    private volatile IngestionJobStatus status = IngestionJobStatus.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile long rowsParsed;
+    private volatile long rowsWritten;
+    private volatile long inserted;
+    private volatile long updated;
+    private volatile long unchanged;
+    private volatile String error;
+
+    public IngestionJob(String id, String fileName, Instant createdAt) {
+        this.id = id;
+        this.fileName = fileName;
+        this.createdAt = createdAt;
+    }
+
+    public void start(Instant now) {
+        this.startedAt = now;
+        this.status = IngestionJobStatus.RUNNING;
+    }
+
+    public void complete(UpsertResult result, Instant now) {
+        this.inserted = result.inserted();
+        this.updated = result.updated();
+        this.unchanged = result.unchanged();
+        this.finishedAt = now;
+        this.status = IngestionJobStatus.COMPLETED;
+    }
+
+    public void fail(String error, Instant now) {
+        this.error = error;
+        this.finishedAt = now;
+        this.status = IngestionJobStatus.FAILED;
+    }
+
+    /**
+     * Rows written per second since the job started, up to {@code now} while it is still running
+     */
+    public double getRowsPerSecond(Instant now) {
+        if (startedAt == null) {
+            return 0;
+        }
+        Duration elapsed = Duration.between(startedAt, finishedAt != null ? finishedAt : now);
+        if (elapsed.isZero() || elapsed.isNegative()) {
+            return 0;
+        }
+        return rowsWritten * 1_000_000_000d / elapsed.toNanos();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public IngestionJobStatus getStatus() {
+        return status;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public long getRowsParsed() {
+        return rowsParsed;
+    }
+
+    public void setRowsParsed(long rowsParsed) {
+        this.rowsParsed = rowsParsed;
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    public void setRowsWritten(long rowsWritten) {
+        this.rowsWritten = rowsWritten;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public long getUnchanged() {
+        return unchanged;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        IngestionJob that = (IngestionJob) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this, SHORT_PREFIX_STYLE);
+    }
+}
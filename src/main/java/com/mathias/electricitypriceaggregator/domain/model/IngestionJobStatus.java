@@ -0,0 +1,15 @@
+package com.mathias.electricitypriceaggregator.domain.model;
+
+/**
+ * Lifecycle states of an asynchronous CSV ingestion job
+ */
+public enum IngestionJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED;
+
+    public boolean isFinished() {
+        return this == COMPLETED || this == FAILED;
+    }
+}
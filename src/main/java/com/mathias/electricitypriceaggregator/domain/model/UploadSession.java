@@ -0,0 +1,214 @@
+package com.mathias.electricitypriceaggregator.domain.model;
+
+import com.mathias.electricitypriceaggregator.domain.valueobject.UpsertResult;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+
+import java.time.Instant;
+import java.util.Objects;
+
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
+/**
+ * Domain entity for a resumable CSV upload.
+ * The client appends byte ranges until the file is complete. Ingestion then records a checkpoint after every committed
+ * chunk: the offset in the uncompressed content up to which all rows are written. An interrupted ingestion resumes
+ * from that checkpoint.
+ */
+public class UploadSession {
+
+    private String id;
+    private String fileName;
+    private String compression;
+    private Long totalBytes;
+    private long receivedBytes;
+    private long committedOffset;
+    private long rowsWritten;
+    private long inserted;
+    private long updated;
+    private long unchanged;
+    private UploadSessionStatus status;
+    private String error;
+    private Instant createdAt;
+    private Instant updatedAt;
+
+    public UploadSession() {
+    }
+
+    public UploadSession(String id, String fileName, String compression, Long totalBytes, Instant createdAt) {
+        this.id = id;
+        this.fileName = fileName;
+        this.compression = compression;
+        this.totalBytes = totalBytes;
+        this.status = UploadSessionStatus.RECEIVING;
+        this.createdAt = createdAt;
+        this.updatedAt = createdAt;
+    }
+
+    public boolean isFullyReceived() {
+        return totalBytes != null && receivedBytes == totalBytes;
+    }
+
+    public void received(long receivedBytes, Instant now) {
+        this.receivedBytes = receivedBytes;
+        this.updatedAt = now;
+    }
+
+    public void startIngesting(Instant now) {
+        if (totalBytes == null) {
+            totalBytes = receivedBytes;
+        }
+        this.status = UploadSessionStatus.INGESTING;
+        this.error = null;
+        this.updatedAt = now;
+    }
+
+    public void checkpoint(long committedOffset, UpsertResult chunk, Instant now) {
+        this.committedOffset = committedOffset;
+        this.rowsWritten += chunk.rows();
+        this.inserted += chunk.inserted();
+        this.updated += chunk.updated();
+        this.unchanged += chunk.unchanged();
+        this.updatedAt = now;
+    }
+
+    public void complete(Instant now) {
+        this.status = UploadSessionStatus.COMPLETED;
+        this.updatedAt = now;
+    }
+
+    public void fail(String error, Instant now) {
+        this.error = error;
+        this.status = UploadSessionStatus.FAILED;
+        this.updatedAt = now;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getCompression() {
+        return compression;
+    }
+
+    public void setCompression(String compression) {
+        this.compression = compression;
+    }
+
+    public Long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public void setTotalBytes(Long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    public long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    public void setReceivedBytes(long receivedBytes) {
+        this.receivedBytes = receivedBytes;
+    }
+
+    public long getCommittedOffset() {
+        return committedOffset;
+    }
+
+    public void setCommittedOffset(long committedOffset) {
+        this.committedOffset = committedOffset;
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    public void setRowsWritten(long rowsWritten) {
+        this.rowsWritten = rowsWritten;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public void setInserted(long inserted) {
+        this.inserted = inserted;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(long updated) {
+        this.updated = updated;
+    }
+
+    public long getUnchanged() {
+        return unchanged;
+    }
+
+    public void setUnchanged(long unchanged) {
+        this.unchanged = unchanged;
+    }
+
+    public UploadSessionStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(UploadSessionStatus status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        UploadSession that = (UploadSession) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this, SHORT_PREFIX_STYLE);
+    }
+}
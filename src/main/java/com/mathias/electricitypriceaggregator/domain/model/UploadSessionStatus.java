@@ -0,0 +1,20 @@
+package com.mathias.electricitypriceaggregator.domain.model;
+
+/**
+ * Lifecycle states of a resumable upload session
+ */
+public enum UploadSessionStatus {
+    /**
+     * Byte ranges are being appended
+     */
+    RECEIVING,
+    /**
+     * The upload is complete and its content is being ingested
+     */
+    INGESTING,
+    COMPLETED,
+    /**
+     * Ingestion stopped; completing the session again resumes from the last checkpoint
+     */
+    FAILED
+}
@@ -12,9 +12,12 @@ import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
  */
 public class WeatherData {
 
+    public static final int HOURS_PER_DAY = 24;
+
     private Long id;
     private LocalDate date;
     private Double averageTemperature; // Average temperature in Celsius
+    private float[] hourlyTemperatures; // Temperature of every hour (UTC) in Celsius, NaN if unknown; null if not stored
 
     public WeatherData() {
     }
@@ -48,6 +51,36 @@ public class WeatherData {
         this.averageTemperature = averageTemperature;
     }
 
+    public float[] getHourlyTemperatures() {
+        return hourlyTemperatures;
+    }
+
+    public void setHourlyTemperatures(float[] hourlyTemperatures) {
+        this.hourlyTemperatures = hourlyTemperatures;
+    }
+
+    /**
+     * Average of the known hourly temperatures of the hours in the mask
+     *
+     * @param hourMask bit h set for hour h (UTC)
+     * @return the average, or null without hourly temperatures or without any known temperature of the hours
+     */
+    public Double averageOfHours(int hourMask) {
+        if (hourlyTemperatures == null) {
+            return null;
+        }
+        double sum = 0;
+        int count = 0;
+        for (int hour = 0; hour < Math.min(HOURS_PER_DAY, hourlyTemperatures.length); hour++) {
+            if ((hourMask >>> hour & 1) != 0 && !Float.isNaN(hourlyTemperatures[hour])) {
+                // The shortest decimal of the float is the value the API reported, without the float's rounding error
+                sum += Double.parseDouble(Float.toString(hourlyTemperatures[hour]));
+                count++;
+            }
+        }
+        return count == 0 ? null : sum / count;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,22 @@
+package com.mathias.electricitypriceaggregator.domain.repository;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Domain repository interface for the requests sent to rate-limited external APIs, shared by every node so that the
+ * nodes stay within one quota together
+ */
+public interface ApiRequestRepository {
+
+    /**
+     * Count a request against the quota of an API if every window has room for it. Callers on all nodes are
+     * serialised, so no two of them take the last room of a window.
+     *
+     * @param api     name of the API the quota belongs to
+     * @param permits what the request counts as; a request weighing more than a whole window waits for all of it
+     * @param limits  most permits counted in any window of the given length
+     * @return zero if the request was counted, otherwise how long until it can be
+     */
+    Duration tryAcquire(String api, int permits, Map<Duration, Integer> limits);
+}
@@ -0,0 +1,46 @@
+package com.mathias.electricitypriceaggregator.domain.repository;
+
+import com.mathias.electricitypriceaggregator.domain.valueobject.AggregatedData;
+import com.mathias.electricitypriceaggregator.domain.valueobject.DailyAggregatedData;
+import com.mathias.electricitypriceaggregator.domain.valueobject.Granularity;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Domain repository interface for daily aggregates computed by the database
+ */
+public interface DailyAggregationRepository {
+
+    /**
+     * Daily average price of the country and average temperature for every UTC day of the range with either of them
+     *
+     * @param startDate the first day of the range (inclusive)
+     * @param endDate   the last day of the range (inclusive)
+     * @return one entry per day with data, ordered by date
+     */
+    List<DailyAggregatedData> findDailyAverages(String country, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Same as {@link #findDailyAverages}, read from the daily price rollup instead of the hourly prices
+     */
+    List<DailyAggregatedData> findDailyAveragesFromSummary(String country, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Same as {@link #findDailyAveragesFromSummary}, passing each day to the consumer as it is read from a cursor.
+     * The cursor holds a database connection until the consumer has received the last day.
+     */
+    void streamDailyAveragesFromSummary(String country, LocalDate startDate, LocalDate endDate,
+                                        Consumer<DailyAggregatedData> consumer);
+
+    /**
+     * Average price of the country and average temperature of every period of the granularity overlapping the range,
+     * read from the daily price rollup. Only the days of the range count towards the periods at its ends.
+     *
+     * @param granularity daily or a longer period
+     * @return one entry per period with data, ordered by period start
+     */
+    List<AggregatedData> findPeriodAveragesFromSummary(String country, LocalDate startDate, LocalDate endDate,
+                                                       Granularity granularity);
+}
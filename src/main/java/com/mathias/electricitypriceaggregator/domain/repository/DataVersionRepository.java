@@ -0,0 +1,32 @@
+package com.mathias.electricitypriceaggregator.domain.repository;
+
+import com.mathias.electricitypriceaggregator.domain.valueobject.DataVersion;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Domain repository interface for the versions of the days whose prices or temperatures were written
+ */
+public interface DataVersionRepository {
+
+    /**
+     * Advance the version of every given day in the current transaction, so the change becomes visible when the
+     * written data does
+     */
+    void advance(Collection<LocalDate> days);
+
+    /**
+     * @param startDate the first day of the range (inclusive)
+     * @param endDate   the last day of the range (inclusive)
+     */
+    DataVersion findDataVersion(LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Version of every calendar month from firstMonth to lastMonth with a written day, which changes whenever any
+     * day of the month is written
+     */
+    Map<YearMonth, Long> findMonthVersions(YearMonth firstMonth, YearMonth lastMonth);
+}
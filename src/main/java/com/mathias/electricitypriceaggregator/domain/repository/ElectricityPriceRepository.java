@@ -1,18 +1,52 @@
 package com.mathias.electricitypriceaggregator.domain.repository;
 
 import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
+import com.mathias.electricitypriceaggregator.domain.valueobject.PriceStatistics;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.SortedMap;
 
 /**
  * Domain repository interface for ElectricityPrice entities
  */
 public interface ElectricityPriceRepository {
 
-    List<ElectricityPrice> findByDateBetween(LocalDate startDate, LocalDate endDate);
+    List<ElectricityPrice> findByDateBetween(String country, LocalDate startDate, LocalDate endDate);
 
-    List<LocalDate> findPricesDateWithoutWeather();
+    /**
+     * Pass the prices of a country recorded from the start of startDate to the end of endDate (UTC) to the consumer in
+     * time order, without creating an object per price
+     */
+    void forEachPrice(String country, LocalDate startDate, LocalDate endDate, PriceConsumer consumer);
 
-    List<Integer> findRecordedHoursByDate(LocalDate date);
+    /**
+     * Statistics of the prices of a country recorded from {@code from} (inclusive) to {@code to} (exclusive)
+     */
+    PriceStatistics findStatistics(String country, Instant from, Instant to);
+
+    /**
+     * Statistics of the prices of a country recorded on the given UTC days
+     */
+    PriceStatistics findStatistics(String country, Collection<LocalDate> days);
+
+    /**
+     * Every UTC day with prices of any country but without weather data, in date order, with the hours that have a
+     * price as a 24-bit mask: bit h is set if a price was recorded at hour h (UTC) of the day
+     */
+    SortedMap<LocalDate, Integer> findRecordedHourMasksWithoutWeather();
+
+    /**
+     * Receives one price at a time as primitives
+     */
+    @FunctionalInterface
+    interface PriceConsumer {
+
+        /**
+         * @param recordedAt epoch second the price was recorded at
+         */
+        void accept(long recordedAt, double price);
+    }
 }
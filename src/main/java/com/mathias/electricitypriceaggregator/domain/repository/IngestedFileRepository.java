@@ -0,0 +1,15 @@
+package com.mathias.electricitypriceaggregator.domain.repository;
+
+import com.mathias.electricitypriceaggregator.domain.model.IngestedFile;
+
+import java.util.Optional;
+
+/**
+ * Domain repository interface for IngestedFile entities
+ */
+public interface IngestedFileRepository {
+
+    IngestedFile save(IngestedFile ingestedFile);
+
+    Optional<IngestedFile> findByDigest(String digest);
+}
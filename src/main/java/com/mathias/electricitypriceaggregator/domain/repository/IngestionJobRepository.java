@@ -0,0 +1,15 @@
+package com.mathias.electricitypriceaggregator.domain.repository;
+
+import com.mathias.electricitypriceaggregator.domain.model.IngestionJob;
+
+import java.util.Optional;
+
+/**
+ * Domain repository interface for IngestionJob entities
+ */
+public interface IngestionJobRepository {
+
+    IngestionJob save(IngestionJob ingestionJob);
+
+    Optional<IngestionJob> findById(String id);
+}
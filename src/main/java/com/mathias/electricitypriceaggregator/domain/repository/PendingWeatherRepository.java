@@ -0,0 +1,46 @@
+package com.mathias.electricitypriceaggregator.domain.repository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Domain repository interface for the queue of days whose weather data is still to be fetched, shared by the weather
+ * sync of every node
+ */
+public interface PendingWeatherRepository {
+
+    /**
+     * Add the days without weather data to the queue in the current transaction, merging their hours with those of
+     * days already queued
+     *
+     * @param hourMasks mask of the hours with prices per day, bit h set for hour h (UTC)
+     */
+    void enqueue(Map<LocalDate, Integer> hourMasks);
+
+    /**
+     * Lease up to maxDays queued days that are not leased by anyone, the earliest first. Rows locked by other nodes
+     * are skipped rather than waited for, and a leased day is not leased again before the lease ends, so the weather
+     * of a day is fetched by one node at a time. Days whose weather is not saved are leased again once their lease
+     * has ended.
+     *
+     * @return the hour masks of the leased days in date order, empty if none is available
+     */
+    SortedMap<LocalDate, Integer> lease(int maxDays, Duration leaseDuration);
+
+    /**
+     * End the lease of the days, so any node can lease them again right away, e.g. when their weather could not be
+     * fetched before the lease would have ended
+     */
+    void release(Collection<LocalDate> days);
+
+    /**
+     * Remove the day from the queue in the current transaction, once its weather data is saved. The row is locked
+     * until the transaction ends, so hours queued by a concurrent upload are either returned or queued after it.
+     *
+     * @return the hour mask the day was queued with, which may hold hours added since it was leased; 0 if not queued
+     */
+    int remove(LocalDate day);
+}
@@ -0,0 +1,17 @@
+package com.mathias.electricitypriceaggregator.domain.repository;
+
+import com.mathias.electricitypriceaggregator.domain.model.UploadSession;
+
+import java.util.Optional;
+
+/**
+ * Domain repository interface for UploadSession entities
+ */
+public interface UploadSessionRepository {
+
+    UploadSession save(UploadSession uploadSession);
+
+    Optional<UploadSession> findById(String id);
+
+    void deleteById(String id);
+}
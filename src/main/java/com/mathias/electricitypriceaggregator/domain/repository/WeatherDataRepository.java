@@ -3,6 +3,7 @@ package com.mathias.electricitypriceaggregator.domain.repository;
 import com.mathias.electricitypriceaggregator.domain.model.WeatherData;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -10,8 +11,27 @@ import java.util.List;
  */
 public interface WeatherDataRepository {
 
+    /**
+     * Save the weather data of a day, its average temperature taken over every hour with prices
+     */
     WeatherData save(WeatherData weatherData);
 
+    /**
+     * Save the weather data of a day leased from the weather queue, its average temperature taken over the leased hours.
+     * If prices of further hours were queued since the lease, the stored average is recomputed from the hourly
+     * temperatures over the hours that now have prices, in the same transaction; the returned data holds the average
+     * as given.
+     *
+     * @param leasedHourMask the hours the average was taken over, bit h set for hour h (UTC)
+     */
+    WeatherData save(WeatherData weatherData, int leasedHourMask);
+
     List<WeatherData> findByDateBetween(LocalDate startDate, LocalDate endDate);
 
+    /**
+     * Recompute, in the current transaction, the average temperature of the given days with stored hourly
+     * temperatures over the hours that now have prices of any country, without fetching anything
+     */
+    void updateAverageTemperatures(Collection<LocalDate> days);
+
 }
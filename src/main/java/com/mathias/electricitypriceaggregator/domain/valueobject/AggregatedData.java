@@ -0,0 +1,26 @@
+package com.mathias.electricitypriceaggregator.domain.valueobject;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+
+import java.time.LocalDateTime;
+
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
+/**
+ * Value object representing data aggregated over one period of a {@link Granularity}.
+ * The price is the average of every hourly price in the period, so days with more recorded hours weigh more, and the
+ * temperature is the average of the daily temperatures in the period.
+ */
+public record AggregatedData(LocalDateTime periodStart, Double averageElectricityPrice, Double averageTemperature) {
+
+    // Rounded once on construction, so accessors and equality see the values that are served
+    public AggregatedData {
+        averageElectricityPrice = OneDecimal.round(averageElectricityPrice);
+        averageTemperature = OneDecimal.round(averageTemperature);
+    }
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this, SHORT_PREFIX_STYLE);
+    }
+}
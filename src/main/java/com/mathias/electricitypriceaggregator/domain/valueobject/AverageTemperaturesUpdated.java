@@ -0,0 +1,14 @@
+package com.mathias.electricitypriceaggregator.domain.valueobject;
+
+import com.mathias.electricitypriceaggregator.domain.model.WeatherData;
+
+import java.util.List;
+
+/**
+ * Event describing the average temperatures recomputed from stored hourly temperatures, published within the updating
+ * transaction. Only the days whose average changed are described.
+ *
+ * @param weather the days with their new average temperature
+ */
+public record AverageTemperaturesUpdated(List<WeatherData> weather) {
+}
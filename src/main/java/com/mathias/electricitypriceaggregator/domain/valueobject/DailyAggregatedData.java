@@ -2,8 +2,6 @@ package com.mathias.electricitypriceaggregator.domain.valueobject;
 
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
 
 import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
@@ -13,23 +11,10 @@ import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
  */
 public record DailyAggregatedData(LocalDate date, Double averageElectricityPrice, Double averageTemperature) {
 
-    @Override
-    public Double averageElectricityPrice() {
-        return round(averageElectricityPrice);
-    }
-
-    @Override
-    public Double averageTemperature() {
-        return round(averageTemperature);
-    }
-
-    private Double round(Double value) {
-        if (value == null) {
-            return null;
-        }
-        return BigDecimal.valueOf(value)
-                .setScale(1, RoundingMode.HALF_UP)
-                .doubleValue();
+    // Rounded once on construction, so accessors and equality see the values that are served
+    public DailyAggregatedData {
+        averageElectricityPrice = OneDecimal.round(averageElectricityPrice);
+        averageTemperature = OneDecimal.round(averageTemperature);
     }
 
     @Override
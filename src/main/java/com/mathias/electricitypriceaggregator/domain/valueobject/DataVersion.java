@@ -0,0 +1,27 @@
+package com.mathias.electricitypriceaggregator.domain.valueobject;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+
+import java.time.Instant;
+
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
+/**
+ * Value object identifying the state of the prices and temperatures of a date range.
+ * The version is the sum of the versions of the days in the range, each advanced on every write of the day, so it
+ * grows whenever anything in the range changes. The last modification is null when nothing in the range was written.
+ */
+public record DataVersion(long version, Instant lastModified) {
+
+    /**
+     * Opaque tag that changes whenever the data of the range changes
+     */
+    public String tag() {
+        return version + "-" + (lastModified == null ? 0 : lastModified.toEpochMilli());
+    }
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this, SHORT_PREFIX_STYLE);
+    }
+}
@@ -0,0 +1,68 @@
+package com.mathias.electricitypriceaggregator.domain.valueobject;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Length of the periods aggregated data is bucketed into. Periods are calendar periods in UTC; weeks start on Monday.
+ */
+public enum Granularity {
+    HOURLY("hour"),
+    DAILY("day"),
+    WEEKLY("week"),
+    MONTHLY("month"),
+    YEARLY("year");
+
+    private final String unit;
+
+    Granularity(String unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * Name of the period as understood by PostgreSQL {@code date_trunc}
+     */
+    public String unit() {
+        return unit;
+    }
+
+    /**
+     * The first day of the period holding the given day; hours are bucketed within their day
+     */
+    public LocalDate periodStart(LocalDate day) {
+        return switch (this) {
+            case HOURLY, DAILY -> day;
+            case WEEKLY -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTHLY -> day.withDayOfMonth(1);
+            case YEARLY -> day.withDayOfYear(1);
+        };
+    }
+
+    /**
+     * The first day of the period after the one starting on the given day
+     */
+    public LocalDate nextPeriodStart(LocalDate periodStart) {
+        return switch (this) {
+            case HOURLY, DAILY -> periodStart.plusDays(1);
+            case WEEKLY -> periodStart.plusWeeks(1);
+            case MONTHLY -> periodStart.plusMonths(1);
+            case YEARLY -> periodStart.plusYears(1);
+        };
+    }
+
+    /**
+     * The granularity named by a request parameter, ignoring case
+     *
+     * @throws IllegalArgumentException if no granularity has that name
+     */
+    public static Granularity fromParameter(String value) {
+        return Arrays.stream(values())
+                .filter(granularity -> granularity.name().equalsIgnoreCase(value.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported granularity: " + value + ", expected one of "
+                        + Arrays.toString(values()).toLowerCase(Locale.ROOT)));
+    }
+}
@@ -0,0 +1,53 @@
+package com.mathias.electricitypriceaggregator.domain.valueobject;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Rounds averages to one decimal, half up, with the same result as
+ * {@code BigDecimal.valueOf(value).setScale(1, RoundingMode.HALF_UP)}, which rounds the shortest decimal representation
+ * of the value. The scaled value decides on its own unless it lies within rounding error of a tie, so BigDecimal is
+ * only allocated for values such as 40.05.
+ */
+final class OneDecimal {
+
+    // Below this magnitude the error of scaling by ten stays far below the tie tolerance
+    private static final double MAX_FAST = 1e9;
+    private static final double TIE_TOLERANCE = 1e-6;
+
+    private OneDecimal() {
+    }
+
+    static Double round(Double value) {
+        if (value == null) {
+            return null;
+        }
+        double rounded = round(value.doubleValue());
+        if (Double.doubleToRawLongBits(rounded) == Double.doubleToRawLongBits(value)) {
+            return value;
+        }
+        return rounded;
+    }
+
+    static double round(double value) {
+        double magnitude = Math.abs(value);
+        if (!(magnitude < MAX_FAST)) {
+            return roundDecimal(value);
+        }
+        double scaled = magnitude * 10;
+        double floor = Math.floor(scaled);
+        double fraction = scaled - floor;
+        if (Math.abs(fraction - 0.5) < TIE_TOLERANCE) {
+            return roundDecimal(value);
+        }
+        double rounded = (fraction > 0.5 ? floor + 1 : floor) / 10;
+        // BigDecimal has no negative zero
+        return value < 0 && rounded != 0 ? -rounded : rounded;
+    }
+
+    private static double roundDecimal(double value) {
+        return BigDecimal.valueOf(value)
+                .setScale(1, RoundingMode.HALF_UP)
+                .doubleValue();
+    }
+}
@@ -0,0 +1,24 @@
+package com.mathias.electricitypriceaggregator.domain.valueobject;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
+/**
+ * Value object representing the statistics of the hourly prices of a country in a time range or set of days.
+ * Without any price in the range the count is zero and the other values are null.
+ */
+public record PriceStatistics(long count, Double averagePrice, Double minimumPrice, Double maximumPrice) {
+
+    public static final PriceStatistics EMPTY = new PriceStatistics(0, null, null, null);
+
+    // Rounded once on construction like the aggregated averages; minimum and maximum are stored prices
+    public PriceStatistics {
+        averagePrice = OneDecimal.round(averagePrice);
+    }
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this, SHORT_PREFIX_STYLE);
+    }
+}
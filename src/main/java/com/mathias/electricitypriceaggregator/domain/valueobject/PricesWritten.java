@@ -0,0 +1,25 @@
+package com.mathias.electricitypriceaggregator.domain.valueobject;
+
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Event describing the electricity prices written by one upsert, published within the writing transaction.
+ * Only the days whose prices changed are described; days skipped as unchanged are left out.
+ *
+ * @param prices the upserted rows of the written days
+ * @param days   the written UTC days of every country
+ */
+public record PricesWritten(List<ElectricityPrice> prices, Map<String, List<LocalDate>> days) {
+
+    /**
+     * The written UTC days of all countries, in date order
+     */
+    public List<LocalDate> allDays() {
+        return days.values().stream().flatMap(Collection::stream).distinct().sorted().toList();
+    }
+}
@@ -0,0 +1,31 @@
+package com.mathias.electricitypriceaggregator.domain.valueobject;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
+/**
+ * Value object counting the outcome of upserting electricity prices.
+ * Rows are counted per timestamp and country, so a price repeated within one upsert is counted once.
+ */
+public record UpsertResult(long inserted, long updated, long unchanged) {
+
+    public static final UpsertResult EMPTY = new UpsertResult(0, 0, 0);
+
+    public static UpsertResult unchanged(long rows) {
+        return new UpsertResult(0, 0, rows);
+    }
+
+    public UpsertResult plus(UpsertResult other) {
+        return new UpsertResult(inserted + other.inserted, updated + other.updated, unchanged + other.unchanged);
+    }
+
+    public long rows() {
+        return inserted + updated + unchanged;
+    }
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this, SHORT_PREFIX_STYLE);
+    }
+}
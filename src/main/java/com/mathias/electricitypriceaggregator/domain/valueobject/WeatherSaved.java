@@ -0,0 +1,12 @@
+package com.mathias.electricitypriceaggregator.domain.valueobject;
+
+import com.mathias.electricitypriceaggregator.domain.model.WeatherData;
+
+/**
+ * Event describing the weather data of a day saved by the weather sync, published within the saving transaction
+ *
+ * @param weatherData      the saved weather data
+ * @param averagedHourMask the hours its average temperature was taken over, bit h set for hour h (UTC)
+ */
+public record WeatherSaved(WeatherData weatherData, int averagedHourMask) {
+}
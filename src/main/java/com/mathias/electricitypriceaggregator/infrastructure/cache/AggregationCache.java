@@ -0,0 +1,154 @@
+package com.mathias.electricitypriceaggregator.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mathias.electricitypriceaggregator.domain.valueobject.DailyAggregatedData;
+import com.mathias.electricitypriceaggregator.infrastructure.config.AggregationProperties;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.AfterCommit;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Cache of daily aggregated data in blocks of one country and calendar month.
+ * A range is assembled from the cached blocks it overlaps, and each run of consecutive missing blocks is computed with
+ * one call, so overlapping ranges share their blocks. The cache is bounded by a number of blocks and a time to live.
+ * Every block is cached with the data version of its month it was computed at, and is only returned while the caller
+ * still reads that version, so writes of other nodes, which this node is not told of, replace the blocks they touch.
+ * Writes of this node also invalidate their blocks after commit. Every block carries a local version that invalidation
+ * increments, so a block computed from data read before a concurrent write is returned but not cached. Hit and miss
+ * counts are published as {@code cache.gets} metrics tagged with
+ * {@code cache=aggregation}.
+ */
+@Component
+public class AggregationCache {
+
+    private final Cache<Block, CachedBlock> blocks;
+    // Version of every block computed so far; one entry per country and month, never evicted
+    private final Map<Block, Long> versions = new ConcurrentHashMap<>();
+
+    public AggregationCache(AggregationProperties aggregationProperties, MeterRegistry meterRegistry) {
+        this.blocks = Caffeine.newBuilder()
+                .maximumSize(aggregationProperties.getCacheMaximumBlocks())
+                .expireAfterWrite(aggregationProperties.getCacheTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, blocks, "aggregation");
+    }
+
+    /**
+     * Daily aggregated data of a country in the range, read from cached blocks or computed by the loader
+     *
+     * @param monthVersions data version of every month of the range, read before the loader reads the data; a month
+     *                      missing from it has never been written
+     * @param loader        computes the daily aggregated data of a country for a date range, both ends inclusive
+     */
+    public List<DailyAggregatedData> get(String country, LocalDate startDate, LocalDate endDate,
+                                         Map<YearMonth, Long> monthVersions,
+                                         BiFunction<LocalDate, LocalDate, List<DailyAggregatedData>> loader) {
+        List<Block> keys = new ArrayList<>();
+        for (YearMonth month = YearMonth.from(startDate); !month.isAfter(YearMonth.from(endDate)); month = month.plusMonths(1)) {
+            keys.add(new Block(country, month));
+        }
+        Map<Block, List<DailyAggregatedData>> found = new HashMap<>();
+        blocks.getAllPresent(keys).forEach((block, cached) -> {
+            // A block computed before a write of another node is as good as missing
+            if (cached.dataVersion() == monthVersions.getOrDefault(block.month(), 0L)) {
+                found.put(block, cached.days());
+            }
+        });
+
+        int first = 0;
+        while (first < keys.size()) {
+            if (found.containsKey(keys.get(first))) {
+                first++;
+                continue;
+            }
+            int end = first;
+            while (end < keys.size() && !found.containsKey(keys.get(end))) {
+                end++;
+            }
+            found.putAll(load(keys.subList(first, end), monthVersions, loader));
+            first = end;
+        }
+
+        List<DailyAggregatedData> result = new ArrayList<>();
+        for (Block key : keys) {
+            for (DailyAggregatedData data : found.get(key)) {
+                if (!data.date().isBefore(startDate) && !data.date().isAfter(endDate)) {
+                    result.add(data);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Invalidate the blocks holding the given days of a country once the current transaction commits
+     */
+    public void invalidatePricesAfterCommit(String country, Collection<LocalDate> days) {
+        List<Block> touched = days.stream().map(YearMonth::from).distinct().map(month -> new Block(country, month)).toList();
+        AfterCommit.run(() -> touched.forEach(this::invalidate));
+    }
+
+    /**
+     * Invalidate the blocks of every country holding the given day once the current transaction commits
+     */
+    public void invalidateWeatherAfterCommit(LocalDate day) {
+        YearMonth month = YearMonth.from(day);
+        // A block missing from the versions has never been computed, so it cannot be cached or in flight
+        AfterCommit.run(() -> versions.keySet().stream()
+                .filter(block -> block.month().equals(month))
+                .toList()
+                .forEach(this::invalidate));
+    }
+
+    public void invalidateAll() {
+        versions.keySet().forEach(this::invalidate);
+    }
+
+    private Map<Block, List<DailyAggregatedData>> load(List<Block> run, Map<YearMonth, Long> monthVersions,
+                                                       BiFunction<LocalDate, LocalDate, List<DailyAggregatedData>> loader) {
+        Map<Block, Long> loadedVersions = new HashMap<>();
+        run.forEach(block -> loadedVersions.put(block, versions.computeIfAbsent(block, key -> 0L)));
+
+        Map<Block, List<DailyAggregatedData>> loaded = new HashMap<>();
+        run.forEach(block -> loaded.put(block, new ArrayList<>()));
+        String country = run.get(0).country();
+        for (DailyAggregatedData data : loader.apply(run.get(0).month().atDay(1), run.get(run.size() - 1).month().atEndOfMonth())) {
+            loaded.get(new Block(country, YearMonth.from(data.date()))).add(data);
+        }
+
+        loaded.forEach((block, data) -> versions.computeIfPresent(block, (key, version) -> {
+            // Checked and cached atomically with respect to invalidate
+            if (version.equals(loadedVersions.get(block))) {
+                blocks.put(block, new CachedBlock(monthVersions.getOrDefault(block.month(), 0L), List.copyOf(data)));
+            }
+            return version;
+        }));
+        return loaded;
+    }
+
+    private void invalidate(Block block) {
+        versions.compute(block, (key, version) -> {
+            blocks.invalidate(key);
+            return version == null ? 1L : version + 1;
+        });
+    }
+
+    private record Block(String country, YearMonth month) {
+    }
+
+    private record CachedBlock(long dataVersion, List<DailyAggregatedData> days) {
+    }
+}
@@ -0,0 +1,71 @@
+package com.mathias.electricitypriceaggregator.infrastructure.config;
+
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.ColumnarPriceStore;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.ElectricityPriceBulkRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Configuration for aggregating electricity prices and weather data
+ */
+@Configuration
+@EnableConfigurationProperties(AggregationProperties.class)
+public class AggregationConfig {
+    private static final Logger LOG = LoggerFactory.getLogger(AggregationConfig.class);
+
+    private final ElectricityPriceBulkRepository electricityPriceBulkRepository;
+    private final ColumnarPriceStore columnarPriceStore;
+    private final AggregationProperties aggregationProperties;
+
+    public AggregationConfig(ElectricityPriceBulkRepository electricityPriceBulkRepository,
+                             ColumnarPriceStore columnarPriceStore,
+                             AggregationProperties aggregationProperties) {
+        this.electricityPriceBulkRepository = electricityPriceBulkRepository;
+        this.columnarPriceStore = columnarPriceStore;
+        this.aggregationProperties = aggregationProperties;
+    }
+
+    /**
+     * Build the daily price rollup of prices ingested before it existed; afterwards it is maintained on ingestion
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildDailyPriceSummaries() {
+        int summaries = electricityPriceBulkRepository.buildDailySummariesIfEmpty();
+        if (summaries > 0) {
+            LOG.info("Built {} daily price summaries from the stored prices", summaries);
+        }
+    }
+
+    /**
+     * Load the in-memory store used by the memory strategy; requests are served from the rollup until it is loaded
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadColumnarPriceStore() {
+        if (aggregationProperties.getStrategy() == AggregationProperties.Strategy.MEMORY) {
+            columnarPriceStore.load();
+        }
+    }
+
+    /**
+     * Apply the prices and temperatures other nodes wrote to the in-memory store of the memory strategy
+     */
+    @Scheduled(fixedDelayString = "${aggregation.memory-refresh-interval:5s}")
+    public void refreshColumnarPriceStore() {
+        if (aggregationProperties.getStrategy() != AggregationProperties.Strategy.MEMORY) {
+            return;
+        }
+        try {
+            int days = columnarPriceStore.refresh();
+            if (days > 0) {
+                LOG.info("Reloaded {} days written by other nodes into the in-memory store", days);
+            }
+        } catch (Exception e) {
+            LOG.error("Failed to refresh the in-memory store: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.mathias.electricitypriceaggregator.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for aggregating electricity prices and weather data
+ */
+@ConfigurationProperties(prefix = "aggregation")
+public class AggregationProperties {
+
+    /**
+     * Where daily averages are computed
+     */
+    private Strategy strategy = Strategy.ROLLUP;
+
+    /**
+     * Whether aggregated data is cached in blocks of one country and month
+     */
+    private boolean cacheEnabled = true;
+
+    /**
+     * Maximum number of cached monthly blocks
+     */
+    private long cacheMaximumBlocks = 1200;
+
+    /**
+     * How long a cached block is kept after it was computed
+     */
+    private Duration cacheTtl = Duration.ofHours(1);
+
+    /**
+     * How often the in-memory store of the memory strategy reloads the days written by other nodes
+     */
+    private Duration memoryRefreshInterval = Duration.ofSeconds(5);
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    public void setStrategy(Strategy strategy) {
+        this.strategy = strategy;
+    }
+
+    public boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    public void setCacheEnabled(boolean cacheEnabled) {
+        this.cacheEnabled = cacheEnabled;
+    }
+
+    public long getCacheMaximumBlocks() {
+        return cacheMaximumBlocks;
+    }
+
+    public void setCacheMaximumBlocks(long cacheMaximumBlocks) {
+        this.cacheMaximumBlocks = cacheMaximumBlocks;
+    }
+
+    public Duration getCacheTtl() {
+        return cacheTtl;
+    }
+
+    public void setCacheTtl(Duration cacheTtl) {
+        this.cacheTtl = cacheTtl;
+    }
+
+    public Duration getMemoryRefreshInterval() {
+        return memoryRefreshInterval;
+    }
+
+    public void setMemoryRefreshInterval(Duration memoryRefreshInterval) {
+        this.memoryRefreshInterval = memoryRefreshInterval;
+    }
+
+    public enum Strategy {
+        /**
+         * Daily averages are read from the daily_price_summary rollup, so the cost depends on the number of days only
+         */
+        ROLLUP,
+        /**
+         * Daily averages are computed by PostgreSQL from the hourly prices, which returns one row per day
+         */
+        SQL,
+        /**
+         * Hourly prices and daily temperatures are loaded into a columnar in-memory store at startup and kept current on
+         * every write of this node and every refresh, and daily averages are computed by scanning its arrays without a
+         * database round trip
+         */
+        MEMORY,
+        /**
+         * Hourly prices and daily weather are loaded through JPA and averaged in the application, kept as a fallback
+         */
+        JVM
+    }
+}
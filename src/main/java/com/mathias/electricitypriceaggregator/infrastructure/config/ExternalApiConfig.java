@@ -1,17 +1,32 @@
 package com.mathias.electricitypriceaggregator.infrastructure.config;
 
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestTemplate;
 
 /**
  * Configuration for external API clients
  */
 @Configuration
+@EnableConfigurationProperties(WeatherProperties.class)
 public class ExternalApiConfig {
 
     @Bean
     public RestTemplate restTemplate() {
         return new RestTemplate();
     }
+
+    /**
+     * Threads fetching and saving the temperatures of one date each during the weather sync
+     */
+    @Bean
+    public ThreadPoolTaskExecutor weatherSyncExecutor(WeatherProperties weatherProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(weatherProperties.getSyncParallelism());
+        executor.setMaxPoolSize(weatherProperties.getSyncParallelism());
+        executor.setThreadNamePrefix("weather-sync-");
+        return executor;
+    }
 }
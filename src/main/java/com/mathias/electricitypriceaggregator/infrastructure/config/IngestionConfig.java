@@ -0,0 +1,38 @@
+package com.mathias.electricitypriceaggregator.infrastructure.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Configuration for electricity price ingestion
+ */
+@Configuration
+@EnableConfigurationProperties(IngestionProperties.class)
+public class IngestionConfig {
+
+    /**
+     * Bounded executor for asynchronous upload jobs; submissions beyond the queue capacity are rejected
+     */
+    @Bean
+    public ThreadPoolTaskExecutor ingestionExecutor(IngestionProperties ingestionProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(ingestionProperties.getExecutorThreads());
+        executor.setMaxPoolSize(ingestionProperties.getExecutorThreads());
+        executor.setQueueCapacity(ingestionProperties.getQueueCapacity());
+        executor.setThreadNamePrefix("ingestion-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    /**
+     * Pool parsing file segments for the parallel NPS parser, kept apart from the common pool
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool csvParserPool(IngestionProperties ingestionProperties) {
+        return new ForkJoinPool(ingestionProperties.getParserThreads());
+    }
+}
@@ -0,0 +1,253 @@
+package com.mathias.electricitypriceaggregator.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Configuration properties for electricity price ingestion
+ */
+@ConfigurationProperties(prefix = "ingestion")
+public class IngestionProperties {
+
+    /**
+     * Number of parsed rows upserted and committed together in one transaction
+     */
+    private int chunkSize = 5000;
+
+    /**
+     * CSV parser used to read uploaded files
+     */
+    private CsvParser parser = CsvParser.NPS;
+
+    /**
+     * Threads parsing segments of a file concurrently with the {@code NPS_PARALLEL} parser
+     */
+    private int parserThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Size of the segments a file is split into for parallel parsing; each segment ends at the next line boundary
+     */
+    private DataSize parallelSegmentSize = DataSize.ofMegabytes(4);
+
+    /**
+     * Smallest spooled file parsed in parallel; smaller files are parsed sequentially
+     */
+    private DataSize parallelThreshold = DataSize.ofMegabytes(64);
+
+    /**
+     * How chunks are written to the electricity_price table
+     */
+    private WriteMode writeMode = WriteMode.ARRAY;
+
+    /**
+     * Bidding zone countries whose NPS price columns are ingested from every upload
+     */
+    private List<String> countries = List.of("EE");
+
+    /**
+     * Directory where uploads processed asynchronously are spooled until their job finishes
+     */
+    private Path spoolDirectory = Path.of(System.getProperty("java.io.tmpdir"), "electricity-price-uploads");
+
+    /**
+     * Number of threads processing asynchronous upload jobs
+     */
+    private int executorThreads = 2;
+
+    /**
+     * Number of asynchronous upload jobs waiting for a free thread before new uploads are rejected
+     */
+    private int queueCapacity = 16;
+
+    /**
+     * How long finished jobs remain available from the job status endpoint
+     */
+    private Duration jobRetention = Duration.ofHours(1);
+
+    /**
+     * Number of files ingested at the same time across synchronous uploads, upload jobs and upload sessions
+     */
+    private int maxConcurrentIngests = 2;
+
+    /**
+     * Number of synchronous uploads waiting for an ingestion slot before further uploads are rejected
+     */
+    private int admissionQueueCapacity = 4;
+
+    /**
+     * How long a synchronous upload waits for an ingestion slot before it is rejected
+     */
+    private Duration admissionTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Delay suggested to clients in the Retry-After header of a rejected upload
+     */
+    private Duration retryAfter = Duration.ofSeconds(30);
+
+    /**
+     * Database connections that ingestion never uses, so the read endpoints always get a connection
+     */
+    private int reservedReadConnections = 4;
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public CsvParser getParser() {
+        return parser;
+    }
+
+    public void setParser(CsvParser parser) {
+        this.parser = parser;
+    }
+
+    public int getParserThreads() {
+        return parserThreads;
+    }
+
+    public void setParserThreads(int parserThreads) {
+        this.parserThreads = parserThreads;
+    }
+
+    public DataSize getParallelSegmentSize() {
+        return parallelSegmentSize;
+    }
+
+    public void setParallelSegmentSize(DataSize parallelSegmentSize) {
+        this.parallelSegmentSize = parallelSegmentSize;
+    }
+
+    public DataSize getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public void setParallelThreshold(DataSize parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public WriteMode getWriteMode() {
+        return writeMode;
+    }
+
+    public void setWriteMode(WriteMode writeMode) {
+        this.writeMode = writeMode;
+    }
+
+    public List<String> getCountries() {
+        return countries;
+    }
+
+    public void setCountries(List<String> countries) {
+        this.countries = countries;
+    }
+
+    public Path getSpoolDirectory() {
+        return spoolDirectory;
+    }
+
+    public void setSpoolDirectory(Path spoolDirectory) {
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    public int getExecutorThreads() {
+        return executorThreads;
+    }
+
+    public void setExecutorThreads(int executorThreads) {
+        this.executorThreads = executorThreads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public Duration getJobRetention() {
+        return jobRetention;
+    }
+
+    public void setJobRetention(Duration jobRetention) {
+        this.jobRetention = jobRetention;
+    }
+
+    public int getMaxConcurrentIngests() {
+        return maxConcurrentIngests;
+    }
+
+    public void setMaxConcurrentIngests(int maxConcurrentIngests) {
+        this.maxConcurrentIngests = maxConcurrentIngests;
+    }
+
+    public int getAdmissionQueueCapacity() {
+        return admissionQueueCapacity;
+    }
+
+    public void setAdmissionQueueCapacity(int admissionQueueCapacity) {
+        this.admissionQueueCapacity = admissionQueueCapacity;
+    }
+
+    public Duration getAdmissionTimeout() {
+        return admissionTimeout;
+    }
+
+    public void setAdmissionTimeout(Duration admissionTimeout) {
+        this.admissionTimeout = admissionTimeout;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    public void setRetryAfter(Duration retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+
+    public int getReservedReadConnections() {
+        return reservedReadConnections;
+    }
+
+    public void setReservedReadConnections(int reservedReadConnections) {
+        this.reservedReadConnections = reservedReadConnections;
+    }
+
+    public enum CsvParser {
+        /**
+         * Hand-written byte-level parser for the NPS export format
+         */
+        NPS,
+        /**
+         * NPS parser run on segments of large files in parallel; streamed content is parsed with NPS
+         */
+        NPS_PARALLEL,
+        /**
+         * OpenCSV bean binding, kept as a fallback
+         */
+        OPENCSV
+    }
+
+    public enum WriteMode {
+        /**
+         * One single-row INSERT ... ON CONFLICT statement per row, sent as JDBC batches
+         */
+        BATCH,
+        /**
+         * One INSERT ... ON CONFLICT statement per chunk, with the rows bound as arrays
+         */
+        ARRAY,
+        /**
+         * COPY into a temporary staging table followed by one set-based upsert
+         */
+        COPY
+    }
+}
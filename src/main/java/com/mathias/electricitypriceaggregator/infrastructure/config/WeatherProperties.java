@@ -0,0 +1,110 @@
+package com.mathias.electricitypriceaggregator.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for fetching temperatures from the Open-Meteo archive API
+ */
+@ConfigurationProperties(prefix = "weather")
+public class WeatherProperties {
+
+    /**
+     * URL of the Open-Meteo archive endpoint
+     */
+    private String baseUrl = "https://archive-api.open-meteo.com/v1/archive";
+
+    /**
+     * Number of requests whose temperatures are fetched and saved at the same time by the weather sync
+     */
+    private int syncParallelism = 4;
+
+    /**
+     * Most days of consecutive dates without weather fetched in one request
+     */
+    private int maxDaysPerRequest = 31;
+
+    /**
+     * Most dates leased from the weather queue at a time by the sync of one node
+     */
+    private int leaseDays = 124;
+
+    /**
+     * How long leased dates are reserved for the node that leased them; dates whose weather is not saved in time are
+     * leased again, by any node
+     */
+    private Duration leaseDuration = Duration.ofMinutes(5);
+
+    /**
+     * Requests sent to the API in any minute, hour and day by all nodes together; 0 for no limit.
+     * The defaults stay below the free API quotas of 600 per minute, 5000 per hour and 10000 per day.
+     */
+    private int maxRequestsPerMinute = 500;
+    private int maxRequestsPerHour = 4500;
+    private int maxRequestsPerDay = 9000;
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public void setBaseUrl(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public int getSyncParallelism() {
+        return syncParallelism;
+    }
+
+    public void setSyncParallelism(int syncParallelism) {
+        this.syncParallelism = syncParallelism;
+    }
+
+    public int getMaxDaysPerRequest() {
+        return maxDaysPerRequest;
+    }
+
+    public void setMaxDaysPerRequest(int maxDaysPerRequest) {
+        this.maxDaysPerRequest = maxDaysPerRequest;
+    }
+
+    public int getLeaseDays() {
+        return leaseDays;
+    }
+
+    public void setLeaseDays(int leaseDays) {
+        this.leaseDays = leaseDays;
+    }
+
+    public Duration getLeaseDuration() {
+        return leaseDuration;
+    }
+
+    public void setLeaseDuration(Duration leaseDuration) {
+        this.leaseDuration = leaseDuration;
+    }
+
+    public int getMaxRequestsPerMinute() {
+        return maxRequestsPerMinute;
+    }
+
+    public void setMaxRequestsPerMinute(int maxRequestsPerMinute) {
+        this.maxRequestsPerMinute = maxRequestsPerMinute;
+    }
+
+    public int getMaxRequestsPerHour() {
+        return maxRequestsPerHour;
+    }
+
+    public void setMaxRequestsPerHour(int maxRequestsPerHour) {
+        this.maxRequestsPerHour = maxRequestsPerHour;
+    }
+
+    public int getMaxRequestsPerDay() {
+        return maxRequestsPerDay;
+    }
+
+    public void setMaxRequestsPerDay(int maxRequestsPerDay) {
+        this.maxRequestsPerDay = maxRequestsPerDay;
+    }
+}
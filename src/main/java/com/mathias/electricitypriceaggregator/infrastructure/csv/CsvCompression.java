@@ -0,0 +1,84 @@
+package com.mathias.electricitypriceaggregator.infrastructure.csv;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Compression of an uploaded CSV file, resolved from the Content-Encoding header or the file extension.
+ * Compressed content is decompressed while it is read, so no uncompressed copy of the file is kept.
+ */
+public enum CsvCompression {
+
+    NONE(".csv", "identity"),
+    GZIP(".csv.gz", "gzip", "x-gzip"),
+    ZSTD(".csv.zst", "zstd");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String extension;
+    private final String[] contentEncodings;
+
+    CsvCompression(String extension, String... contentEncodings) {
+        this.extension = extension;
+        this.contentEncodings = contentEncodings;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Wrap the raw content in a decompressing stream
+     */
+    public InputStream decompress(InputStream inputStream) throws IOException {
+        return switch (this) {
+            case NONE -> inputStream;
+            case GZIP -> new GZIPInputStream(inputStream, BUFFER_SIZE);
+            case ZSTD -> new ZstdInputStream(inputStream);
+        };
+    }
+
+    /**
+     * The compression named by the Content-Encoding header, or implied by the file extension when there is none
+     *
+     * @throws IllegalArgumentException for an unsupported Content-Encoding
+     */
+    public static CsvCompression resolve(String fileName, String contentEncoding) {
+        if (contentEncoding != null && !contentEncoding.isBlank()) {
+            String encoding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+            return Arrays.stream(values())
+                    .filter(compression -> Arrays.asList(compression.contentEncodings).contains(encoding))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unsupported Content-Encoding: " + contentEncoding));
+        }
+        return forFileName(fileName);
+    }
+
+    /**
+     * The compression implied by the file extension; names without a compressed CSV extension are not compressed
+     */
+    public static CsvCompression forFileName(String fileName) {
+        String name = lowerCase(fileName);
+        return Arrays.stream(values())
+                .filter(compression -> compression != NONE && name.endsWith(compression.extension))
+                .findFirst()
+                .orElse(NONE);
+    }
+
+    /**
+     * Whether the file name ends with a plain or compressed CSV extension
+     */
+    public static boolean isCsvFileName(String fileName) {
+        String name = lowerCase(fileName);
+        return Arrays.stream(values()).anyMatch(compression -> name.endsWith(compression.extension));
+    }
+
+    private static String lowerCase(String fileName) {
+        return fileName == null ? "" : fileName.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,21 @@
+package com.mathias.electricitypriceaggregator.infrastructure.csv;
+
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Reads electricity prices from NPS CSV content, handing each parsed row to a consumer as soon as it is read
+ */
+public interface ElectricityPriceCsvReader {
+
+    /**
+     * Read all rows of the CSV content
+     *
+     * @param inputStream the raw CSV content, encoded in ISO-8859-1
+     * @param consumer    receives the parsed prices in file order
+     */
+    void read(InputStream inputStream, Consumer<ElectricityPrice> consumer) throws IOException;
+}
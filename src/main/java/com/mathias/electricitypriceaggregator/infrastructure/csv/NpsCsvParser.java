@@ -0,0 +1,398 @@
+package com.mathias.electricitypriceaggregator.infrastructure.csv;
+
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import static com.mathias.electricitypriceaggregator.domain.factory.ElectricityPriceFactory.create;
+
+/**
+ * Hand-written parser for the NPS price export: semicolon separated, optionally quoted and ISO-8859-1 encoded.
+ * The input is scanned as raw bytes. The header is decoded once to resolve the column positions, and the timestamp
+ * and decimal-comma price cells are parsed in place without creating intermediate Strings.
+ * All requested price columns are read in the same pass, emitting one price per country for every row.
+ */
+public class NpsCsvParser implements ElectricityPriceCsvReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte SEPARATOR = ';';
+    private static final byte QUOTE = '"';
+    private static final int MAX_FAST_DIGITS = 18;
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final List<NpsPriceColumn> requestedColumns;
+
+    public NpsCsvParser() {
+        this(List.of(NpsPriceColumn.ESTONIA));
+    }
+
+    public NpsCsvParser(List<NpsPriceColumn> requestedColumns) {
+        this.requestedColumns = requestedColumns;
+    }
+
+    @Override
+    public void read(InputStream inputStream, Consumer<ElectricityPrice> consumer) throws IOException {
+        read(inputStream, consumer, offset -> {
+        });
+    }
+
+    /**
+     * Parse the content, reporting the end of every line once the prices of that line were passed to the consumer
+     *
+     * @param lineEnds receives the offset in the content right after each line, including header and blank lines
+     */
+    public void read(InputStream inputStream, Consumer<ElectricityPrice> consumer, LongConsumer lineEnds) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        // Offset in the content of the first byte in the buffer
+        long bufferOffset = 0;
+        int start = 0;
+        int limit = 0;
+        int scanned = 0;
+        boolean endOfStream = false;
+        LineParser lineParser = new LineParser(requestedColumns, consumer);
+
+        while (true) {
+            int lineEnd = indexOf((byte) '\n', buffer, scanned, limit);
+            if (lineEnd >= 0) {
+                lineParser.parse(buffer, start, lineEnd);
+                start = lineEnd + 1;
+                scanned = start;
+                lineEnds.accept(bufferOffset + start);
+                continue;
+            }
+            if (endOfStream) {
+                if (start < limit) {
+                    lineParser.parse(buffer, start, limit);
+                    lineEnds.accept(bufferOffset + limit);
+                }
+                break;
+            }
+            // Keep the incomplete line and refill the buffer behind it
+            if (start > 0) {
+                System.arraycopy(buffer, start, buffer, 0, limit - start);
+                limit -= start;
+                bufferOffset += start;
+                start = 0;
+            }
+            if (limit == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            scanned = limit;
+            int read = inputStream.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                endOfStream = true;
+            } else {
+                limit += read;
+            }
+        }
+
+        if (!lineParser.hasHeader()) {
+            throw new IllegalArgumentException("CSV file has no header");
+        }
+    }
+
+    /**
+     * Read the content up to and including the header line, which is the first line that is not blank
+     *
+     * @return the bytes read, empty if the content has no header
+     */
+    public static byte[] readHeader(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        boolean blankLine = true;
+        int current;
+        while ((current = inputStream.read()) >= 0) {
+            header.write(current);
+            if (current == '\n') {
+                if (!blankLine) {
+                    return header.toByteArray();
+                }
+            } else if (!isWhitespace((byte) current)) {
+                blankLine = false;
+            }
+        }
+        return blankLine ? new byte[0] : header.toByteArray();
+    }
+
+    /**
+     * Parses a decimal with either a comma or a point as separator.
+     * Plain decimals whose digits fit in a 53-bit mantissa are computed exactly from the digits; anything else
+     * (exponents, very long values) falls back to {@link Double#parseDouble}.
+     */
+    static double parseDecimal(byte[] buffer, int from, int to) {
+        int position = from;
+        boolean negative = false;
+        if (position < to && (buffer[position] == '-' || buffer[position] == '+')) {
+            negative = buffer[position] == '-';
+            position++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean separatorSeen = false;
+        for (; position < to; position++) {
+            byte current = buffer[position];
+            if (current >= '0' && current <= '9') {
+                if (++digits > MAX_FAST_DIGITS) {
+                    return parseDecimalSlow(buffer, from, to);
+                }
+                mantissa = mantissa * 10 + (current - '0');
+                if (separatorSeen) {
+                    fractionDigits++;
+                }
+            } else if ((current == ',' || current == '.') && !separatorSeen) {
+                separatorSeen = true;
+            } else {
+                return parseDecimalSlow(buffer, from, to);
+            }
+        }
+
+        if (digits == 0 || mantissa > MAX_EXACT_MANTISSA || fractionDigits >= POWERS_OF_TEN.length) {
+            return parseDecimalSlow(buffer, from, to);
+        }
+        // Both operands are exact, so the division yields the correctly rounded double
+        double value = fractionDigits == 0 ? mantissa : mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    private static double parseDecimalSlow(byte[] buffer, int from, int to) {
+        String value = new String(buffer, from, to - from, StandardCharsets.ISO_8859_1);
+        try {
+            return Double.parseDouble(value.replace(",", "."));
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid number format: " + value);
+        }
+    }
+
+    static long parseEpochSecond(byte[] buffer, int from, int to, int lineNumber) {
+        int position = from;
+        boolean negative = buffer[position] == '-';
+        if (negative) {
+            position++;
+        }
+        if (position == to || to - position > MAX_FAST_DIGITS) {
+            throw invalidTimestamp(buffer, from, to, lineNumber);
+        }
+        long value = 0;
+        for (; position < to; position++) {
+            byte current = buffer[position];
+            if (current < '0' || current > '9') {
+                throw invalidTimestamp(buffer, from, to, lineNumber);
+            }
+            value = value * 10 + (current - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    private static IllegalArgumentException invalidTimestamp(byte[] buffer, int from, int to, int lineNumber) {
+        return new IllegalArgumentException(String.format("Invalid timestamp '%s' at line %d",
+                new String(buffer, from, to - from, StandardCharsets.ISO_8859_1), lineNumber));
+    }
+
+    static int indexOf(byte value, byte[] buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isWhitespace(byte value) {
+        return value == ' ' || value == '\t' || value == '\r';
+    }
+
+    /**
+     * Stateful parser of the lines of one file: resolves the header on the first non-blank line,
+     * then parses every following line into an {@link ElectricityPrice}.
+     */
+    static final class LineParser {
+
+        private final List<NpsPriceColumn> requestedColumns;
+        private final Consumer<ElectricityPrice> consumer;
+        private int lineNumber;
+        private NpsHeader header;
+        private int timestampColumn;
+        private int lastColumn;
+        // Slot of the price read from each column, or -1 for columns that are not read
+        private int[] columnSlots;
+        private double[] prices;
+
+        // Bounds of the current cell, excluding surrounding whitespace and quotes
+        private int cellStart;
+        private int cellEnd;
+
+        LineParser(List<NpsPriceColumn> requestedColumns, Consumer<ElectricityPrice> consumer) {
+            this.requestedColumns = requestedColumns;
+            this.consumer = consumer;
+        }
+
+        /**
+         * Parser of the data lines of a file whose header was already resolved by {@code headerParser}
+         *
+         * @param lineNumber number of the lines preceding the first line parsed, used in error messages
+         */
+        LineParser(LineParser headerParser, Consumer<ElectricityPrice> consumer, int lineNumber) {
+            this.requestedColumns = headerParser.requestedColumns;
+            this.consumer = consumer;
+            this.lineNumber = lineNumber;
+            this.header = headerParser.header;
+            this.timestampColumn = headerParser.timestampColumn;
+            this.lastColumn = headerParser.lastColumn;
+            this.columnSlots = headerParser.columnSlots;
+            this.prices = new double[headerParser.prices.length];
+        }
+
+        boolean hasHeader() {
+            return header != null;
+        }
+
+        int lineNumber() {
+            return lineNumber;
+        }
+
+        /**
+         * Parses every line of a block of complete lines; the last line does not need a terminating newline
+         */
+        void parseLines(byte[] buffer, int from, int to) {
+            int start = from;
+            int lineEnd;
+            while ((lineEnd = indexOf((byte) '\n', buffer, start, to)) >= 0) {
+                parse(buffer, start, lineEnd);
+                start = lineEnd + 1;
+            }
+            if (start < to) {
+                parse(buffer, start, to);
+            }
+        }
+
+        void parse(byte[] buffer, int from, int to) {
+            lineNumber++;
+            while (to > from && isWhitespace(buffer[to - 1])) {
+                to--;
+            }
+            if (to == from) {
+                return;
+            }
+            if (hasHeader()) {
+                parseRow(buffer, from, to);
+            } else {
+                parseHeader(buffer, from, to);
+            }
+        }
+
+        private void parseHeader(byte[] buffer, int from, int to) {
+            List<String> names = new ArrayList<>();
+            int position = from;
+            while (position <= to) {
+                int next = nextCell(buffer, position, to);
+                names.add(new String(buffer, cellStart, cellEnd - cellStart, StandardCharsets.ISO_8859_1).trim());
+                position = next;
+            }
+            header = NpsHeader.resolve(names, requestedColumns);
+
+            timestampColumn = header.timestampIndex();
+            lastColumn = timestampColumn;
+            int slots = header.priceColumns().size();
+            for (int slot = 0; slot < slots; slot++) {
+                lastColumn = Math.max(lastColumn, header.priceIndex(slot));
+            }
+            columnSlots = new int[lastColumn + 1];
+            Arrays.fill(columnSlots, -1);
+            for (int slot = 0; slot < slots; slot++) {
+                columnSlots[header.priceIndex(slot)] = slot;
+            }
+            prices = new double[slots];
+        }
+
+        private void parseRow(byte[] buffer, int from, int to) {
+            long recordedAt = 0;
+            int column = 0;
+            int position = from;
+            while (position <= to && column <= lastColumn) {
+                int next = nextCell(buffer, position, to);
+                if (column == timestampColumn) {
+                    if (cellStart == cellEnd) {
+                        // Rows without a timestamp are skipped
+                        return;
+                    }
+                    recordedAt = parseEpochSecond(buffer, cellStart, cellEnd, lineNumber);
+                } else if (columnSlots[column] >= 0) {
+                    int slot = columnSlots[column];
+                    if (cellStart == cellEnd) {
+                        throw new IllegalArgumentException("Missing value for '"
+                                + header.priceColumns().get(slot).getHeader() + "' at line " + lineNumber);
+                    }
+                    prices[slot] = parseDecimal(buffer, cellStart, cellEnd);
+                }
+                column++;
+                position = next;
+            }
+            if (column <= lastColumn) {
+                throw new IllegalArgumentException("Expected at least " + (lastColumn + 1) + " columns at line " + lineNumber);
+            }
+
+            List<NpsPriceColumn> priceColumns = header.priceColumns();
+            for (int slot = 0; slot < prices.length; slot++) {
+                ElectricityPrice electricityPrice = create(priceColumns.get(slot).getCountry());
+                electricityPrice.setRecordedAt(recordedAt);
+                electricityPrice.setPrice(prices[slot]);
+                consumer.accept(electricityPrice);
+            }
+        }
+
+        /**
+         * Locates the cell starting at {@code from}, storing its trimmed and unquoted bounds in
+         * {@link #cellStart} and {@link #cellEnd}.
+         *
+         * @return the position right after the separator ending the cell, or {@code to + 1} for the last cell
+         */
+        private int nextCell(byte[] buffer, int from, int to) {
+            int position = from;
+            while (position < to && isWhitespace(buffer[position])) {
+                position++;
+            }
+            int separator;
+            if (position < to && buffer[position] == QUOTE) {
+                int closingQuote = position + 1;
+                while (closingQuote < to) {
+                    if (buffer[closingQuote] == QUOTE) {
+                        if (closingQuote + 1 < to && buffer[closingQuote + 1] == QUOTE) {
+                            // Escaped quote inside the cell
+                            closingQuote += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    closingQuote++;
+                }
+                cellStart = position + 1;
+                cellEnd = Math.min(closingQuote, to);
+                separator = indexOf(SEPARATOR, buffer, Math.min(closingQuote + 1, to), to);
+            } else {
+                separator = indexOf(SEPARATOR, buffer, position, to);
+                cellStart = position;
+                cellEnd = separator < 0 ? to : separator;
+            }
+            while (cellStart < cellEnd && isWhitespace(buffer[cellStart])) {
+                cellStart++;
+            }
+            while (cellEnd > cellStart && isWhitespace(buffer[cellEnd - 1])) {
+                cellEnd--;
+            }
+            return separator < 0 ? to + 1 : separator + 1;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.mathias.electricitypriceaggregator.infrastructure.csv;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Positions of the timestamp and requested price columns, resolved once from the header of an NPS export.
+ * Requested price columns missing from the header are skipped, but at least one of them must be present.
+ */
+final class NpsHeader {
+    private static final Logger LOG = LoggerFactory.getLogger(NpsHeader.class);
+
+    private final int timestampIndex;
+    private final List<NpsPriceColumn> priceColumns;
+    private final int[] priceIndexes;
+
+    private NpsHeader(int timestampIndex, List<NpsPriceColumn> priceColumns, int[] priceIndexes) {
+        this.timestampIndex = timestampIndex;
+        this.priceColumns = priceColumns;
+        this.priceIndexes = priceIndexes;
+    }
+
+    static NpsHeader resolve(List<String> names, List<NpsPriceColumn> requested) {
+        int timestampIndex = names.indexOf(NpsPriceColumn.TIMESTAMP_COLUMN);
+        if (timestampIndex < 0) {
+            throw new IllegalArgumentException(
+                    "Required column '" + NpsPriceColumn.TIMESTAMP_COLUMN + "' is missing from the CSV header");
+        }
+
+        List<NpsPriceColumn> present = new ArrayList<>(requested.size());
+        List<Integer> indexes = new ArrayList<>(requested.size());
+        for (NpsPriceColumn column : requested) {
+            int index = names.indexOf(column.getHeader());
+            if (index < 0) {
+                LOG.warn("Price column '{}' is missing from the CSV header, skipping country {}",
+                        column.getHeader(), column.getCountry());
+                continue;
+            }
+            present.add(column);
+            indexes.add(index);
+        }
+        if (present.isEmpty()) {
+            throw new IllegalArgumentException("None of the price columns "
+                    + requested.stream().map(NpsPriceColumn::getHeader).toList() + " is present in the CSV header");
+        }
+        return new NpsHeader(timestampIndex, List.copyOf(present),
+                indexes.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    int timestampIndex() {
+        return timestampIndex;
+    }
+
+    List<NpsPriceColumn> priceColumns() {
+        return priceColumns;
+    }
+
+    int priceIndex(int slot) {
+        return priceIndexes[slot];
+    }
+}
@@ -0,0 +1,44 @@
+package com.mathias.electricitypriceaggregator.infrastructure.csv;
+
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceEstonia;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceFinland;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceLatvia;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceLithuania;
+
+import java.util.Arrays;
+
+/**
+ * Price columns of the NPS export and the bidding zone country each one belongs to
+ */
+public enum NpsPriceColumn {
+
+    LATVIA(ElectricityPriceLatvia.COUNTRY, "NPS Läti"),
+    LITHUANIA(ElectricityPriceLithuania.COUNTRY, "NPS Leedu"),
+    FINLAND(ElectricityPriceFinland.COUNTRY, "NPS Soome"),
+    ESTONIA(ElectricityPriceEstonia.COUNTRY, "NPS Eesti");
+
+    public static final String TIMESTAMP_COLUMN = "Ajatempel (UTC)";
+
+    private final String country;
+    private final String header;
+
+    NpsPriceColumn(String country, String header) {
+        this.country = country;
+        this.header = header;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public String getHeader() {
+        return header;
+    }
+
+    public static NpsPriceColumn forCountry(String country) {
+        return Arrays.stream(values())
+                .filter(column -> column.country.equals(country))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported country code: " + country));
+    }
+}
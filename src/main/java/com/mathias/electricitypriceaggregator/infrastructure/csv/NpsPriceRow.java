@@ -0,0 +1,42 @@
+package com.mathias.electricitypriceaggregator.infrastructure.csv;
+
+import com.opencsv.bean.CsvBindByName;
+import com.opencsv.bean.CsvCustomBindByName;
+
+/**
+ * OpenCSV binding of one row of the NPS export, holding the prices of every bidding zone
+ */
+public class NpsPriceRow {
+
+    @CsvBindByName(column = NpsPriceColumn.TIMESTAMP_COLUMN)
+    private Long recordedAt;
+
+    @CsvCustomBindByName(column = "NPS Läti", converter = DoubleConverter.class)
+    private Double latvia;
+
+    @CsvCustomBindByName(column = "NPS Leedu", converter = DoubleConverter.class)
+    private Double lithuania;
+
+    @CsvCustomBindByName(column = "NPS Soome", converter = DoubleConverter.class)
+    private Double finland;
+
+    @CsvCustomBindByName(column = "NPS Eesti", converter = DoubleConverter.class)
+    private Double estonia;
+
+    public Long getRecordedAt() {
+        return recordedAt;
+    }
+
+    public void setRecordedAt(Long recordedAt) {
+        this.recordedAt = recordedAt;
+    }
+
+    public Double getPrice(NpsPriceColumn column) {
+        return switch (column) {
+            case LATVIA -> latvia;
+            case LITHUANIA -> lithuania;
+            case FINLAND -> finland;
+            case ESTONIA -> estonia;
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package com.mathias.electricitypriceaggregator.infrastructure.csv;
+
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
+import com.opencsv.CSVParserBuilder;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.bean.CsvToBean;
+import com.opencsv.bean.CsvToBeanBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static com.mathias.electricitypriceaggregator.domain.factory.ElectricityPriceFactory.create;
+
+/**
+ * CSV reader based on OpenCSV bean binding. Kept as a fallback for the hand-written {@link NpsCsvParser}.
+ */
+public class OpenCsvElectricityPriceReader implements ElectricityPriceCsvReader {
+
+    private final List<NpsPriceColumn> requestedColumns;
+
+    public OpenCsvElectricityPriceReader() {
+        this(List.of(NpsPriceColumn.ESTONIA));
+    }
+
+    public OpenCsvElectricityPriceReader(List<NpsPriceColumn> requestedColumns) {
+        this.requestedColumns = requestedColumns;
+    }
+
+    @Override
+    public void read(InputStream inputStream, Consumer<ElectricityPrice> consumer) throws IOException {
+        try (Reader reader = new InputStreamReader(inputStream, StandardCharsets.ISO_8859_1)) {
+            var parser = new CSVParserBuilder()
+                    .withSeparator(';')
+                    .build();
+            CSVReader csvReader = new CSVReaderBuilder(reader)
+                    .withCSVParser(parser)
+                    .build();
+
+            String[] headerLine = csvReader.peek();
+            if (headerLine == null) {
+                throw new IllegalArgumentException("CSV file has no header");
+            }
+            List<NpsPriceColumn> priceColumns = NpsHeader.resolve(
+                    Arrays.stream(headerLine).map(String::trim).toList(), requestedColumns).priceColumns();
+
+            CsvToBean<NpsPriceRow> rows = new CsvToBeanBuilder<NpsPriceRow>(csvReader)
+                    .withType(NpsPriceRow.class)
+                    .withIgnoreLeadingWhiteSpace(true)
+                    .withVerifyReader(true)
+                    .withFilter(line -> line.length >= 1 && !line[0].isBlank())
+                    .build();
+            for (NpsPriceRow row : rows) {
+                for (NpsPriceColumn column : priceColumns) {
+                    Double price = row.getPrice(column);
+                    if (price == null) {
+                        throw new IllegalArgumentException("Missing value for '" + column.getHeader()
+                                + "' at timestamp " + row.getRecordedAt());
+                    }
+                    ElectricityPrice electricityPrice = create(column.getCountry());
+                    electricityPrice.setRecordedAt(row.getRecordedAt());
+                    electricityPrice.setPrice(price);
+                    consumer.accept(electricityPrice);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.mathias.electricitypriceaggregator.infrastructure.csv;
+
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Parallel variant of {@link NpsCsvParser} for large files on disk.
+ * The file is split into segments, each ending at a line boundary, and the segments are parsed concurrently on a
+ * fork-join pool with the same byte-level line parser. Every segment is read with a positional read into a buffer that
+ * is reused for later segments once it is parsed, so no more buffers exist than segments parsed at the same time. Parsed segments are handed to the consumer
+ * strictly in file order, so the consumer sees the same rows in the same order as with the sequential parser.
+ * At most two segments per pool thread are parsed ahead of the consumer, which bounds the memory held by parsed rows.
+ */
+public class ParallelNpsCsvParser {
+
+    private static final int BOUNDARY_SCAN_SIZE = 8 * 1024;
+
+    private final List<NpsPriceColumn> requestedColumns;
+    private final ForkJoinPool pool;
+    private final int segmentSize;
+    private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<>();
+
+    public ParallelNpsCsvParser(List<NpsPriceColumn> requestedColumns, ForkJoinPool pool, int segmentSize) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive");
+        }
+        this.requestedColumns = requestedColumns;
+        this.pool = pool;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Parse the file, passing every price to the consumer on the calling thread in file order
+     */
+    public void read(Path file, Consumer<ElectricityPrice> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            NpsCsvParser.LineParser headerParser = new NpsCsvParser.LineParser(requestedColumns, consumer);
+            long position = parseHeader(channel, size, headerParser);
+            if (!headerParser.hasHeader()) {
+                throw new IllegalArgumentException("CSV file has no header");
+            }
+
+            int maxInFlight = 2 * pool.getParallelism();
+            Deque<Segment> inFlight = new ArrayDeque<>(maxInFlight);
+            int lineNumber = headerParser.lineNumber();
+            try {
+                while (position < size || !inFlight.isEmpty()) {
+                    while (position < size && inFlight.size() < maxInFlight) {
+                        long end = lineEnd(channel, Math.min(position + segmentSize, size) - 1, size);
+                        inFlight.add(submit(channel, headerParser, position, end));
+                        position = end;
+                    }
+                    Segment segment = inFlight.poll();
+                    SegmentResult result = segment.task.join();
+                    if (result.failure != null) {
+                        // Parse the segment again on this thread, so the error reports the line number in the file
+                        // and the rows preceding it still reach the consumer, as with the sequential parser
+                        byte[] buffer = read(channel, segment.from, segment.to);
+                        new NpsCsvParser.LineParser(headerParser, consumer, lineNumber)
+                                .parseLines(buffer, 0, (int) (segment.to - segment.from));
+                        throw result.failure;
+                    }
+                    result.prices.forEach(consumer);
+                    lineNumber += result.lines;
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                inFlight.forEach(segment -> segment.task.cancel(false));
+            }
+        }
+    }
+
+    /**
+     * Parses the lines up to and including the header
+     *
+     * @return the position right after the header line
+     */
+    private long parseHeader(FileChannel channel, long size, NpsCsvParser.LineParser headerParser) throws IOException {
+        long position = 0;
+        while (position < size && !headerParser.hasHeader()) {
+            long end = lineEnd(channel, position, size);
+            byte[] line = read(channel, position, end);
+            int length = (int) (end - position);
+            if (length > 0 && line[length - 1] == '\n') {
+                length--;
+            }
+            headerParser.parse(line, 0, length);
+            buffers.add(line);
+            position = end;
+        }
+        return position;
+    }
+
+    private Segment submit(FileChannel channel, NpsCsvParser.LineParser headerParser, long from, long to) {
+        ForkJoinTask<SegmentResult> task = pool.submit(() -> {
+            List<ElectricityPrice> prices = new ArrayList<>();
+            NpsCsvParser.LineParser lineParser = new NpsCsvParser.LineParser(headerParser, prices::add, 0);
+            byte[] buffer = null;
+            try {
+                buffer = read(channel, from, to);
+                lineParser.parseLines(buffer, 0, (int) (to - from));
+            } catch (RuntimeException e) {
+                return new SegmentResult(null, 0, e);
+            } finally {
+                if (buffer != null) {
+                    buffers.add(buffer);
+                }
+            }
+            return new SegmentResult(prices, lineParser.lineNumber(), null);
+        });
+        return new Segment(from, to, task);
+    }
+
+    /**
+     * Reads a region of the file into the start of a free buffer, so the byte-level line parser runs on an array.
+     * A buffer too small for the region, e.g. for a segment extended to a far line boundary, is replaced.
+     */
+    private byte[] read(FileChannel channel, long from, long to) {
+        int length = (int) (to - from);
+        byte[] buffer = buffers.poll();
+        if (buffer == null || buffer.length < length) {
+            buffer = new byte[Math.max(length, segmentSize)];
+        }
+        ByteBuffer target = ByteBuffer.wrap(buffer, 0, length);
+        try {
+            while (target.hasRemaining()) {
+                if (channel.read(target, from + target.position()) < 0) {
+                    throw new EOFException("File ended at " + (from + target.position()) + " while reading a segment");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer;
+    }
+
+    /**
+     * @return the position right after the first newline at or after {@code from}, or the file size
+     */
+    private static long lineEnd(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+        long position = from;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private record Segment(long from, long to, ForkJoinTask<SegmentResult> task) {
+    }
+
+    private record SegmentResult(List<ElectricityPrice> prices, int lines, RuntimeException failure) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.mathias.electricitypriceaggregator.infrastructure.external;
+
+/**
+ * Thrown when a request to a rate-limited API is not sent because its quota has no room for it within the time the
+ * caller can wait
+ */
+public class RequestQuotaExceededException extends RuntimeException {
+
+    public RequestQuotaExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,155 @@
+package com.mathias.electricitypriceaggregator.infrastructure.external;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Client-side limit on the requests sent to an API in sliding windows, e.g. at most 500 in any minute and 4500 in any
+ * hour. The start time of the last requests of every window is remembered, and a request waits until each window has
+ * room for it. A request may weigh several permits, for APIs that count large requests as several. Waiting requests
+ * are admitted one at a time in arrival order.
+ * When the quota is shared with other processes, a request admitted by the local windows must also be admitted by the
+ * {@link SharedQuota}, which then counts it for every process; the local windows only keep this process from asking
+ * for room it does not have.
+ */
+final class RequestRateLimiter {
+
+    private static final SharedQuota UNSHARED = permits -> Duration.ZERO;
+
+    private final List<Window> windows;
+    private final SharedQuota sharedQuota;
+    private final Lock lock = new ReentrantLock(true);
+
+    /**
+     * @param limits requests allowed per window; limits of 0 are ignored
+     */
+    RequestRateLimiter(List<Limit> limits) {
+        this(limits, UNSHARED);
+    }
+
+    /**
+     * @param limits      requests allowed per window; limits of 0 are ignored
+     * @param sharedQuota the same limits counted for every process sharing them
+     */
+    RequestRateLimiter(List<Limit> limits, SharedQuota sharedQuota) {
+        this.windows = limits.stream()
+                .filter(limit -> limit.requests() > 0)
+                .map(Window::new)
+                .toList();
+        this.sharedQuota = sharedQuota;
+    }
+
+    /**
+     * Wait until the request can be sent without exceeding any limit, and count it
+     *
+     * @param permits what the request counts as; a request weighing more than a whole window waits for all of it
+     * @throws InterruptedException if the thread is interrupted while waiting; the request is not counted
+     */
+    void acquire(int permits) throws InterruptedException {
+        tryAcquire(permits, null);
+    }
+
+    /**
+     * Wait until the request can be sent without exceeding any limit, and count it, unless that takes longer than
+     * maxWait
+     *
+     * @param permits what the request counts as; a request weighing more than a whole window waits for all of it
+     * @param maxWait longest time to wait, or null to wait as long as it takes
+     * @return false if the request could not be sent within maxWait; it is not counted then
+     * @throws InterruptedException if the thread is interrupted while waiting; the request is not counted
+     */
+    boolean tryAcquire(int permits, Duration maxWait) throws InterruptedException {
+        if (windows.isEmpty()) {
+            return true;
+        }
+        long deadline = maxWait == null ? Long.MAX_VALUE : System.nanoTime() + maxWait.toNanos();
+        if (!lock.tryLock(maxWait == null ? Long.MAX_VALUE : maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+            return false;
+        }
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                long wait = waitNanos(now, permits);
+                if (wait <= 0) {
+                    wait = sharedQuota.tryAcquire(permits).toNanos();
+                    if (wait <= 0) {
+                        for (Window window : windows) {
+                            window.record(now, permits);
+                        }
+                        return true;
+                    }
+                }
+                if (maxWait != null && wait > deadline - now) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long waitNanos(long now, int permits) {
+        long wait = 0;
+        for (Window window : windows) {
+            wait = Math.max(wait, window.waitNanos(now, permits));
+        }
+        return wait;
+    }
+
+    record Limit(int requests, Duration window) {
+    }
+
+    /**
+     * Limits counted for every process sending requests to the same API
+     */
+    @FunctionalInterface
+    interface SharedQuota {
+
+        /**
+         * Count a request if every window has room for it
+         *
+         * @return zero if the request was counted, otherwise how long until it can be
+         */
+        Duration tryAcquire(int permits);
+    }
+
+    /**
+     * Start times of the last requests of one window in a ring buffer, one entry per permit, the oldest at
+     * {@code next} once it is full
+     */
+    private static final class Window {
+
+        private final long lengthNanos;
+        private final long[] startTimes;
+        private int next;
+        private int count;
+
+        private Window(Limit limit) {
+            this.lengthNanos = limit.window().toNanos();
+            this.startTimes = new long[limit.requests()];
+        }
+
+        long waitNanos(long now, int permits) {
+            int capacity = startTimes.length;
+            // Entries that have to leave the window before the permits fit, oldest first
+            int expiring = count + Math.min(permits, capacity) - capacity;
+            if (expiring <= 0) {
+                return 0;
+            }
+            int oldest = (next - count + capacity) % capacity;
+            return startTimes[(oldest + expiring - 1) % capacity] + lengthNanos - now;
+        }
+
+        void record(long now, int permits) {
+            for (int i = 0; i < Math.min(permits, startTimes.length); i++) {
+                startTimes[next] = now;
+                next = (next + 1) % startTimes.length;
+            }
+            count = Math.min(count + permits, startTimes.length);
+        }
+    }
+}
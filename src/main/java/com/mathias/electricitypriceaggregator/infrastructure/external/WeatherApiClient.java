@@ -2,31 +2,56 @@ package com.mathias.electricitypriceaggregator.infrastructure.external;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.mathias.electricitypriceaggregator.domain.model.WeatherData;
+import com.mathias.electricitypriceaggregator.domain.repository.ApiRequestRepository;
+import com.mathias.electricitypriceaggregator.infrastructure.config.WeatherProperties;
+import com.mathias.electricitypriceaggregator.infrastructure.external.RequestRateLimiter.Limit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
- * Client for fetching weather data from Open Meteo API
+ * Client for fetching weather data from Open Meteo API.
+ * Requests from all threads share one rate limiter, and the limiter counts every request in the api_request table
+ * shared by all nodes, so the nodes together stay within the configured quotas.
  */
 @Component
 public class WeatherApiClient {
 
     private static final Logger LOG = LoggerFactory.getLogger(WeatherApiClient.class);
-    private static final String BASE_URL = "https://archive-api.open-meteo.com/v1/archive";
     private static final String LOCATION_ESTONIA = "latitude=59&longitude=26";
     private static final String TIMEZONE = "UTC";
+    private static final int HOURS_PER_DAY = WeatherData.HOURS_PER_DAY;
+    private static final int DAYS_PER_REQUEST_UNIT = 14;
+    private static final String API = "open-meteo";
 
     private final RestTemplate restTemplate;
+    private final String baseUrl;
+    private final RequestRateLimiter rateLimiter;
 
-    public WeatherApiClient(RestTemplate restTemplate) {
+    public WeatherApiClient(RestTemplate restTemplate, WeatherProperties weatherProperties,
+                            ApiRequestRepository apiRequestRepository) {
         this.restTemplate = restTemplate;
+        this.baseUrl = weatherProperties.getBaseUrl();
+        List<Limit> limits = List.of(
+                new Limit(weatherProperties.getMaxRequestsPerMinute(), Duration.ofMinutes(1)),
+                new Limit(weatherProperties.getMaxRequestsPerHour(), Duration.ofHours(1)),
+                new Limit(weatherProperties.getMaxRequestsPerDay(), Duration.ofDays(1)));
+        Map<Duration, Integer> sharedLimits = limits.stream()
+                .filter(limit -> limit.requests() > 0)
+                .collect(Collectors.toMap(Limit::window, Limit::requests));
+        this.rateLimiter = new RequestRateLimiter(limits,
+                permits -> apiRequestRepository.tryAcquire(API, permits, sharedLimits));
     }
 
     /**
@@ -37,41 +62,100 @@ public class WeatherApiClient {
      * @return The average temperature for the specified hours, or null if no data
      */
     public Double fetchDailyAverageTemperature(LocalDate date, List<Integer> availableHourIndices) {
-        if (availableHourIndices == null || availableHourIndices.isEmpty()) {
+        if (date == null || availableHourIndices == null || availableHourIndices.isEmpty()) {
             return null;
         }
+        int hourMask = 0;
+        for (int hour : availableHourIndices) {
+            if (hour >= 0 && hour < HOURS_PER_DAY) {
+                hourMask |= 1 << hour;
+            }
+        }
+        float[] hourlyTemperatures = fetchHourlyTemperatures(date, date).get(date);
+        if (hourlyTemperatures == null) {
+            return null;
+        }
+        WeatherData weatherData = new WeatherData(date, null);
+        weatherData.setHourlyTemperatures(hourlyTemperatures);
+        return weatherData.averageOfHours(hourMask);
+    }
+
+    /**
+     * Fetch the hourly temperatures of a range of dates in one request. The response holds 24 hourly temperatures per
+     * date in UTC, in date order.
+     *
+     * @return the 24 temperatures from hour 0 of every date of the range with any temperature, NaN for the hours
+     * without one; empty if the request failed
+     */
+    public Map<LocalDate, float[]> fetchHourlyTemperatures(LocalDate startDate, LocalDate endDate) {
+        return fetchHourlyTemperatures(startDate, endDate, null);
+    }
+
+    /**
+     * Fetch the hourly temperatures of a range of dates in one request, unless the quotas have no room for it within
+     * maxWait
+     *
+     * @param maxWait longest time to wait for the quotas, or null to wait as long as it takes
+     * @return the 24 temperatures from hour 0 of every date of the range with any temperature, NaN for the hours
+     * without one; empty if the request failed
+     * @throws RequestQuotaExceededException if the request was not sent because the quotas had no room within maxWait
+     */
+    public Map<LocalDate, float[]> fetchHourlyTemperatures(LocalDate startDate, LocalDate endDate, Duration maxWait) {
+        int days = (int) ChronoUnit.DAYS.between(startDate, endDate) + 1;
         try {
-            String dateStr = date.format(DateTimeFormatter.ISO_LOCAL_DATE);
+            if (!rateLimiter.tryAcquire(requestWeight(days), maxWait)) {
+                throw new RequestQuotaExceededException(String.format(
+                        "No request quota for weather data from %s to %s within %s", startDate, endDate, maxWait));
+            }
             String url = String.format("%s?%s&start_date=%s&end_date=%s&hourly=temperature_2m&timezone=%s",
-                    BASE_URL, LOCATION_ESTONIA, dateStr, dateStr, TIMEZONE);
+                    baseUrl, LOCATION_ESTONIA, startDate.format(DateTimeFormatter.ISO_LOCAL_DATE),
+                    endDate.format(DateTimeFormatter.ISO_LOCAL_DATE), TIMEZONE);
             LOG.debug("Fetching weather data from URL: {}", url);
             WeatherApiResponse response = restTemplate.getForObject(url, WeatherApiResponse.class);
 
-            if (response != null && response.getHourly() != null &&
-                    response.getHourly().getTemperature2m() != null &&
-                    !response.getHourly().getTemperature2m().isEmpty()) {
-
-                List<Double> temperatures = response.getHourly().getTemperature2m();
-                // Filter temperatures to only those hours with available price data
-                List<Double> filteredTemperatures = availableHourIndices.stream()
-                        .filter(hourIdx -> hourIdx >= 0 && hourIdx < temperatures.size())
-                        .map(temperatures::get)
-                        .filter(Objects::nonNull)
-                        .toList();
-                if (filteredTemperatures.isEmpty()) {
-                    return null;
+            if (response == null || response.getHourly() == null || response.getHourly().getTemperature2m() == null) {
+                return Map.of();
+            }
+            List<Double> temperatures = response.getHourly().getTemperature2m();
+            Map<LocalDate, float[]> result = new HashMap<>();
+            for (int day = 0; day < days; day++) {
+                float[] hourlyTemperatures = hoursOfDay(temperatures, day * HOURS_PER_DAY);
+                if (hourlyTemperatures != null) {
+                    result.put(startDate.plusDays(day), hourlyTemperatures);
                 }
-                return filteredTemperatures.stream()
-                        .mapToDouble(Double::doubleValue)
-                        .average()
-                        .orElse(0.0);
             }
-
-            return null;
+            return result;
+        } catch (RequestQuotaExceededException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Interrupted while waiting to fetch weather data from {} to {}", startDate, endDate);
+            return Map.of();
         } catch (Exception e) {
-            LOG.error("Error fetching weather data for date {}: {}", date, e.getMessage());
-            return null;
+            LOG.error("Error fetching weather data from {} to {}: {}", startDate, endDate, e.getMessage());
+            return Map.of();
+        }
+    }
+
+    /**
+     * The 24 temperatures of the day starting at firstHour, NaN for missing ones, or null without any
+     */
+    private static float[] hoursOfDay(List<Double> temperatures, int firstHour) {
+        float[] hourlyTemperatures = new float[HOURS_PER_DAY];
+        boolean any = false;
+        for (int hour = 0; hour < HOURS_PER_DAY; hour++) {
+            Double temperature = firstHour + hour < temperatures.size() ? temperatures.get(firstHour + hour) : null;
+            hourlyTemperatures[hour] = temperature == null ? Float.NaN : temperature.floatValue();
+            any |= temperature != null;
         }
+        return any ? hourlyTemperatures : null;
+    }
+
+    /**
+     * Open-Meteo counts a request for more than two weeks of data as several, one per started two weeks
+     */
+    private static int requestWeight(int days) {
+        return (days + DAYS_PER_REQUEST_UNIT - 1) / DAYS_PER_REQUEST_UNIT;
     }
 
     /**
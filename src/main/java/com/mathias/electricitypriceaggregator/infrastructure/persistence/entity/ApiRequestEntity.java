@@ -0,0 +1,75 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * JPA entity for a request sent to a rate-limited external API by any node. Maintained by
+ * {@code ApiRequestRepositoryImpl}, which counts the rows of the last day against the API's quota and deletes older ones.
+ */
+@Entity
+@Table(name = "api_request",
+        indexes = @Index(name = "idx_api_request_api_sent_at", columnList = "api, sent_at"))
+public class ApiRequestEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "api", nullable = false, length = 32)
+    private String api;
+
+    @Column(name = "sent_at", columnDefinition = "TIMESTAMPTZ", nullable = false)
+    private Instant sentAt;
+
+    // What the request counts as against the quota
+    @Column(name = "permits", nullable = false)
+    private Integer permits;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getApi() {
+        return api;
+    }
+
+    public void setApi(String api) {
+        this.api = api;
+    }
+
+    public Instant getSentAt() {
+        return sentAt;
+    }
+
+    public void setSentAt(Instant sentAt) {
+        this.sentAt = sentAt;
+    }
+
+    public Integer getPermits() {
+        return permits;
+    }
+
+    public void setPermits(Integer permits) {
+        this.permits = permits;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ApiRequestEntity that = (ApiRequestEntity) o;
+        return id != null && Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+}
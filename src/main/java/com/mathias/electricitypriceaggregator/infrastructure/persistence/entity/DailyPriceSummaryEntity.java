@@ -0,0 +1,109 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * JPA entity for the rollup of the hourly prices of one country and UTC day.
+ * Maintained by {@code ElectricityPriceBulkRepository} for every day it writes, so daily aggregates are read without
+ * scanning the hourly rows.
+ */
+@Entity
+@Table(name = "daily_price_summary",
+        uniqueConstraints = @UniqueConstraint(name = "un_daily_price_summary_country_day", columnNames = {"country", "day"}))
+public class DailyPriceSummaryEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "country", nullable = false, length = 2)
+    private String country;
+
+    @Column(name = "day", nullable = false)
+    private LocalDate day;
+
+    @Column(name = "price_sum", nullable = false)
+    private Double priceSum;
+
+    @Column(name = "price_count", nullable = false)
+    private Integer priceCount;
+
+    @Column(name = "min_price", nullable = false)
+    private Double minPrice;
+
+    @Column(name = "max_price", nullable = false)
+    private Double maxPrice;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public void setCountry(String country) {
+        this.country = country;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public void setDay(LocalDate day) {
+        this.day = day;
+    }
+
+    public Double getPriceSum() {
+        return priceSum;
+    }
+
+    public void setPriceSum(Double priceSum) {
+        this.priceSum = priceSum;
+    }
+
+    public Integer getPriceCount() {
+        return priceCount;
+    }
+
+    public void setPriceCount(Integer priceCount) {
+        this.priceCount = priceCount;
+    }
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(Double minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(Double maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DailyPriceSummaryEntity that = (DailyPriceSummaryEntity) o;
+        return Objects.equals(country, that.country) &&
+                Objects.equals(day, that.day);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+}
@@ -0,0 +1,63 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * JPA entity for the version of one UTC day, advanced whenever prices of any country or the temperature of the day
+ * are written. Maintained by {@code DataVersionRepositoryImpl} to validate cached aggregated data.
+ */
+@Entity
+@Table(name = "data_version")
+public class DataVersionEntity {
+
+    @Id
+    @Column(name = "day", nullable = false)
+    private LocalDate day;
+
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public void setDay(LocalDate day) {
+        this.day = day;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DataVersionEntity that = (DataVersionEntity) o;
+        return Objects.equals(day, that.day);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+}
@@ -0,0 +1,75 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * JPA entity for the digest of the prices last written for one country and UTC day.
+ * Maintained by {@code ElectricityPriceBulkRepository} to skip day blocks that are uploaded again unchanged.
+ */
+@Entity
+@Table(name = "electricity_price_day_digest",
+        uniqueConstraints = @UniqueConstraint(name = "un_day_digest_country_day", columnNames = {"country", "day"}))
+public class ElectricityPriceDayDigestEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "country", nullable = false, length = 2)
+    private String country;
+
+    @Column(name = "day", nullable = false)
+    private LocalDate day;
+
+    @Column(name = "digest", nullable = false, length = 64)
+    private String digest;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public void setCountry(String country) {
+        this.country = country;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public void setDay(LocalDate day) {
+        this.day = day;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    public void setDigest(String digest) {
+        this.digest = digest;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ElectricityPriceDayDigestEntity that = (ElectricityPriceDayDigestEntity) o;
+        return Objects.equals(country, that.country) &&
+                Objects.equals(day, that.day);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+}
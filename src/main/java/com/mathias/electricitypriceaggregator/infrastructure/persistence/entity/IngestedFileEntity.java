@@ -0,0 +1,84 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * JPA entity for the registry of ingested CSV files
+ */
+@Entity
+@Table(name = "ingested_file",
+        uniqueConstraints = @UniqueConstraint(name = "un_ingested_file_digest", columnNames = "digest"))
+public class IngestedFileEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "digest", nullable = false, length = 64)
+    private String digest;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Column(name = "row_count", nullable = false)
+    private Long rowCount;
+
+    @Column(name = "ingested_at", columnDefinition = "TIMESTAMPTZ", nullable = false)
+    private Instant ingestedAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    public void setDigest(String digest) {
+        this.digest = digest;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public Long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(Long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public Instant getIngestedAt() {
+        return ingestedAt;
+    }
+
+    public void setIngestedAt(Instant ingestedAt) {
+        this.ingestedAt = ingestedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        IngestedFileEntity that = (IngestedFileEntity) o;
+        return Objects.equals(digest, that.digest);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+}
@@ -0,0 +1,66 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * JPA entity for a UTC day with prices but without weather data, waiting to be fetched by the weather sync of any
+ * node. Maintained by {@code PendingWeatherRepositoryImpl}: filled on ingestion, leased by one node at a time and
+ * removed when the temperature of the day is saved.
+ */
+@Entity
+@Table(name = "pending_weather_date")
+public class PendingWeatherDateEntity {
+
+    @Id
+    @Column(name = "day", nullable = false)
+    private LocalDate day;
+
+    // Bit h is set if a price was recorded at hour h (UTC) of the day
+    @Column(name = "hour_mask", nullable = false)
+    private Integer hourMask;
+
+    // The day is not leased again before this instant; null if never leased
+    @Column(name = "lease_until")
+    private Instant leaseUntil;
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public void setDay(LocalDate day) {
+        this.day = day;
+    }
+
+    public Integer getHourMask() {
+        return hourMask;
+    }
+
+    public void setHourMask(Integer hourMask) {
+        this.hourMask = hourMask;
+    }
+
+    public Instant getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public void setLeaseUntil(Instant leaseUntil) {
+        this.leaseUntil = leaseUntil;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PendingWeatherDateEntity that = (PendingWeatherDateEntity) o;
+        return Objects.equals(day, that.day);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+}
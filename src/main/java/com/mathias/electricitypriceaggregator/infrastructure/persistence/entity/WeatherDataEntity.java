@@ -1,6 +1,8 @@
 package com.mathias.electricitypriceaggregator.infrastructure.persistence.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDate;
 import java.util.Objects;
@@ -25,6 +27,11 @@ public class WeatherDataEntity {
     @Column(name = "average_temperature", nullable = false)
     private Double averageTemperature;
 
+    // 24 temperatures from hour 0 (UTC), NaN if unknown; null for days saved before hourly temperatures were stored
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "hourly_temperatures", columnDefinition = "real[]")
+    private float[] hourlyTemperatures;
+
     // Getters and setters
     public Long getId() {
         return id;
@@ -50,6 +57,14 @@ public class WeatherDataEntity {
         this.averageTemperature = averageTemperature;
     }
 
+    public float[] getHourlyTemperatures() {
+        return hourlyTemperatures;
+    }
+
+    public void setHourlyTemperatures(float[] hourlyTemperatures) {
+        this.hourlyTemperatures = hourlyTemperatures;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
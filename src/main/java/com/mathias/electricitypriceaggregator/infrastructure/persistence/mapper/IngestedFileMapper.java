@@ -0,0 +1,40 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.mapper;
+
+import com.mathias.electricitypriceaggregator.domain.model.IngestedFile;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.entity.IngestedFileEntity;
+import org.springframework.stereotype.Component;
+
+/**
+ * Mapper for converting between IngestedFile domain model and JPA entity
+ */
+@Component
+public class IngestedFileMapper {
+
+    public IngestedFileEntity toEntity(IngestedFile domain) {
+        if (domain == null) {
+            return null;
+        }
+
+        IngestedFileEntity entity = new IngestedFileEntity();
+        entity.setId(domain.getId());
+        entity.setDigest(domain.getDigest());
+        entity.setFileName(domain.getFileName());
+        entity.setRowCount(domain.getRowCount());
+        entity.setIngestedAt(domain.getIngestedAt());
+        return entity;
+    }
+
+    public IngestedFile toDomain(IngestedFileEntity entity) {
+        if (entity == null) {
+            return null;
+        }
+
+        IngestedFile domain = new IngestedFile();
+        domain.setId(entity.getId());
+        domain.setDigest(entity.getDigest());
+        domain.setFileName(entity.getFileName());
+        domain.setRowCount(entity.getRowCount());
+        domain.setIngestedAt(entity.getIngestedAt());
+        return domain;
+    }
+}
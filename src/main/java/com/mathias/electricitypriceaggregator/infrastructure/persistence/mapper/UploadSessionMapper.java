@@ -0,0 +1,58 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.mapper;
+
+import com.mathias.electricitypriceaggregator.domain.model.UploadSession;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.entity.UploadSessionEntity;
+import org.springframework.stereotype.Component;
+
+/**
+ * Mapper for converting between UploadSession domain model and JPA entity
+ */
+@Component
+public class UploadSessionMapper {
+
+    public UploadSessionEntity toEntity(UploadSession domain) {
+        if (domain == null) {
+            return null;
+        }
+
+        UploadSessionEntity entity = new UploadSessionEntity();
+        entity.setId(domain.getId());
+        entity.setFileName(domain.getFileName());
+        entity.setCompression(domain.getCompression());
+        entity.setTotalBytes(domain.getTotalBytes());
+        entity.setReceivedBytes(domain.getReceivedBytes());
+        entity.setCommittedOffset(domain.getCommittedOffset());
+        entity.setRowsWritten(domain.getRowsWritten());
+        entity.setInserted(domain.getInserted());
+        entity.setUpdated(domain.getUpdated());
+        entity.setUnchanged(domain.getUnchanged());
+        entity.setStatus(domain.getStatus());
+        entity.setError(domain.getError());
+        entity.setCreatedAt(domain.getCreatedAt());
+        entity.setUpdatedAt(domain.getUpdatedAt());
+        return entity;
+    }
+
+    public UploadSession toDomain(UploadSessionEntity entity) {
+        if (entity == null) {
+            return null;
+        }
+
+        UploadSession domain = new UploadSession();
+        domain.setId(entity.getId());
+        domain.setFileName(entity.getFileName());
+        domain.setCompression(entity.getCompression());
+        domain.setTotalBytes(entity.getTotalBytes());
+        domain.setReceivedBytes(entity.getReceivedBytes());
+        domain.setCommittedOffset(entity.getCommittedOffset());
+        domain.setRowsWritten(entity.getRowsWritten());
+        domain.setInserted(entity.getInserted());
+        domain.setUpdated(entity.getUpdated());
+        domain.setUnchanged(entity.getUnchanged());
+        domain.setStatus(entity.getStatus());
+        domain.setError(entity.getError());
+        domain.setCreatedAt(entity.getCreatedAt());
+        domain.setUpdatedAt(entity.getUpdatedAt());
+        return domain;
+    }
+}
@@ -19,6 +19,7 @@ public class WeatherDataMapper {
         entity.setId(domain.getId());
         entity.setDate(domain.getDate());
         entity.setAverageTemperature(domain.getAverageTemperature());
+        entity.setHourlyTemperatures(domain.getHourlyTemperatures());
         return entity;
     }
 
@@ -31,6 +32,7 @@ public class WeatherDataMapper {
         domain.setId(entity.getId());
         domain.setDate(entity.getDate());
         domain.setAverageTemperature(entity.getAverageTemperature());
+        domain.setHourlyTemperatures(entity.getHourlyTemperatures());
         return domain;
     }
 }
@@ -0,0 +1,70 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
+
+import com.mathias.electricitypriceaggregator.domain.repository.ApiRequestRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of ApiRequestRepository keeping one row per request in api_request for as long as the longest window.
+ * Every attempt takes a transaction-scoped advisory lock per API, so the windows are checked and the request recorded
+ * by one node at a time; the lock is held for a few statements only, never while a request waits.
+ */
+@Component
+public class ApiRequestRepositoryImpl implements ApiRequestRepository {
+
+    private static final String LOCK_SQL = "SELECT pg_advisory_xact_lock(hashtext('api_request:' || ?))";
+
+    private static final String DELETE_EXPIRED_SQL =
+            "DELETE FROM api_request WHERE api = ? AND sent_at <= now() - ? * interval '1 millisecond'";
+
+    // The newest request that has to leave the window before the permits fit, and how long until it does
+    private static final String WAIT_MILLIS_SQL = """
+            SELECT ceil(extract(epoch FROM sent_at + ? * interval '1 millisecond' - now()) * 1000)::bigint
+            FROM (SELECT id, sent_at, sum(permits) OVER (ORDER BY sent_at DESC, id DESC) AS newer_permits
+                  FROM api_request
+                  WHERE api = ? AND sent_at > now() - ? * interval '1 millisecond') requests
+            WHERE newer_permits > ?
+            ORDER BY sent_at DESC, id DESC
+            LIMIT 1
+            """;
+
+    private static final String RECORD_SQL = "INSERT INTO api_request (api, sent_at, permits) VALUES (?, now(), ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ApiRequestRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Duration tryAcquire(String api, int permits, Map<Duration, Integer> limits) {
+        if (limits.isEmpty()) {
+            return Duration.ZERO;
+        }
+        jdbcTemplate.queryForList(LOCK_SQL, api);
+        jdbcTemplate.update(DELETE_EXPIRED_SQL, api, Collections.max(limits.keySet()).toMillis());
+
+        long waitMillis = 0;
+        for (Map.Entry<Duration, Integer> limit : limits.entrySet()) {
+            long windowMillis = limit.getKey().toMillis();
+            int room = limit.getValue() - Math.min(permits, limit.getValue());
+            List<Long> wait = jdbcTemplate.queryForList(WAIT_MILLIS_SQL, Long.class, windowMillis, api, windowMillis, room);
+            if (!wait.isEmpty()) {
+                waitMillis = Math.max(waitMillis, wait.get(0));
+            }
+        }
+        if (waitMillis > 0) {
+            return Duration.ofMillis(waitMillis);
+        }
+        jdbcTemplate.update(RECORD_SQL, api, permits);
+        return Duration.ZERO;
+    }
+}
@@ -0,0 +1,665 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
+
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
+import com.mathias.electricitypriceaggregator.domain.model.WeatherData;
+import com.mathias.electricitypriceaggregator.domain.repository.ElectricityPriceRepository.PriceConsumer;
+import com.mathias.electricitypriceaggregator.domain.valueobject.AggregatedData;
+import com.mathias.electricitypriceaggregator.domain.valueobject.DailyAggregatedData;
+import com.mathias.electricitypriceaggregator.domain.valueobject.DataVersion;
+import com.mathias.electricitypriceaggregator.domain.valueobject.Granularity;
+import com.mathias.electricitypriceaggregator.domain.valueobject.PriceStatistics;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.AfterCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import static com.mathias.electricitypriceaggregator.domain.factory.ElectricityPriceFactory.create;
+import static java.time.ZoneOffset.UTC;
+
+/**
+ * In-memory columnar copy of the hourly electricity prices and the daily temperatures.
+ * The prices of every country are held in two primitive arrays sorted by time, epoch seconds and prices, so a date
+ * range is located with a binary search and averaged with one scan over the arrays, without a database round trip.
+ * Temperatures are held in one array indexed by day. The store is loaded once and then kept current with every
+ * price upsert and weather save committed by this node; until it is loaded, readers use the database.
+ * Writes of other nodes are applied by {@link #refresh()}, which compares the data_version of every day with the
+ * version the store holds it at and reloads the days that differ. The store's versions therefore describe the data it
+ * serves, and may lag the database by up to one refresh.
+ * Price statistics of arbitrary ranges are answered from a {@link PriceRangeIndex} per country, built on the first
+ * such query after the prices of the country changed.
+ */
+@Component
+public class ColumnarPriceStore {
+    private static final Logger LOG = LoggerFactory.getLogger(ColumnarPriceStore.class);
+
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final int FETCH_SIZE = 10_000;
+
+    private static final String LOAD_PRICES_SQL =
+            "SELECT country, extract(epoch FROM recorded_at)::bigint, price FROM electricity_price ORDER BY country, recorded_at";
+
+    private static final String LOAD_WEATHER_SQL = "SELECT date, average_temperature FROM weather_data";
+
+    // One row per day with data, so the whole table is compared on every refresh
+    private static final String LOAD_VERSIONS_SQL = "SELECT day, version, updated_at FROM data_version";
+
+    private static final String LOAD_DAY_PRICES_SQL = """
+            SELECT e.country, extract(epoch FROM e.recorded_at)::bigint, e.price
+            FROM unnest(?::date[]) AS d(day)
+            JOIN electricity_price e ON e.recorded_at >= d.day::timestamp AT TIME ZONE 'UTC'
+                                    AND e.recorded_at < (d.day + 1)::timestamp AT TIME ZONE 'UTC'
+            ORDER BY e.country, e.recorded_at
+            """;
+
+    private static final String LOAD_DAY_WEATHER_SQL =
+            "SELECT date, average_temperature FROM weather_data WHERE date = ANY (?::date[])";
+
+    private final JdbcTemplate jdbcTemplate;
+    // Serialises the load and the updates; readers only see published columns and never lock
+    private final Lock writeLock = new ReentrantLock();
+    private final Map<String, PriceColumns> prices = new ConcurrentHashMap<>();
+    private final Map<String, IndexedColumns> rangeIndexes = new ConcurrentHashMap<>();
+    private volatile TemperatureColumn temperatures = TemperatureColumn.EMPTY;
+    // Replaced as a whole on every load and refresh
+    private volatile NavigableMap<LocalDate, DayVersion> versions = Collections.emptyNavigableMap();
+    private volatile boolean loaded;
+
+    public ColumnarPriceStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Load all prices and temperatures from the database, replacing what the store holds.
+     * Updates committed while the store is loading wait for it and are applied on top of the loaded columns.
+     */
+    @Transactional(readOnly = true)
+    public void load() {
+        writeLock.lock();
+        try {
+            // Read before the data, so every day is at least as new as its version
+            NavigableMap<LocalDate, DayVersion> loadedVersions = loadVersions();
+            Map<String, ColumnsBuilder> builders = new HashMap<>();
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(LOAD_PRICES_SQL);
+                statement.setFetchSize(FETCH_SIZE);
+                return statement;
+            }, (RowCallbackHandler) resultSet -> builders
+                    .computeIfAbsent(resultSet.getString(1), country -> new ColumnsBuilder())
+                    .add(resultSet.getLong(2), resultSet.getDouble(3)));
+            Map<LocalDate, Double> weather = new HashMap<>();
+            jdbcTemplate.query(LOAD_WEATHER_SQL, (RowCallbackHandler) resultSet ->
+                    weather.put(resultSet.getObject(1, LocalDate.class), resultSet.getDouble(2)));
+
+            prices.clear();
+            rangeIndexes.clear();
+            builders.forEach((country, builder) -> prices.put(country, builder.build()));
+            temperatures = TemperatureColumn.EMPTY.with(weather);
+            versions = loadedVersions;
+            loaded = true;
+            LOG.info("Loaded {} prices of {} countries and {} daily temperatures into memory",
+                    builders.values().stream().mapToInt(builder -> builder.size).sum(), builders.size(), weather.size());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Reload the prices and temperatures of every day whose data version differs from the version the store holds it
+     * at, such as the days written by other nodes. Does nothing until the store is loaded.
+     *
+     * @return the number of days reloaded
+     */
+    @Transactional(readOnly = true)
+    public int refresh() {
+        writeLock.lock();
+        try {
+            if (!loaded) {
+                return 0;
+            }
+            NavigableMap<LocalDate, DayVersion> currentVersions = loadVersions();
+            Set<LocalDate> changed = new HashSet<>(versions.keySet());
+            changed.removeAll(currentVersions.keySet());
+            currentVersions.forEach((day, version) -> {
+                if (!version.equals(versions.get(day))) {
+                    changed.add(day);
+                }
+            });
+            if (!changed.isEmpty()) {
+                reloadDays(changed.stream().sorted().toList());
+            }
+            versions = currentVersions;
+            return changed.size();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Drop the loaded columns; readers use the database until the store is loaded again
+     */
+    public void unload() {
+        writeLock.lock();
+        try {
+            loaded = false;
+            prices.clear();
+            rangeIndexes.clear();
+            temperatures = TemperatureColumn.EMPTY;
+            versions = Collections.emptyNavigableMap();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Version of the data the store holds for a date range, as of its last load or refresh
+     *
+     * @param startDate the first day of the range (inclusive)
+     * @param endDate   the last day of the range (inclusive)
+     */
+    public DataVersion findDataVersion(LocalDate startDate, LocalDate endDate) {
+        long version = 0;
+        Instant lastModified = null;
+        for (DayVersion dayVersion : versions.subMap(startDate, true, endDate, true).values()) {
+            version += dayVersion.version();
+            if (lastModified == null || dayVersion.updatedAt().isAfter(lastModified)) {
+                lastModified = dayVersion.updatedAt();
+            }
+        }
+        return new DataVersion(version, lastModified);
+    }
+
+    /**
+     * Version of the data the store holds for every calendar month from firstMonth to lastMonth with a written day,
+     * as of its last load or refresh
+     */
+    public Map<YearMonth, Long> findMonthVersions(YearMonth firstMonth, YearMonth lastMonth) {
+        Map<YearMonth, Long> monthVersions = new HashMap<>();
+        versions.subMap(firstMonth.atDay(1), true, lastMonth.atEndOfMonth(), true).forEach((day, dayVersion) ->
+                monthVersions.merge(YearMonth.from(day), dayVersion.version(), Long::sum));
+        return monthVersions;
+    }
+
+    /**
+     * Apply upserted prices once the current transaction commits, or right away outside a transaction.
+     * Later prices of the same country and timestamp replace earlier ones.
+     */
+    public void putPricesAfterCommit(List<ElectricityPrice> upserted) {
+        AfterCommit.run(() -> putPrices(upserted));
+    }
+
+    /**
+     * Apply a saved daily temperature once the current transaction commits, or right away outside a transaction
+     */
+    public void putWeatherAfterCommit(WeatherData weatherData) {
+        AfterCommit.run(() -> putWeather(weatherData));
+    }
+
+    /**
+     * Prices of a country recorded from the start of startDate to the end of endDate (UTC), in time order
+     */
+    public List<ElectricityPrice> findPrices(String country, LocalDate startDate, LocalDate endDate) {
+        PriceColumns columns = prices.getOrDefault(country, PriceColumns.EMPTY);
+        int from = columns.indexOf(startOfDay(startDate));
+        int to = columns.indexOf(startOfDay(endDate.plusDays(1)));
+        List<ElectricityPrice> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            ElectricityPrice price = create(country);
+            price.setRecordedAt(columns.recordedAt[i]);
+            price.setPrice(columns.prices[i]);
+            result.add(price);
+        }
+        return result;
+    }
+
+    /**
+     * Pass the prices of a country recorded from the start of startDate to the end of endDate (UTC) to the consumer,
+     * in time order
+     */
+    public void forEachPrice(String country, LocalDate startDate, LocalDate endDate, PriceConsumer consumer) {
+        PriceColumns columns = prices.getOrDefault(country, PriceColumns.EMPTY);
+        int to = columns.indexOf(startOfDay(endDate.plusDays(1)));
+        for (int i = columns.indexOf(startOfDay(startDate)); i < to; i++) {
+            consumer.accept(columns.recordedAt[i], columns.prices[i]);
+        }
+    }
+
+    public List<WeatherData> findWeather(LocalDate startDate, LocalDate endDate) {
+        TemperatureColumn column = temperatures;
+        List<WeatherData> result = new ArrayList<>();
+        for (long day = startDate.toEpochDay(); day <= endDate.toEpochDay(); day++) {
+            double temperature = column.get(day);
+            if (!Double.isNaN(temperature)) {
+                result.add(new WeatherData(LocalDate.ofEpochDay(day), temperature));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Average price of a country and temperature of every UTC day in the range, excluding days without any data
+     */
+    public List<DailyAggregatedData> findDailyAverages(String country, LocalDate startDate, LocalDate endDate) {
+        PriceColumns columns = prices.getOrDefault(country, PriceColumns.EMPTY);
+        TemperatureColumn temperatureColumn = temperatures;
+        long firstDay = startDate.toEpochDay();
+        int days = (int) (endDate.toEpochDay() - firstDay + 1);
+        double[] sums = new double[days];
+        int[] counts = new int[days];
+
+        long[] recordedAt = columns.recordedAt;
+        double[] values = columns.prices;
+        int to = columns.indexOf(startOfDay(endDate.plusDays(1)));
+        // The prices are sorted, so the day advances by comparing with the start of the next day instead of dividing
+        int day = 0;
+        long nextDay = startOfDay(startDate) + SECONDS_PER_DAY;
+        for (int i = columns.indexOf(startOfDay(startDate)); i < to; i++) {
+            while (recordedAt[i] >= nextDay) {
+                day++;
+                nextDay += SECONDS_PER_DAY;
+            }
+            sums[day] += values[i];
+            counts[day]++;
+        }
+
+        List<DailyAggregatedData> result = new ArrayList<>(days);
+        for (day = 0; day < days; day++) {
+            double temperature = temperatureColumn.get(firstDay + day);
+            if (counts[day] > 0 || !Double.isNaN(temperature)) {
+                result.add(new DailyAggregatedData(LocalDate.ofEpochDay(firstDay + day),
+                        counts[day] > 0 ? sums[day] / counts[day] : null,
+                        Double.isNaN(temperature) ? null : temperature));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Average price of a country and average temperature of every period of the granularity overlapping the range,
+     * excluding periods without any data. Only the days of the range count towards the periods at its ends.
+     *
+     * @param granularity daily or a longer period
+     */
+    public List<AggregatedData> findPeriodAverages(String country, LocalDate startDate, LocalDate endDate,
+                                                   Granularity granularity) {
+        if (granularity == Granularity.HOURLY) {
+            throw new IllegalArgumentException("Hourly prices are not averaged per period");
+        }
+        List<LocalDate> periodStarts = new ArrayList<>();
+        for (LocalDate periodStart = granularity.periodStart(startDate); !periodStart.isAfter(endDate);
+             periodStart = granularity.nextPeriodStart(periodStart)) {
+            periodStarts.add(periodStart);
+        }
+        int periods = periodStarts.size();
+        double[] priceSums = new double[periods];
+        int[] priceCounts = new int[periods];
+        double[] temperatureSums = new double[periods];
+        int[] temperatureCounts = new int[periods];
+
+        PriceColumns columns = prices.getOrDefault(country, PriceColumns.EMPTY);
+        long[] recordedAt = columns.recordedAt;
+        double[] values = columns.prices;
+        int to = columns.indexOf(startOfDay(endDate.plusDays(1)));
+        // As for days, the period advances by comparing with the start of the next period
+        int period = 0;
+        long nextPeriod = startOfDay(granularity.nextPeriodStart(periodStarts.get(0)));
+        for (int i = columns.indexOf(startOfDay(startDate)); i < to; i++) {
+            while (recordedAt[i] >= nextPeriod) {
+                period++;
+                nextPeriod = startOfDay(granularity.nextPeriodStart(periodStarts.get(period)));
+            }
+            priceSums[period] += values[i];
+            priceCounts[period]++;
+        }
+
+        TemperatureColumn temperatureColumn = temperatures;
+        period = 0;
+        long nextPeriodDay = granularity.nextPeriodStart(periodStarts.get(0)).toEpochDay();
+        for (long day = startDate.toEpochDay(); day <= endDate.toEpochDay(); day++) {
+            if (day >= nextPeriodDay) {
+                period++;
+                nextPeriodDay = granularity.nextPeriodStart(periodStarts.get(period)).toEpochDay();
+            }
+            double temperature = temperatureColumn.get(day);
+            if (!Double.isNaN(temperature)) {
+                temperatureSums[period] += temperature;
+                temperatureCounts[period]++;
+            }
+        }
+
+        List<AggregatedData> result = new ArrayList<>(periods);
+        for (period = 0; period < periods; period++) {
+            if (priceCounts[period] > 0 || temperatureCounts[period] > 0) {
+                result.add(new AggregatedData(periodStarts.get(period).atStartOfDay(),
+                        priceCounts[period] > 0 ? priceSums[period] / priceCounts[period] : null,
+                        temperatureCounts[period] > 0 ? temperatureSums[period] / temperatureCounts[period] : null));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Count, average, minimum and maximum of the prices of a country recorded in [from, to), without scanning them
+     */
+    public PriceStatistics findStatistics(String country, Instant from, Instant to) {
+        PriceRangeIndex index = rangeIndex(country);
+        RangeStatistics statistics = new RangeStatistics();
+        statistics.add(index, index.indexOf(from.getEpochSecond()), index.indexOf(to.getEpochSecond()));
+        return statistics.toPriceStatistics();
+    }
+
+    /**
+     * Count, average, minimum and maximum of the prices of a country recorded on the given UTC days, each day
+     * counted once
+     */
+    public PriceStatistics findStatistics(String country, Collection<LocalDate> days) {
+        PriceRangeIndex index = rangeIndex(country);
+        RangeStatistics statistics = new RangeStatistics();
+        days.stream().distinct().forEach(day -> statistics.add(index,
+                index.indexOf(startOfDay(day)), index.indexOf(startOfDay(day.plusDays(1)))));
+        return statistics.toPriceStatistics();
+    }
+
+    /**
+     * The range index of the current prices of a country. Concurrent readers may build the same index twice, which
+     * only costs time; the columns it was built from are compared by identity, since every update publishes new ones.
+     */
+    private PriceRangeIndex rangeIndex(String country) {
+        PriceColumns columns = prices.getOrDefault(country, PriceColumns.EMPTY);
+        IndexedColumns indexed = rangeIndexes.get(country);
+        if (indexed == null || indexed.columns() != columns) {
+            indexed = new IndexedColumns(columns,
+                    new PriceRangeIndex(columns.recordedAt(), columns.prices(), columns.size()));
+            rangeIndexes.put(country, indexed);
+        }
+        return indexed.index();
+    }
+
+    private NavigableMap<LocalDate, DayVersion> loadVersions() {
+        NavigableMap<LocalDate, DayVersion> loadedVersions = new TreeMap<>();
+        jdbcTemplate.query(LOAD_VERSIONS_SQL, (RowCallbackHandler) resultSet -> loadedVersions.put(
+                resultSet.getObject(1, LocalDate.class),
+                new DayVersion(resultSet.getLong(2), resultSet.getObject(3, OffsetDateTime.class).toInstant())));
+        return Collections.unmodifiableNavigableMap(loadedVersions);
+    }
+
+    /**
+     * Replace the prices of every country and the temperatures of the days with the rows stored for them
+     *
+     * @param days sorted days
+     */
+    private void reloadDays(List<LocalDate> days) {
+        Object[] dayParameter = days.stream().map(LocalDate::toString).toArray();
+        Map<String, List<ElectricityPrice>> reloaded = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(LOAD_DAY_PRICES_SQL);
+            statement.setArray(1, connection.createArrayOf("varchar", dayParameter));
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> {
+            ElectricityPrice price = create(resultSet.getString(1));
+            price.setRecordedAt(resultSet.getLong(2));
+            price.setPrice(resultSet.getDouble(3));
+            reloaded.computeIfAbsent(price.getCountry(), country -> new ArrayList<>()).add(price);
+        });
+        Map<LocalDate, Double> weather = new HashMap<>();
+        days.forEach(day -> weather.put(day, Double.NaN));
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(LOAD_DAY_WEATHER_SQL);
+            statement.setArray(1, connection.createArrayOf("varchar", dayParameter));
+            return statement;
+        }, (RowCallbackHandler) resultSet -> weather.put(resultSet.getObject(1, LocalDate.class), resultSet.getDouble(2)));
+
+        Set<String> countries = new HashSet<>(prices.keySet());
+        countries.addAll(reloaded.keySet());
+        for (String country : countries) {
+            prices.put(country, prices.getOrDefault(country, PriceColumns.EMPTY)
+                    .withoutDays(days)
+                    .merge(reloaded.getOrDefault(country, List.of())));
+        }
+        temperatures = temperatures.with(weather);
+    }
+
+    private void putPrices(List<ElectricityPrice> upserted) {
+        writeLock.lock();
+        try {
+            // Updates committed before the load started are part of the loaded rows
+            if (!loaded) {
+                return;
+            }
+            Map<String, List<ElectricityPrice>> byCountry = upserted.stream()
+                    .collect(Collectors.groupingBy(ElectricityPrice::getCountry));
+            byCountry.forEach((country, countryPrices) ->
+                    prices.put(country, prices.getOrDefault(country, PriceColumns.EMPTY).merge(countryPrices)));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void putWeather(WeatherData weatherData) {
+        writeLock.lock();
+        try {
+            if (loaded) {
+                temperatures = temperatures.with(Map.of(weatherData.getDate(), weatherData.getAverageTemperature()));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static long startOfDay(LocalDate date) {
+        return date.atStartOfDay().toEpochSecond(UTC);
+    }
+
+    /**
+     * Prices of one country sorted by time. Entries past {@code size} are unused capacity: appends after the last
+     * timestamp fill them in place and publish a larger size, which readers of the previous columns never look at.
+     * Any other update copies the arrays.
+     */
+    private record PriceColumns(long[] recordedAt, double[] prices, int size) {
+
+        private static final PriceColumns EMPTY = new PriceColumns(new long[0], new double[0], 0);
+
+        /**
+         * @return the index of the first price recorded at or after the given epoch second
+         */
+        int indexOf(long epochSecond) {
+            int index = Arrays.binarySearch(recordedAt, 0, size, epochSecond);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        PriceColumns merge(List<ElectricityPrice> upserted) {
+            if (upserted.isEmpty()) {
+                return this;
+            }
+            List<ElectricityPrice> sorted = new ArrayList<>(upserted);
+            // The sort is stable, so the last of several prices with the same timestamp comes last
+            sorted.sort(Comparator.comparingLong(ElectricityPrice::getRecordedAt));
+            long[] keys = new long[sorted.size()];
+            double[] values = new double[sorted.size()];
+            int count = 0;
+            for (ElectricityPrice price : sorted) {
+                if (count > 0 && keys[count - 1] == price.getRecordedAt()) {
+                    count--;
+                }
+                keys[count] = price.getRecordedAt();
+                values[count++] = price.getPrice();
+            }
+
+            if (size == 0 || keys[0] > recordedAt[size - 1]) {
+                return append(keys, values, count);
+            }
+            long[] mergedRecordedAt = new long[capacityFor(size + count)];
+            double[] mergedPrices = new double[mergedRecordedAt.length];
+            int merged = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size || j < count) {
+                if (j == count || (i < size && recordedAt[i] < keys[j])) {
+                    mergedRecordedAt[merged] = recordedAt[i];
+                    mergedPrices[merged++] = prices[i++];
+                } else {
+                    // An upserted price replaces the stored price with the same timestamp
+                    if (i < size && recordedAt[i] == keys[j]) {
+                        i++;
+                    }
+                    mergedRecordedAt[merged] = keys[j];
+                    mergedPrices[merged++] = values[j++];
+                }
+            }
+            return new PriceColumns(mergedRecordedAt, mergedPrices, merged);
+        }
+
+        /**
+         * @param days sorted UTC days whose prices are removed
+         */
+        PriceColumns withoutDays(List<LocalDate> days) {
+            long[] keptRecordedAt = new long[recordedAt.length];
+            double[] keptPrices = new double[keptRecordedAt.length];
+            int kept = 0;
+            int from = 0;
+            for (LocalDate day : days) {
+                int dayStart = indexOf(startOfDay(day));
+                int dayEnd = indexOf(startOfDay(day.plusDays(1)));
+                System.arraycopy(recordedAt, from, keptRecordedAt, kept, dayStart - from);
+                System.arraycopy(prices, from, keptPrices, kept, dayStart - from);
+                kept += dayStart - from;
+                from = dayEnd;
+            }
+            System.arraycopy(recordedAt, from, keptRecordedAt, kept, size - from);
+            System.arraycopy(prices, from, keptPrices, kept, size - from);
+            return new PriceColumns(keptRecordedAt, keptPrices, kept + size - from);
+        }
+
+        private PriceColumns append(long[] keys, double[] values, int count) {
+            long[] targetRecordedAt = recordedAt;
+            double[] targetPrices = prices;
+            if (size + count > recordedAt.length) {
+                targetRecordedAt = Arrays.copyOf(recordedAt, capacityFor(size + count));
+                targetPrices = Arrays.copyOf(prices, targetRecordedAt.length);
+            }
+            System.arraycopy(keys, 0, targetRecordedAt, size, count);
+            System.arraycopy(values, 0, targetPrices, size, count);
+            return new PriceColumns(targetRecordedAt, targetPrices, size + count);
+        }
+
+        private static int capacityFor(int size) {
+            return Math.max(size + (size >> 1), 1024);
+        }
+    }
+
+    /**
+     * Collects prices read in time order
+     */
+    private static final class ColumnsBuilder {
+
+        private long[] recordedAt = new long[1024];
+        private double[] prices = new double[1024];
+        private int size;
+
+        void add(long epochSecond, double price) {
+            if (size == recordedAt.length) {
+                recordedAt = Arrays.copyOf(recordedAt, PriceColumns.capacityFor(size + 1));
+                prices = Arrays.copyOf(prices, recordedAt.length);
+            }
+            recordedAt[size] = epochSecond;
+            prices[size++] = price;
+        }
+
+        PriceColumns build() {
+            return new PriceColumns(recordedAt, prices, size);
+        }
+    }
+
+    private record IndexedColumns(PriceColumns columns, PriceRangeIndex index) {
+    }
+
+    private record DayVersion(long version, Instant updatedAt) {
+    }
+
+    /**
+     * Combines the statistics of several index ranges
+     */
+    private static final class RangeStatistics {
+
+        private long count;
+        private double sum;
+        private double minimum = Double.POSITIVE_INFINITY;
+        private double maximum = Double.NEGATIVE_INFINITY;
+
+        void add(PriceRangeIndex index, int from, int to) {
+            if (from < to) {
+                count += to - from;
+                sum += index.sum(from, to);
+                minimum = Math.min(minimum, index.min(from, to));
+                maximum = Math.max(maximum, index.max(from, to));
+            }
+        }
+
+        PriceStatistics toPriceStatistics() {
+            return count == 0 ? PriceStatistics.EMPTY : new PriceStatistics(count, sum / count, minimum, maximum);
+        }
+    }
+
+    /**
+     * Temperatures of consecutive days starting at {@code firstDay}, NaN for days without weather data
+     */
+    private record TemperatureColumn(long firstDay, double[] temperatures) {
+
+        private static final TemperatureColumn EMPTY = new TemperatureColumn(0, new double[0]);
+
+        double get(long epochDay) {
+            long index = epochDay - firstDay;
+            return index >= 0 && index < temperatures.length ? temperatures[(int) index] : Double.NaN;
+        }
+
+        TemperatureColumn with(Map<LocalDate, Double> updates) {
+            if (updates.isEmpty()) {
+                return this;
+            }
+            long first = updates.keySet().stream().mapToLong(LocalDate::toEpochDay).min().orElseThrow();
+            long last = updates.keySet().stream().mapToLong(LocalDate::toEpochDay).max().orElseThrow();
+            if (temperatures.length > 0) {
+                first = Math.min(first, firstDay);
+                last = Math.max(last, firstDay + temperatures.length - 1);
+            }
+            double[] values = new double[(int) (last - first + 1)];
+            Arrays.fill(values, Double.NaN);
+            if (temperatures.length > 0) {
+                System.arraycopy(temperatures, 0, values, (int) (firstDay - first), temperatures.length);
+            }
+            for (Map.Entry<LocalDate, Double> update : updates.entrySet()) {
+                values[(int) (update.getKey().toEpochDay() - first)] = update.getValue();
+            }
+            return new TemperatureColumn(first, values);
+        }
+    }
+}
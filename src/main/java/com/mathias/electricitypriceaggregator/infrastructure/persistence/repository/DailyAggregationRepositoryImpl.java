@@ -0,0 +1,127 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
+
+import com.mathias.electricitypriceaggregator.domain.repository.DailyAggregationRepository;
+import com.mathias.electricitypriceaggregator.domain.valueobject.AggregatedData;
+import com.mathias.electricitypriceaggregator.domain.valueobject.DailyAggregatedData;
+import com.mathias.electricitypriceaggregator.domain.valueobject.Granularity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static java.time.ZoneOffset.UTC;
+
+/**
+ * Implementation of DailyAggregationRepository computing the daily averages in PostgreSQL.
+ * Prices are averaged per UTC day, either from the hourly rows with an index range scan on (recorded_at, country) or
+ * from the daily_price_summary rollup. The days of the range are generated as a series and joined with weather_data,
+ * so only one row per day is returned. Longer periods group the same series, dividing the summed prices by the summed
+ * counts so the average weighs every hour equally.
+ */
+@Component
+public class DailyAggregationRepositoryImpl implements DailyAggregationRepository {
+
+    // Days fetched per round trip when streaming
+    private static final int FETCH_SIZE = 1_000;
+
+    private static final String DAILY_AVERAGES_SQL = """
+            WITH daily_price AS (
+                SELECT (recorded_at AT TIME ZONE 'UTC')::date AS date, avg(price) AS average_price
+                FROM electricity_price
+                WHERE country = ? AND recorded_at >= ? AND recorded_at < ?
+                GROUP BY 1
+            )
+            SELECT day::date AS date, daily_price.average_price, weather_data.average_temperature
+            FROM generate_series(?::date, ?::date, interval '1 day') AS day
+            LEFT JOIN daily_price ON daily_price.date = day::date
+            LEFT JOIN weather_data ON weather_data.date = day::date
+            WHERE daily_price.average_price IS NOT NULL OR weather_data.average_temperature IS NOT NULL
+            ORDER BY day
+            """;
+
+    private static final String DAILY_SUMMARY_AVERAGES_SQL = """
+            SELECT series.day::date AS date, summary.price_sum / summary.price_count AS average_price,
+                   weather_data.average_temperature
+            FROM generate_series(?::date, ?::date, interval '1 day') AS series(day)
+            LEFT JOIN daily_price_summary summary ON summary.country = ? AND summary.day = series.day::date
+            LEFT JOIN weather_data ON weather_data.date = series.day::date
+            WHERE summary.price_sum IS NOT NULL OR weather_data.average_temperature IS NOT NULL
+            ORDER BY series.day
+            """;
+
+    private static final String PERIOD_SUMMARY_AVERAGES_SQL = """
+            SELECT date_trunc(?, series.day::timestamp) AS period_start,
+                   sum(summary.price_sum) / sum(summary.price_count) AS average_price,
+                   avg(weather_data.average_temperature) AS average_temperature
+            FROM generate_series(?::date, ?::date, interval '1 day') AS series(day)
+            LEFT JOIN daily_price_summary summary ON summary.country = ? AND summary.day = series.day::date
+            LEFT JOIN weather_data ON weather_data.date = series.day::date
+            GROUP BY 1
+            HAVING count(summary.price_sum) > 0 OR count(weather_data.average_temperature) > 0
+            ORDER BY 1
+            """;
+
+    private static final RowMapper<AggregatedData> AGGREGATED_DATA_MAPPER = (resultSet, rowNumber) ->
+            new AggregatedData(
+                    resultSet.getObject("period_start", LocalDateTime.class),
+                    resultSet.getObject("average_price", Double.class),
+                    resultSet.getObject("average_temperature", Double.class));
+
+    private static final RowMapper<DailyAggregatedData> DAILY_AGGREGATED_DATA_MAPPER = (resultSet, rowNumber) ->
+            new DailyAggregatedData(
+                    resultSet.getObject("date", LocalDate.class),
+                    resultSet.getObject("average_price", Double.class),
+                    resultSet.getObject("average_temperature", Double.class));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DailyAggregationRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<DailyAggregatedData> findDailyAverages(String country, LocalDate startDate, LocalDate endDate) {
+        OffsetDateTime start = startDate.atStartOfDay().atOffset(UTC);
+        OffsetDateTime end = endDate.plusDays(1).atStartOfDay().atOffset(UTC);
+        return jdbcTemplate.query(DAILY_AVERAGES_SQL, DAILY_AGGREGATED_DATA_MAPPER,
+                country, start, end, startDate, endDate);
+    }
+
+    @Override
+    public List<DailyAggregatedData> findDailyAveragesFromSummary(String country, LocalDate startDate, LocalDate endDate) {
+        return jdbcTemplate.query(DAILY_SUMMARY_AVERAGES_SQL, DAILY_AGGREGATED_DATA_MAPPER, startDate, endDate, country);
+    }
+
+    @Override
+    // PostgreSQL only fetches in batches inside a transaction; otherwise the driver reads every row up front
+    @Transactional(readOnly = true)
+    public void streamDailyAveragesFromSummary(String country, LocalDate startDate, LocalDate endDate,
+                                               Consumer<DailyAggregatedData> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(DAILY_SUMMARY_AVERAGES_SQL);
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setObject(1, startDate);
+            statement.setObject(2, endDate);
+            statement.setString(3, country);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> consumer.accept(DAILY_AGGREGATED_DATA_MAPPER.mapRow(resultSet, resultSet.getRow())));
+    }
+
+    @Override
+    public List<AggregatedData> findPeriodAveragesFromSummary(String country, LocalDate startDate, LocalDate endDate,
+                                                              Granularity granularity) {
+        if (granularity == Granularity.HOURLY) {
+            throw new IllegalArgumentException("The daily price rollup has no hourly prices");
+        }
+        return jdbcTemplate.query(PERIOD_SUMMARY_AVERAGES_SQL, AGGREGATED_DATA_MAPPER,
+                granularity.unit(), startDate, endDate, country);
+    }
+}
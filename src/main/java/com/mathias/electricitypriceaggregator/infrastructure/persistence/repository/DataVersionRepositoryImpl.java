@@ -0,0 +1,82 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
+
+import com.mathias.electricitypriceaggregator.domain.repository.DataVersionRepository;
+import com.mathias.electricitypriceaggregator.domain.valueobject.DataVersion;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Implementation of DataVersionRepository keeping one row per written UTC day in data_version.
+ * Days are advanced in date order, so concurrent writers lock shared rows in the same order and cannot deadlock.
+ */
+@Component
+public class DataVersionRepositoryImpl implements DataVersionRepository {
+
+    private static final String ADVANCE_SQL = """
+            INSERT INTO data_version (day, version, updated_at)
+            SELECT DISTINCT day, 1, now() FROM unnest(?::date[]) AS t(day)
+            ORDER BY day
+            ON CONFLICT (day)
+            DO UPDATE SET version = data_version.version + 1, updated_at = EXCLUDED.updated_at
+            """;
+
+    private static final String DATA_VERSION_SQL = """
+            SELECT coalesce(sum(version), 0), max(updated_at)
+            FROM data_version
+            WHERE day BETWEEN ? AND ?
+            """;
+
+    private static final String MONTH_VERSIONS_SQL = """
+            SELECT date_trunc('month', day)::date, sum(version)
+            FROM data_version
+            WHERE day BETWEEN ? AND ?
+            GROUP BY 1
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DataVersionRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void advance(Collection<LocalDate> days) {
+        if (days.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(ADVANCE_SQL)) {
+                statement.setArray(1, connection.createArrayOf("varchar", days.stream().map(LocalDate::toString).toArray()));
+                statement.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public DataVersion findDataVersion(LocalDate startDate, LocalDate endDate) {
+        return jdbcTemplate.queryForObject(DATA_VERSION_SQL, (resultSet, rowNumber) -> {
+            OffsetDateTime lastModified = resultSet.getObject(2, OffsetDateTime.class);
+            return new DataVersion(resultSet.getLong(1), lastModified == null ? null : lastModified.toInstant());
+        }, startDate, endDate);
+    }
+
+    @Override
+    public Map<YearMonth, Long> findMonthVersions(YearMonth firstMonth, YearMonth lastMonth) {
+        Map<YearMonth, Long> monthVersions = new HashMap<>();
+        jdbcTemplate.query(MONTH_VERSIONS_SQL, (RowCallbackHandler) resultSet -> monthVersions.put(
+                        YearMonth.from(resultSet.getObject(1, LocalDate.class)), resultSet.getLong(2)),
+                firstMonth.atDay(1), lastMonth.atEndOfMonth());
+        return monthVersions;
+    }
+}
@@ -1,42 +1,480 @@
 package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
 
 import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
-import com.mathias.electricitypriceaggregator.infrastructure.persistence.entity.ElectricityPriceEntity;
-import com.mathias.electricitypriceaggregator.infrastructure.persistence.mapper.ElectricityPriceMapper;
+import com.mathias.electricitypriceaggregator.domain.valueobject.PricesWritten;
+import com.mathias.electricitypriceaggregator.domain.valueobject.UpsertResult;
+import com.mathias.electricitypriceaggregator.infrastructure.config.IngestionProperties;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.sql.Timestamp;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+/**
+ * Bulk writer for electricity prices.
+ * Rows are grouped into blocks of one country and UTC day. The digest of every block is compared with the digest
+ * stored when that day was last written, and unchanged blocks are skipped without touching electricity_price.
+ * The remaining rows are upserted with a conditional update, so rows whose price did not change are not rewritten.
+ * The daily_price_summary rollup of every written block is then recomputed from its hourly rows, which accounts for
+ * overwritten hours, including ones that held the day's minimum or maximum. The written rows and days are then
+ * published as one {@link PricesWritten} event within the transaction, so their data versions, the weather queue and
+ * the in-memory copies are kept current by its listeners rather than by the writer.
+ */
 @Repository
 public class ElectricityPriceBulkRepository {
 
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    private static final int BATCH_SIZE = 1000;
+
+    // Only rows with a new price are rewritten, so the update count of an unchanged row is 0
+    private static final String BATCH_UPSERT_SQL = """
+            INSERT INTO electricity_price (recorded_at, price, country)
+            VALUES (to_timestamp(?), ?, ?)
+            ON CONFLICT (recorded_at, country)
+            DO UPDATE SET price = EXCLUDED.price
+            WHERE electricity_price.price IS DISTINCT FROM EXCLUDED.price
+            """;
+
+    private static final String COUNT_EXISTING_SQL = """
+            SELECT count(*)
+            FROM electricity_price e
+            JOIN unnest(?::bigint[], ?::varchar[]) AS k(epoch_second, country)
+              ON e.recorded_at = to_timestamp(k.epoch_second) AND e.country = k.country
+            """;
+
+    // The last occurrence of a (recorded_at, country) pair wins, and only rows with a new price are rewritten
+    private static final String ARRAY_UPSERT_SQL = """
+            WITH source AS (
+                SELECT DISTINCT ON (epoch_second, country) epoch_second, price, country
+                FROM unnest(?::bigint[], ?::float8[], ?::varchar[]) WITH ORDINALITY AS t(epoch_second, price, country, ordinal)
+                ORDER BY epoch_second, country, ordinal DESC
+            ), upserted AS (
+                INSERT INTO electricity_price (recorded_at, price, country)
+                SELECT to_timestamp(epoch_second), price, country
+                FROM source
+                ON CONFLICT (recorded_at, country)
+                DO UPDATE SET price = EXCLUDED.price
+                WHERE electricity_price.price IS DISTINCT FROM EXCLUDED.price
+                RETURNING (xmax = 0) AS inserted
+            )
+            SELECT count(*) FILTER (WHERE inserted), count(*) FILTER (WHERE NOT inserted), (SELECT count(*) FROM source)
+            FROM upserted
+            """;
+
+    // Created once per pooled connection and emptied on every commit
+    private static final String CREATE_STAGING_TABLE_SQL = """
+            CREATE TEMP TABLE IF NOT EXISTS electricity_price_staging (
+                epoch_second BIGINT NOT NULL,
+                price DOUBLE PRECISION NOT NULL,
+                country VARCHAR(2) NOT NULL,
+                ordinal INT NOT NULL
+            ) ON COMMIT DELETE ROWS
+            """;
+
+    private static final String COPY_SQL =
+            "COPY electricity_price_staging (epoch_second, price, country, ordinal) FROM STDIN (FORMAT text)";
+
+    // The last occurrence of a (recorded_at, country) pair wins, as it does with the array path
+    private static final String MERGE_STAGING_SQL = """
+            WITH source AS (
+                SELECT DISTINCT ON (epoch_second, country) epoch_second, price, country
+                FROM electricity_price_staging
+                ORDER BY epoch_second, country, ordinal DESC
+            ), upserted AS (
+                INSERT INTO electricity_price (recorded_at, price, country)
+                SELECT to_timestamp(epoch_second), price, country
+                FROM source
+                ON CONFLICT (recorded_at, country)
+                DO UPDATE SET price = EXCLUDED.price
+                WHERE electricity_price.price IS DISTINCT FROM EXCLUDED.price
+                RETURNING (xmax = 0) AS inserted
+            )
+            SELECT count(*) FILTER (WHERE inserted), count(*) FILTER (WHERE NOT inserted), (SELECT count(*) FROM source)
+            FROM upserted
+            """;
+
+    private static final String FIND_DAY_DIGESTS_SQL = """
+            SELECT d.country, d.day, d.digest
+            FROM electricity_price_day_digest d
+            JOIN unnest(?::varchar[], ?::date[]) AS k(country, day) ON d.country = k.country AND d.day = k.day
+            """;
+
+    private static final String UPSERT_DAY_DIGESTS_SQL = """
+            INSERT INTO electricity_price_day_digest (country, day, digest)
+            SELECT * FROM unnest(?::varchar[], ?::date[], ?::varchar[])
+            ON CONFLICT (country, day)
+            DO UPDATE SET digest = EXCLUDED.digest
+            """;
+
+    // Serialises writers of the same blocks until commit, so a summary is never recomputed from a snapshot that misses
+    // the hours committed by a concurrent chunk. Locks are taken in block order to avoid deadlocks.
+    private static final String LOCK_DAY_BLOCKS_SQL = """
+            SELECT pg_advisory_xact_lock(hashtextextended(k.country || ':' || k.day, 0))
+            FROM unnest(?::varchar[], ?::varchar[]) WITH ORDINALITY AS k(country, day, ordinal)
+            ORDER BY k.ordinal
+            """;
+
+    // Each day is aggregated in a lateral subquery, so it is an index range scan over its own hours
+    private static final String UPSERT_DAY_SUMMARIES_SQL = """
+            INSERT INTO daily_price_summary (country, day, price_sum, price_count, min_price, max_price)
+            SELECT k.country, k.day, d.price_sum, d.price_count, d.min_price, d.max_price
+            FROM unnest(?::varchar[], ?::date[]) AS k(country, day)
+            CROSS JOIN LATERAL (
+                SELECT sum(e.price) AS price_sum, count(*) AS price_count,
+                       min(e.price) AS min_price, max(e.price) AS max_price
+                FROM electricity_price e
+                WHERE e.country = k.country
+                  AND e.recorded_at >= k.day::timestamp AT TIME ZONE 'UTC'
+                  AND e.recorded_at < (k.day + 1)::timestamp AT TIME ZONE 'UTC'
+            ) d
+            WHERE d.price_count > 0
+            ON CONFLICT (country, day)
+            DO UPDATE SET price_sum = EXCLUDED.price_sum, price_count = EXCLUDED.price_count,
+                          min_price = EXCLUDED.min_price, max_price = EXCLUDED.max_price
+            """;
+
+    private static final String BUILD_DAY_SUMMARIES_SQL = """
+            INSERT INTO daily_price_summary (country, day, price_sum, price_count, min_price, max_price)
+            SELECT country, (recorded_at AT TIME ZONE 'UTC')::date, sum(price), count(*), min(price), max(price)
+            FROM electricity_price
+            WHERE NOT EXISTS (SELECT 1 FROM daily_price_summary)
+            GROUP BY 1, 2
+            """;
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
     private final JdbcTemplate jdbcTemplate;
-    private final ElectricityPriceMapper mapper;
+    private final IngestionProperties ingestionProperties;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public ElectricityPriceBulkRepository(JdbcTemplate jdbcTemplate, ElectricityPriceMapper mapper) {
+    public ElectricityPriceBulkRepository(JdbcTemplate jdbcTemplate, IngestionProperties ingestionProperties,
+                                          ApplicationEventPublisher eventPublisher) {
         this.jdbcTemplate = jdbcTemplate;
-        this.mapper = mapper;
+        this.ingestionProperties = ingestionProperties;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional(propagation = Propagation.REQUIRED)
-    public void upsertAll(List<ElectricityPrice> prices) {
-        List<ElectricityPriceEntity> entities = mapper.toEntity(prices);
-        String sql = """
-                INSERT INTO electricity_price (recorded_at, price, country)
-                VALUES (?, ?, ?)
-                ON CONFLICT (recorded_at, country)
-                DO UPDATE SET price = EXCLUDED.price
-                """;
+    public UpsertResult upsertAll(List<ElectricityPrice> prices) {
+        if (prices.isEmpty()) {
+            return UpsertResult.EMPTY;
+        }
+
+        Map<DayBlock, String> digests = digestDayBlocks(prices);
+        Set<DayBlock> unchangedBlocks = findUnchangedBlocks(digests);
+        List<ElectricityPrice> changedPrices = new ArrayList<>(prices.size());
+        for (ElectricityPrice price : prices) {
+            if (!unchangedBlocks.contains(DayBlock.of(price))) {
+                changedPrices.add(price);
+            }
+        }
+        // Rows repeating the timestamp and country of another row in the call are written and counted once
+        long skipped = countDistinctHours(prices, unchangedBlocks);
+        if (changedPrices.isEmpty()) {
+            return UpsertResult.unchanged(skipped);
+        }
+
+        digests.keySet().removeAll(unchangedBlocks);
+        List<DayBlock> writtenBlocks = digests.keySet().stream().sorted().toList();
+        executeForDayBlocks(LOCK_DAY_BLOCKS_SQL, writtenBlocks);
+        long[] counts = switch (ingestionProperties.getWriteMode()) {
+            case BATCH -> batchUpsert(changedPrices);
+            case ARRAY -> arrayUpsert(changedPrices);
+            case COPY -> copyUpsert(changedPrices);
+        };
+        executeForDayBlocks(UPSERT_DAY_SUMMARIES_SQL, writtenBlocks);
+        saveDigests(digests);
+        eventPublisher.publishEvent(new PricesWritten(changedPrices, writtenBlocks.stream()
+                .collect(Collectors.groupingBy(DayBlock::country, Collectors.mapping(DayBlock::day, Collectors.toList())))));
+
+        long inserted = counts[0];
+        long updated = counts[1];
+        long distinct = counts[2];
+        return new UpsertResult(inserted, updated, skipped + distinct - inserted - updated);
+    }
+
+    /**
+     * Build the daily_price_summary rollup from all hourly rows when it is empty, e.g. after it was first created
+     *
+     * @return the number of summaries built
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public int buildDailySummariesIfEmpty() {
+        return jdbcTemplate.update(BUILD_DAY_SUMMARIES_SQL);
+    }
+
+    /**
+     * Number of distinct (timestamp, country) pairs among the prices of the given blocks
+     */
+    private static long countDistinctHours(List<ElectricityPrice> prices, Set<DayBlock> blocks) {
+        if (blocks.isEmpty()) {
+            return 0;
+        }
+        Set<HourKey> hours = new HashSet<>();
+        for (ElectricityPrice price : prices) {
+            if (blocks.contains(DayBlock.of(price))) {
+                hours.add(new HourKey(price.getCountry(), price.getRecordedAt()));
+            }
+        }
+        return hours.size();
+    }
+
+    /**
+     * Upsert the prices with one JDBC batch of single-row statements per {@value #BATCH_SIZE} rows.
+     * The rows of a (recorded_at, country) pair that occurs more than once are dropped up front except for the last,
+     * and the rows that already exist are counted first, which is exact because the written day blocks are locked.
+     *
+     * @return the number of inserted, updated and distinct source rows
+     */
+    private long[] batchUpsert(List<ElectricityPrice> prices) {
+        Map<HourKey, ElectricityPrice> lastByHour = new LinkedHashMap<>(prices.size() * 2);
+        for (ElectricityPrice price : prices) {
+            requirePrice(price);
+            HourKey hour = new HourKey(price.getCountry(), price.getRecordedAt());
+            lastByHour.remove(hour);
+            lastByHour.put(hour, price);
+        }
+        List<ElectricityPrice> distinctPrices = new ArrayList<>(lastByHour.values());
+        long existing = countExisting(lastByHour.keySet());
+
+        int[][] updateCounts = jdbcTemplate.batchUpdate(BATCH_UPSERT_SQL, distinctPrices, BATCH_SIZE, (ps, price) -> {
+            ps.setLong(1, price.getRecordedAt());
+            ps.setDouble(2, price.getPrice());
+            ps.setString(3, price.getCountry());
+        });
+        long written = 0;
+        for (int[] batch : updateCounts) {
+            for (int count : batch) {
+                written += count;
+            }
+        }
+        long inserted = distinctPrices.size() - existing;
+        return new long[]{inserted, written - inserted, distinctPrices.size()};
+    }
+
+    private long countExisting(Collection<HourKey> hours) {
+        Long[] epochSeconds = new Long[hours.size()];
+        String[] countries = new String[hours.size()];
+        int i = 0;
+        for (HourKey hour : hours) {
+            epochSeconds[i] = hour.recordedAt();
+            countries[i++] = hour.country();
+        }
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(COUNT_EXISTING_SQL)) {
+                statement.setArray(1, connection.createArrayOf("bigint", epochSeconds));
+                statement.setArray(2, connection.createArrayOf("varchar", countries));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    return resultSet.getLong(1);
+                }
+            }
+        });
+    }
+
+    /**
+     * Upsert the prices in one statement, binding each column as an array
+     *
+     * @return the number of inserted, updated and distinct source rows
+     */
+    private long[] arrayUpsert(List<ElectricityPrice> prices) {
+        int size = prices.size();
+        Long[] epochSeconds = new Long[size];
+        Double[] values = new Double[size];
+        String[] countries = new String[size];
+        for (int i = 0; i < size; i++) {
+            ElectricityPrice price = prices.get(i);
+            requirePrice(price);
+            epochSeconds[i] = price.getRecordedAt();
+            values[i] = price.getPrice();
+            countries[i] = price.getCountry();
+        }
+        return jdbcTemplate.execute((ConnectionCallback<long[]>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(ARRAY_UPSERT_SQL)) {
+                statement.setArray(1, connection.createArrayOf("bigint", epochSeconds));
+                statement.setArray(2, connection.createArrayOf("float8", values));
+                statement.setArray(3, connection.createArrayOf("varchar", countries));
+                return readCounts(statement);
+            }
+        });
+    }
+
+    private long[] copyUpsert(List<ElectricityPrice> prices) {
+        jdbcTemplate.execute(CREATE_STAGING_TABLE_SQL);
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            PGConnection pgConnection = connection.unwrap(PGConnection.class);
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new PGCopyOutputStream(pgConnection, COPY_SQL, COPY_BUFFER_SIZE), StandardCharsets.UTF_8))) {
+                writeCopyRows(writer, prices);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to copy electricity prices into the staging table", e);
+            }
+            return null;
+        });
+        return jdbcTemplate.execute((ConnectionCallback<long[]>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(MERGE_STAGING_SQL)) {
+                return readCounts(statement);
+            }
+        });
+    }
+
+    /**
+     * @return the number of inserted, updated and distinct source rows reported by an upsert statement
+     */
+    private static long[] readCounts(PreparedStatement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            return new long[]{resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3)};
+        }
+    }
+
+    private static void writeCopyRows(Writer writer, List<ElectricityPrice> prices) throws IOException {
+        int ordinal = 0;
+        for (ElectricityPrice price : prices) {
+            requirePrice(price);
+            writer.write(Long.toString(price.getRecordedAt()));
+            writer.write('\t');
+            writer.write(Double.toString(price.getPrice()));
+            writer.write('\t');
+            writer.write(price.getCountry());
+            writer.write('\t');
+            writer.write(Integer.toString(ordinal++));
+            writer.write('\n');
+        }
+    }
+
+    private static void requirePrice(ElectricityPrice price) {
+        if (price.getPrice() == null) {
+            throw new IllegalArgumentException("ElectricityPrice and its price cannot be null");
+        }
+    }
+
+    /**
+     * SHA-256 of the (timestamp, price) pairs of every block, in upload order
+     */
+    private static Map<DayBlock, String> digestDayBlocks(List<ElectricityPrice> prices) {
+        Map<DayBlock, MessageDigest> blockDigests = new LinkedHashMap<>();
+        ByteBuffer row = ByteBuffer.allocate(2 * Long.BYTES);
+        for (ElectricityPrice price : prices) {
+            requirePrice(price);
+            MessageDigest digest = blockDigests.computeIfAbsent(DayBlock.of(price), block -> sha256());
+            row.clear();
+            row.putLong(price.getRecordedAt()).putLong(Double.doubleToLongBits(price.getPrice()));
+            digest.update(row.array());
+        }
+        Map<DayBlock, String> digests = new LinkedHashMap<>(blockDigests.size() * 2);
+        blockDigests.forEach((block, digest) -> digests.put(block, HexFormat.of().formatHex(digest.digest())));
+        return digests;
+    }
+
+    private Set<DayBlock> findUnchangedBlocks(Map<DayBlock, String> digests) {
+        Set<DayBlock> unchanged = new HashSet<>();
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(FIND_DAY_DIGESTS_SQL)) {
+                setDayBlocks(connection, statement, digests.keySet());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        DayBlock block = new DayBlock(resultSet.getString(1), resultSet.getObject(2, LocalDate.class));
+                        if (resultSet.getString(3).equals(digests.get(block))) {
+                            unchanged.add(block);
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+        return unchanged;
+    }
+
+    private void executeForDayBlocks(String sql, Collection<DayBlock> blocks) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                setDayBlocks(connection, statement, blocks);
+                statement.execute();
+            }
+            return null;
+        });
+    }
+
+    private void saveDigests(Map<DayBlock, String> digests) {
+        if (digests.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(UPSERT_DAY_DIGESTS_SQL)) {
+                setDayBlocks(connection, statement, digests.keySet());
+                statement.setArray(3, connection.createArrayOf("varchar", digests.values().toArray()));
+                statement.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    private static void setDayBlocks(Connection connection, PreparedStatement statement, Collection<DayBlock> blocks)
+            throws SQLException {
+        statement.setArray(1, connection.createArrayOf("varchar",
+                blocks.stream().map(DayBlock::country).toArray()));
+        statement.setArray(2, connection.createArrayOf("varchar",
+                blocks.stream().map(block -> block.day().toString()).toArray()));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Prices of one country on one UTC day
+     */
+    private record DayBlock(String country, LocalDate day) implements Comparable<DayBlock> {
+
+        private static final Comparator<DayBlock> ORDER = Comparator.comparing(DayBlock::country).thenComparing(DayBlock::day);
+
+        static DayBlock of(ElectricityPrice price) {
+            return new DayBlock(price.getCountry(), LocalDate.ofEpochDay(Math.floorDiv(price.getRecordedAt(), SECONDS_PER_DAY)));
+        }
+
+        @Override
+        public int compareTo(DayBlock other) {
+            return ORDER.compare(this, other);
+        }
+    }
 
-        jdbcTemplate.batchUpdate(sql, entities, 1000,
-                (ps, entity) -> {
-                    ps.setTimestamp(1, Timestamp.from(entity.getRecordedAt()));
-                    ps.setDouble(2, entity.getPrice());
-                    ps.setString(3, entity.getCountry());
-                });
+    /**
+     * Price of one country at one timestamp
+     */
+    private record HourKey(String country, long recordedAt) {
     }
-}
\ No newline at end of file
+}
@@ -2,52 +2,156 @@ package com.mathias.electricitypriceaggregator.infrastructure.persistence.reposi
 
 import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
 import com.mathias.electricitypriceaggregator.domain.repository.ElectricityPriceRepository;
+import com.mathias.electricitypriceaggregator.domain.valueobject.PriceStatistics;
 import com.mathias.electricitypriceaggregator.infrastructure.persistence.mapper.ElectricityPriceMapper;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import static java.time.ZoneOffset.UTC;
 
 /**
- * Implementation of ElectricityPriceRepository using JPA
+ * Implementation of ElectricityPriceRepository using JPA, reading price ranges from the in-memory
+ * {@link ColumnarPriceStore} once it is loaded. Price ranges passed to a consumer are read with a JDBC cursor instead,
+ * so no entity is created per price. Statistics are computed by the database until the store is loaded.
  */
 @Component
 public class ElectricityPriceRepositoryImpl implements ElectricityPriceRepository {
 
+    // Prices fetched per round trip by forEachPrice
+    private static final int FETCH_SIZE = 10_000;
+
+    private static final String PRICES_SQL = """
+            SELECT extract(epoch FROM recorded_at)::bigint, price
+            FROM electricity_price
+            WHERE country = ? AND recorded_at >= ? AND recorded_at < ?
+            ORDER BY recorded_at
+            """;
+
+    // One pass over the prices, which reads only idx_recorded_at_country when its pages are all visible
+    private static final String RECORDED_HOUR_MASKS_SQL = """
+            SELECT p.day, bit_or(1 << p.hour)
+            FROM (SELECT (recorded_at AT TIME ZONE 'UTC')::date AS day,
+                         extract(hour FROM recorded_at AT TIME ZONE 'UTC')::int AS hour
+                  FROM electricity_price) p
+            WHERE NOT EXISTS (SELECT 1 FROM weather_data w WHERE w.date = p.day)
+            GROUP BY p.day
+            """;
+
+    private static final String RANGE_STATISTICS_SQL = """
+            SELECT count(*), avg(price), min(price), max(price)
+            FROM electricity_price
+            WHERE country = ? AND recorded_at >= ? AND recorded_at < ?
+            """;
+
+    private static final String DAY_STATISTICS_SQL = """
+            SELECT count(*), avg(p.price), min(p.price), max(p.price)
+            FROM (SELECT DISTINCT day FROM unnest(?::date[]) AS t(day)) d
+            JOIN electricity_price p
+              ON p.recorded_at >= d.day::timestamp AT TIME ZONE 'UTC'
+             AND p.recorded_at < (d.day + 1)::timestamp AT TIME ZONE 'UTC'
+            WHERE p.country = ?
+            """;
+
     private final JpaElectricityPriceRepository jpaRepository;
     private final ElectricityPriceMapper mapper;
+    private final ColumnarPriceStore columnarPriceStore;
+    private final JdbcTemplate jdbcTemplate;
 
     public ElectricityPriceRepositoryImpl(JpaElectricityPriceRepository jpaRepository,
-                                          ElectricityPriceMapper mapper) {
+                                          ElectricityPriceMapper mapper,
+                                          ColumnarPriceStore columnarPriceStore,
+                                          JdbcTemplate jdbcTemplate) {
         this.jpaRepository = jpaRepository;
         this.mapper = mapper;
+        this.columnarPriceStore = columnarPriceStore;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     @Override
-    public List<ElectricityPrice> findByDateBetween(LocalDate startDate, LocalDate endDate) {
+    public List<ElectricityPrice> findByDateBetween(String country, LocalDate startDate, LocalDate endDate) {
+        if (columnarPriceStore.isLoaded()) {
+            return columnarPriceStore.findPrices(country, startDate, endDate);
+        }
         Instant startInstant = getBeginningOfTheDay(startDate);
         Instant endInstant = getEndOfTheDay(endDate);
-        return jpaRepository.findByRecordedAtBetween(startInstant, endInstant)
+        return jpaRepository.findByCountryAndRecordedAtBetween(country, startInstant, endInstant)
                 .stream()
                 .map(mapper::toDomain)
                 .toList();
     }
 
     @Override
-    public List<LocalDate> findPricesDateWithoutWeather() {
-        return jpaRepository.findPricesDateWithoutWeather()
-                .stream()
-                .map(Date::toLocalDate)
-                .toList();
+    // PostgreSQL only fetches in batches inside a transaction; otherwise the driver reads every row up front
+    @Transactional(readOnly = true)
+    public void forEachPrice(String country, LocalDate startDate, LocalDate endDate, PriceConsumer consumer) {
+        if (columnarPriceStore.isLoaded()) {
+            columnarPriceStore.forEachPrice(country, startDate, endDate, consumer);
+            return;
+        }
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(PRICES_SQL);
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setString(1, country);
+            statement.setObject(2, startDate.atStartOfDay().atOffset(UTC));
+            statement.setObject(3, endDate.plusDays(1).atStartOfDay().atOffset(UTC));
+            return statement;
+        }, (RowCallbackHandler) resultSet -> consumer.accept(resultSet.getLong(1), resultSet.getDouble(2)));
     }
 
     @Override
-    public List<Integer> findRecordedHoursByDate(LocalDate date) {
-        return jpaRepository.findRecordedHoursByDate(date);
+    public PriceStatistics findStatistics(String country, Instant from, Instant to) {
+        if (columnarPriceStore.isLoaded()) {
+            return columnarPriceStore.findStatistics(country, from, to);
+        }
+        return jdbcTemplate.queryForObject(RANGE_STATISTICS_SQL, (resultSet, rowNumber) -> toPriceStatistics(resultSet),
+                country, from.atOffset(UTC), to.atOffset(UTC));
+    }
+
+    @Override
+    public PriceStatistics findStatistics(String country, Collection<LocalDate> days) {
+        if (columnarPriceStore.isLoaded()) {
+            return columnarPriceStore.findStatistics(country, days);
+        }
+        return jdbcTemplate.execute((ConnectionCallback<PriceStatistics>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(DAY_STATISTICS_SQL)) {
+                statement.setArray(1, connection.createArrayOf("varchar", days.stream().map(LocalDate::toString).toArray()));
+                statement.setString(2, country);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    return toPriceStatistics(resultSet);
+                }
+            }
+        });
+    }
+
+    @Override
+    public SortedMap<LocalDate, Integer> findRecordedHourMasksWithoutWeather() {
+        SortedMap<LocalDate, Integer> masks = new TreeMap<>();
+        jdbcTemplate.query(RECORDED_HOUR_MASKS_SQL, (RowCallbackHandler) resultSet ->
+                masks.put(resultSet.getObject(1, LocalDate.class), resultSet.getInt(2)));
+        return masks;
+    }
+
+    private static PriceStatistics toPriceStatistics(ResultSet resultSet) throws SQLException {
+        long count = resultSet.getLong(1);
+        if (count == 0) {
+            return PriceStatistics.EMPTY;
+        }
+        return new PriceStatistics(count, resultSet.getDouble(2), resultSet.getDouble(3), resultSet.getDouble(4));
     }
 
     private static Instant getEndOfTheDay(LocalDate endDate) {
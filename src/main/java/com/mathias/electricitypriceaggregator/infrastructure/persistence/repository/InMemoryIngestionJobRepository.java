@@ -0,0 +1,43 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
+
+import com.mathias.electricitypriceaggregator.domain.model.IngestionJob;
+import com.mathias.electricitypriceaggregator.domain.repository.IngestionJobRepository;
+import com.mathias.electricitypriceaggregator.infrastructure.config.IngestionProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implementation of IngestionJobRepository keeping jobs in memory.
+ * Finished jobs are evicted once they are older than {@code ingestion.job-retention}.
+ */
+@Component
+public class InMemoryIngestionJobRepository implements IngestionJobRepository {
+
+    private final Map<String, IngestionJob> jobs = new ConcurrentHashMap<>();
+    private final IngestionProperties ingestionProperties;
+
+    public InMemoryIngestionJobRepository(IngestionProperties ingestionProperties) {
+        this.ingestionProperties = ingestionProperties;
+    }
+
+    @Override
+    public IngestionJob save(IngestionJob ingestionJob) {
+        evictExpiredJobs();
+        jobs.put(ingestionJob.getId(), ingestionJob);
+        return ingestionJob;
+    }
+
+    @Override
+    public Optional<IngestionJob> findById(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    private void evictExpiredJobs() {
+        Instant expiredBefore = Instant.now().minus(ingestionProperties.getJobRetention());
+        jobs.values().removeIf(job -> job.getStatus().isFinished() && job.getFinishedAt().isBefore(expiredBefore));
+    }
+}
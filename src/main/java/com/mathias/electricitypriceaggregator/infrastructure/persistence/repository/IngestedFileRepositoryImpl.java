@@ -0,0 +1,38 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
+
+import com.mathias.electricitypriceaggregator.domain.model.IngestedFile;
+import com.mathias.electricitypriceaggregator.domain.repository.IngestedFileRepository;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.entity.IngestedFileEntity;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.mapper.IngestedFileMapper;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Implementation of IngestedFileRepository using JPA
+ */
+@Component
+public class IngestedFileRepositoryImpl implements IngestedFileRepository {
+
+    private final JpaIngestedFileRepository jpaRepository;
+    private final IngestedFileMapper mapper;
+
+    public IngestedFileRepositoryImpl(JpaIngestedFileRepository jpaRepository,
+                                      IngestedFileMapper mapper) {
+        this.jpaRepository = jpaRepository;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public IngestedFile save(IngestedFile ingestedFile) {
+        IngestedFileEntity entity = mapper.toEntity(ingestedFile);
+        IngestedFileEntity savedEntity = jpaRepository.save(entity);
+        return mapper.toDomain(savedEntity);
+    }
+
+    @Override
+    public Optional<IngestedFile> findByDigest(String digest) {
+        return jpaRepository.findByDigest(digest)
+                .map(mapper::toDomain);
+    }
+}
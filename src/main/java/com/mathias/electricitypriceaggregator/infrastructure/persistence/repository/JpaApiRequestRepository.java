@@ -0,0 +1,12 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
+
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.entity.ApiRequestEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data JPA repository for ApiRequestEntity
+ */
+@Repository
+public interface JpaApiRequestRepository extends JpaRepository<ApiRequestEntity, Long> {
+}
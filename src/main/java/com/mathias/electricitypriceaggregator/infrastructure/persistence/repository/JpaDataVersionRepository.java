@@ -0,0 +1,14 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
+
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.entity.DataVersionEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+/**
+ * Spring Data JPA repository for DataVersionEntity
+ */
+@Repository
+public interface JpaDataVersionRepository extends JpaRepository<DataVersionEntity, LocalDate> {
+}
@@ -0,0 +1,12 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
+
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.entity.ElectricityPriceDayDigestEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data JPA repository for ElectricityPriceDayDigestEntity
+ */
+@Repository
+public interface JpaElectricityPriceDayDigestRepository extends JpaRepository<ElectricityPriceDayDigestEntity, Long> {
+}
@@ -0,0 +1,16 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
+
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.entity.IngestedFileEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Spring Data JPA repository for IngestedFileEntity
+ */
+@Repository
+public interface JpaIngestedFileRepository extends JpaRepository<IngestedFileEntity, Long> {
+
+    Optional<IngestedFileEntity> findByDigest(String digest);
+}
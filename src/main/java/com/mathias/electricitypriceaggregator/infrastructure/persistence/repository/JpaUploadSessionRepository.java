@@ -0,0 +1,12 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
+
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.entity.UploadSessionEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data JPA repository for UploadSessionEntity
+ */
+@Repository
+public interface JpaUploadSessionRepository extends JpaRepository<UploadSessionEntity, String> {
+}
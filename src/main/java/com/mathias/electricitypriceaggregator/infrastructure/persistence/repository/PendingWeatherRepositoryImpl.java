@@ -0,0 +1,102 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
+
+import com.mathias.electricitypriceaggregator.domain.repository.PendingWeatherRepository;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Implementation of PendingWeatherRepository keeping one row per UTC day waiting for weather in pending_weather_date.
+ * Days are enqueued in date order, so concurrent ingestions lock shared rows in the same order and cannot deadlock;
+ * leasing never waits for a row lock.
+ */
+@Component
+public class PendingWeatherRepositoryImpl implements PendingWeatherRepository {
+
+    private static final String ENQUEUE_SQL = """
+            INSERT INTO pending_weather_date (day, hour_mask)
+            SELECT t.day, t.hour_mask FROM unnest(?::date[], ?::int[]) AS t(day, hour_mask)
+            WHERE NOT EXISTS (SELECT 1 FROM weather_data w WHERE w.date = t.day)
+            ORDER BY t.day
+            ON CONFLICT (day)
+            DO UPDATE SET hour_mask = pending_weather_date.hour_mask | EXCLUDED.hour_mask
+            """;
+
+    // The lease is written and committed by this one statement, so no lock is held while the weather is fetched
+    private static final String LEASE_SQL = """
+            UPDATE pending_weather_date p
+            SET lease_until = now() + ? * interval '1 millisecond'
+            FROM (SELECT day FROM pending_weather_date
+                  WHERE lease_until IS NULL OR lease_until < now()
+                  ORDER BY day
+                  LIMIT ?
+                  FOR UPDATE SKIP LOCKED) leased
+            WHERE p.day = leased.day
+            RETURNING p.day, p.hour_mask
+            """;
+
+    private static final String RELEASE_SQL = "UPDATE pending_weather_date SET lease_until = NULL WHERE day = ANY (?::date[])";
+
+    private static final String REMOVE_SQL = "DELETE FROM pending_weather_date WHERE day = ? RETURNING hour_mask";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PendingWeatherRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void enqueue(Map<LocalDate, Integer> hourMasks) {
+        if (hourMasks.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(ENQUEUE_SQL)) {
+                statement.setArray(1, connection.createArrayOf("varchar",
+                        hourMasks.keySet().stream().map(LocalDate::toString).toArray()));
+                statement.setArray(2, connection.createArrayOf("int4", hourMasks.values().toArray()));
+                statement.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public SortedMap<LocalDate, Integer> lease(int maxDays, Duration leaseDuration) {
+        SortedMap<LocalDate, Integer> leased = new TreeMap<>();
+        jdbcTemplate.query(LEASE_SQL, (RowCallbackHandler) resultSet ->
+                        leased.put(resultSet.getObject(1, LocalDate.class), resultSet.getInt(2)),
+                leaseDuration.toMillis(), maxDays);
+        return leased;
+    }
+
+    @Override
+    public void release(Collection<LocalDate> days) {
+        if (days.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(RELEASE_SQL)) {
+                statement.setArray(1, connection.createArrayOf("varchar", days.stream().map(LocalDate::toString).toArray()));
+                statement.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public int remove(LocalDate day) {
+        List<Integer> hourMasks = jdbcTemplate.queryForList(REMOVE_SQL, Integer.class, day);
+        return hourMasks.isEmpty() ? 0 : hourMasks.get(0);
+    }
+}
@@ -0,0 +1,92 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
+
+import java.util.Arrays;
+
+/**
+ * Range-query index over the prices of one country sorted by time. A prefix sum array answers the sum of any index
+ * range in O(1), and a segment tree of minimums and one of maximums answer their extremes in O(log n), so statistics
+ * of an arbitrary time range cost two binary searches and no scan over its prices. Building it takes O(n) time and
+ * three doubles per price; it is immutable and rebuilt when the prices change.
+ */
+final class PriceRangeIndex {
+
+    private final long[] recordedAt;
+    private final int size;
+    // prefixSums[i] is the sum of the first i prices
+    private final double[] prefixSums;
+    // Bottom-up segment trees: the leaves are at size + i and node i covers nodes 2i and 2i + 1
+    private final double[] minimums;
+    private final double[] maximums;
+
+    /**
+     * @param recordedAt epoch seconds sorted ascending; only the first size entries are read, and the array is not
+     *                   copied, so its first size entries must not change afterwards
+     */
+    PriceRangeIndex(long[] recordedAt, double[] prices, int size) {
+        this.recordedAt = recordedAt;
+        this.size = size;
+        this.prefixSums = new double[size + 1];
+        this.minimums = new double[2 * size];
+        this.maximums = new double[2 * size];
+        for (int i = 0; i < size; i++) {
+            prefixSums[i + 1] = prefixSums[i] + prices[i];
+        }
+        System.arraycopy(prices, 0, minimums, size, size);
+        System.arraycopy(prices, 0, maximums, size, size);
+        for (int node = size - 1; node > 0; node--) {
+            minimums[node] = Math.min(minimums[2 * node], minimums[2 * node + 1]);
+            maximums[node] = Math.max(maximums[2 * node], maximums[2 * node + 1]);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the index of the first price recorded at or after the given epoch second
+     */
+    int indexOf(long epochSecond) {
+        int index = Arrays.binarySearch(recordedAt, 0, size, epochSecond);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Sum of the prices with an index in [from, to)
+     */
+    double sum(int from, int to) {
+        return prefixSums[to] - prefixSums[from];
+    }
+
+    /**
+     * Minimum of the prices with an index in [from, to), or positive infinity for an empty range
+     */
+    double min(int from, int to) {
+        double result = Double.POSITIVE_INFINITY;
+        for (int left = from + size, right = to + size; left < right; left >>= 1, right >>= 1) {
+            if ((left & 1) == 1) {
+                result = Math.min(result, minimums[left++]);
+            }
+            if ((right & 1) == 1) {
+                result = Math.min(result, minimums[--right]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Maximum of the prices with an index in [from, to), or negative infinity for an empty range
+     */
+    double max(int from, int to) {
+        double result = Double.NEGATIVE_INFINITY;
+        for (int left = from + size, right = to + size; left < right; left >>= 1, right >>= 1) {
+            if ((left & 1) == 1) {
+                result = Math.max(result, maximums[left++]);
+            }
+            if ((right & 1) == 1) {
+                result = Math.max(result, maximums[--right]);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,43 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
+
+import com.mathias.electricitypriceaggregator.domain.model.UploadSession;
+import com.mathias.electricitypriceaggregator.domain.repository.UploadSessionRepository;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.entity.UploadSessionEntity;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.mapper.UploadSessionMapper;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Implementation of UploadSessionRepository using JPA
+ */
+@Component
+public class UploadSessionRepositoryImpl implements UploadSessionRepository {
+
+    private final JpaUploadSessionRepository jpaRepository;
+    private final UploadSessionMapper mapper;
+
+    public UploadSessionRepositoryImpl(JpaUploadSessionRepository jpaRepository,
+                                       UploadSessionMapper mapper) {
+        this.jpaRepository = jpaRepository;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public UploadSession save(UploadSession uploadSession) {
+        UploadSessionEntity entity = mapper.toEntity(uploadSession);
+        UploadSessionEntity savedEntity = jpaRepository.save(entity);
+        return mapper.toDomain(savedEntity);
+    }
+
+    @Override
+    public Optional<UploadSession> findById(String id) {
+        return jpaRepository.findById(id)
+                .map(mapper::toDomain);
+    }
+
+    @Override
+    public void deleteById(String id) {
+        jpaRepository.deleteById(id);
+    }
+}
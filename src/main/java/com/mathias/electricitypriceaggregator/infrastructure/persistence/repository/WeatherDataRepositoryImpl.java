@@ -2,37 +2,121 @@ package com.mathias.electricitypriceaggregator.infrastructure.persistence.reposi
 
 import com.mathias.electricitypriceaggregator.domain.model.WeatherData;
 import com.mathias.electricitypriceaggregator.domain.repository.WeatherDataRepository;
+import com.mathias.electricitypriceaggregator.domain.valueobject.AverageTemperaturesUpdated;
+import com.mathias.electricitypriceaggregator.domain.valueobject.WeatherSaved;
 import com.mathias.electricitypriceaggregator.infrastructure.persistence.entity.WeatherDataEntity;
 import com.mathias.electricitypriceaggregator.infrastructure.persistence.mapper.WeatherDataMapper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
- * Implementation of WeatherDataRepository using JPA
+ * Implementation of WeatherDataRepository using JPA, reading from the in-memory {@link ColumnarPriceStore} once it is
+ * loaded. Writes publish a {@link WeatherSaved} or {@link AverageTemperaturesUpdated} event within their transaction,
+ * whose listeners keep the data versions, the weather queue and the read models current.
  */
 @Component
 public class WeatherDataRepositoryImpl implements WeatherDataRepository {
 
+    // Rows are locked in date order, as concurrent ingestions may update the same days. The hours are read with range
+    // scans of idx_recorded_at_country, and the temperatures are averaged as the decimals the API reported.
+    private static final String UPDATE_AVERAGE_TEMPERATURES_SQL = """
+            WITH locked AS (
+                SELECT date, hourly_temperatures FROM weather_data
+                WHERE date = ANY (?::date[]) AND hourly_temperatures IS NOT NULL
+                ORDER BY date
+                FOR UPDATE
+            ), recomputed AS (
+                SELECT locked.date, avg(locked.hourly_temperatures[hours.hour + 1]::numeric)::float8 AS average_temperature
+                FROM locked
+                CROSS JOIN LATERAL (SELECT DISTINCT extract(hour FROM recorded_at AT TIME ZONE 'UTC')::int AS hour
+                                    FROM electricity_price
+                                    WHERE recorded_at >= locked.date::timestamp AT TIME ZONE 'UTC'
+                                      AND recorded_at < (locked.date + 1)::timestamp AT TIME ZONE 'UTC') hours
+                WHERE locked.hourly_temperatures[hours.hour + 1] <> 'NaN'
+                GROUP BY locked.date
+            )
+            UPDATE weather_data
+            SET average_temperature = recomputed.average_temperature
+            FROM recomputed
+            WHERE weather_data.date = recomputed.date
+              AND weather_data.average_temperature IS DISTINCT FROM recomputed.average_temperature
+            RETURNING weather_data.date, weather_data.average_temperature
+            """;
+
+    private static final int ALL_HOURS = (1 << WeatherData.HOURS_PER_DAY) - 1;
+
     private final JpaWeatherDataRepository jpaRepository;
+    private final JdbcTemplate jdbcTemplate;
     private final WeatherDataMapper mapper;
+    private final ColumnarPriceStore columnarPriceStore;
+    private final ApplicationEventPublisher eventPublisher;
 
     public WeatherDataRepositoryImpl(JpaWeatherDataRepository jpaRepository,
-                                     WeatherDataMapper mapper) {
+                                     JdbcTemplate jdbcTemplate,
+                                     WeatherDataMapper mapper,
+                                     ColumnarPriceStore columnarPriceStore,
+                                     ApplicationEventPublisher eventPublisher) {
         this.jpaRepository = jpaRepository;
+        this.jdbcTemplate = jdbcTemplate;
         this.mapper = mapper;
+        this.columnarPriceStore = columnarPriceStore;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
+    @Transactional
     public WeatherData save(WeatherData weatherData) {
+        return save(weatherData, ALL_HOURS);
+    }
+
+    @Override
+    // The temperature and everything its listeners write commit together
+    @Transactional
+    public WeatherData save(WeatherData weatherData, int leasedHourMask) {
         WeatherDataEntity entity = mapper.toEntity(weatherData);
         WeatherDataEntity savedEntity = jpaRepository.save(entity);
-        return mapper.toDomain(savedEntity);
+        WeatherData saved = mapper.toDomain(savedEntity);
+        eventPublisher.publishEvent(new WeatherSaved(saved, leasedHourMask));
+        return saved;
+    }
+
+    @Override
+    public void updateAverageTemperatures(Collection<LocalDate> days) {
+        if (days.isEmpty()) {
+            return;
+        }
+        List<WeatherData> updated = jdbcTemplate.execute((ConnectionCallback<List<WeatherData>>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(UPDATE_AVERAGE_TEMPERATURES_SQL)) {
+                statement.setArray(1, connection.createArrayOf("varchar", days.stream().map(LocalDate::toString).toArray()));
+                List<WeatherData> result = new ArrayList<>();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        result.add(new WeatherData(resultSet.getObject(1, LocalDate.class), resultSet.getDouble(2)));
+                    }
+                }
+                return result;
+            }
+        });
+        if (!updated.isEmpty()) {
+            eventPublisher.publishEvent(new AverageTemperaturesUpdated(updated));
+        }
     }
 
     @Override
     public List<WeatherData> findByDateBetween(LocalDate startDate, LocalDate endDate) {
+        if (columnarPriceStore.isLoaded()) {
+            return columnarPriceStore.findWeather(startDate, endDate);
+        }
         return jpaRepository.findByDateBetween(startDate, endDate).stream()
                 .map(mapper::toDomain)
                 .toList();
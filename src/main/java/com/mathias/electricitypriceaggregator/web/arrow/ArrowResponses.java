@@ -0,0 +1,181 @@
+package com.mathias.electricitypriceaggregator.web.arrow;
+
+import com.mathias.electricitypriceaggregator.domain.repository.ElectricityPriceRepository.PriceConsumer;
+import com.mathias.electricitypriceaggregator.domain.valueobject.AggregatedData;
+import com.mathias.electricitypriceaggregator.domain.valueobject.DailyAggregatedData;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.TimeStampSecTZVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Writes responses in the Arrow IPC stream format: a schema followed by record batches of up to {@link #BATCH_ROWS}
+ * rows. Values are set directly in the column vectors, and each batch is written as soon as it is full, so memory use
+ * does not grow with the number of rows.
+ */
+public final class ArrowResponses {
+
+    public static final String ARROW_STREAM_VALUE = "application/vnd.apache.arrow.stream";
+    public static final MediaType ARROW_STREAM = MediaType.parseMediaType(ARROW_STREAM_VALUE);
+
+    static final int BATCH_ROWS = 65_536;
+
+    private static final ArrowType DOUBLE = new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+    private static final ArrowType UTC_SECONDS = new ArrowType.Timestamp(TimeUnit.SECOND, "UTC");
+
+    static final Schema DAILY_SCHEMA = new Schema(List.of(
+            Field.notNullable("date", new ArrowType.Date(DateUnit.DAY)),
+            Field.nullable("average_electricity_price", DOUBLE),
+            Field.nullable("average_temperature", DOUBLE)));
+
+    static final Schema PERIOD_SCHEMA = new Schema(List.of(
+            Field.notNullable("period_start", UTC_SECONDS),
+            Field.nullable("average_electricity_price", DOUBLE),
+            Field.nullable("average_temperature", DOUBLE)));
+
+    static final Schema PRICE_SCHEMA = new Schema(List.of(
+            Field.notNullable("recorded_at", UTC_SECONDS),
+            Field.notNullable("price", DOUBLE)));
+
+    // Every response allocates from a child of this allocator and releases its buffers when written
+    private static final BufferAllocator ROOT_ALLOCATOR = new RootAllocator();
+
+    private ArrowResponses() {
+    }
+
+    /**
+     * Write the days the source passes to its consumer, with the columns date, average_electricity_price and
+     * average_temperature
+     */
+    public static void writeDailyAggregates(OutputStream outputStream, Consumer<Consumer<DailyAggregatedData>> source)
+            throws IOException {
+        try (BatchWriter batches = new BatchWriter(DAILY_SCHEMA, outputStream)) {
+            DateDayVector date = (DateDayVector) batches.root.getVector(0);
+            Float8Vector price = (Float8Vector) batches.root.getVector(1);
+            Float8Vector temperature = (Float8Vector) batches.root.getVector(2);
+            source.accept(data -> {
+                int row = batches.row;
+                date.setSafe(row, (int) data.date().toEpochDay());
+                setNullable(price, row, data.averageElectricityPrice());
+                setNullable(temperature, row, data.averageTemperature());
+                batches.rowWritten();
+            });
+            batches.finish();
+        }
+    }
+
+    /**
+     * Write the periods the source passes to its consumer, with the columns period_start, average_electricity_price and
+     * average_temperature
+     */
+    public static void writePeriods(OutputStream outputStream, Consumer<Consumer<AggregatedData>> source)
+            throws IOException {
+        try (BatchWriter batches = new BatchWriter(PERIOD_SCHEMA, outputStream)) {
+            TimeStampSecTZVector periodStart = (TimeStampSecTZVector) batches.root.getVector(0);
+            Float8Vector price = (Float8Vector) batches.root.getVector(1);
+            Float8Vector temperature = (Float8Vector) batches.root.getVector(2);
+            source.accept(data -> {
+                int row = batches.row;
+                periodStart.setSafe(row, data.periodStart().toEpochSecond(ZoneOffset.UTC));
+                setNullable(price, row, data.averageElectricityPrice());
+                setNullable(temperature, row, data.averageTemperature());
+                batches.rowWritten();
+            });
+            batches.finish();
+        }
+    }
+
+    /**
+     * Write the prices the source passes to its consumer, with the columns recorded_at and price
+     */
+    public static void writePrices(OutputStream outputStream, Consumer<PriceConsumer> source) throws IOException {
+        try (BatchWriter batches = new BatchWriter(PRICE_SCHEMA, outputStream)) {
+            TimeStampSecTZVector recordedAt = (TimeStampSecTZVector) batches.root.getVector(0);
+            Float8Vector price = (Float8Vector) batches.root.getVector(1);
+            source.accept((epochSecond, value) -> {
+                int row = batches.row;
+                recordedAt.setSafe(row, epochSecond);
+                price.setSafe(row, value);
+                batches.rowWritten();
+            });
+            batches.finish();
+        }
+    }
+
+    private static void setNullable(Float8Vector vector, int row, Double value) {
+        if (value == null) {
+            vector.setNull(row);
+        } else {
+            vector.setSafe(row, value);
+        }
+    }
+
+    /**
+     * Fills one set of column vectors and writes it as a record batch whenever it holds {@link #BATCH_ROWS} rows
+     */
+    private static final class BatchWriter implements AutoCloseable {
+
+        private final BufferAllocator allocator;
+        private final VectorSchemaRoot root;
+        private final ArrowStreamWriter writer;
+        // Index of the next row in the current batch
+        private int row;
+
+        private BatchWriter(Schema schema, OutputStream outputStream) throws IOException {
+            this.allocator = ROOT_ALLOCATOR.newChildAllocator("arrow-response", 0, Long.MAX_VALUE);
+            this.root = VectorSchemaRoot.create(schema, allocator);
+            this.writer = new ArrowStreamWriter(root, null, Channels.newChannel(outputStream));
+            root.allocateNew();
+            writer.start();
+        }
+
+        private void rowWritten() {
+            if (++row == BATCH_ROWS) {
+                try {
+                    writeBatch();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        private void finish() throws IOException {
+            if (row > 0) {
+                writeBatch();
+            }
+            writer.end();
+        }
+
+        private void writeBatch() throws IOException {
+            root.setRowCount(row);
+            writer.writeBatch();
+            root.allocateNew();
+            row = 0;
+        }
+
+        @Override
+        public void close() {
+            // The end of stream marker is only written by finish, so a response cut short by an error is incomplete
+            root.close();
+            allocator.close();
+        }
+    }
+}
@@ -1,20 +1,38 @@
 package com.mathias.electricitypriceaggregator.web.controller;
 
 import com.mathias.electricitypriceaggregator.application.service.AggregationService;
+import com.mathias.electricitypriceaggregator.domain.valueobject.AggregatedData;
 import com.mathias.electricitypriceaggregator.domain.valueobject.DailyAggregatedData;
+import com.mathias.electricitypriceaggregator.domain.valueobject.DataVersion;
+import com.mathias.electricitypriceaggregator.domain.valueobject.Granularity;
+import com.mathias.electricitypriceaggregator.web.arrow.ArrowResponses;
+import com.mathias.electricitypriceaggregator.web.dto.AggregatedDataDto;
 import com.mathias.electricitypriceaggregator.web.dto.DailyAggregatedDataDto;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * REST controller for aggregated data operations
@@ -25,39 +43,196 @@ import java.util.List;
 public class AggregatedDataController {
 
     private final AggregationService aggregationService;
+    private final ObjectMapper objectMapper;
+    // Lines are flushed when the output buffer fills rather than one by one
+    private final ObjectWriter lineWriter;
 
-    public AggregatedDataController(AggregationService aggregationService) {
+    public AggregatedDataController(AggregationService aggregationService, ObjectMapper objectMapper) {
         this.aggregationService = aggregationService;
+        this.objectMapper = objectMapper;
+        this.lineWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     @GetMapping
     @Operation(summary = "Get aggregated data for date range",
-            description = "Retrieve daily aggregated electricity prices and weather data for the specified date range")
-    public ResponseEntity<List<DailyAggregatedDataDto>> getAggregatedData(
+            description = "Retrieve daily aggregated electricity prices and weather data for the specified date range. "
+                    + "With a granularity of hourly, weekly, monthly or yearly, one entry per period is returned with "
+                    + "its periodStart instead, averaging every hourly price and daily temperature in the period. "
+                    + "Weekly, monthly and yearly periods are read from the daily rollup, or from the in-memory store "
+                    + "with the memory strategy; the sql and jvm strategies only apply to daily averages. "
+                    + "Responses carry an ETag derived from the data version of the range; a request with "
+                    + "If-None-Match returns 304 when no price or temperature in the range has been written since.")
+    public ResponseEntity<?> getAggregatedData(
             @Parameter(description = "Start date (YYYY-MM-DD) in UTC", example = "2024-01-01")
             @RequestParam("startDateUtc") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDateUtc,
 
             @Parameter(description = "End date (YYYY-MM-DD) in UTC", example = "2024-01-31")
-            @RequestParam("endDateUtc") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDateUtc) {
+            @RequestParam("endDateUtc") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDateUtc,
+
+            @Parameter(description = "Length of the periods: hourly, daily, weekly, monthly or yearly", example = "daily")
+            @RequestParam(value = "granularity", required = false) String granularity,
+
+            WebRequest webRequest) {
 
         try {
-            if (startDateUtc.isAfter(endDateUtc)) {
-                return ResponseEntity.badRequest().build();
+            return this.<Object>respond(startDateUtc, endDateUtc, granularity, webRequest, "json", null,
+                    message -> message, request -> {
+                if (request.granularity() != Granularity.DAILY) {
+                    List<AggregatedData> aggregatedData = aggregationService.getAggregatedData(
+                            request.startDate(), request.endDate(), request.granularity());
+                    return aggregatedData.stream()
+                            .map(data -> new AggregatedDataDto(
+                                    data.periodStart(),
+                                    data.averageElectricityPrice(),
+                                    data.averageTemperature()))
+                            .toList();
+                }
+
+                List<DailyAggregatedData> aggregatedData =
+                        aggregationService.getAggregatedData(request.startDate(), request.endDate());
+
+                List<DailyAggregatedDataDto> dtoList = aggregatedData.stream()
+                        .map(data -> new DailyAggregatedDataDto(
+                                data.date(),
+                                data.averageElectricityPrice(),
+                                data.averageTemperature()))
+                        .toList();
+
+                return dtoList;
+            });
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().varyBy(HttpHeaders.ACCEPT).build();
+        }
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream aggregated data for date range",
+            description = "Same as the JSON response, written as one JSON object per line while the days or hours are "
+                    + "aggregated, so the time to the first line and the memory used do not grow with the length of the "
+                    + "range. "
+                    + "Selected with Accept: application/x-ndjson.")
+    public ResponseEntity<StreamingResponseBody> streamAggregatedData(
+            @Parameter(description = "Start date (YYYY-MM-DD) in UTC", example = "2024-01-01")
+            @RequestParam("startDateUtc") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDateUtc,
+
+            @Parameter(description = "End date (YYYY-MM-DD) in UTC", example = "2024-01-31")
+            @RequestParam("endDateUtc") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDateUtc,
+
+            @Parameter(description = "Length of the periods: hourly, daily, weekly, monthly or yearly", example = "daily")
+            @RequestParam(value = "granularity", required = false) String granularity,
+
+            WebRequest webRequest) {
+
+        return respond(startDateUtc, endDateUtc, granularity, webRequest, "ndjson", MediaType.APPLICATION_NDJSON,
+                this::plainText, request -> outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                if (request.granularity() == Granularity.DAILY) {
+                    aggregationService.streamAggregatedData(request.startDate(), request.endDate(), data -> writeLine(generator,
+                            new DailyAggregatedDataDto(data.date(), data.averageElectricityPrice(), data.averageTemperature())));
+                } else {
+                    aggregationService.streamAggregatedData(request.startDate(), request.endDate(), request.granularity(),
+                            data -> writeLine(generator, new AggregatedDataDto(
+                                    data.periodStart(), data.averageElectricityPrice(), data.averageTemperature())));
+                }
             }
+        });
+    }
 
-            List<DailyAggregatedData> aggregatedData = aggregationService.getAggregatedData(startDateUtc, endDateUtc);
+    @GetMapping(produces = ArrowResponses.ARROW_STREAM_VALUE)
+    @Operation(summary = "Export aggregated data for date range as Arrow",
+            description = "Same as the JSON response, written as an Arrow IPC stream with the columns date (or "
+                    + "period_start in UTC for other granularities), average_electricity_price and average_temperature. "
+                    + "Selected with Accept: application/vnd.apache.arrow.stream.")
+    public ResponseEntity<StreamingResponseBody> exportAggregatedData(
+            @Parameter(description = "Start date (YYYY-MM-DD) in UTC", example = "2024-01-01")
+            @RequestParam("startDateUtc") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDateUtc,
 
-            List<DailyAggregatedDataDto> dtoList = aggregatedData.stream()
-                    .map(data -> new DailyAggregatedDataDto(
-                            data.date(),
-                            data.averageElectricityPrice(),
-                            data.averageTemperature()))
-                    .toList();
+            @Parameter(description = "End date (YYYY-MM-DD) in UTC", example = "2024-01-31")
+            @RequestParam("endDateUtc") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDateUtc,
 
-            return ResponseEntity.ok(dtoList);
+            @Parameter(description = "Length of the periods: hourly, daily, weekly, monthly or yearly", example = "daily")
+            @RequestParam(value = "granularity", required = false) String granularity,
 
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().build();
+            WebRequest webRequest) {
+
+        return respond(startDateUtc, endDateUtc, granularity, webRequest, "arrow", ArrowResponses.ARROW_STREAM,
+                this::plainText, request -> outputStream -> {
+            if (request.granularity() == Granularity.DAILY) {
+                ArrowResponses.writeDailyAggregates(outputStream, consumer ->
+                        aggregationService.streamAggregatedData(request.startDate(), request.endDate(), consumer));
+            } else {
+                ArrowResponses.writePeriods(outputStream, consumer -> aggregationService.streamAggregatedData(
+                        request.startDate(), request.endDate(), request.granularity(), consumer));
+            }
+        });
+    }
+
+    /**
+     * Resolve a request for aggregated data and answer it with the body of its representation.
+     * The granularity is parsed and the range validated before anything is read; an invalid request gets 400 with the
+     * reason as plain text, and a request whose copy of the data is current gets 304 without anything being aggregated.
+     * Every response varies by Accept, since the same URL serves JSON, NDJSON and Arrow, so shared caches keep them
+     * apart; this includes the 304s, whose ETag only matches one representation.
+     *
+     * @param contentType of the body, or null to negotiate it
+     * @param errorBody   turns the reason of a 400 into the body type of the representation
+     * @param body        computes the body of the resolved request
+     */
+    private <T> ResponseEntity<T> respond(LocalDate startDateUtc, LocalDate endDateUtc, String granularity,
+                                          WebRequest webRequest, String representation, MediaType contentType,
+                                          Function<String, T> errorBody, Function<AggregationRequest, T> body) {
+        if (startDateUtc.isAfter(endDateUtc)) {
+            return badRequest(errorBody.apply(
+                    String.format("End date %s cannot be before start date %s", endDateUtc, startDateUtc)));
+        }
+        try {
+            Granularity period = granularity == null ? Granularity.DAILY : Granularity.fromParameter(granularity);
+            if (isNotModified(webRequest, startDateUtc, endDateUtc, representation)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).varyBy(HttpHeaders.ACCEPT).build();
+            }
+            ResponseEntity.BodyBuilder ok = ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT);
+            if (contentType != null) {
+                ok.contentType(contentType);
+            }
+            return ok.body(body.apply(new AggregationRequest(startDateUtc, endDateUtc, period)));
+        } catch (IllegalArgumentException e) {
+            return badRequest(errorBody.apply(e.getMessage()));
+        }
+    }
+
+    private static <T> ResponseEntity<T> badRequest(T body) {
+        return ResponseEntity.badRequest().varyBy(HttpHeaders.ACCEPT).contentType(MediaType.TEXT_PLAIN).body(body);
+    }
+
+    /**
+     * Check the request's If-None-Match against the data version of the range, before anything is aggregated. The ETag
+     * is set on the response either way and differs per representation, since the same URL serves JSON, NDJSON and
+     * Arrow. No Last-Modified is sent: the time of a write is taken when its transaction starts, not when it commits,
+     * and HTTP dates only have seconds, so a write committed after a client's If-Modified-Since could still pass for
+     * older.
+     *
+     * @return true if the client's copy is current and 304 should be returned
+     */
+    private boolean isNotModified(WebRequest webRequest, LocalDate startDateUtc, LocalDate endDateUtc,
+                                  String representation) {
+        DataVersion dataVersion = aggregationService.getDataVersion(startDateUtc, endDateUtc);
+        return webRequest.checkNotModified("\"" + representation + "-" + dataVersion.tag() + "\"");
+    }
+
+    private StreamingResponseBody plainText(String message) {
+        return outputStream -> outputStream.write(message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeLine(JsonGenerator generator, Object dto) {
+        try {
+            lineWriter.writeValue(generator, dto);
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
+
+    private record AggregationRequest(LocalDate startDate, LocalDate endDate, Granularity granularity) {
+    }
 }
@@ -1,16 +1,46 @@
 package com.mathias.electricitypriceaggregator.web.controller;
 
+import com.mathias.electricitypriceaggregator.application.service.ElectricityPriceQueryService;
 import com.mathias.electricitypriceaggregator.application.service.ElectricityPriceService;
+import com.mathias.electricitypriceaggregator.application.service.IngestionJobService;
+import com.mathias.electricitypriceaggregator.application.service.IngestionRejectedException;
+import com.mathias.electricitypriceaggregator.application.service.UploadSessionService;
+import com.mathias.electricitypriceaggregator.domain.model.IngestionJob;
+import com.mathias.electricitypriceaggregator.domain.model.UploadSession;
+import com.mathias.electricitypriceaggregator.domain.valueobject.UpsertResult;
+import com.mathias.electricitypriceaggregator.infrastructure.csv.CsvCompression;
+import com.mathias.electricitypriceaggregator.web.arrow.ArrowResponses;
+import com.mathias.electricitypriceaggregator.web.dto.IngestionJobDto;
+import com.mathias.electricitypriceaggregator.web.dto.UploadResultDto;
+import com.mathias.electricitypriceaggregator.web.dto.UploadSessionDto;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import static java.util.Objects.requireNonNull;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * REST controller for electricity price operations
@@ -20,30 +50,267 @@ import static java.util.Objects.requireNonNull;
 @Tag(name = "Electricity Prices", description = "Operations for managing electricity price data")
 public class ElectricityPriceController {
 
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+
     private final ElectricityPriceService electricityPriceService;
+    private final IngestionJobService ingestionJobService;
+    private final UploadSessionService uploadSessionService;
+    private final ElectricityPriceQueryService electricityPriceQueryService;
 
-    public ElectricityPriceController(ElectricityPriceService electricityPriceService) {
+    public ElectricityPriceController(ElectricityPriceService electricityPriceService,
+                                      IngestionJobService ingestionJobService,
+                                      UploadSessionService uploadSessionService,
+                                      ElectricityPriceQueryService electricityPriceQueryService) {
         this.electricityPriceService = electricityPriceService;
+        this.ingestionJobService = ingestionJobService;
+        this.uploadSessionService = uploadSessionService;
+        this.electricityPriceQueryService = electricityPriceQueryService;
+    }
+
+    @GetMapping(produces = ArrowResponses.ARROW_STREAM_VALUE)
+    @Operation(summary = "Export hourly electricity prices as Arrow",
+            description = "Write the stored hourly prices of a country in the date range as an Arrow IPC stream with the "
+                    + "columns recorded_at (UTC) and price, in time order. Selected with "
+                    + "Accept: application/vnd.apache.arrow.stream.")
+    public ResponseEntity<StreamingResponseBody> exportPrices(
+            @Parameter(description = "Country code", example = "EE")
+            @RequestParam(value = "country", defaultValue = "EE") String country,
+
+            @Parameter(description = "Start date (YYYY-MM-DD) in UTC", example = "2024-01-01")
+            @RequestParam("startDateUtc") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDateUtc,
+
+            @Parameter(description = "End date (YYYY-MM-DD) in UTC", example = "2024-01-31")
+            @RequestParam("endDateUtc") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDateUtc) {
+
+        try {
+            // Validated before the response is committed, so an invalid request still gets its status
+            electricityPriceQueryService.validate(country, startDateUtc, endDateUtc);
+            StreamingResponseBody body = outputStream -> ArrowResponses.writePrices(outputStream,
+                    consumer -> electricityPriceQueryService.forEachPrice(country, startDateUtc, endDateUtc, consumer));
+            return ResponseEntity.ok().contentType(ArrowResponses.ARROW_STREAM).body(body);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN)
+                    .body(outputStream -> outputStream.write(e.getMessage().getBytes(StandardCharsets.UTF_8)));
+        }
     }
 
     @PostMapping("/upload")
     @Operation(summary = "Upload electricity price data from CSV file",
-            description = "Upload a CSV file containing historical electricity price data. The file should contain NPS Estonia price data.")
-    public ResponseEntity<String> uploadCsv(@RequestParam("file") MultipartFile file) {
+            description = "Upload a CSV file containing historical electricity price data. The file should contain NPS price data. "
+                    + "Gzip (.csv.gz) and zstd (.csv.zst) files are decompressed while parsing; a Content-Encoding header "
+                    + "of gzip or zstd takes precedence over the file extension. "
+                    + "Returns the number of inserted, updated and unchanged rows, or 429 with Retry-After when too many "
+                    + "files are being ingested.")
+    public ResponseEntity<?> uploadCsv(@RequestParam("file") MultipartFile file,
+                                       @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding) {
         try {
-            if (file.isEmpty()) {
-                return ResponseEntity.badRequest().body("File is empty");
+            String validationError = validateCsvFile(file, contentEncoding);
+            if (validationError != null) {
+                return ResponseEntity.badRequest().body(validationError);
             }
 
-            if (!requireNonNull(file.getOriginalFilename()).toLowerCase().endsWith(".csv")) {
+            UpsertResult result = electricityPriceService.processCsvUpload(file,
+                    CsvCompression.resolve(file.getOriginalFilename(), contentEncoding));
+            return ResponseEntity.ok(new UploadResultDto(result.inserted(), result.updated(), result.unchanged()));
+
+        } catch (IngestionRejectedException e) {
+            return tooManyRequests(e);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body("Error processing file: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/upload-jobs")
+    @Operation(summary = "Upload electricity price data from CSV file asynchronously",
+            description = "Store the CSV file and ingest it in the background. Returns 202 with the job to poll for progress. "
+                    + "Compressed files are accepted as for the synchronous upload and stored compressed. "
+                    + "Returns 429 with Retry-After when the job queue is full.")
+    public ResponseEntity<?> submitUploadJob(@RequestParam("file") MultipartFile file,
+                                             @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding) {
+        try {
+            String validationError = validateCsvFile(file, contentEncoding);
+            if (validationError != null) {
+                return ResponseEntity.badRequest().body(validationError);
+            }
+
+            IngestionJob job = ingestionJobService.submit(file,
+                    CsvCompression.resolve(file.getOriginalFilename(), contentEncoding));
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/v1/electricity-prices/upload-jobs/" + job.getId()))
+                    .body(toDto(job));
+
+        } catch (IngestionRejectedException e) {
+            return tooManyRequests(e);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body("Error storing file: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/upload-jobs/{jobId}")
+    @Operation(summary = "Get the status of an asynchronous upload job",
+            description = "Reports rows parsed, rows written, throughput and the error of a failed job")
+    public ResponseEntity<IngestionJobDto> getUploadJob(@PathVariable("jobId") String jobId) {
+        return ingestionJobService.findJob(jobId)
+                .map(job -> ResponseEntity.ok(toDto(job)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/upload-sessions")
+    @Operation(summary = "Open a resumable upload session",
+            description = "Returns 201 with the session to append byte ranges to. The file name selects the compression "
+                    + "as for the other uploads, unless a Content-Encoding header of gzip or zstd is given.")
+    public ResponseEntity<?> createUploadSession(@RequestParam("fileName") String fileName,
+                                                 @RequestParam(value = "totalBytes", required = false) Long totalBytes,
+                                                 @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding) {
+        try {
+            if (!CsvCompression.isCsvFileName(fileName)) {
                 return ResponseEntity.badRequest().body("File must be a CSV file");
             }
+            UploadSession session = uploadSessionService.create(
+                    fileName, CsvCompression.resolve(fileName, contentEncoding), totalBytes);
+            return ResponseEntity.created(URI.create("/api/v1/electricity-prices/upload-sessions/" + session.getId()))
+                    .body(toDto(session));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body("Error creating upload session: " + e.getMessage());
+        }
+    }
+
+    @PutMapping("/upload-sessions/{sessionId}")
+    @Operation(summary = "Append a byte range to an upload session",
+            description = "The raw bytes are sent in the body with a Content-Range header such as 'bytes 0-1048575/*'. "
+                    + "A range may overlap bytes already received. Returns 409 with the session when the range starts "
+                    + "past the bytes received so far; resume from its receivedBytes.")
+    public ResponseEntity<?> appendToUploadSession(@PathVariable("sessionId") String sessionId,
+                                                   @RequestHeader(value = HttpHeaders.CONTENT_RANGE, required = false) String contentRange,
+                                                   InputStream body) {
+        Matcher range = contentRange == null ? null : CONTENT_RANGE.matcher(contentRange.trim());
+        if (range == null || !range.matches()) {
+            return ResponseEntity.badRequest().body("Content-Range header 'bytes <first>-<last>/<size or *>' is required");
+        }
+        long first = Long.parseLong(range.group(1));
+        long last = Long.parseLong(range.group(2));
+        Long totalBytes = "*".equals(range.group(3)) ? null : Long.valueOf(range.group(3));
+        if (last < first) {
+            return ResponseEntity.badRequest().body("Invalid Content-Range: " + contentRange);
+        }
+        if (uploadSessionService.findSession(sessionId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
 
-            electricityPriceService.processCsvUpload(file);
-            return ResponseEntity.ok("CSV file processed successfully");
+        try {
+            UploadSession session = uploadSessionService.append(sessionId, first, last - first + 1, totalBytes, body);
+            return ResponseEntity.ok(toDto(session));
 
+        } catch (IllegalStateException e) {
+            Optional<UploadSession> session = uploadSessionService.findSession(sessionId);
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(session.isPresent() ? toDto(session.get()) : e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
-            return ResponseEntity.internalServerError().body("Error processing file: " + e.getMessage());
+            return ResponseEntity.internalServerError().body("Error storing byte range: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/upload-sessions/{sessionId}/complete")
+    @Operation(summary = "Ingest a complete upload session in the background",
+            description = "Returns 202 with the session to poll. A failed or interrupted ingestion is resumed from its "
+                    + "last committed checkpoint by completing the session again. Returns 429 with Retry-After when the "
+                    + "ingestion queue is full.")
+    public ResponseEntity<?> completeUploadSession(@PathVariable("sessionId") String sessionId) {
+        if (uploadSessionService.findSession(sessionId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.accepted().body(toDto(uploadSessionService.complete(sessionId)));
+
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IngestionRejectedException e) {
+            return tooManyRequests(e);
+        }
+    }
+
+    @GetMapping("/upload-sessions/{sessionId}")
+    @Operation(summary = "Get the state of an upload session",
+            description = "Reports the bytes received, the committed checkpoint and the rows written so far")
+    public ResponseEntity<UploadSessionDto> getUploadSession(@PathVariable("sessionId") String sessionId) {
+        return uploadSessionService.findSession(sessionId)
+                .map(session -> ResponseEntity.ok(toDto(session)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/upload-sessions/{sessionId}")
+    @Operation(summary = "Discard an upload session and its stored bytes")
+    public ResponseEntity<?> deleteUploadSession(@PathVariable("sessionId") String sessionId) {
+        if (uploadSessionService.findSession(sessionId).isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
+        try {
+            uploadSessionService.delete(sessionId);
+            return ResponseEntity.noContent().build();
+
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    private static ResponseEntity<String> tooManyRequests(IngestionRejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())))
+                .body(e.getMessage() + ", retry later");
+    }
+
+    private static String validateCsvFile(MultipartFile file, String contentEncoding) {
+        if (file.isEmpty()) {
+            return "File is empty";
+        }
+        if (!CsvCompression.isCsvFileName(file.getOriginalFilename())) {
+            return "File must be a CSV file";
+        }
+        try {
+            CsvCompression.resolve(file.getOriginalFilename(), contentEncoding);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    private static UploadSessionDto toDto(UploadSession session) {
+        return new UploadSessionDto(
+                session.getId(),
+                session.getFileName(),
+                session.getStatus(),
+                session.getTotalBytes(),
+                session.getReceivedBytes(),
+                session.getCommittedOffset(),
+                session.getRowsWritten(),
+                session.getInserted(),
+                session.getUpdated(),
+                session.getUnchanged(),
+                session.getError(),
+                session.getCreatedAt(),
+                session.getUpdatedAt());
+    }
+
+    private static IngestionJobDto toDto(IngestionJob job) {
+        return new IngestionJobDto(
+                job.getId(),
+                job.getFileName(),
+                job.getStatus(),
+                job.getCreatedAt(),
+                job.getStartedAt(),
+                job.getFinishedAt(),
+                job.getRowsParsed(),
+                job.getRowsWritten(),
+                job.getRowsPerSecond(Instant.now()),
+                job.getInserted(),
+                job.getUpdated(),
+                job.getUnchanged(),
+                job.getError());
     }
 }
@@ -0,0 +1,77 @@
+package com.mathias.electricitypriceaggregator.web.controller;
+
+import com.mathias.electricitypriceaggregator.application.service.ElectricityPriceQueryService;
+import com.mathias.electricitypriceaggregator.domain.valueobject.PriceStatistics;
+import com.mathias.electricitypriceaggregator.web.dto.PriceStatisticsDto;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static java.time.ZoneOffset.UTC;
+
+/**
+ * REST controller for statistics of the hourly electricity prices over arbitrary ranges
+ */
+@RestController
+@RequestMapping("/api/v1/price-statistics")
+@Tag(name = "Price Statistics", description = "Operations for retrieving price statistics of arbitrary hour ranges or days")
+public class PriceStatisticsController {
+
+    private final ElectricityPriceQueryService electricityPriceQueryService;
+
+    public PriceStatisticsController(ElectricityPriceQueryService electricityPriceQueryService) {
+        this.electricityPriceQueryService = electricityPriceQueryService;
+    }
+
+    @GetMapping
+    @Operation(summary = "Get price statistics of a time range or of days",
+            description = "Return the count, average, minimum and maximum of the hourly prices of a country recorded "
+                    + "from fromUtc (inclusive) to toUtc (exclusive), or on the given UTC days. Exactly one of the "
+                    + "range and the days must be given. With the memory strategy the statistics are answered from a "
+                    + "range index without scanning the prices.")
+    public ResponseEntity<?> getPriceStatistics(
+            @Parameter(description = "Country code", example = "EE")
+            @RequestParam(value = "country", defaultValue = "EE") String country,
+
+            @Parameter(description = "Start of the range (YYYY-MM-DDTHH:mm) in UTC, inclusive", example = "2024-01-01T06:00")
+            @RequestParam(value = "fromUtc", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fromUtc,
+
+            @Parameter(description = "End of the range (YYYY-MM-DDTHH:mm) in UTC, exclusive", example = "2024-01-01T18:00")
+            @RequestParam(value = "toUtc", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime toUtc,
+
+            @Parameter(description = "Comma-separated days (YYYY-MM-DD) in UTC", example = "2024-01-06,2024-01-07")
+            @RequestParam(value = "days", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) List<LocalDate> days) {
+
+        try {
+            boolean range = fromUtc != null || toUtc != null;
+            if (range == (days != null)) {
+                return ResponseEntity.badRequest().body("Either fromUtc and toUtc or days must be given");
+            }
+            PriceStatistics statistics = range
+                    ? electricityPriceQueryService.getStatistics(country,
+                    fromUtc == null ? null : fromUtc.toInstant(UTC), toUtc == null ? null : toUtc.toInstant(UTC))
+                    : electricityPriceQueryService.getStatistics(country, days);
+
+            return ResponseEntity.ok(new PriceStatisticsDto(statistics.count(), statistics.averagePrice(),
+                    statistics.minimumPrice(), statistics.maximumPrice()));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.mathias.electricitypriceaggregator.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+
+import java.time.LocalDateTime;
+
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
+/**
+ * DTO for API response containing data aggregated over one hourly, weekly, monthly or yearly period
+ */
+public record AggregatedDataDto(
+        @JsonProperty("periodStart")
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm")
+        LocalDateTime periodStart,
+
+        @JsonProperty("averageElectricityPrice")
+        Double averageElectricityPrice,
+
+        @JsonProperty("averageTemperature")
+        Double averageTemperature
+) {
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this, SHORT_PREFIX_STYLE);
+    }
+}
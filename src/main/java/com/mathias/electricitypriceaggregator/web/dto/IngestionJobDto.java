@@ -0,0 +1,59 @@
+package com.mathias.electricitypriceaggregator.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.mathias.electricitypriceaggregator.domain.model.IngestionJobStatus;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+
+import java.time.Instant;
+
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
+/**
+ * DTO for API response describing the progress of an asynchronous upload job
+ */
+public record IngestionJobDto(
+        @JsonProperty("jobId")
+        String jobId,
+
+        @JsonProperty("fileName")
+        String fileName,
+
+        @JsonProperty("status")
+        IngestionJobStatus status,
+
+        @JsonProperty("createdAt")
+        Instant createdAt,
+
+        @JsonProperty("startedAt")
+        Instant startedAt,
+
+        @JsonProperty("finishedAt")
+        Instant finishedAt,
+
+        @JsonProperty("rowsParsed")
+        long rowsParsed,
+
+        @JsonProperty("rowsWritten")
+        long rowsWritten,
+
+        @JsonProperty("rowsPerSecond")
+        double rowsPerSecond,
+
+        @JsonProperty("inserted")
+        long inserted,
+
+        @JsonProperty("updated")
+        long updated,
+
+        @JsonProperty("unchanged")
+        long unchanged,
+
+        @JsonProperty("error")
+        String error
+) {
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this, SHORT_PREFIX_STYLE);
+    }
+}
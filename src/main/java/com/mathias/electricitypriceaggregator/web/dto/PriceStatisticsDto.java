@@ -0,0 +1,29 @@
+package com.mathias.electricitypriceaggregator.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
+/**
+ * DTO for API response containing the statistics of the hourly prices in a time range or set of days
+ */
+public record PriceStatisticsDto(
+        @JsonProperty("count")
+        long count,
+
+        @JsonProperty("averagePrice")
+        Double averagePrice,
+
+        @JsonProperty("minimumPrice")
+        Double minimumPrice,
+
+        @JsonProperty("maximumPrice")
+        Double maximumPrice
+) {
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this, SHORT_PREFIX_STYLE);
+    }
+}
@@ -0,0 +1,26 @@
+package com.mathias.electricitypriceaggregator.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
+/**
+ * DTO for API response counting the rows of a processed upload
+ */
+public record UploadResultDto(
+        @JsonProperty("inserted")
+        long inserted,
+
+        @JsonProperty("updated")
+        long updated,
+
+        @JsonProperty("unchanged")
+        long unchanged
+) {
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this, SHORT_PREFIX_STYLE);
+    }
+}
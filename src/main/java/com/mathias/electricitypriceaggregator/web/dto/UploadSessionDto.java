@@ -0,0 +1,59 @@
+package com.mathias.electricitypriceaggregator.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.mathias.electricitypriceaggregator.domain.model.UploadSessionStatus;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+
+import java.time.Instant;
+
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
+/**
+ * DTO for API response describing a resumable upload session
+ */
+public record UploadSessionDto(
+        @JsonProperty("sessionId")
+        String sessionId,
+
+        @JsonProperty("fileName")
+        String fileName,
+
+        @JsonProperty("status")
+        UploadSessionStatus status,
+
+        @JsonProperty("totalBytes")
+        Long totalBytes,
+
+        @JsonProperty("receivedBytes")
+        long receivedBytes,
+
+        @JsonProperty("committedOffset")
+        long committedOffset,
+
+        @JsonProperty("rowsWritten")
+        long rowsWritten,
+
+        @JsonProperty("inserted")
+        long inserted,
+
+        @JsonProperty("updated")
+        long updated,
+
+        @JsonProperty("unchanged")
+        long unchanged,
+
+        @JsonProperty("error")
+        String error,
+
+        @JsonProperty("createdAt")
+        Instant createdAt,
+
+        @JsonProperty("updatedAt")
+        Instant updatedAt
+) {
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this, SHORT_PREFIX_STYLE);
+    }
+}
@@ -0,0 +1,186 @@
+package com.mathias.electricitypriceaggregator.application.service;
+
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceEstonia;
+import com.mathias.electricitypriceaggregator.domain.model.WeatherData;
+import com.mathias.electricitypriceaggregator.domain.repository.ElectricityPriceRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.WeatherDataRepository;
+import com.mathias.electricitypriceaggregator.domain.valueobject.DailyAggregatedData;
+import com.mathias.electricitypriceaggregator.infrastructure.config.AggregationProperties;
+import com.mathias.electricitypriceaggregator.infrastructure.config.AggregationProperties.Strategy;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.ColumnarPriceStore;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.ElectricityPriceRepositoryImpl;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.WeatherDataRepositoryImpl;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static java.time.Instant.ofEpochSecond;
+import static java.time.ZoneOffset.UTC;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * JMH comparison of the daily averages of the JVM strategy computed with the primitive kernel against the boxed
+ * stream pipeline it replaced, on 1 and 10 years of hourly prices held in the in-memory store, so only the
+ * aggregation itself is measured. Reports throughput and bytes allocated per request ({@code gc.alloc.rate.norm}).
+ * Run with {@code mvn test -Pbenchmark -Dtest=AggregationKernelBenchmarkTest}.
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AggregationKernelBenchmarkTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2014, 1, 1);
+    private static final int YEARS = 10;
+
+    @Param({"1", "10"})
+    public int years;
+
+    private LocalDate endDate;
+    private AggregationService aggregationService;
+    private ElectricityPriceRepository electricityPriceRepository;
+    private WeatherDataRepository weatherDataRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ColumnarPriceStore store = new ColumnarPriceStore(mock(JdbcTemplate.class));
+        store.load();
+        List<ElectricityPrice> prices = new ArrayList<>();
+        for (LocalDate day = FIRST_DAY; day.isBefore(FIRST_DAY.plusYears(YEARS)); day = day.plusDays(1)) {
+            for (int hour = 0; hour < 24; hour++) {
+                ElectricityPrice price = new ElectricityPriceEstonia();
+                price.setRecordedAt(day.atTime(hour, 0).toEpochSecond(UTC));
+                price.setPrice((day.getDayOfYear() * 24 + hour) % 500 / 4.0);
+                prices.add(price);
+            }
+            store.putWeatherAfterCommit(new WeatherData(day, (day.getDayOfYear() % 60 - 30) / 2.0));
+        }
+        store.putPricesAfterCommit(prices);
+
+        // Outside a Spring context the repositories read the loaded store without a transaction
+        electricityPriceRepository = new ElectricityPriceRepositoryImpl(null, null, store, null);
+        weatherDataRepository = new WeatherDataRepositoryImpl(null, null, null, store, null);
+        AggregationProperties properties = new AggregationProperties();
+        properties.setStrategy(Strategy.JVM);
+        properties.setCacheEnabled(false);
+        aggregationService = new AggregationService(electricityPriceRepository, weatherDataRepository, null,
+                properties, store, null, null);
+        endDate = FIRST_DAY.plusYears(years).minusDays(1);
+    }
+
+    @Benchmark
+    public void kernel(Blackhole blackhole) {
+        for (DailyAggregatedData data : aggregationService.getAggregatedData(FIRST_DAY, endDate)) {
+            blackhole.consume(data.averageElectricityPrice());
+            blackhole.consume(data.averageTemperature());
+        }
+    }
+
+    @Benchmark
+    public void boxedStreams(Blackhole blackhole) {
+        for (BoxedDailyAggregatedData data : aggregateWithStreams(FIRST_DAY, endDate)) {
+            blackhole.consume(data.averageElectricityPrice());
+            blackhole.consume(data.averageTemperature());
+        }
+    }
+
+    @Test
+    void compareKernelWithBoxedStreams() throws RunnerException {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(getClass().getName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+
+        Map<String, Double> allocations = new HashMap<>();
+        for (RunResult result : results) {
+            System.out.printf("%-14s %2s years %,12.1f requests/s %,14.0f bytes/request%n",
+                    result.getParams().getBenchmark().substring(getClass().getName().length() + 1),
+                    result.getParams().getParam("years"),
+                    result.getPrimaryResult().getScore(),
+                    result.getSecondaryResults().get("gc.alloc.rate.norm").getScore());
+            allocations.put(result.getParams().getBenchmark() + result.getParams().getParam("years"),
+                    result.getSecondaryResults().get("gc.alloc.rate.norm").getScore());
+        }
+        assertThat(results).hasSize(4);
+        for (String years : List.of("1", "10")) {
+            assertThat(allocations.get(getClass().getName() + ".kernel" + years))
+                    .isLessThan(allocations.get(getClass().getName() + ".boxedStreams" + years));
+        }
+    }
+
+    /**
+     * The aggregation of the JVM strategy before the kernel: an entity per hourly price, boxed map entries per day,
+     * and a BigDecimal for every rounded value that is read
+     */
+    private List<BoxedDailyAggregatedData> aggregateWithStreams(LocalDate startDate, LocalDate endDate) {
+        List<ElectricityPrice> electricityPrices = electricityPriceRepository.findByDateBetween(
+                ElectricityPriceEstonia.COUNTRY, startDate, endDate);
+        List<WeatherData> weatherDataList = weatherDataRepository.findByDateBetween(startDate, endDate);
+
+        Map<LocalDate, Double> dailyPriceAverages = electricityPrices.stream()
+                .collect(Collectors.groupingBy(
+                        electricityPrice -> ofEpochSecond(electricityPrice.getRecordedAt()).atZone(UTC).toLocalDate(),
+                        Collectors.averagingDouble(ElectricityPrice::getPrice)));
+        Map<LocalDate, Double> weatherByDate = weatherDataList.stream()
+                .collect(Collectors.toMap(WeatherData::getDate, WeatherData::getAverageTemperature));
+
+        return startDate.datesUntil(endDate.plusDays(1))
+                .map(date -> new BoxedDailyAggregatedData(date, dailyPriceAverages.get(date), weatherByDate.get(date)))
+                .filter(data -> data.averageElectricityPrice() != null || data.averageTemperature() != null)
+                .collect(Collectors.toList());
+    }
+
+    private record BoxedDailyAggregatedData(LocalDate date, Double averageElectricityPrice, Double averageTemperature) {
+
+        @Override
+        public Double averageElectricityPrice() {
+            return round(averageElectricityPrice);
+        }
+
+        @Override
+        public Double averageTemperature() {
+            return round(averageTemperature);
+        }
+
+        private static Double round(Double value) {
+            if (value == null) {
+                return null;
+            }
+            return BigDecimal.valueOf(value).setScale(1, RoundingMode.HALF_UP).doubleValue();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.mathias.electricitypriceaggregator.application.service;
+
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceEstonia;
+import com.mathias.electricitypriceaggregator.domain.model.WeatherData;
+import com.mathias.electricitypriceaggregator.domain.repository.WeatherDataRepository;
+import com.mathias.electricitypriceaggregator.domain.valueobject.DailyAggregatedData;
+import com.mathias.electricitypriceaggregator.infrastructure.config.AggregationProperties;
+import com.mathias.electricitypriceaggregator.infrastructure.config.AggregationProperties.Strategy;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.ColumnarPriceStore;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.ElectricityPriceBulkRepository;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.JpaDailyPriceSummaryRepository;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.JpaElectricityPriceDayDigestRepository;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.JpaElectricityPriceRepository;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.JpaWeatherDataRepository;
+import com.mathias.electricitypriceaggregator.integration.BaseIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.time.ZoneOffset.UTC;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the aggregation strategies on 1, 5 and 10 years of hourly prices and daily weather.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class AggregationServiceBenchmarkTest extends BaseIntegrationTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2014, 1, 1);
+    private static final int YEARS = 10;
+    private static final int ITERATIONS = 20;
+    private static final long WARM_UP_NANOS = 2_000_000_000L;
+
+    @Autowired
+    private AggregationService aggregationService;
+
+    @Autowired
+    private AggregationProperties aggregationProperties;
+
+    @Autowired
+    private ElectricityPriceBulkRepository bulkRepository;
+
+    @Autowired
+    private ColumnarPriceStore columnarPriceStore;
+
+    @Autowired
+    private WeatherDataRepository weatherDataRepository;
+
+    @Autowired
+    private JpaElectricityPriceRepository jpaRepository;
+
+    @Autowired
+    private JpaElectricityPriceDayDigestRepository dayDigestRepository;
+
+    @Autowired
+    private JpaDailyPriceSummaryRepository dailyPriceSummaryRepository;
+
+    @Autowired
+    private JpaWeatherDataRepository jpaWeatherDataRepository;
+
+    @AfterEach
+    void tearDown() {
+        aggregationProperties.setStrategy(Strategy.ROLLUP);
+        aggregationProperties.setCacheEnabled(true);
+        columnarPriceStore.unload();
+        jpaRepository.deleteAllInBatch();
+        dayDigestRepository.deleteAllInBatch();
+        dailyPriceSummaryRepository.deleteAllInBatch();
+        jpaWeatherDataRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void compareStrategies() {
+        generateData();
+
+        for (int years : new int[]{1, 5, 10}) {
+            LocalDate endDate = FIRST_DAY.plusYears(years).minusDays(1);
+            aggregationProperties.setCacheEnabled(false);
+            for (Strategy strategy : Strategy.values()) {
+                aggregationProperties.setStrategy(strategy);
+                // The JVM strategy reads through JPA only while the in-memory store is not loaded
+                if (strategy == Strategy.MEMORY) {
+                    columnarPriceStore.load();
+                } else {
+                    columnarPriceStore.unload();
+                }
+                System.out.printf("%2d years %-6s %,9.3f ms per request (%,d days)%n",
+                        years, strategy, measure(endDate) / 1e6, FIRST_DAY.until(endDate.plusDays(1), ChronoUnit.DAYS));
+            }
+
+            // Every block is cached after the first request
+            aggregationProperties.setStrategy(Strategy.ROLLUP);
+            aggregationProperties.setCacheEnabled(true);
+            columnarPriceStore.unload();
+            System.out.printf("%2d years %-6s %,9.3f ms per request%n", years, "CACHED", measure(endDate) / 1e6);
+        }
+    }
+
+    /**
+     * Nanoseconds per request for the range from the first day to the end date
+     */
+    private long measure(LocalDate endDate) {
+        // Warm up the connection pool, the statement caches and the JIT; fast strategies need many calls
+        long warmUpEnd = System.nanoTime() + WARM_UP_NANOS;
+        for (int i = 0; i < 3 || System.nanoTime() < warmUpEnd; i++) {
+            aggregationService.getAggregatedData(FIRST_DAY, endDate);
+        }
+
+        List<DailyAggregatedData> result = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            result = aggregationService.getAggregatedData(FIRST_DAY, endDate);
+        }
+        long nanosPerQuery = (System.nanoTime() - start) / ITERATIONS;
+
+        assertThat(result).hasSize((int) FIRST_DAY.until(endDate.plusDays(1), ChronoUnit.DAYS));
+        return nanosPerQuery;
+    }
+
+    private void generateData() {
+        List<ElectricityPrice> prices = new ArrayList<>();
+        LocalDate endDate = FIRST_DAY.plusYears(YEARS);
+        for (LocalDate day = FIRST_DAY; day.isBefore(endDate); day = day.plusDays(1)) {
+            for (int hour = 0; hour < 24; hour++) {
+                ElectricityPrice price = new ElectricityPriceEstonia();
+                price.setRecordedAt(day.atTime(hour, 0).toEpochSecond(UTC));
+                price.setPrice((day.getDayOfYear() * 24 + hour) % 500 / 4.0);
+                prices.add(price);
+            }
+            weatherDataRepository.save(new WeatherData(day, (day.getDayOfYear() % 60 - 30) / 2.0));
+            if (prices.size() >= 24 * 200) {
+                bulkRepository.upsertAll(prices);
+                prices.clear();
+            }
+        }
+        bulkRepository.upsertAll(prices);
+    }
+}
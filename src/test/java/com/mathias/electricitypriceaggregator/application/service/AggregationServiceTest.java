@@ -3,23 +3,43 @@ package com.mathias.electricitypriceaggregator.application.service;
 import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
 import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceEstonia;
 import com.mathias.electricitypriceaggregator.domain.model.WeatherData;
+import com.mathias.electricitypriceaggregator.domain.repository.DailyAggregationRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.DataVersionRepository;
 import com.mathias.electricitypriceaggregator.domain.repository.ElectricityPriceRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.ElectricityPriceRepository.PriceConsumer;
 import com.mathias.electricitypriceaggregator.domain.repository.WeatherDataRepository;
+import com.mathias.electricitypriceaggregator.domain.valueobject.AggregatedData;
 import com.mathias.electricitypriceaggregator.domain.valueobject.DailyAggregatedData;
+import com.mathias.electricitypriceaggregator.domain.valueobject.DataVersion;
+import com.mathias.electricitypriceaggregator.domain.valueobject.Granularity;
+import com.mathias.electricitypriceaggregator.infrastructure.cache.AggregationCache;
+import com.mathias.electricitypriceaggregator.infrastructure.config.AggregationProperties;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.ColumnarPriceStore;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.ZoneOffset;
 import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,20 +52,31 @@ class AggregationServiceTest {
     private ElectricityPriceRepository electricityPriceRepository;
     @Mock
     private WeatherDataRepository weatherDataRepository;
+    @Mock
+    private DailyAggregationRepository dailyAggregationRepository;
+    @Mock
+    private ColumnarPriceStore columnarPriceStore;
+    @Mock
+    private AggregationCache aggregationCache;
+    @Mock
+    private DataVersionRepository dataVersionRepository;
+    // The hourly rows are averaged in the application, without the cache, unless a test selects otherwise
+    @Spy
+    private AggregationProperties aggregationProperties = jvmAggregation();
 
     @Test
     public void getAggregatedData_returnsEmptyListWhenNoData() {
         LocalDate startDate = LocalDate.of(2024, 1, 1);
         LocalDate endDate = LocalDate.of(2024, 1, 2);
 
-        when(electricityPriceRepository.findByDateBetween(startDate, endDate)).thenReturn(Collections.emptyList());
+        stubPrices(startDate, endDate, Collections.emptyList());
         when(weatherDataRepository.findByDateBetween(startDate, endDate)).thenReturn(Collections.emptyList());
 
         List<DailyAggregatedData> result = aggregationService.getAggregatedData(startDate, endDate);
 
         assertNotNull(result);
         assertTrue(result.isEmpty());
-        verify(electricityPriceRepository).findByDateBetween(startDate, endDate);
+        verify(electricityPriceRepository).forEachPrice(eq(ElectricityPriceEstonia.COUNTRY), eq(startDate), eq(endDate), any());
         verify(weatherDataRepository).findByDateBetween(startDate, endDate);
     }
 
@@ -65,8 +96,7 @@ class AggregationServiceTest {
         WeatherData weather = new WeatherData(date, 20.0);
 
 
-        when(electricityPriceRepository.findByDateBetween(date, date))
-                .thenReturn(List.of(price1, price2));
+        stubPrices(date, date, List.of(price1, price2));
         when(weatherDataRepository.findByDateBetween(date, date))
                 .thenReturn(List.of(weather));
 
@@ -96,8 +126,7 @@ class AggregationServiceTest {
         WeatherData weather1 = new WeatherData(startDate, 20.0);
         WeatherData weather2 = new WeatherData(startDate.plusDays(1), 22.0);
 
-        when(electricityPriceRepository.findByDateBetween(startDate, endDate))
-                .thenReturn(List.of(price1, price2));
+        stubPrices(startDate, endDate, List.of(price1, price2));
         when(weatherDataRepository.findByDateBetween(startDate, endDate))
                 .thenReturn(List.of(weather1, weather2));
 
@@ -117,7 +146,7 @@ class AggregationServiceTest {
         price.setRecordedAt(date.atStartOfDay().toEpochSecond(ZoneOffset.UTC));
         price.setPrice(150.0);
 
-        when(electricityPriceRepository.findByDateBetween(date, date)).thenReturn(List.of(price));
+        stubPrices(date, date, List.of(price));
         when(weatherDataRepository.findByDateBetween(date, date)).thenReturn(Collections.emptyList());
 
         List<DailyAggregatedData> result = aggregationService.getAggregatedData(date, date);
@@ -133,7 +162,7 @@ class AggregationServiceTest {
         LocalDate date = LocalDate.of(2024, 1, 1);
         WeatherData weather = new WeatherData(date, 18.5);
 
-        when(electricityPriceRepository.findByDateBetween(date, date)).thenReturn(Collections.emptyList());
+        stubPrices(date, date, Collections.emptyList());
         when(weatherDataRepository.findByDateBetween(date, date)).thenReturn(List.of(weather));
 
         List<DailyAggregatedData> result = aggregationService.getAggregatedData(date, date);
@@ -190,8 +219,7 @@ class AggregationServiceTest {
         price3.setRecordedAt(baseTime.plusHours(12).toEpochSecond(ZoneOffset.UTC));
         price3.setPrice(300.0);
 
-        when(electricityPriceRepository.findByDateBetween(date, date))
-                .thenReturn(List.of(price1, price2, price3));
+        stubPrices(date, date, List.of(price1, price2, price3));
         when(weatherDataRepository.findByDateBetween(date, date))
                 .thenReturn(Collections.emptyList());
 
@@ -219,8 +247,7 @@ class AggregationServiceTest {
         WeatherData weather1 = new WeatherData(startDate, 20.0);
         WeatherData weather3 = new WeatherData(endDate, 22.0);
 
-        when(electricityPriceRepository.findByDateBetween(startDate, endDate))
-                .thenReturn(List.of(price1, price2));
+        stubPrices(startDate, endDate, List.of(price1, price2));
         when(weatherDataRepository.findByDateBetween(startDate, endDate))
                 .thenReturn(List.of(weather1, weather3));
 
@@ -236,4 +263,331 @@ class AggregationServiceTest {
         assertEquals(300.0, result.get(1).averageElectricityPrice());
         assertEquals(22.0, result.get(1).averageTemperature());
     }
+
+    @Test
+    public void getAggregatedData_withSqlStrategy_returnsDailyAveragesFromDatabase() {
+        aggregationProperties.setStrategy(AggregationProperties.Strategy.SQL);
+        LocalDate startDate = LocalDate.of(2024, 1, 1);
+        LocalDate endDate = LocalDate.of(2024, 12, 31);
+        List<DailyAggregatedData> dailyAverages = List.of(
+                new DailyAggregatedData(startDate, 150.0, 20.0),
+                new DailyAggregatedData(endDate, null, -3.5));
+        when(dailyAggregationRepository.findDailyAverages(ElectricityPriceEstonia.COUNTRY, startDate, endDate))
+                .thenReturn(dailyAverages);
+
+        List<DailyAggregatedData> result = aggregationService.getAggregatedData(startDate, endDate);
+
+        assertEquals(dailyAverages, result);
+        verifyNoInteractions(electricityPriceRepository, weatherDataRepository);
+    }
+
+    @Test
+    public void getAggregatedData_withRollupStrategy_returnsDailyAveragesFromSummary() {
+        aggregationProperties.setStrategy(AggregationProperties.Strategy.ROLLUP);
+        LocalDate startDate = LocalDate.of(2024, 1, 1);
+        LocalDate endDate = LocalDate.of(2024, 12, 31);
+        List<DailyAggregatedData> dailyAverages = List.of(new DailyAggregatedData(startDate, 150.0, 20.0));
+        when(dailyAggregationRepository.findDailyAveragesFromSummary(ElectricityPriceEstonia.COUNTRY, startDate, endDate))
+                .thenReturn(dailyAverages);
+
+        List<DailyAggregatedData> result = aggregationService.getAggregatedData(startDate, endDate);
+
+        assertEquals(dailyAverages, result);
+        verify(dailyAggregationRepository, never()).findDailyAverages(any(), any(), any());
+        verifyNoInteractions(electricityPriceRepository, weatherDataRepository);
+    }
+
+    @Test
+    public void getAggregatedData_withMemoryStrategy_returnsDailyAveragesFromLoadedStore() {
+        aggregationProperties.setStrategy(AggregationProperties.Strategy.MEMORY);
+        LocalDate startDate = LocalDate.of(2024, 1, 1);
+        LocalDate endDate = LocalDate.of(2024, 12, 31);
+        List<DailyAggregatedData> dailyAverages = List.of(new DailyAggregatedData(startDate, 150.0, 20.0));
+        when(columnarPriceStore.isLoaded()).thenReturn(true);
+        when(columnarPriceStore.findDailyAverages(ElectricityPriceEstonia.COUNTRY, startDate, endDate))
+                .thenReturn(dailyAverages);
+
+        List<DailyAggregatedData> result = aggregationService.getAggregatedData(startDate, endDate);
+
+        assertEquals(dailyAverages, result);
+        verifyNoInteractions(dailyAggregationRepository, electricityPriceRepository, weatherDataRepository);
+    }
+
+    @Test
+    public void getAggregatedData_withMemoryStrategyBeforeStoreIsLoaded_returnsDailyAveragesFromSummary() {
+        aggregationProperties.setStrategy(AggregationProperties.Strategy.MEMORY);
+        LocalDate startDate = LocalDate.of(2024, 1, 1);
+        LocalDate endDate = LocalDate.of(2024, 12, 31);
+        List<DailyAggregatedData> dailyAverages = List.of(new DailyAggregatedData(startDate, 150.0, 20.0));
+        when(columnarPriceStore.isLoaded()).thenReturn(false);
+        when(dailyAggregationRepository.findDailyAveragesFromSummary(ElectricityPriceEstonia.COUNTRY, startDate, endDate))
+                .thenReturn(dailyAverages);
+
+        List<DailyAggregatedData> result = aggregationService.getAggregatedData(startDate, endDate);
+
+        assertEquals(dailyAverages, result);
+        verify(columnarPriceStore, never()).findDailyAverages(any(), any(), any());
+    }
+
+    @Test
+    public void getAggregatedData_withCacheEnabled_computesMissingBlocksWithStrategy() {
+        aggregationProperties.setStrategy(AggregationProperties.Strategy.ROLLUP);
+        aggregationProperties.setCacheEnabled(true);
+        LocalDate startDate = LocalDate.of(2024, 1, 10);
+        LocalDate endDate = LocalDate.of(2024, 2, 10);
+        LocalDate blockStart = LocalDate.of(2024, 1, 1);
+        LocalDate blockEnd = LocalDate.of(2024, 2, 29);
+        List<DailyAggregatedData> dailyAverages = List.of(new DailyAggregatedData(startDate, 150.0, 20.0));
+        Map<YearMonth, Long> monthVersions = Map.of(YearMonth.of(2024, 1), 4L);
+        when(dataVersionRepository.findMonthVersions(YearMonth.of(2024, 1), YearMonth.of(2024, 2)))
+                .thenReturn(monthVersions);
+        when(aggregationCache.get(eq(ElectricityPriceEstonia.COUNTRY), eq(startDate), eq(endDate), eq(monthVersions), any()))
+                .thenAnswer(invocation -> invocation.<BiFunction<LocalDate, LocalDate, List<DailyAggregatedData>>>getArgument(4)
+                        .apply(blockStart, blockEnd));
+        when(dailyAggregationRepository.findDailyAveragesFromSummary(ElectricityPriceEstonia.COUNTRY, blockStart, blockEnd))
+                .thenReturn(dailyAverages);
+
+        List<DailyAggregatedData> result = aggregationService.getAggregatedData(startDate, endDate);
+
+        assertEquals(dailyAverages, result);
+    }
+
+    @Test
+    public void getAggregatedData_withSqlStrategyAndInvalidDateRange_throwsException() {
+        aggregationProperties.setStrategy(AggregationProperties.Strategy.SQL);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> aggregationService.getAggregatedData(LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 1)));
+
+        verifyNoInteractions(dailyAggregationRepository);
+    }
+
+    @Test
+    public void getAggregatedData_monthly_returnsPeriodAveragesFromSummary() {
+        aggregationProperties.setStrategy(AggregationProperties.Strategy.ROLLUP);
+        LocalDate startDate = LocalDate.of(2024, 1, 1);
+        LocalDate endDate = LocalDate.of(2024, 12, 31);
+        List<AggregatedData> monthlyAverages = List.of(new AggregatedData(startDate.atStartOfDay(), 150.0, 20.0));
+        when(dailyAggregationRepository.findPeriodAveragesFromSummary(
+                ElectricityPriceEstonia.COUNTRY, startDate, endDate, Granularity.MONTHLY)).thenReturn(monthlyAverages);
+
+        List<AggregatedData> result = aggregationService.getAggregatedData(startDate, endDate, Granularity.MONTHLY);
+
+        assertEquals(monthlyAverages, result);
+        verifyNoInteractions(columnarPriceStore, aggregationCache);
+    }
+
+    @Test
+    public void getAggregatedData_yearlyWithMemoryStrategy_returnsPeriodAveragesFromLoadedStore() {
+        aggregationProperties.setStrategy(AggregationProperties.Strategy.MEMORY);
+        LocalDate startDate = LocalDate.of(2020, 1, 1);
+        LocalDate endDate = LocalDate.of(2024, 12, 31);
+        List<AggregatedData> yearlyAverages = List.of(new AggregatedData(startDate.atStartOfDay(), 150.0, 20.0));
+        when(columnarPriceStore.isLoaded()).thenReturn(true);
+        when(columnarPriceStore.findPeriodAverages(ElectricityPriceEstonia.COUNTRY, startDate, endDate, Granularity.YEARLY))
+                .thenReturn(yearlyAverages);
+
+        List<AggregatedData> result = aggregationService.getAggregatedData(startDate, endDate, Granularity.YEARLY);
+
+        assertEquals(yearlyAverages, result);
+        verifyNoInteractions(dailyAggregationRepository);
+    }
+
+    @Test
+    public void getAggregatedData_hourly_emitsOnePeriodPerHourWithTemperatureOfTheDay() {
+        LocalDate startDate = LocalDate.of(2024, 1, 1);
+        LocalDate endDate = LocalDate.of(2024, 1, 2);
+        // In time order as read, with two quarter-hour prices in one hour
+        stubPrices(startDate, endDate, List.of(
+                createElectricityPrice(LocalDateTime.of(2024, 1, 1, 0, 15), 10.0),
+                createElectricityPrice(LocalDateTime.of(2024, 1, 1, 0, 45), 20.0),
+                createElectricityPrice(LocalDateTime.of(2024, 1, 1, 1, 0), 25.0),
+                createElectricityPrice(LocalDateTime.of(2024, 1, 2, 5, 0), 30.0)));
+        when(weatherDataRepository.findByDateBetween(startDate, endDate))
+                .thenReturn(List.of(new WeatherData(startDate, -4.0), new WeatherData(endDate, null)));
+
+        List<AggregatedData> result = aggregationService.getAggregatedData(startDate, endDate, Granularity.HOURLY);
+
+        assertEquals(List.of(
+                new AggregatedData(LocalDateTime.of(2024, 1, 1, 0, 0), 15.0, -4.0),
+                new AggregatedData(LocalDateTime.of(2024, 1, 1, 1, 0), 25.0, -4.0),
+                new AggregatedData(LocalDateTime.of(2024, 1, 2, 5, 0), 30.0, null)), result);
+        verify(electricityPriceRepository, never()).findByDateBetween(any(), any(), any());
+    }
+
+    @Test
+    public void streamAggregatedData_hourly_passesEveryHourOnBeforeReadingTheNextHoursPrices() {
+        LocalDate date = LocalDate.of(2024, 1, 1);
+        List<AggregatedData> passed = new ArrayList<>();
+        List<Integer> passedBeforeEachPrice = new ArrayList<>();
+        doAnswer(invocation -> {
+            PriceConsumer consumer = invocation.getArgument(3);
+            for (int hour = 0; hour < 3; hour++) {
+                passedBeforeEachPrice.add(passed.size());
+                consumer.accept(date.atTime(hour, 0).toEpochSecond(ZoneOffset.UTC), 10.0 * hour);
+            }
+            passedBeforeEachPrice.add(passed.size());
+            return null;
+        }).when(electricityPriceRepository).forEachPrice(eq(ElectricityPriceEstonia.COUNTRY), eq(date), eq(date), any());
+        when(weatherDataRepository.findByDateBetween(date, date)).thenReturn(List.of(new WeatherData(date, -4.0)));
+
+        aggregationService.streamAggregatedData(date, date, Granularity.HOURLY, passed::add);
+
+        // Each hour is passed on once the next one starts, so nothing of the range is held back
+        assertEquals(List.of(0, 0, 1, 2), passedBeforeEachPrice);
+        assertEquals(List.of(
+                new AggregatedData(date.atTime(0, 0), 0.0, -4.0),
+                new AggregatedData(date.atTime(1, 0), 10.0, -4.0),
+                new AggregatedData(date.atTime(2, 0), 20.0, -4.0)), passed);
+    }
+
+    @Test
+    public void streamAggregatedData_monthly_passesThePeriodsOfTheRollup() {
+        aggregationProperties.setStrategy(AggregationProperties.Strategy.ROLLUP);
+        LocalDate startDate = LocalDate.of(2024, 1, 1);
+        LocalDate endDate = LocalDate.of(2024, 2, 29);
+        List<AggregatedData> periods = List.of(new AggregatedData(startDate.atStartOfDay(), 40.0, -5.5),
+                new AggregatedData(LocalDateTime.of(2024, 2, 1, 0, 0), 35.0, null));
+        when(dailyAggregationRepository.findPeriodAveragesFromSummary(ElectricityPriceEstonia.COUNTRY, startDate, endDate,
+                Granularity.MONTHLY)).thenReturn(periods);
+        List<AggregatedData> passed = new ArrayList<>();
+
+        aggregationService.streamAggregatedData(startDate, endDate, Granularity.MONTHLY, passed::add);
+
+        assertEquals(periods, passed);
+    }
+
+    @Test
+    public void getAggregatedData_daily_returnsDailyAveragesAsPeriods() {
+        aggregationProperties.setStrategy(AggregationProperties.Strategy.ROLLUP);
+        LocalDate startDate = LocalDate.of(2024, 1, 1);
+        when(dailyAggregationRepository.findDailyAveragesFromSummary(ElectricityPriceEstonia.COUNTRY, startDate, startDate))
+                .thenReturn(List.of(new DailyAggregatedData(startDate, 150.0, 20.0)));
+
+        List<AggregatedData> result = aggregationService.getAggregatedData(startDate, startDate, Granularity.DAILY);
+
+        assertEquals(List.of(new AggregatedData(startDate.atStartOfDay(), 150.0, 20.0)), result);
+    }
+
+    @Test
+    public void getAggregatedData_withNullGranularity_throwsException() {
+        LocalDate startDate = LocalDate.of(2024, 1, 1);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> aggregationService.getAggregatedData(startDate, startDate, null));
+    }
+
+    @Test
+    public void streamAggregatedData_withRollupStrategyWithoutCache_streamsFromSummaryCursor() {
+        aggregationProperties.setStrategy(AggregationProperties.Strategy.ROLLUP);
+        LocalDate startDate = LocalDate.of(2000, 1, 1);
+        LocalDate endDate = LocalDate.of(2024, 12, 31);
+
+        aggregationService.streamAggregatedData(startDate, endDate, data -> {
+        });
+
+        verify(dailyAggregationRepository).streamDailyAveragesFromSummary(
+                eq(ElectricityPriceEstonia.COUNTRY), eq(startDate), eq(endDate), any());
+        verify(dailyAggregationRepository, never()).findDailyAveragesFromSummary(any(), any(), any());
+    }
+
+    @Test
+    public void streamAggregatedData_withMemoryStrategy_aggregatesOneMonthAtATime() {
+        aggregationProperties.setStrategy(AggregationProperties.Strategy.MEMORY);
+        LocalDate startDate = LocalDate.of(2024, 1, 15);
+        LocalDate endDate = LocalDate.of(2024, 3, 10);
+        when(columnarPriceStore.isLoaded()).thenReturn(true);
+        when(columnarPriceStore.findDailyAverages(eq(ElectricityPriceEstonia.COUNTRY), any(), any()))
+                .thenAnswer(invocation -> List.of(new DailyAggregatedData(invocation.getArgument(1), 1.0, null)));
+        List<DailyAggregatedData> consumed = new ArrayList<>();
+
+        aggregationService.streamAggregatedData(startDate, endDate, consumed::add);
+
+        assertEquals(List.of(startDate, LocalDate.of(2024, 2, 1), LocalDate.of(2024, 3, 1)),
+                consumed.stream().map(DailyAggregatedData::date).toList());
+        verify(columnarPriceStore).findDailyAverages(ElectricityPriceEstonia.COUNTRY, startDate, LocalDate.of(2024, 1, 31));
+        verify(columnarPriceStore).findDailyAverages(ElectricityPriceEstonia.COUNTRY, LocalDate.of(2024, 3, 1), endDate);
+        verifyNoInteractions(dailyAggregationRepository);
+    }
+
+    @Test
+    public void streamAggregatedData_withInvalidDateRange_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> aggregationService.streamAggregatedData(
+                LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 1), data -> fail()));
+    }
+
+    @Test
+    public void getDataVersion_readsVersionWithoutAggregating() {
+        LocalDate startDate = LocalDate.of(2024, 1, 1);
+        LocalDate endDate = LocalDate.of(2024, 1, 31);
+        DataVersion dataVersion = new DataVersion(3, Instant.parse("2024-02-01T00:00:00Z"));
+        when(dataVersionRepository.findDataVersion(startDate, endDate)).thenReturn(dataVersion);
+
+        assertEquals(dataVersion, aggregationService.getDataVersion(startDate, endDate));
+        verifyNoInteractions(electricityPriceRepository, weatherDataRepository, dailyAggregationRepository, aggregationCache);
+    }
+
+    @Test
+    public void getDataVersion_withLoadedMemoryStrategy_readsVersionOfTheStore() {
+        aggregationProperties.setStrategy(AggregationProperties.Strategy.MEMORY);
+        LocalDate startDate = LocalDate.of(2024, 1, 1);
+        LocalDate endDate = LocalDate.of(2024, 1, 31);
+        DataVersion dataVersion = new DataVersion(2, Instant.parse("2024-02-01T00:00:00Z"));
+        when(columnarPriceStore.isLoaded()).thenReturn(true);
+        when(columnarPriceStore.findDataVersion(startDate, endDate)).thenReturn(dataVersion);
+
+        // The store may lag the database, so the version must describe the data it serves
+        assertEquals(dataVersion, aggregationService.getDataVersion(startDate, endDate));
+        verifyNoInteractions(dataVersionRepository);
+    }
+
+    @Test
+    public void streamAggregatedData_withCacheEnabled_readsMonthVersionsOnceForTheRange() {
+        aggregationProperties.setStrategy(AggregationProperties.Strategy.MEMORY);
+        aggregationProperties.setCacheEnabled(true);
+        LocalDate startDate = LocalDate.of(2024, 1, 15);
+        LocalDate endDate = LocalDate.of(2024, 3, 10);
+        Map<YearMonth, Long> monthVersions = Map.of(YearMonth.of(2024, 2), 7L);
+        when(columnarPriceStore.isLoaded()).thenReturn(true);
+        when(columnarPriceStore.findMonthVersions(YearMonth.of(2024, 1), YearMonth.of(2024, 3))).thenReturn(monthVersions);
+        when(aggregationCache.get(eq(ElectricityPriceEstonia.COUNTRY), any(), any(), eq(monthVersions), any()))
+                .thenAnswer(invocation -> List.of(new DailyAggregatedData(invocation.getArgument(1), 1.0, null)));
+        List<DailyAggregatedData> consumed = new ArrayList<>();
+
+        aggregationService.streamAggregatedData(startDate, endDate, consumed::add);
+
+        assertEquals(List.of(startDate, LocalDate.of(2024, 2, 1), LocalDate.of(2024, 3, 1)),
+                consumed.stream().map(DailyAggregatedData::date).toList());
+        verify(columnarPriceStore).findMonthVersions(YearMonth.of(2024, 1), YearMonth.of(2024, 3));
+        verifyNoInteractions(dataVersionRepository);
+    }
+
+    @Test
+    public void getDataVersion_endBeforeStart_throwsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> aggregationService.getDataVersion(LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 1)));
+        verifyNoInteractions(dataVersionRepository);
+    }
+
+    private void stubPrices(LocalDate startDate, LocalDate endDate, List<? extends ElectricityPrice> prices) {
+        doAnswer(invocation -> {
+            PriceConsumer consumer = invocation.getArgument(3);
+            prices.forEach(price -> consumer.accept(price.getRecordedAt(), price.getPrice()));
+            return null;
+        }).when(electricityPriceRepository).forEachPrice(eq(ElectricityPriceEstonia.COUNTRY), eq(startDate), eq(endDate), any());
+    }
+
+    private static ElectricityPrice createElectricityPrice(LocalDateTime recordedAt, double value) {
+        ElectricityPrice price = new ElectricityPriceEstonia();
+        price.setRecordedAt(recordedAt.toEpochSecond(ZoneOffset.UTC));
+        price.setPrice(value);
+        return price;
+    }
+
+    private static AggregationProperties jvmAggregation() {
+        AggregationProperties properties = new AggregationProperties();
+        properties.setStrategy(AggregationProperties.Strategy.JVM);
+        properties.setCacheEnabled(false);
+        return properties;
+    }
 }
@@ -0,0 +1,108 @@
+package com.mathias.electricitypriceaggregator.application.service;
+
+import com.mathias.electricitypriceaggregator.domain.repository.ElectricityPriceRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.ElectricityPriceRepository.PriceConsumer;
+import com.mathias.electricitypriceaggregator.domain.valueobject.PriceStatistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ElectricityPriceQueryServiceTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    private static final LocalDate END = LocalDate.of(2024, 1, 31);
+
+    @InjectMocks
+    private ElectricityPriceQueryService electricityPriceQueryService;
+
+    @Mock
+    private ElectricityPriceRepository electricityPriceRepository;
+
+    @Test
+    void forEachPrice_delegatesToRepository() {
+        PriceConsumer consumer = (recordedAt, price) -> {
+        };
+
+        electricityPriceQueryService.forEachPrice("LV", START, END, consumer);
+
+        verify(electricityPriceRepository).forEachPrice("LV", START, END, consumer);
+    }
+
+    @Test
+    void forEachPrice_unsupportedCountry_throwsIllegalArgumentException() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> electricityPriceQueryService.forEachPrice("XX", START, END, (recordedAt, price) -> {
+                }));
+
+        assertEquals("Unsupported country code: XX", exception.getMessage());
+        verify(electricityPriceRepository, never()).forEachPrice(any(), any(), any(), any());
+    }
+
+    @Test
+    void getStatistics_ofRange_delegatesToRepository() {
+        Instant from = Instant.parse("2024-01-01T06:00:00Z");
+        Instant to = Instant.parse("2024-01-01T18:00:00Z");
+        PriceStatistics statistics = new PriceStatistics(12, 40.0, 10.0, 80.0);
+        when(electricityPriceRepository.findStatistics("EE", from, to)).thenReturn(statistics);
+
+        assertEquals(statistics, electricityPriceQueryService.getStatistics("EE", from, to));
+    }
+
+    @Test
+    void getStatistics_ofEmptyOrReversedRange_throwsIllegalArgumentException() {
+        Instant from = Instant.parse("2024-01-01T06:00:00Z");
+
+        assertThrows(IllegalArgumentException.class, () -> electricityPriceQueryService.getStatistics("EE", from, from));
+        assertThrows(IllegalArgumentException.class,
+                () -> electricityPriceQueryService.getStatistics("EE", from, from.minusSeconds(3600)));
+        assertThrows(IllegalArgumentException.class, () -> electricityPriceQueryService.getStatistics("EE", from, null));
+        verify(electricityPriceRepository, never()).findStatistics(any(), any(Instant.class), any(Instant.class));
+    }
+
+    @Test
+    void getStatistics_ofDays_delegatesToRepository() {
+        List<LocalDate> days = List.of(START, END);
+        when(electricityPriceRepository.findStatistics("LV", days)).thenReturn(PriceStatistics.EMPTY);
+
+        assertEquals(PriceStatistics.EMPTY, electricityPriceQueryService.getStatistics("LV", days));
+    }
+
+    @Test
+    void getStatistics_withoutDays_throwsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> electricityPriceQueryService.getStatistics("EE", List.of()));
+        assertThrows(IllegalArgumentException.class,
+                () -> electricityPriceQueryService.getStatistics("EE", Arrays.asList(START, null)));
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> electricityPriceQueryService.getStatistics("XX", List.of(START)));
+
+        assertEquals("Unsupported country code: XX", exception.getMessage());
+        verify(electricityPriceRepository, never()).findStatistics(any(), anyCollection());
+    }
+
+    @Test
+    void validate_endBeforeStart_throwsIllegalArgumentException() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> electricityPriceQueryService.validate("EE", END, START));
+
+        assertEquals("End date 2024-01-01 cannot be before start date 2024-01-31", exception.getMessage());
+    }
+
+    @Test
+    void validate_nullDate_throwsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> electricityPriceQueryService.validate("EE", null, END));
+        assertThrows(IllegalArgumentException.class, () -> electricityPriceQueryService.validate("EE", START, null));
+    }
+}
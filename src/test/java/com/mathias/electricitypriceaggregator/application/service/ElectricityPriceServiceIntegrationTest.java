@@ -1,5 +1,6 @@
 package com.mathias.electricitypriceaggregator.application.service;
 
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceEstonia;
 import com.mathias.electricitypriceaggregator.domain.repository.ElectricityPriceRepository;
 import com.mathias.electricitypriceaggregator.integration.BaseIntegrationTest;
 import org.junit.jupiter.api.Test;
@@ -48,7 +49,7 @@ public class ElectricityPriceServiceIntegrationTest extends BaseIntegrationTest
         // Then
         var startDate = LocalDate.of(2023, 12, 31);
         var endDate = LocalDate.of(2023, 12, 31);
-        var prices = electricityPriceRepository.findByDateBetween(startDate, endDate)
+        var prices = electricityPriceRepository.findByDateBetween(ElectricityPriceEstonia.COUNTRY, startDate, endDate)
                 .stream()
                 .sorted(Comparator.comparing(p -> p.getRecordedAt()))
                 .toList();
@@ -1,32 +1,86 @@
 package com.mathias.electricitypriceaggregator.application.service;
 
+import com.github.luben.zstd.ZstdOutputStream;
 import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
 import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceEstonia;
+import com.mathias.electricitypriceaggregator.domain.model.IngestedFile;
+import com.mathias.electricitypriceaggregator.domain.repository.IngestedFileRepository;
+import com.mathias.electricitypriceaggregator.domain.valueobject.UpsertResult;
+import com.mathias.electricitypriceaggregator.infrastructure.config.IngestionProperties;
+import com.mathias.electricitypriceaggregator.infrastructure.csv.CsvCompression;
 import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.ElectricityPriceBulkRepository;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Enumeration;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class ElectricityPriceServiceTest {
+    private static final String COMPRESSED_CSV = """
+            Ajatempel (UTC);NPS Eesti
+            1704060000;40,01
+            1704063600;38,37
+            """;
+    // Lines end at bytes 26, 43, 60 and 77
+    private static final String RESUMABLE_CSV = """
+            Ajatempel (UTC);NPS Eesti
+            1704060000;40,01
+            1704063600;38,37
+            1704067200;36,00
+            """;
+
     @InjectMocks
     private ElectricityPriceService electricityPriceService;
 
     @Mock
     private ElectricityPriceBulkRepository bulkRepository;
 
+    @Mock
+    private IngestedFileRepository ingestedFileRepository;
+
+    @Spy
+    private IngestionProperties ingestionProperties = new IngestionProperties();
+
+    @Spy
+    private IngestionAdmission ingestionAdmission = new IngestionAdmission(new IngestionProperties(), null);
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(bulkRepository.upsertAll(anyList())).thenAnswer(
+                invocation -> new UpsertResult(invocation.<List<?>>getArgument(0).size(), 0, 0));
+    }
+
     @Test
     void processCsvUpload_withValidData() throws IOException {
         MultipartFile file = mock(MultipartFile.class);
@@ -35,7 +89,7 @@ class ElectricityPriceServiceTest {
                 1704060000;01.01.2024 00:00;40,01;40,01;40,01;40,01
                 1704063600;01.01.2024 01:00;38,37;38,37;38,37;38,37
                 """;
-        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
 
         @SuppressWarnings("unchecked")
         ArgumentCaptor<List<ElectricityPrice>> priceCaptor = ArgumentCaptor.forClass((Class<List<ElectricityPrice>>) (Class<?>) List.class);
@@ -62,7 +116,7 @@ class ElectricityPriceServiceTest {
         MultipartFile file = mock(MultipartFile.class);
         String csvContent = "Ajatempel (UTC);Kuupäev (Eesti aeg);NPS Läti;NPS Leedu;NPS Soome;NPS Eesti\n";
 
-        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
 
         electricityPriceService.processCsvUpload(file);
 
@@ -76,7 +130,7 @@ class ElectricityPriceServiceTest {
                 Ajatempel (UTC);Kuupäev (Eesti aeg);NPS Läti;NPS Leedu;NPS Soome;NPS Eesti
                 invalid;01.01.2024 00:00;40,01;40,01;40,01;40,01
                 """;
-        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
 
         Exception exception = assertThrows(Exception.class,
                 () -> electricityPriceService.processCsvUpload(file));
@@ -103,7 +157,7 @@ class ElectricityPriceServiceTest {
                 1704063600;01.01.2024 01:00;38,37;38,37;38,37;38,37
                 
                 """;
-        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
 
         electricityPriceService.processCsvUpload(file);
 
@@ -124,7 +178,7 @@ class ElectricityPriceServiceTest {
                 Ajatempel (UTC);Kuupäev (Eesti aeg);NPS Läti;NPS Leedu;NPS Soome;NPS Eesti
                 1704060000;01.01.2024 00:00;40,010;40,000;40,0;40,00
                 """;
-        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
 
         @SuppressWarnings("unchecked")
         ArgumentCaptor<List<ElectricityPrice>> priceCaptor = ArgumentCaptor.forClass((Class<List<ElectricityPrice>>) (Class<?>) List.class);
@@ -147,7 +201,7 @@ class ElectricityPriceServiceTest {
                 Ajatempel (UTC);Kuupäev (Eesti aeg);NPS Läti;NPS Leedu;NPS Soome;NPS Eesti
                 1704060000;01.01.2024 00:00;40,01;40,01;40,01;-999,99
                 """;
-        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
 
         @SuppressWarnings("unchecked")
         ArgumentCaptor<List<ElectricityPrice>> priceCaptor = ArgumentCaptor.forClass((Class<List<ElectricityPrice>>) (Class<?>) List.class);
@@ -169,7 +223,7 @@ class ElectricityPriceServiceTest {
                 Ajatempel (UTC);Kuupäev (Eesti aeg);NPS Läti;NPS Leedu;NPS Soome;NPS Eesti
                 1704060000;01.01.2024 00:00;40,01;40,01;40,01;40,01
                 """;
-        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
 
         electricityPriceService.processCsvUpload(file);
 
@@ -188,7 +242,7 @@ class ElectricityPriceServiceTest {
         String invalidHeader = "Ajatempel (UTC);Kuupäev (Eesti aeg);NPS Läti;NPS Leedu;NPS Soome\n";
         String csvContent = invalidHeader + "1704060000;01.01.2024 00:00;40,01;40,01;40,01";
 
-        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
 
         Exception exception = assertThrows(Exception.class,
                 () -> electricityPriceService.processCsvUpload(file));
@@ -201,7 +255,7 @@ class ElectricityPriceServiceTest {
 
         MultipartFile file = mock(MultipartFile.class);
         String csvContent = "1704060000;01.01.2024 00:00;40,01;40,01;40,01;40,01\n";
-        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
 
 
         Exception exception = assertThrows(RuntimeException.class,
@@ -214,7 +268,7 @@ class ElectricityPriceServiceTest {
     public void processCsvUpload_withNoContent() throws IOException {
         MultipartFile file = mock(MultipartFile.class);
         String csvContent = "";
-        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
 
         Exception exception = assertThrows(RuntimeException.class,
                 () -> electricityPriceService.processCsvUpload(file));
@@ -225,7 +279,7 @@ class ElectricityPriceServiceTest {
     @Test
     public void processCsvUpload_withInvalidEncoding() throws IOException {
         MultipartFile file = mock(MultipartFile.class);
-        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[]{(byte) 0xFF, (byte) 0xFE}));
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(new byte[]{(byte) 0xFF, (byte) 0xFE}));
 
         Exception exception = assertThrows(RuntimeException.class,
                 () -> electricityPriceService.processCsvUpload(file));
@@ -241,7 +295,7 @@ class ElectricityPriceServiceTest {
                 Ajatempel (UTC);Kuupäev (Eesti aeg);NPS Läti;NPS Leedu;NPS Soome;NPS Eesti
                 1704060000;01.01.2024 00:00;99999,99;99999,99;99999,99;99999,99
                 """;
-        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
 
         electricityPriceService.processCsvUpload(file);
 
@@ -251,4 +305,363 @@ class ElectricityPriceServiceTest {
             return price.getPrice() == 99999.99;
         }));
     }
+
+    @Test
+    public void processCsvUpload_withMoreRowsThanChunkSize_upsertsInChunks() throws IOException {
+        ingestionProperties.setChunkSize(2);
+        MultipartFile file = mock(MultipartFile.class);
+        String csvContent = """
+                Ajatempel (UTC);Kuupäev (Eesti aeg);NPS Läti;NPS Leedu;NPS Soome;NPS Eesti
+                1704060000;01.01.2024 00:00;40,01;40,01;40,01;40,01
+                1704063600;01.01.2024 01:00;38,37;38,37;38,37;38,37
+                1704067200;01.01.2024 02:00;36,00;36,00;36,00;36,00
+                """;
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ElectricityPrice>> priceCaptor = ArgumentCaptor.forClass((Class<List<ElectricityPrice>>) (Class<?>) List.class);
+
+        electricityPriceService.processCsvUpload(file);
+
+        verify(bulkRepository, times(2)).upsertAll(priceCaptor.capture());
+        List<List<ElectricityPrice>> chunks = priceCaptor.getAllValues();
+        assertEquals(2, chunks.get(0).size());
+        assertEquals(1, chunks.get(1).size());
+        assertEquals(36.00, chunks.get(1).get(0).getPrice());
+    }
+
+    @Test
+    public void ingestCsv_withProgressListener_reportsCountsAfterEveryChunk() throws IOException {
+        ingestionProperties.setChunkSize(2);
+        String csvContent = """
+                Ajatempel (UTC);NPS Eesti
+                1704060000;40,01
+                1704063600;38,37
+                1704067200;36,00
+                """;
+        IngestionProgress progress = mock(IngestionProgress.class);
+
+        UpsertResult result = electricityPriceService.ingestCsv(
+                new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)), progress);
+
+        assertEquals(3, result.rows());
+        var inOrder = inOrder(progress, bulkRepository);
+        inOrder.verify(progress).rowsParsed(2);
+        inOrder.verify(bulkRepository).upsertAll(anyList());
+        inOrder.verify(progress).rowsWritten(2);
+        inOrder.verify(progress).rowsParsed(3);
+        inOrder.verify(bulkRepository).upsertAll(anyList());
+        inOrder.verify(progress).rowsWritten(3);
+    }
+
+    @Test
+    public void processCsvUpload_withAllCountries_upsertsEveryCountryTogether() throws IOException {
+        ingestionProperties.setCountries(List.of("EE", "LV", "LT", "FI"));
+        MultipartFile file = mock(MultipartFile.class);
+        String csvContent = """
+                Ajatempel (UTC);Kuupäev (Eesti aeg);NPS Läti;NPS Leedu;NPS Soome;NPS Eesti
+                1704060000;01.01.2024 00:00;1,10;2,20;3,30;4,40
+                """;
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ElectricityPrice>> priceCaptor = ArgumentCaptor.forClass((Class<List<ElectricityPrice>>) (Class<?>) List.class);
+
+        electricityPriceService.processCsvUpload(file);
+
+        verify(bulkRepository).upsertAll(priceCaptor.capture());
+        List<ElectricityPrice> capturedPrices = priceCaptor.getValue();
+        assertEquals(List.of("EE", "LV", "LT", "FI"), capturedPrices.stream().map(ElectricityPrice::getCountry).toList());
+        assertEquals(List.of(4.40, 1.10, 2.20, 3.30), capturedPrices.stream().map(ElectricityPrice::getPrice).toList());
+        assertTrue(capturedPrices.stream().allMatch(price -> price.getRecordedAt() == 1704060000L));
+    }
+
+    @Test
+    public void ingestCsv_withRowsOfOneDayBeyondChunkSize_keepsTheDayInOneChunk() throws IOException {
+        ingestionProperties.setChunkSize(2);
+        String csvContent = """
+                Ajatempel (UTC);NPS Eesti
+                1704067200;1,00
+                1704070800;2,00
+                1704074400;3,00
+                1704153600;4,00
+                """;
+
+        electricityPriceService.ingestCsv(new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ElectricityPrice>> priceCaptor = ArgumentCaptor.forClass((Class<List<ElectricityPrice>>) (Class<?>) List.class);
+        verify(bulkRepository, times(2)).upsertAll(priceCaptor.capture());
+        assertEquals(List.of(1.0, 2.0, 3.0), priceCaptor.getAllValues().get(0).stream().map(ElectricityPrice::getPrice).toList());
+        assertEquals(List.of(4.0), priceCaptor.getAllValues().get(1).stream().map(ElectricityPrice::getPrice).toList());
+    }
+
+    @Test
+    public void processCsvUpload_sumsResultsAndRegistersFile() throws IOException {
+        MultipartFile file = mock(MultipartFile.class);
+        String csvContent = """
+                Ajatempel (UTC);NPS Eesti
+                1704060000;40,01
+                1704063600;38,37
+                """;
+        when(file.getOriginalFilename()).thenReturn("prices.csv");
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
+        when(bulkRepository.upsertAll(anyList())).thenReturn(new UpsertResult(1, 0, 1));
+
+        UpsertResult result = electricityPriceService.processCsvUpload(file);
+
+        assertEquals(new UpsertResult(1, 0, 1), result);
+        ArgumentCaptor<IngestedFile> fileCaptor = ArgumentCaptor.forClass(IngestedFile.class);
+        verify(ingestedFileRepository).save(fileCaptor.capture());
+        assertEquals("prices.csv", fileCaptor.getValue().getFileName());
+        assertEquals(2L, fileCaptor.getValue().getRowCount());
+        assertEquals(64, fileCaptor.getValue().getDigest().length());
+    }
+
+    @Test
+    public void processCsvUpload_withAlreadyIngestedFile_skipsParsingAndWriting() throws IOException {
+        MultipartFile file = mock(MultipartFile.class);
+        String csvContent = """
+                Ajatempel (UTC);NPS Eesti
+                1704060000;40,01
+                """;
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
+        when(ingestedFileRepository.findByDigest(anyString()))
+                .thenReturn(Optional.of(new IngestedFile("digest", "prices.csv", 1L, Instant.now())));
+
+        UpsertResult result = electricityPriceService.processCsvUpload(file);
+
+        assertEquals(UpsertResult.unchanged(1), result);
+        verify(bulkRepository, never()).upsertAll(anyList());
+        verify(ingestedFileRepository, never()).save(any());
+        verify(file, times(1)).getInputStream();
+    }
+
+    @Test
+    public void processCsvUpload_withDifferentCountries_computesDifferentDigests() throws IOException {
+        MultipartFile file = mock(MultipartFile.class);
+        String csvContent = """
+                Ajatempel (UTC);NPS Eesti;NPS Soome
+                1704060000;40,01;40,01
+                """;
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.ISO_8859_1)));
+
+        electricityPriceService.processCsvUpload(file);
+        ingestionProperties.setCountries(List.of("EE", "FI"));
+        electricityPriceService.processCsvUpload(file);
+
+        ArgumentCaptor<String> digestCaptor = ArgumentCaptor.forClass(String.class);
+        verify(ingestedFileRepository, times(2)).findByDigest(digestCaptor.capture());
+        assertNotEquals(digestCaptor.getAllValues().get(0), digestCaptor.getAllValues().get(1));
+    }
+
+    @Test
+    public void processCsvUpload_withGzipFile_decompressesWhileParsing() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream outputStream = new GZIPOutputStream(compressed)) {
+            outputStream.write(COMPRESSED_CSV.getBytes(StandardCharsets.ISO_8859_1));
+        }
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getOriginalFilename()).thenReturn("prices.csv.gz");
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(compressed.toByteArray()));
+
+        UpsertResult result = electricityPriceService.processCsvUpload(file);
+
+        assertEquals(new UpsertResult(2, 0, 0), result);
+        assertCompressedCsvUpserted();
+    }
+
+    @Test
+    public void processCsvUpload_withZstdContentEncoding_decompressesWhileParsing() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream outputStream = new ZstdOutputStream(compressed)) {
+            outputStream.write(COMPRESSED_CSV.getBytes(StandardCharsets.ISO_8859_1));
+        }
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(compressed.toByteArray()));
+
+        UpsertResult result = electricityPriceService.processCsvUpload(file, CsvCompression.ZSTD);
+
+        assertEquals(new UpsertResult(2, 0, 0), result);
+        assertCompressedCsvUpserted();
+    }
+
+    @Test
+    public void processCsvUpload_withCorruptGzipFile_throwsException() throws IOException {
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(COMPRESSED_CSV.getBytes(StandardCharsets.ISO_8859_1)));
+
+        assertThrows(RuntimeException.class, () -> electricityPriceService.processCsvUpload(file, CsvCompression.GZIP));
+
+        verify(bulkRepository, never()).upsertAll(anyList());
+    }
+
+    @Test
+    public void processCsvUpload_withoutIngestionSlot_isRejectedBeforeParsing() throws IOException {
+        MultipartFile file = mock(MultipartFile.class);
+        doThrow(new IngestionRejectedException("Ingestion queue is full", Duration.ofSeconds(30)))
+                .when(ingestionAdmission).admit(any());
+
+        assertThrows(IngestionRejectedException.class, () -> electricityPriceService.processCsvUpload(file, CsvCompression.NONE));
+
+        verify(file, never()).getInputStream();
+        verify(bulkRepository, never()).upsertAll(anyList());
+    }
+
+    private void assertCompressedCsvUpserted() {
+        ArgumentCaptor<List<ElectricityPrice>> chunkCaptor = ArgumentCaptor.forClass(List.class);
+        verify(bulkRepository).upsertAll(chunkCaptor.capture());
+        List<ElectricityPrice> prices = chunkCaptor.getValue();
+        assertEquals(2, prices.size());
+        assertEquals(40.01, prices.get(0).getPrice());
+        assertEquals(38.37, prices.get(1).getPrice());
+    }
+
+    @Test
+    public void ingestCsvFrom_start_checkpointsEndOfLastCommittedLine() throws IOException {
+        ingestionProperties.setChunkSize(2);
+        IngestionProgress progress = mock(IngestionProgress.class);
+
+        UpsertResult result = electricityPriceService.ingestCsvFrom(resumableCsv(), CsvCompression.NONE, 0, progress);
+
+        assertEquals(3, result.rows());
+        var inOrder = inOrder(progress);
+        inOrder.verify(progress).checkpoint(60, new UpsertResult(2, 0, 0));
+        inOrder.verify(progress).checkpoint(RESUMABLE_CSV.length(), new UpsertResult(1, 0, 0));
+    }
+
+    @Test
+    public void ingestCsvFrom_checkpoint_writesOnlyRemainingRows() throws IOException {
+        IngestionProgress progress = mock(IngestionProgress.class);
+
+        UpsertResult result = electricityPriceService.ingestCsvFrom(resumableCsv(), CsvCompression.NONE, 60, progress);
+
+        assertEquals(new UpsertResult(1, 0, 0), result);
+        ArgumentCaptor<List<ElectricityPrice>> chunkCaptor = ArgumentCaptor.forClass(List.class);
+        verify(bulkRepository).upsertAll(chunkCaptor.capture());
+        assertEquals(List.of(36.00), chunkCaptor.getValue().stream().map(ElectricityPrice::getPrice).toList());
+        verify(progress).checkpoint(RESUMABLE_CSV.length(), new UpsertResult(1, 0, 0));
+    }
+
+    @Test
+    public void ingestCsvFrom_checkpointInGzipFile_skipsDecompressedBytes() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream outputStream = new GZIPOutputStream(compressed)) {
+            outputStream.write(RESUMABLE_CSV.getBytes(StandardCharsets.ISO_8859_1));
+        }
+
+        UpsertResult result = electricityPriceService.ingestCsvFrom(
+                () -> new ByteArrayInputStream(compressed.toByteArray()), CsvCompression.GZIP, 43, IngestionProgress.NONE);
+
+        assertEquals(2, result.rows());
+        ArgumentCaptor<List<ElectricityPrice>> chunkCaptor = ArgumentCaptor.forClass(List.class);
+        verify(bulkRepository).upsertAll(chunkCaptor.capture());
+        assertEquals(List.of(38.37, 36.00), chunkCaptor.getValue().stream().map(ElectricityPrice::getPrice).toList());
+    }
+
+    @Test
+    public void ingestCsvFrom_checkpointInsideHeader_throwsException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> electricityPriceService.ingestCsvFrom(resumableCsv(), CsvCompression.NONE, 10, IngestionProgress.NONE));
+
+        verify(bulkRepository, never()).upsertAll(anyList());
+    }
+
+    private static InputStreamSource resumableCsv() {
+        return () -> new ByteArrayInputStream(RESUMABLE_CSV.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void ingestCsv_withParallelParserAndLargeFile_upsertsRowsInFileOrder(@TempDir Path tempDir) throws IOException {
+        StringBuilder csvContent = new StringBuilder("Ajatempel (UTC);NPS Eesti\n");
+        for (int i = 0; i < 500; i++) {
+            csvContent.append(1704060000L + 3600L * i).append(';').append(i).append(",5\n");
+        }
+        Path file = tempDir.resolve("prices.csv");
+        Files.writeString(file, csvContent, StandardCharsets.ISO_8859_1);
+        ingestionProperties.setParser(IngestionProperties.CsvParser.NPS_PARALLEL);
+        ingestionProperties.setParallelThreshold(DataSize.ofBytes(1));
+        ingestionProperties.setParallelSegmentSize(DataSize.ofBytes(100));
+        ingestionProperties.setChunkSize(100);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ElectricityPriceService parallelService = new ElectricityPriceService(
+                bulkRepository, ingestedFileRepository, ingestionProperties, pool, ingestionAdmission);
+
+        UpsertResult result;
+        try {
+            result = parallelService.ingestCsv(new FileSystemResource(file), "prices.csv", CsvCompression.NONE,
+                    IngestionProgress.NONE);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(new UpsertResult(500, 0, 0), result);
+        ArgumentCaptor<List<ElectricityPrice>> chunkCaptor = ArgumentCaptor.forClass(List.class);
+        verify(bulkRepository, atLeast(2)).upsertAll(chunkCaptor.capture());
+        List<ElectricityPrice> written = chunkCaptor.getAllValues().stream().flatMap(List::stream).toList();
+        assertEquals(500, written.size());
+        for (int i = 0; i < written.size(); i++) {
+            assertEquals(1704060000L + 3600L * i, written.get(i).getRecordedAt());
+            assertEquals(i + 0.5, written.get(i).getPrice());
+        }
+    }
+
+    @Test
+    public void ingestCsv_withManyRows_writesBoundedChunksWhileReading() throws IOException {
+        int rowCount = 500_000;
+        int chunkSize = 10_000;
+        ingestionProperties.setChunkSize(chunkSize);
+
+        // A stub-only mock does not record invocations, so it does not retain the chunks it receives
+        ElectricityPriceBulkRepository streamingRepository = mock(ElectricityPriceBulkRepository.class, withSettings().stubOnly());
+        ElectricityPriceService streamingService = new ElectricityPriceService(
+                streamingRepository, ingestedFileRepository, ingestionProperties, ForkJoinPool.commonPool(),
+                ingestionAdmission);
+
+        AtomicLong linesRead = new AtomicLong();
+        AtomicLong rowsWritten = new AtomicLong();
+        AtomicInteger largestChunk = new AtomicInteger();
+        AtomicLong largestReadAhead = new AtomicLong();
+        doAnswer(invocation -> {
+            List<ElectricityPrice> chunk = invocation.getArgument(0);
+            largestChunk.accumulateAndGet(chunk.size(), Math::max);
+            // Lines read but not yet handed to the repository are all the rows the service holds
+            largestReadAhead.accumulateAndGet(linesRead.get() - rowsWritten.addAndGet(chunk.size()), Math::max);
+            return UpsertResult.unchanged(chunk.size());
+        }).when(streamingRepository).upsertAll(anyList());
+
+        UpsertResult result = streamingService.ingestCsv(generatedCsv(rowCount, linesRead));
+
+        assertEquals(rowCount, result.rows());
+        assertEquals(rowCount, rowsWritten.get());
+        // Chunks are cut at the first day boundary once full, and the generated rows are hourly
+        assertTrue(largestChunk.get() < chunkSize + 24);
+        // Each row is written before the file is read much further, instead of materializing the whole file
+        assertTrue(largestReadAhead.get() < chunkSize, "Read " + largestReadAhead.get() + " rows ahead of the writes");
+    }
+
+    private static InputStream generatedCsv(int rowCount, AtomicLong linesRead) {
+        long firstTimestamp = 1704060000L;
+        Enumeration<InputStream> lines = new Enumeration<>() {
+            private int line = -1;
+
+            @Override
+            public boolean hasMoreElements() {
+                return line < rowCount;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                String content = line < 0
+                        ? "Ajatempel (UTC);Kuupäev (Eesti aeg);NPS Läti;NPS Leedu;NPS Soome;NPS Eesti\n"
+                        : (firstTimestamp + 3600L * line) + ";01.01.2024 00:00;40,01;40,01;40,01;" + (line % 100) + ",25\n";
+                if (line >= 0) {
+                    linesRead.incrementAndGet();
+                }
+                line++;
+                return new ByteArrayInputStream(content.getBytes(StandardCharsets.ISO_8859_1));
+            }
+        };
+        return new SequenceInputStream(lines);
+    }
 }
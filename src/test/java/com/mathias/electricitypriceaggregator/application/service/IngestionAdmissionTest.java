@@ -0,0 +1,141 @@
+package com.mathias.electricitypriceaggregator.application.service;
+
+import com.mathias.electricitypriceaggregator.infrastructure.config.IngestionProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestionAdmissionTest {
+
+    private IngestionProperties ingestionProperties;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        ingestionProperties = new IngestionProperties();
+        ingestionProperties.setMaxConcurrentIngests(1);
+        ingestionProperties.setAdmissionQueueCapacity(1);
+        ingestionProperties.setAdmissionTimeout(Duration.ofSeconds(10));
+        ingestionProperties.setRetryAfter(Duration.ofSeconds(15));
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void admit_withFreeSlot_runsIngestion() throws IOException {
+        IngestionAdmission admission = new IngestionAdmission(ingestionProperties, null);
+
+        assertEquals("done", admission.admit(() -> "done"));
+        assertEquals(0, admission.getActiveIngests());
+    }
+
+    @Test
+    void admit_withFullQueue_rejectsAtOnce() throws Exception {
+        IngestionAdmission admission = new IngestionAdmission(ingestionProperties, null);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> running = occupySlot(admission, release);
+        Future<String> waiting = executor.submit(() -> admission.admit(() -> "waited"));
+        awaitWaiting(admission, 1);
+
+        long start = System.nanoTime();
+        IngestionRejectedException exception = assertThrows(IngestionRejectedException.class,
+                () -> admission.admit(() -> "rejected"));
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals("Ingestion queue is full", exception.getMessage());
+        assertEquals(Duration.ofSeconds(15), exception.getRetryAfter());
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        assertEquals("waited", waiting.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void admit_withNoSlotFreedInTime_rejects() throws Exception {
+        ingestionProperties.setAdmissionTimeout(Duration.ofMillis(50));
+        IngestionAdmission admission = new IngestionAdmission(ingestionProperties, null);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> running = occupySlot(admission, release);
+
+        assertThrows(IngestionRejectedException.class, () -> admission.admit(() -> "rejected"));
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        assertEquals("admitted", admission.admit(() -> "admitted"));
+    }
+
+    @Test
+    void admitQueued_withFullQueue_waitsForSlot() throws Exception {
+        ingestionProperties.setAdmissionQueueCapacity(0);
+        IngestionAdmission admission = new IngestionAdmission(ingestionProperties, null);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> running = occupySlot(admission, release);
+        Future<String> queued = executor.submit(() -> admission.admitQueued(() -> "queued"));
+        awaitWaiting(admission, 1);
+
+        assertFalse(queued.isDone());
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void admit_withFailingIngestion_releasesSlot() {
+        IngestionAdmission admission = new IngestionAdmission(ingestionProperties, null);
+
+        assertThrows(IOException.class, () -> admission.admit(() -> {
+            throw new IOException("broken file");
+        }));
+
+        assertEquals(0, admission.getActiveIngests());
+    }
+
+    @Test
+    void constructor_withoutReservedReadConnections_throwsException() {
+        ingestionProperties.setMaxConcurrentIngests(7);
+        ingestionProperties.setReservedReadConnections(4);
+        try (HikariDataSource dataSource = new HikariDataSource()) {
+            dataSource.setMaximumPoolSize(10);
+
+            assertThrows(IllegalStateException.class, () -> new IngestionAdmission(ingestionProperties, dataSource));
+            ingestionProperties.setMaxConcurrentIngests(6);
+            assertDoesNotThrow(() -> new IngestionAdmission(ingestionProperties, dataSource));
+        }
+    }
+
+    private Future<?> occupySlot(IngestionAdmission admission, CountDownLatch release) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        Future<?> running = executor.submit(() -> admission.admitQueued(() -> {
+            started.countDown();
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return running;
+    }
+
+    private static void awaitWaiting(IngestionAdmission admission, int waiting) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (admission.getWaitingIngests() < waiting && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(waiting, admission.getWaitingIngests());
+    }
+}
@@ -0,0 +1,160 @@
+package com.mathias.electricitypriceaggregator.application.service;
+
+import com.mathias.electricitypriceaggregator.domain.model.IngestionJob;
+import com.mathias.electricitypriceaggregator.domain.model.IngestionJobStatus;
+import com.mathias.electricitypriceaggregator.domain.valueobject.UpsertResult;
+import com.mathias.electricitypriceaggregator.infrastructure.config.IngestionProperties;
+import com.mathias.electricitypriceaggregator.infrastructure.csv.CsvCompression;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.InMemoryIngestionJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IngestionJobServiceTest {
+
+    private static final String CSV = """
+            Ajatempel (UTC);NPS Eesti
+            1704060000;40,01
+            """;
+
+    @Mock
+    private ElectricityPriceService electricityPriceService;
+
+    @TempDir
+    private Path spoolDirectory;
+
+    private IngestionProperties ingestionProperties;
+    private InMemoryIngestionJobRepository ingestionJobRepository;
+
+    @BeforeEach
+    void setUp() {
+        ingestionProperties = new IngestionProperties();
+        ingestionProperties.setSpoolDirectory(spoolDirectory);
+        ingestionJobRepository = new InMemoryIngestionJobRepository(ingestionProperties);
+    }
+
+    @Test
+    void submit_withValidFile_completesJobAndReportsProgress() throws IOException {
+        AtomicReference<String> spooledContent = new AtomicReference<>();
+        when(electricityPriceService.ingestCsv(any(InputStreamSource.class), eq("prices.csv"), eq(CsvCompression.NONE),
+                any(IngestionProgress.class)))
+                .thenAnswer(invocation -> {
+                    try (InputStream inputStream = invocation.<InputStreamSource>getArgument(0).getInputStream()) {
+                        spooledContent.set(new String(inputStream.readAllBytes(), StandardCharsets.ISO_8859_1));
+                    }
+                    IngestionProgress progress = invocation.getArgument(3);
+                    progress.rowsParsed(1);
+                    progress.rowsWritten(1);
+                    return new UpsertResult(1, 0, 0);
+                });
+        IngestionJobService service = new IngestionJobService(
+                electricityPriceService, ingestionJobRepository, ingestionProperties, new SyncTaskExecutor());
+
+        IngestionJob job = service.submit(csvFile(), CsvCompression.NONE);
+
+        assertEquals(CSV, spooledContent.get());
+        assertEquals(IngestionJobStatus.COMPLETED, job.getStatus());
+        assertEquals(1, job.getRowsParsed());
+        assertEquals(1, job.getRowsWritten());
+        assertEquals(1, job.getInserted());
+        assertNotNull(job.getStartedAt());
+        assertNotNull(job.getFinishedAt());
+        assertSame(job, service.findJob(job.getId()).orElseThrow());
+        assertSpoolDirectoryIsEmpty();
+    }
+
+    @Test
+    void submit_withCompressedFile_spoolsItCompressed() throws IOException {
+        byte[] compressed = {31, -117, 8, 0};
+        AtomicReference<byte[]> spooledContent = new AtomicReference<>();
+        AtomicReference<String> spoolFileName = new AtomicReference<>();
+        when(electricityPriceService.ingestCsv(any(InputStreamSource.class), eq("prices.csv.gz"), eq(CsvCompression.GZIP),
+                any(IngestionProgress.class)))
+                .thenAnswer(invocation -> {
+                    FileSystemResource spoolFile = invocation.getArgument(0);
+                    spoolFileName.set(spoolFile.getFilename());
+                    spooledContent.set(spoolFile.getContentAsByteArray());
+                    return UpsertResult.EMPTY;
+                });
+        IngestionJobService service = new IngestionJobService(
+                electricityPriceService, ingestionJobRepository, ingestionProperties, new SyncTaskExecutor());
+
+        IngestionJob job = service.submit(new MockMultipartFile("file", "prices.csv.gz", "application/gzip", compressed),
+                CsvCompression.GZIP);
+
+        assertEquals(IngestionJobStatus.COMPLETED, job.getStatus());
+        assertArrayEquals(compressed, spooledContent.get());
+        assertTrue(spoolFileName.get().endsWith(".csv.gz"));
+        assertSpoolDirectoryIsEmpty();
+    }
+
+    @Test
+    void submit_withIngestionFailure_marksJobFailed() throws IOException {
+        when(electricityPriceService.ingestCsv(any(InputStreamSource.class), any(), any(), any(IngestionProgress.class)))
+                .thenThrow(new IllegalArgumentException("CSV file has no header"));
+        IngestionJobService service = new IngestionJobService(
+                electricityPriceService, ingestionJobRepository, ingestionProperties, new SyncTaskExecutor());
+
+        IngestionJob job = service.submit(csvFile(), CsvCompression.NONE);
+
+        assertEquals(IngestionJobStatus.FAILED, job.getStatus());
+        assertEquals("CSV file has no header", job.getError());
+        assertSpoolDirectoryIsEmpty();
+    }
+
+    @Test
+    void submit_withFullQueue_rejectsJobAndDeletesSpooledFile() throws IOException {
+        IngestionJobService service = new IngestionJobService(
+                electricityPriceService, ingestionJobRepository, ingestionProperties,
+                task -> {
+                    throw new TaskRejectedException("queue full");
+                });
+
+        IngestionRejectedException exception = assertThrows(IngestionRejectedException.class,
+                () -> service.submit(csvFile(), CsvCompression.NONE));
+
+        assertEquals(ingestionProperties.getRetryAfter(), exception.getRetryAfter());
+
+        verifyNoInteractions(electricityPriceService);
+        assertSpoolDirectoryIsEmpty();
+    }
+
+    @Test
+    void findJob_withUnknownId_returnsEmpty() {
+        IngestionJobService service = new IngestionJobService(
+                electricityPriceService, ingestionJobRepository, ingestionProperties, new SyncTaskExecutor());
+
+        assertTrue(service.findJob("unknown").isEmpty());
+    }
+
+    private static MockMultipartFile csvFile() {
+        return new MockMultipartFile("file", "prices.csv", "text/csv", CSV.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private void assertSpoolDirectoryIsEmpty() throws IOException {
+        try (var files = Files.list(spoolDirectory)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.mathias.electricitypriceaggregator.application.service;
+
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceEstonia;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceLatvia;
+import com.mathias.electricitypriceaggregator.domain.repository.DataVersionRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.PendingWeatherRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.WeatherDataRepository;
+import com.mathias.electricitypriceaggregator.domain.valueobject.PricesWritten;
+import com.mathias.electricitypriceaggregator.infrastructure.cache.AggregationCache;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.ColumnarPriceStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static java.time.ZoneOffset.UTC;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class PricesWrittenListenerTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 10);
+
+    @Mock
+    private DataVersionRepository dataVersionRepository;
+
+    @Mock
+    private PendingWeatherRepository pendingWeatherRepository;
+
+    @Mock
+    private WeatherDataRepository weatherDataRepository;
+
+    @Mock
+    private ColumnarPriceStore columnarPriceStore;
+
+    @Mock
+    private AggregationCache aggregationCache;
+
+    private PricesWrittenListener listener;
+
+    @BeforeEach
+    void setUp() {
+        listener = new PricesWrittenListener(dataVersionRepository, pendingWeatherRepository, weatherDataRepository,
+                columnarPriceStore, aggregationCache);
+    }
+
+    @Test
+    void onPricesWritten_advancesAndQueuesEveryWrittenDayOnce() {
+        List<ElectricityPrice> prices = List.of(price(new ElectricityPriceEstonia(), DAY, 0),
+                price(new ElectricityPriceLatvia(), DAY, 5), price(new ElectricityPriceEstonia(), DAY.plusDays(1), 23));
+
+        listener.onPricesWritten(new PricesWritten(prices,
+                Map.of("EE", List.of(DAY, DAY.plusDays(1)), "LV", List.of(DAY))));
+
+        verify(dataVersionRepository).advance(List.of(DAY, DAY.plusDays(1)));
+        // The hours of all countries are merged per day
+        verify(pendingWeatherRepository).enqueue(Map.of(DAY, 1 | 1 << 5, DAY.plusDays(1), 1 << 23));
+        verify(weatherDataRepository).updateAverageTemperatures(List.of(DAY, DAY.plusDays(1)));
+    }
+
+    @Test
+    void onPricesWritten_updatesStoreBeforeInvalidatingBlocks() {
+        List<ElectricityPrice> prices = List.of(price(new ElectricityPriceEstonia(), DAY, 0));
+
+        listener.onPricesWritten(new PricesWritten(prices, Map.of("EE", List.of(DAY))));
+
+        InOrder order = inOrder(columnarPriceStore, aggregationCache);
+        order.verify(columnarPriceStore).putPricesAfterCommit(prices);
+        order.verify(aggregationCache).invalidatePricesAfterCommit("EE", List.of(DAY));
+    }
+
+    private static ElectricityPrice price(ElectricityPrice price, LocalDate day, int hour) {
+        price.setRecordedAt(day.atTime(hour, 0).toEpochSecond(UTC));
+        price.setPrice(10.0);
+        return price;
+    }
+}
@@ -0,0 +1,276 @@
+package com.mathias.electricitypriceaggregator.application.service;
+
+import com.mathias.electricitypriceaggregator.domain.model.UploadSession;
+import com.mathias.electricitypriceaggregator.domain.model.UploadSessionStatus;
+import com.mathias.electricitypriceaggregator.domain.repository.UploadSessionRepository;
+import com.mathias.electricitypriceaggregator.domain.valueobject.UpsertResult;
+import com.mathias.electricitypriceaggregator.infrastructure.config.IngestionProperties;
+import com.mathias.electricitypriceaggregator.infrastructure.csv.CsvCompression;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UploadSessionServiceTest {
+
+    private static final byte[] CSV = """
+            Ajatempel (UTC);NPS Eesti
+            1704060000;40,01
+            1704063600;45,50
+            """.getBytes(StandardCharsets.ISO_8859_1);
+
+    @Mock
+    private ElectricityPriceService electricityPriceService;
+
+    @TempDir
+    private Path spoolDirectory;
+
+    private IngestionProperties ingestionProperties;
+    private MapUploadSessionRepository uploadSessionRepository;
+    private UploadSessionService service;
+
+    @BeforeEach
+    void setUp() {
+        ingestionProperties = new IngestionProperties();
+        ingestionProperties.setSpoolDirectory(spoolDirectory);
+        uploadSessionRepository = new MapUploadSessionRepository();
+        service = new UploadSessionService(
+                electricityPriceService, uploadSessionRepository, ingestionProperties, new SyncTaskExecutor());
+    }
+
+    @Test
+    void create_withNegativeSize_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> service.create("prices.csv", CsvCompression.NONE, -1L));
+    }
+
+    @Test
+    void append_withConsecutiveRanges_storesFile() throws IOException {
+        UploadSession session = service.create("prices.csv", CsvCompression.NONE, (long) CSV.length);
+
+        service.append(session.getId(), 0, 10, null, range(0, 10));
+        UploadSession appended = service.append(session.getId(), 10, CSV.length - 10, null, range(10, CSV.length));
+
+        assertEquals(CSV.length, appended.getReceivedBytes());
+        assertTrue(appended.isFullyReceived());
+        assertArrayEquals(CSV, Files.readAllBytes(dataFile(session)));
+    }
+
+    @Test
+    void append_withRangeOverlappingReceivedBytes_writesOnlyNewBytes() throws IOException {
+        UploadSession session = service.create("prices.csv", CsvCompression.NONE, null);
+        service.append(session.getId(), 0, 20, null, range(0, 20));
+
+        // The acknowledgement of the second range was lost and the client sends it again with more bytes
+        service.append(session.getId(), 10, 20, null, range(10, 30));
+        UploadSession appended = service.append(session.getId(), 0, 30, (long) CSV.length, range(0, 30));
+
+        assertEquals(30, appended.getReceivedBytes());
+        assertEquals(CSV.length, appended.getTotalBytes());
+        assertArrayEquals(Arrays.copyOf(CSV, 30), Files.readAllBytes(dataFile(session)));
+    }
+
+    @Test
+    void append_withGap_throwsIllegalStateException() throws IOException {
+        UploadSession session = service.create("prices.csv", CsvCompression.NONE, null);
+        service.append(session.getId(), 0, 10, null, range(0, 10));
+
+        Exception exception = assertThrows(IllegalStateException.class,
+                () -> service.append(session.getId(), 20, 10, null, range(20, 30)));
+
+        assertEquals("Range starts at byte 20 but only 10 bytes were received", exception.getMessage());
+        assertEquals(10, Files.size(dataFile(session)));
+    }
+
+    @Test
+    void append_withShortBody_acknowledgesBytesReceived() throws IOException {
+        UploadSession session = service.create("prices.csv", CsvCompression.NONE, (long) CSV.length);
+
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> service.append(session.getId(), 0, 20, null, range(0, 15)));
+
+        assertEquals("Expected 20 bytes in the range but received 15", exception.getMessage());
+        assertEquals(15, service.findSession(session.getId()).orElseThrow().getReceivedBytes());
+        assertArrayEquals(Arrays.copyOf(CSV, 15), Files.readAllBytes(dataFile(session)));
+    }
+
+    @Test
+    void append_withRangePastFileSize_throwsException() throws IOException {
+        UploadSession session = service.create("prices.csv", CsvCompression.NONE, 10L);
+
+        assertThrows(IllegalArgumentException.class, () -> service.append(session.getId(), 0, 20, null, range(0, 20)));
+        assertThrows(IllegalArgumentException.class, () -> service.append(session.getId(), 0, 5, 20L, range(0, 5)));
+        assertEquals(0, service.findSession(session.getId()).orElseThrow().getReceivedBytes());
+    }
+
+    @Test
+    void append_withUnknownSession_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> service.append("unknown", 0, 1, null, range(0, 1)));
+    }
+
+    @Test
+    void complete_withAllBytes_ingestsFileAndRecordsCheckpoints() throws IOException {
+        AtomicReference<byte[]> ingestedContent = new AtomicReference<>();
+        when(electricityPriceService.ingestCsvFrom(any(InputStreamSource.class), eq(CsvCompression.NONE), eq(0L),
+                any(IngestionProgress.class)))
+                .thenAnswer(invocation -> {
+                    ingestedContent.set(invocation.<FileSystemResource>getArgument(0).getContentAsByteArray());
+                    IngestionProgress progress = invocation.getArgument(3);
+                    progress.checkpoint(43, new UpsertResult(1, 0, 0));
+                    progress.checkpoint(CSV.length, new UpsertResult(0, 1, 0));
+                    return new UpsertResult(1, 1, 0);
+                });
+        UploadSession session = uploadedSession();
+
+        service.complete(session.getId());
+
+        UploadSession completed = service.findSession(session.getId()).orElseThrow();
+        assertArrayEquals(CSV, ingestedContent.get());
+        assertEquals(UploadSessionStatus.COMPLETED, completed.getStatus());
+        assertEquals(CSV.length, completed.getCommittedOffset());
+        assertEquals(2, completed.getRowsWritten());
+        assertEquals(1, completed.getInserted());
+        assertEquals(1, completed.getUpdated());
+        assertFalse(Files.exists(dataFile(session)));
+        assertThrows(IllegalStateException.class, () -> service.complete(session.getId()));
+    }
+
+    @Test
+    void complete_afterFailure_resumesFromCheckpoint() throws IOException {
+        when(electricityPriceService.ingestCsvFrom(any(InputStreamSource.class), eq(CsvCompression.NONE), eq(0L),
+                any(IngestionProgress.class)))
+                .thenAnswer(invocation -> {
+                    invocation.<IngestionProgress>getArgument(3).checkpoint(43, new UpsertResult(1, 0, 0));
+                    throw new IllegalStateException("Connection reset");
+                });
+        when(electricityPriceService.ingestCsvFrom(any(InputStreamSource.class), eq(CsvCompression.NONE), eq(43L),
+                any(IngestionProgress.class)))
+                .thenAnswer(invocation -> {
+                    invocation.<IngestionProgress>getArgument(3).checkpoint(CSV.length, new UpsertResult(1, 0, 0));
+                    return new UpsertResult(1, 0, 0);
+                });
+        UploadSession session = uploadedSession();
+
+        service.complete(session.getId());
+        UploadSession failed = service.findSession(session.getId()).orElseThrow();
+        assertEquals(UploadSessionStatus.FAILED, failed.getStatus());
+        assertEquals("Connection reset", failed.getError());
+        assertEquals(43, failed.getCommittedOffset());
+        assertTrue(Files.exists(dataFile(session)));
+
+        service.complete(session.getId());
+        UploadSession completed = service.findSession(session.getId()).orElseThrow();
+        assertEquals(UploadSessionStatus.COMPLETED, completed.getStatus());
+        assertNull(completed.getError());
+        assertEquals(2, completed.getRowsWritten());
+        assertEquals(2, completed.getInserted());
+    }
+
+    @Test
+    void complete_withMissingBytes_throwsIllegalStateException() throws IOException {
+        UploadSession session = service.create("prices.csv", CsvCompression.NONE, (long) CSV.length);
+        service.append(session.getId(), 0, 10, null, range(0, 10));
+
+        assertThrows(IllegalStateException.class, () -> service.complete(session.getId()));
+        verifyNoInteractions(electricityPriceService);
+    }
+
+    @Test
+    void complete_withoutAnnouncedSize_ingestsBytesReceived() throws IOException {
+        when(electricityPriceService.ingestCsvFrom(any(InputStreamSource.class), any(), anyLong(), any(IngestionProgress.class)))
+                .thenReturn(UpsertResult.EMPTY);
+        UploadSession session = service.create("prices.csv.gz", CsvCompression.GZIP, null);
+        service.append(session.getId(), 0, CSV.length, null, range(0, CSV.length));
+
+        service.complete(session.getId());
+
+        UploadSession completed = service.findSession(session.getId()).orElseThrow();
+        assertEquals(CSV.length, completed.getTotalBytes());
+        assertEquals(UploadSessionStatus.COMPLETED, completed.getStatus());
+        verify(electricityPriceService).ingestCsvFrom(any(InputStreamSource.class), eq(CsvCompression.GZIP), eq(0L),
+                any(IngestionProgress.class));
+        assertThrows(IllegalStateException.class, () -> service.append(session.getId(), 0, 1, null, range(0, 1)));
+    }
+
+    @Test
+    void complete_withFullQueue_marksSessionFailed() throws IOException {
+        service = new UploadSessionService(electricityPriceService, uploadSessionRepository, ingestionProperties,
+                task -> {
+                    throw new TaskRejectedException("queue full");
+                });
+        UploadSession session = uploadedSession();
+
+        assertThrows(IngestionRejectedException.class, () -> service.complete(session.getId()));
+
+        assertEquals(UploadSessionStatus.FAILED, service.findSession(session.getId()).orElseThrow().getStatus());
+        verifyNoInteractions(electricityPriceService);
+    }
+
+    @Test
+    void delete_removesSessionAndFile() throws IOException {
+        UploadSession session = uploadedSession();
+
+        service.delete(session.getId());
+
+        assertTrue(service.findSession(session.getId()).isEmpty());
+        assertFalse(Files.exists(dataFile(session)));
+    }
+
+    private UploadSession uploadedSession() throws IOException {
+        UploadSession session = service.create("prices.csv", CsvCompression.NONE, (long) CSV.length);
+        return service.append(session.getId(), 0, CSV.length, null, range(0, CSV.length));
+    }
+
+    private static InputStream range(int from, int to) {
+        return new ByteArrayInputStream(CSV, from, to - from);
+    }
+
+    private Path dataFile(UploadSession session) {
+        return spoolDirectory.resolve("sessions").resolve(session.getId() + ".part");
+    }
+
+    private static class MapUploadSessionRepository implements UploadSessionRepository {
+
+        private final Map<String, UploadSession> sessions = new HashMap<>();
+
+        @Override
+        public UploadSession save(UploadSession session) {
+            sessions.put(session.getId(), session);
+            return session;
+        }
+
+        @Override
+        public Optional<UploadSession> findById(String id) {
+            return Optional.ofNullable(sessions.get(id));
+        }
+
+        @Override
+        public void deleteById(String id) {
+            sessions.remove(id);
+        }
+    }
+}
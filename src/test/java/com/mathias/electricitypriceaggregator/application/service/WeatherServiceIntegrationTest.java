@@ -1,9 +1,18 @@
 package com.mathias.electricitypriceaggregator.application.service;
 
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceEstonia;
+import com.mathias.electricitypriceaggregator.domain.repository.ElectricityPriceRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.PendingWeatherRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.WeatherDataRepository;
+import com.mathias.electricitypriceaggregator.infrastructure.config.WeatherProperties;
 import com.mathias.electricitypriceaggregator.infrastructure.external.WeatherApiClient;
 import com.mathias.electricitypriceaggregator.infrastructure.persistence.entity.ElectricityPriceEntity;
 import com.mathias.electricitypriceaggregator.infrastructure.persistence.entity.WeatherDataEntity;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.ElectricityPriceBulkRepository;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.JpaElectricityPriceDayDigestRepository;
 import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.JpaElectricityPriceRepository;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.JpaPendingWeatherDateRepository;
 import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.JpaWeatherDataRepository;
 import com.mathias.electricitypriceaggregator.integration.BaseIntegrationTest;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,10 +25,25 @@ import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
@@ -34,6 +58,24 @@ class WeatherServiceIntegrationTest extends BaseIntegrationTest {
     @Autowired
     private JpaElectricityPriceRepository electricityPriceRepository;
 
+    @Autowired
+    private JpaPendingWeatherDateRepository pendingWeatherDateRepository;
+
+    @Autowired
+    private ElectricityPriceBulkRepository bulkRepository;
+
+    @Autowired
+    private JpaElectricityPriceDayDigestRepository dayDigestRepository;
+
+    @Autowired
+    private PendingWeatherRepository pendingWeatherRepository;
+
+    @Autowired
+    private WeatherDataRepository weatherDomainRepository;
+
+    @Autowired
+    private ElectricityPriceRepository electricityPriceDomainRepository;
+
     @SpyBean
     private WeatherApiClient weatherApiClient;
 
@@ -41,6 +83,9 @@ class WeatherServiceIntegrationTest extends BaseIntegrationTest {
     void setUp() {
         weatherDataRepository.deleteAllInBatch();
         electricityPriceRepository.deleteAllInBatch();
+        pendingWeatherDateRepository.deleteAllInBatch();
+        // Prices uploaded again unchanged are not written, nor queued
+        dayDigestRepository.deleteAllInBatch();
     }
 
     @Test
@@ -51,9 +96,11 @@ class WeatherServiceIntegrationTest extends BaseIntegrationTest {
         price.setPrice(100.0);
         price.setCountry("EE");
         electricityPriceRepository.save(price);
+        // Stored without ingestion, like prices stored before the weather queue existed
+        weatherService.enqueueDatesWithoutWeather();
 
-        when(weatherApiClient.fetchDailyAverageTemperature(any(LocalDate.class), anyList()))
-                .thenReturn(20.5);
+        doAnswer(invocation -> temperatures(invocation.getArgument(0), invocation.getArgument(1), 20.5))
+                .when(weatherApiClient).fetchHourlyTemperatures(any(), any(), any());
 
         // Act
         weatherService.syncWeatherData();
@@ -67,8 +114,8 @@ class WeatherServiceIntegrationTest extends BaseIntegrationTest {
     @Test
     void syncWeatherData_withNoAvailablePriceData_doesNotSaveWeatherData() {
         // Arrange
-        when(weatherApiClient.fetchDailyAverageTemperature(any(LocalDate.class), anyList()))
-                .thenReturn(20.5);
+        doAnswer(invocation -> temperatures(invocation.getArgument(0), invocation.getArgument(1), 20.5))
+                .when(weatherApiClient).fetchHourlyTemperatures(any(), any(), any());
 
         // Act
         weatherService.syncWeatherData();
@@ -86,9 +133,11 @@ class WeatherServiceIntegrationTest extends BaseIntegrationTest {
         price.setPrice(100.0);
         price.setCountry("EE");
         electricityPriceRepository.save(price);
+        // Stored without ingestion, like prices stored before the weather queue existed
+        weatherService.enqueueDatesWithoutWeather();
 
-        when(weatherApiClient.fetchDailyAverageTemperature(any(LocalDate.class), anyList()))
-                .thenThrow(new RuntimeException("API Error"));
+        doThrow(new RuntimeException("API Error"))
+                .when(weatherApiClient).fetchHourlyTemperatures(any(), any(), any());
 
         // Act & Assert
         assertDoesNotThrow(() -> weatherService.syncWeatherData());
@@ -110,9 +159,10 @@ class WeatherServiceIntegrationTest extends BaseIntegrationTest {
         price2.setCountry("EE");
 
         electricityPriceRepository.saveAll(Arrays.asList(price1, price2));
+        weatherService.enqueueDatesWithoutWeather();
 
-        when(weatherApiClient.fetchDailyAverageTemperature(any(LocalDate.class), anyList()))
-                .thenReturn(22.5);
+        doAnswer(invocation -> temperatures(invocation.getArgument(0), invocation.getArgument(1), 22.5))
+                .when(weatherApiClient).fetchHourlyTemperatures(any(), any(), any());
 
         // Act
         weatherService.syncWeatherData();
@@ -122,4 +172,114 @@ class WeatherServiceIntegrationTest extends BaseIntegrationTest {
         assertEquals(1, savedData.size());
         assertEquals(22.5, savedData.get(0).getAverageTemperature());
     }
-}
\ No newline at end of file
+
+    @Test
+    void syncWeatherData_withIngestedPrices_savesWeatherDataOnce() {
+        // Arrange
+        LocalDate day = LocalDate.of(2023, 6, 1);
+        ElectricityPrice price = new ElectricityPriceEstonia();
+        price.setRecordedAt(day.atTime(5, 0).toEpochSecond(ZoneOffset.UTC));
+        price.setPrice(80.0);
+        bulkRepository.upsertAll(List.of(price));
+
+        doAnswer(invocation -> temperatures(invocation.getArgument(0), invocation.getArgument(1), 18.0))
+                .when(weatherApiClient).fetchHourlyTemperatures(any(), any(), any());
+
+        // Act
+        weatherService.syncWeatherData();
+        weatherService.syncWeatherData();
+
+        // Assert
+        List<WeatherDataEntity> savedData = weatherDataRepository.findAll();
+        assertEquals(1, savedData.size());
+        assertEquals(day, savedData.get(0).getDate());
+        assertEquals(18.0, savedData.get(0).getAverageTemperature());
+        assertEquals(0, pendingWeatherDateRepository.count());
+        verify(weatherApiClient, times(1)).fetchHourlyTemperatures(eq(day), eq(day), any());
+    }
+
+    @Test
+    void syncWeatherData_onSeveralNodes_fetchesEveryDateOnce() throws Exception {
+        // Arrange
+        LocalDate first = LocalDate.of(2022, 1, 1);
+        SortedMap<LocalDate, Integer> hourMasks = new TreeMap<>();
+        first.datesUntil(first.plusDays(60)).forEach(date -> hourMasks.put(date, 0xFFFFFF));
+        pendingWeatherRepository.enqueue(hourMasks);
+
+        Map<LocalDate, Integer> fetches = new ConcurrentHashMap<>();
+        WeatherApiClient nodeApiClient = mock(WeatherApiClient.class);
+        when(nodeApiClient.fetchHourlyTemperatures(any(), any(), any())).thenAnswer(invocation -> {
+            LocalDate startDate = invocation.getArgument(0);
+            LocalDate endDate = invocation.getArgument(1);
+            startDate.datesUntil(endDate.plusDays(1)).forEach(date -> fetches.merge(date, 1, Integer::sum));
+            Thread.sleep(20);
+            return temperatures(startDate, endDate, 5.0);
+        });
+        WeatherProperties properties = new WeatherProperties();
+        properties.setLeaseDays(5);
+        // Each node has its own scheduler, and they all share one database
+        List<WeatherService> nodes = IntStream.range(0, 4)
+                .mapToObj(node -> new WeatherService(weatherDomainRepository, electricityPriceDomainRepository,
+                        pendingWeatherRepository, nodeApiClient, Runnable::run, properties))
+                .toList();
+        ExecutorService schedulers = Executors.newFixedThreadPool(nodes.size());
+
+        // Act
+        try {
+            for (Future<?> run : schedulers.invokeAll(nodes.stream()
+                    .map(node -> Executors.callable(node::syncWeatherData))
+                    .toList())) {
+                run.get();
+            }
+        } finally {
+            schedulers.shutdown();
+        }
+
+        // Assert
+        assertEquals(hourMasks.keySet(), fetches.keySet());
+        assertTrue(fetches.values().stream().allMatch(count -> count == 1), fetches.toString());
+        assertEquals(60, weatherDataRepository.count());
+        assertEquals(0, pendingWeatherDateRepository.count());
+    }
+
+    @Test
+    void upsertAll_addingHoursToDayWithWeather_recomputesAverageWithoutFetching() {
+        // Arrange
+        LocalDate day = LocalDate.of(2023, 6, 2);
+        float[] hourlyTemperatures = new float[24];
+        for (int hour = 0; hour < 24; hour++) {
+            hourlyTemperatures[hour] = hour + 0.1f;
+        }
+        doReturn(Map.of(day, hourlyTemperatures)).when(weatherApiClient).fetchHourlyTemperatures(eq(day), eq(day), any());
+        bulkRepository.upsertAll(List.of(price(day, 5)));
+        weatherService.syncWeatherData();
+        assertEquals(5.1, weatherDataRepository.findAll().get(0).getAverageTemperature(), 1e-9);
+
+        // Act
+        bulkRepository.upsertAll(List.of(price(day, 7), price(day, 9)));
+
+        // Assert
+        WeatherDataEntity weatherData = weatherDataRepository.findAll().get(0);
+        assertEquals(7.1, weatherData.getAverageTemperature(), 1e-9);
+        assertArrayEquals(hourlyTemperatures, weatherData.getHourlyTemperatures());
+        verify(weatherApiClient, times(1)).fetchHourlyTemperatures(any(), any(), any());
+    }
+
+    private static ElectricityPrice price(LocalDate day, int hour) {
+        ElectricityPrice price = new ElectricityPriceEstonia();
+        price.setRecordedAt(day.atTime(hour, 0).toEpochSecond(ZoneOffset.UTC));
+        price.setPrice(50.0 + hour);
+        return price;
+    }
+
+    /**
+     * The same temperature for every hour of every date of a request
+     */
+    private static Map<LocalDate, float[]> temperatures(LocalDate startDate, LocalDate endDate, double temperature) {
+        return startDate.datesUntil(endDate.plusDays(1)).collect(Collectors.toMap(date -> date, date -> {
+            float[] hourlyTemperatures = new float[24];
+            Arrays.fill(hourlyTemperatures, (float) temperature);
+            return hourlyTemperatures;
+        }));
+    }
+}
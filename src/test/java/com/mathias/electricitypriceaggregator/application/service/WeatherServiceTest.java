@@ -1,25 +1,53 @@
 package com.mathias.electricitypriceaggregator.application.service;
 
 import com.mathias.electricitypriceaggregator.domain.repository.ElectricityPriceRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.PendingWeatherRepository;
+import com.mathias.electricitypriceaggregator.domain.model.WeatherData;
 import com.mathias.electricitypriceaggregator.domain.repository.WeatherDataRepository;
+import com.mathias.electricitypriceaggregator.infrastructure.config.WeatherProperties;
+import com.mathias.electricitypriceaggregator.infrastructure.external.RequestQuotaExceededException;
 import com.mathias.electricitypriceaggregator.infrastructure.external.WeatherApiClient;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class WeatherServiceTest {
 
-    @InjectMocks
+    private static final int STUB_LATENCY_MILLIS = 200;
+
     private WeatherService weatherService;
 
     @Mock
@@ -28,62 +56,81 @@ class WeatherServiceTest {
     @Mock
     private ElectricityPriceRepository electricityPriceRepository;
 
+    @Mock
+    private PendingWeatherRepository pendingWeatherRepository;
+
     @Mock
     private WeatherApiClient weatherApiClient;
 
+    @BeforeEach
+    void setUp() {
+        // Dates are processed on the calling thread
+        weatherService = new WeatherService(weatherDataRepository, electricityPriceRepository, pendingWeatherRepository, weatherApiClient,
+                Runnable::run, new WeatherProperties());
+    }
 
     @Test
     public void syncWeatherData_handlesNoDates() {
-        when(electricityPriceRepository.findPricesDateWithoutWeather()).thenReturn(Collections.emptyList());
+        when(pendingWeatherRepository.lease(anyInt(), any())).thenReturn(new TreeMap<>());
 
         assertDoesNotThrow(() -> weatherService.syncWeatherData());
-        verify(electricityPriceRepository).findPricesDateWithoutWeather();
-        verifyNoMoreInteractions(electricityPriceRepository, weatherApiClient, weatherDataRepository);
+        verify(pendingWeatherRepository).lease(anyInt(), any());
+        verifyNoMoreInteractions(pendingWeatherRepository, weatherApiClient, weatherDataRepository);
+        verifyNoInteractions(electricityPriceRepository);
     }
 
     @Test
     public void syncWeatherData_withDatesAndValidHourIndices() {
         var date = LocalDate.now();
-        List<Integer> recordedHours = List.of(1, 2, 3);
-        when(electricityPriceRepository.findPricesDateWithoutWeather()).thenReturn(List.of(date));
-        when(electricityPriceRepository.findRecordedHoursByDate(date)).thenReturn(recordedHours);
-        when(weatherApiClient.fetchDailyAverageTemperature(eq(date), eq(recordedHours))).thenReturn(10.0);
+        int recordedHours = hourMask(1, 2, 3);
+        when(pendingWeatherRepository.lease(anyInt(), any()))
+                .thenReturn(new TreeMap<>(Map.of(date, recordedHours)));
+        float[] hourlyTemperatures = new float[24];
+        for (int hour = 0; hour < 24; hour++) {
+            hourlyTemperatures[hour] = hour + 0.5f;
+        }
+        when(weatherApiClient.fetchHourlyTemperatures(eq(date), eq(date), any())).thenReturn(Map.of(date, hourlyTemperatures));
 
         weatherService.syncWeatherData();
 
-        verify(electricityPriceRepository).findRecordedHoursByDate(date);
-        verify(weatherApiClient).fetchDailyAverageTemperature(eq(date), eq(recordedHours));
-        verify(weatherDataRepository).save(any());
+        verify(pendingWeatherRepository).lease(anyInt(), any());
+        verifyNoMoreInteractions(pendingWeatherRepository);
+        verify(weatherApiClient).fetchHourlyTemperatures(eq(date), eq(date), any());
+        ArgumentCaptor<WeatherData> saved = ArgumentCaptor.forClass(WeatherData.class);
+        verify(weatherDataRepository).save(saved.capture(), eq(recordedHours));
+        // Averaged over the recorded hours, and every hour is stored
+        assertEquals(2.5, saved.getValue().getAverageTemperature());
+        assertArrayEquals(hourlyTemperatures, saved.getValue().getHourlyTemperatures());
     }
 
     @Test
     public void syncWeatherData_withEmptyHourIndices() {
         var date = LocalDate.now();
-        List<Integer> recordedHours = Collections.emptyList();
-        when(electricityPriceRepository.findPricesDateWithoutWeather()).thenReturn(List.of(date));
-        when(electricityPriceRepository.findRecordedHoursByDate(date)).thenReturn(recordedHours);
-        when(weatherApiClient.fetchDailyAverageTemperature(eq(date), eq(recordedHours))).thenReturn(null);
+        int recordedHours = 0;
+        when(pendingWeatherRepository.lease(anyInt(), any()))
+                .thenReturn(new TreeMap<>(Map.of(date, recordedHours)));
 
         weatherService.syncWeatherData();
 
-        verify(electricityPriceRepository).findRecordedHoursByDate(date);
-        verify(weatherApiClient).fetchDailyAverageTemperature(eq(date), eq(recordedHours));
-        verifyNoInteractions(weatherDataRepository);
+        verify(pendingWeatherRepository).lease(anyInt(), any());
+        verifyNoMoreInteractions(pendingWeatherRepository);
+        verifyNoInteractions(weatherApiClient, weatherDataRepository);
     }
 
     @Test
     public void syncWeatherData_apiClientThrows() {
         var date = LocalDate.now();
-        List<Integer> recordedHours = List.of(1, 2, 3);
+        int recordedHours = hourMask(1, 2, 3);
 
-        when(electricityPriceRepository.findPricesDateWithoutWeather()).thenReturn(List.of(date));
-        when(electricityPriceRepository.findRecordedHoursByDate(date)).thenReturn(recordedHours);
-        when(weatherApiClient.fetchDailyAverageTemperature(eq(date), eq(recordedHours)))
+        when(pendingWeatherRepository.lease(anyInt(), any()))
+                .thenReturn(new TreeMap<>(Map.of(date, recordedHours)));
+        when(weatherApiClient.fetchHourlyTemperatures(eq(date), eq(date), any()))
                 .thenThrow(new RuntimeException("API error"));
 
         weatherService.syncWeatherData();
 
-        verify(electricityPriceRepository).findRecordedHoursByDate(date);
+        verify(pendingWeatherRepository).lease(anyInt(), any());
+        verifyNoMoreInteractions(pendingWeatherRepository);
         verifyNoInteractions(weatherDataRepository);
     }
 
@@ -91,81 +138,332 @@ class WeatherServiceTest {
     public void syncWeatherData_withMultipleDates() {
         var date1 = LocalDate.now();
         var date2 = LocalDate.now().minusDays(1);
-        List<Integer> recordedHours1 = List.of(1, 2, 3);
-        List<Integer> recordedHours2 = List.of(4, 5, 6);
+        int recordedHours1 = hourMask(1, 2, 3);
+        int recordedHours2 = hourMask(4, 5, 6);
 
-        when(electricityPriceRepository.findPricesDateWithoutWeather()).thenReturn(List.of(date1, date2));
-        when(electricityPriceRepository.findRecordedHoursByDate(date1)).thenReturn(recordedHours1);
-        when(electricityPriceRepository.findRecordedHoursByDate(date2)).thenReturn(recordedHours2);
-        when(weatherApiClient.fetchDailyAverageTemperature(eq(date1), eq(recordedHours1))).thenReturn(10.0);
-        when(weatherApiClient.fetchDailyAverageTemperature(eq(date2), eq(recordedHours2))).thenReturn(12.0);
+        when(pendingWeatherRepository.lease(anyInt(), any()))
+                .thenReturn(new TreeMap<>(Map.of(date1, recordedHours1, date2, recordedHours2)));
+        // Consecutive dates are fetched in one request
+        when(weatherApiClient.fetchHourlyTemperatures(eq(date2), eq(date1), any()))
+                .thenReturn(Map.of(date1, hours(10.0), date2, hours(12.0)));
 
         weatherService.syncWeatherData();
 
-        verify(electricityPriceRepository).findRecordedHoursByDate(date1);
-        verify(electricityPriceRepository).findRecordedHoursByDate(date2);
-        verify(weatherApiClient).fetchDailyAverageTemperature(eq(date1), eq(recordedHours1));
-        verify(weatherApiClient).fetchDailyAverageTemperature(eq(date2), eq(recordedHours2));
-        verify(weatherDataRepository, times(2)).save(any());
+        verify(pendingWeatherRepository).lease(anyInt(), any());
+        verifyNoMoreInteractions(pendingWeatherRepository);
+        verify(weatherApiClient).fetchHourlyTemperatures(eq(date2), eq(date1), any());
+        verifyNoMoreInteractions(weatherApiClient);
+        verify(weatherDataRepository, times(2)).save(any(), anyInt());
     }
 
     @Test
     public void syncWeatherData_apiReturnsNoTemperatureData() {
         var date = LocalDate.now();
-        List<Integer> recordedHours = List.of(1, 2, 3);
-        when(electricityPriceRepository.findPricesDateWithoutWeather()).thenReturn(List.of(date));
-        when(electricityPriceRepository.findRecordedHoursByDate(date)).thenReturn(recordedHours);
-        when(weatherApiClient.fetchDailyAverageTemperature(eq(date), eq(recordedHours))).thenReturn(null);
+        int recordedHours = hourMask(1, 2, 3);
+        when(pendingWeatherRepository.lease(anyInt(), any()))
+                .thenReturn(new TreeMap<>(Map.of(date, recordedHours)));
+        when(weatherApiClient.fetchHourlyTemperatures(eq(date), eq(date), any())).thenReturn(Map.of());
 
         weatherService.syncWeatherData();
 
-        verify(electricityPriceRepository).findRecordedHoursByDate(date);
-        verify(weatherApiClient).fetchDailyAverageTemperature(eq(date), eq(recordedHours));
+        verify(pendingWeatherRepository).lease(anyInt(), any());
+        verifyNoMoreInteractions(pendingWeatherRepository);
+        verify(weatherApiClient).fetchHourlyTemperatures(eq(date), eq(date), any());
         verifyNoInteractions(weatherDataRepository);
     }
 
     @Test
     public void syncWeatherData_withMixedResults() {
+        // Not consecutive, so each date is fetched in a request of its own
         var date1 = LocalDate.of(2025, 9, 21);
-        var date2 = LocalDate.of(2025, 9, 20);
-        List<Integer> recordedHours1 = List.of(1, 2, 3);
-        List<Integer> recordedHours2 = List.of(4, 5, 6);
-
-        when(electricityPriceRepository.findPricesDateWithoutWeather()).thenReturn(List.of(date1, date2));
-        when(electricityPriceRepository.findRecordedHoursByDate(date1)).thenReturn(recordedHours1);
-        when(electricityPriceRepository.findRecordedHoursByDate(date2)).thenReturn(recordedHours2);
-        when(weatherApiClient.fetchDailyAverageTemperature(eq(date1), eq(recordedHours1))).thenReturn(10.0);
-        when(weatherApiClient.fetchDailyAverageTemperature(eq(date2), eq(recordedHours2)))
+        var date2 = LocalDate.of(2025, 9, 19);
+        int recordedHours1 = hourMask(1, 2, 3);
+        int recordedHours2 = hourMask(4, 5, 6);
+
+        when(pendingWeatherRepository.lease(anyInt(), any()))
+                .thenReturn(new TreeMap<>(Map.of(date1, recordedHours1, date2, recordedHours2)));
+        when(weatherApiClient.fetchHourlyTemperatures(eq(date1), eq(date1), any()))
+                .thenReturn(Map.of(date1, hours(10.0)));
+        when(weatherApiClient.fetchHourlyTemperatures(eq(date2), eq(date2), any()))
                 .thenThrow(new RuntimeException("API error for second date"));
 
         weatherService.syncWeatherData();
 
-        verify(electricityPriceRepository).findRecordedHoursByDate(date1);
-        verify(electricityPriceRepository).findRecordedHoursByDate(date2);
-        verify(weatherApiClient).fetchDailyAverageTemperature(eq(date1), eq(recordedHours1));
-        verify(weatherApiClient).fetchDailyAverageTemperature(eq(date2), eq(recordedHours2));
-        verify(weatherDataRepository).save(any());
+        verify(pendingWeatherRepository).lease(anyInt(), any());
+        verifyNoMoreInteractions(pendingWeatherRepository);
+        verify(weatherApiClient).fetchHourlyTemperatures(eq(date1), eq(date1), any());
+        verify(weatherApiClient).fetchHourlyTemperatures(eq(date2), eq(date2), any());
+        verify(weatherDataRepository).save(any(), anyInt());
     }
 
     @Test
     public void syncWeatherData_withMixedNullResults() {
         var date1 = LocalDate.of(2025, 9, 21);
         var date2 = LocalDate.of(2025, 9, 20);
-        List<Integer> recordedHours1 = List.of(1, 2, 3);
-        List<Integer> recordedHours2 = List.of(4, 5, 6);
+        int recordedHours1 = hourMask(1, 2, 3);
+        int recordedHours2 = hourMask(4, 5, 6);
 
-        when(electricityPriceRepository.findPricesDateWithoutWeather()).thenReturn(List.of(date1, date2));
-        when(electricityPriceRepository.findRecordedHoursByDate(date1)).thenReturn(recordedHours1);
-        when(electricityPriceRepository.findRecordedHoursByDate(date2)).thenReturn(recordedHours2);
-        when(weatherApiClient.fetchDailyAverageTemperature(eq(date1), eq(recordedHours1))).thenReturn(10.0);
-        when(weatherApiClient.fetchDailyAverageTemperature(eq(date2), eq(recordedHours2))).thenReturn(null);
+        when(pendingWeatherRepository.lease(anyInt(), any()))
+                .thenReturn(new TreeMap<>(Map.of(date1, recordedHours1, date2, recordedHours2)));
+        when(weatherApiClient.fetchHourlyTemperatures(eq(date2), eq(date1), any()))
+                .thenReturn(Map.of(date1, hours(10.0)));
 
         weatherService.syncWeatherData();
 
-        verify(electricityPriceRepository).findRecordedHoursByDate(date1);
-        verify(electricityPriceRepository).findRecordedHoursByDate(date2);
-        verify(weatherApiClient).fetchDailyAverageTemperature(eq(date1), eq(recordedHours1));
-        verify(weatherApiClient).fetchDailyAverageTemperature(eq(date2), eq(recordedHours2));
-        verify(weatherDataRepository).save(any());
+        verify(pendingWeatherRepository).lease(anyInt(), any());
+        verifyNoMoreInteractions(pendingWeatherRepository);
+        verify(weatherApiClient).fetchHourlyTemperatures(eq(date2), eq(date1), any());
+        verify(weatherDataRepository).save(any(), anyInt());
+    }
+
+    @Test
+    public void syncWeatherData_splitsRunsAtGapsAndMaxDaysPerRequest() {
+        WeatherProperties properties = new WeatherProperties();
+        properties.setMaxDaysPerRequest(3);
+        WeatherService service = new WeatherService(weatherDataRepository, electricityPriceRepository, pendingWeatherRepository, weatherApiClient,
+                Runnable::run, properties);
+        LocalDate first = LocalDate.of(2024, 1, 1);
+        // Five consecutive days, a gap, then one more
+        List<LocalDate> dates = List.of(first.plusDays(6), first.plusDays(4), first, first.plusDays(1),
+                first.plusDays(2), first.plusDays(3));
+        when(pendingWeatherRepository.lease(anyInt(), any())).thenReturn(hourMasks(dates, date -> hourMask(0)));
+        when(weatherApiClient.fetchHourlyTemperatures(any(), any(), any())).thenReturn(Map.of());
+
+        service.syncWeatherData();
+
+        verify(weatherApiClient).fetchHourlyTemperatures(eq(first), eq(first.plusDays(2)), any());
+        verify(weatherApiClient).fetchHourlyTemperatures(eq(first.plusDays(3)), eq(first.plusDays(4)), any());
+        verify(weatherApiClient).fetchHourlyTemperatures(eq(first.plusDays(6)), eq(first.plusDays(6)), any());
+        verifyNoMoreInteractions(weatherApiClient);
+    }
+
+    @Test
+    public void syncWeatherData_leasesAgainWhileLeasesAreFull() {
+        WeatherProperties properties = new WeatherProperties();
+        properties.setLeaseDays(2);
+        WeatherService service = new WeatherService(weatherDataRepository, electricityPriceRepository,
+                pendingWeatherRepository, weatherApiClient, Runnable::run, properties);
+        LocalDate first = LocalDate.of(2024, 1, 1);
+        when(pendingWeatherRepository.lease(2, properties.getLeaseDuration())).thenReturn(
+                hourMasks(List.of(first, first.plusDays(1)), date -> hourMask(0)),
+                hourMasks(List.of(first.plusDays(2)), date -> hourMask(0)));
+        when(weatherApiClient.fetchHourlyTemperatures(any(), any(), any()))
+                .thenAnswer(invocation -> Map.of(invocation.getArgument(0), hours(1.0)));
+
+        service.syncWeatherData();
+
+        verify(pendingWeatherRepository, times(2)).lease(2, properties.getLeaseDuration());
+        verify(weatherApiClient).fetchHourlyTemperatures(eq(first), eq(first.plusDays(1)), any());
+        verify(weatherApiClient).fetchHourlyTemperatures(eq(first.plusDays(2)), eq(first.plusDays(2)), any());
+        verify(weatherDataRepository, times(2)).save(any(), anyInt());
+    }
+
+    @Test
+    public void syncWeatherData_whenQuotaIsExceeded_releasesDatesAndStopsLeasing() {
+        WeatherProperties properties = new WeatherProperties();
+        properties.setLeaseDays(3);
+        WeatherService service = new WeatherService(weatherDataRepository, electricityPriceRepository,
+                pendingWeatherRepository, weatherApiClient, Runnable::run, properties);
+        LocalDate first = LocalDate.of(2024, 1, 1);
+        // Two requests, the second not sent once the first found no room
+        when(pendingWeatherRepository.lease(3, properties.getLeaseDuration())).thenReturn(
+                hourMasks(List.of(first, first.plusDays(2), first.plusDays(3)), date -> hourMask(0)));
+        when(weatherApiClient.fetchHourlyTemperatures(any(), any(), any()))
+                .thenThrow(new RequestQuotaExceededException("No room"));
+
+        service.syncWeatherData();
+
+        verify(pendingWeatherRepository).lease(3, properties.getLeaseDuration());
+        verify(pendingWeatherRepository).release(Set.of(first));
+        verify(pendingWeatherRepository).release(Set.of(first.plusDays(2), first.plusDays(3)));
+        verify(weatherApiClient).fetchHourlyTemperatures(eq(first), eq(first), argThat(maxWait ->
+                maxWait.compareTo(properties.getLeaseDuration().dividedBy(2)) <= 0));
+        verifyNoMoreInteractions(pendingWeatherRepository, weatherApiClient);
+        verifyNoInteractions(weatherDataRepository);
+    }
+
+    @Test
+    public void enqueueDatesWithoutWeather_enqueuesHourMasksOfStoredPrices() {
+        SortedMap<LocalDate, Integer> hourMasks = hourMasks(List.of(LocalDate.of(2024, 1, 1)), date -> hourMask(3));
+        when(electricityPriceRepository.findRecordedHourMasksWithoutWeather()).thenReturn(hourMasks);
+
+        weatherService.enqueueDatesWithoutWeather();
+
+        verify(pendingWeatherRepository).enqueue(hourMasks);
+        verifyNoInteractions(weatherApiClient, weatherDataRepository);
+    }
+
+    @Test
+    public void syncWeatherData_againstSlowApi_fetchesRequestsConcurrently() throws IOException {
+        // Every other day, so every date is a request of its own
+        List<LocalDate> dates = IntStream.range(0, 8).mapToObj(day -> LocalDate.of(2024, 1, 1).plusDays(2L * day)).toList();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        HttpServer server = stubServer(query -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            sleep(STUB_LATENCY_MILLIS);
+            inFlight.decrementAndGet();
+            return 200;
+        });
+        when(pendingWeatherRepository.lease(anyInt(), any())).thenReturn(hourMasks(dates, date -> hourMask(0, 1)));
+        ThreadPoolTaskExecutor executor = executor(4);
+        try {
+            WeatherProperties properties = stubProperties(server);
+            WeatherService service = new WeatherService(weatherDataRepository, electricityPriceRepository, pendingWeatherRepository,
+                    new WeatherApiClient(new RestTemplate(), properties, (api, permits, limits) -> Duration.ZERO), executor, properties);
+
+            long start = System.nanoTime();
+            service.syncWeatherData();
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            verify(weatherDataRepository, times(dates.size())).save(any(), anyInt());
+            assertEquals(4, maxInFlight.get());
+            // Sequential fetching takes at least the latency of every date
+            assertTrue(elapsedMillis < (long) dates.size() * STUB_LATENCY_MILLIS, "Took " + elapsedMillis + " ms");
+        } finally {
+            executor.shutdown();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void syncWeatherData_againstFailingApi_isolatesFailedRequests() throws IOException {
+        // Two runs of consecutive dates, and the request of the first one fails
+        List<LocalDate> dates = List.of(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 2),
+                LocalDate.of(2024, 1, 4), LocalDate.of(2024, 1, 5), LocalDate.of(2024, 1, 6));
+        HttpServer server = stubServer(query -> query.contains("start_date=2024-01-01") ? 500 : 200);
+        when(pendingWeatherRepository.lease(anyInt(), any())).thenReturn(hourMasks(dates, date -> hourMask(0, 1)));
+        ThreadPoolTaskExecutor executor = executor(3);
+        try {
+            WeatherProperties properties = stubProperties(server);
+            WeatherService service = new WeatherService(weatherDataRepository, electricityPriceRepository, pendingWeatherRepository,
+                    new WeatherApiClient(new RestTemplate(), properties, (api, permits, limits) -> Duration.ZERO), executor, properties);
+
+            service.syncWeatherData();
+
+            ArgumentCaptor<WeatherData> saved = ArgumentCaptor.forClass(WeatherData.class);
+            verify(weatherDataRepository, times(3)).save(saved.capture(), anyInt());
+            assertEquals(List.of(LocalDate.of(2024, 1, 4), LocalDate.of(2024, 1, 5), LocalDate.of(2024, 1, 6)),
+                    saved.getAllValues().stream().map(WeatherData::getDate).sorted().toList());
+            for (WeatherData weatherData : saved.getAllValues()) {
+                assertEquals(stubTemperature(weatherData.getDate(), 0.5), weatherData.getAverageTemperature(), 1e-9);
+            }
+        } finally {
+            executor.shutdown();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void syncWeatherData_backfillingAYear_fetchesMonthlyRanges() throws IOException {
+        LocalDate first = LocalDate.of(2023, 1, 1);
+        List<LocalDate> dates = first.datesUntil(first.plusYears(1)).toList();
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = stubServer(query -> {
+            requests.incrementAndGet();
+            return 200;
+        });
+        // Each date's own recorded hours are applied to its slice of the response
+        when(pendingWeatherRepository.lease(anyInt(), any())).thenReturn(hourMasks(dates,
+                date -> date.getDayOfMonth() % 2 == 0 ? hourMask(23) : hourMask(0, 1, 2)));
+        ThreadPoolTaskExecutor executor = executor(4);
+        try {
+            WeatherProperties properties = stubProperties(server);
+            WeatherService service = new WeatherService(weatherDataRepository, electricityPriceRepository, pendingWeatherRepository,
+                    new WeatherApiClient(new RestTemplate(), properties, (api, permits, limits) -> Duration.ZERO), executor, properties);
+
+            service.syncWeatherData();
+
+            ArgumentCaptor<WeatherData> saved = ArgumentCaptor.forClass(WeatherData.class);
+            verify(weatherDataRepository, times(365)).save(saved.capture(), anyInt());
+            assertEquals(12, requests.get());
+            for (WeatherData weatherData : saved.getAllValues()) {
+                double expected = stubTemperature(weatherData.getDate(), weatherData.getDate().getDayOfMonth() % 2 == 0 ? 23 : 1);
+                assertEquals(expected, weatherData.getAverageTemperature(), 1e-9, weatherData.getDate().toString());
+            }
+        } finally {
+            executor.shutdown();
+            server.stop(0);
+        }
+    }
+
+    private static float[] hours(double temperature) {
+        float[] hourlyTemperatures = new float[24];
+        Arrays.fill(hourlyTemperatures, (float) temperature);
+        return hourlyTemperatures;
+    }
+
+    private static int hourMask(int... hours) {
+        int mask = 0;
+        for (int hour : hours) {
+            mask |= 1 << hour;
+        }
+        return mask;
+    }
+
+    private static SortedMap<LocalDate, Integer> hourMasks(List<LocalDate> dates, Function<LocalDate, Integer> hourMask) {
+        SortedMap<LocalDate, Integer> hourMasks = new TreeMap<>();
+        dates.forEach(date -> hourMasks.put(date, hourMask.apply(date)));
+        return hourMasks;
+    }
+
+    /**
+     * Local stand-in for the Open-Meteo archive API answering every request with the given status, and on success 24
+     * hourly temperatures per requested date, see {@link #stubTemperature}
+     */
+    private static HttpServer stubServer(Function<String, Integer> statusByQuery) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/v1/archive", exchange -> {
+            String query = exchange.getRequestURI().getQuery();
+            int status = statusByQuery.apply(query);
+            byte[] body = (status == 200 ? stubBody(query) : "{}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        return server;
+    }
+
+    private static String stubBody(String query) {
+        Matcher matcher = Pattern.compile("start_date=([0-9-]+)&end_date=([0-9-]+)").matcher(query);
+        assertTrue(matcher.find(), query);
+        LocalDate startDate = LocalDate.parse(matcher.group(1));
+        LocalDate endDate = LocalDate.parse(matcher.group(2));
+        String temperatures = startDate.datesUntil(endDate.plusDays(1))
+                .flatMap(date -> IntStream.range(0, 24).mapToObj(hour -> String.valueOf(stubTemperature(date, hour))))
+                .collect(Collectors.joining(","));
+        return "{\"hourly\":{\"temperature_2m\":[" + temperatures + "]}}";
+    }
+
+    /**
+     * Temperature the stub reports for an hour of a date; for the average of several hours, their mean hour
+     */
+    private static double stubTemperature(LocalDate date, double hour) {
+        return date.getDayOfYear() / 10.0 + hour;
+    }
+
+    private static WeatherProperties stubProperties(HttpServer server) {
+        WeatherProperties properties = new WeatherProperties();
+        properties.setBaseUrl("http://localhost:" + server.getAddress().getPort() + "/v1/archive");
+        return properties;
+    }
+
+    private static ThreadPoolTaskExecutor executor(int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.initialize();
+        return executor;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
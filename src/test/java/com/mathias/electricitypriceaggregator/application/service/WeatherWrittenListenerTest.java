@@ -0,0 +1,91 @@
+package com.mathias.electricitypriceaggregator.application.service;
+
+import com.mathias.electricitypriceaggregator.domain.model.WeatherData;
+import com.mathias.electricitypriceaggregator.domain.repository.DataVersionRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.PendingWeatherRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.WeatherDataRepository;
+import com.mathias.electricitypriceaggregator.domain.valueobject.AverageTemperaturesUpdated;
+import com.mathias.electricitypriceaggregator.domain.valueobject.WeatherSaved;
+import com.mathias.electricitypriceaggregator.infrastructure.cache.AggregationCache;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.ColumnarPriceStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WeatherWrittenListenerTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 10);
+
+    @Mock
+    private DataVersionRepository dataVersionRepository;
+
+    @Mock
+    private PendingWeatherRepository pendingWeatherRepository;
+
+    @Mock
+    private WeatherDataRepository weatherDataRepository;
+
+    @Mock
+    private ColumnarPriceStore columnarPriceStore;
+
+    @Mock
+    private AggregationCache aggregationCache;
+
+    private WeatherWrittenListener listener;
+
+    @BeforeEach
+    void setUp() {
+        listener = new WeatherWrittenListener(dataVersionRepository, pendingWeatherRepository, weatherDataRepository,
+                columnarPriceStore, aggregationCache);
+    }
+
+    @Test
+    void onWeatherSaved_advancesDayAndRemovesItFromQueue() {
+        WeatherData weatherData = new WeatherData(DAY, -1.5);
+        when(pendingWeatherRepository.remove(DAY)).thenReturn(1 | 1 << 5);
+
+        listener.onWeatherSaved(new WeatherSaved(weatherData, 1 | 1 << 5));
+
+        verify(dataVersionRepository).advance(List.of(DAY));
+        verify(columnarPriceStore).putWeatherAfterCommit(weatherData);
+        verify(aggregationCache).invalidateWeatherAfterCommit(DAY);
+        verify(weatherDataRepository, never()).updateAverageTemperatures(List.of(DAY));
+    }
+
+    @Test
+    void onWeatherSaved_withHoursQueuedSinceTheLease_averagesAgainAfterPuttingTheSavedData() {
+        WeatherData weatherData = new WeatherData(DAY, -1.5);
+        when(pendingWeatherRepository.remove(DAY)).thenReturn(1 | 1 << 5);
+
+        listener.onWeatherSaved(new WeatherSaved(weatherData, 1));
+
+        InOrder order = inOrder(columnarPriceStore, weatherDataRepository);
+        order.verify(columnarPriceStore).putWeatherAfterCommit(weatherData);
+        order.verify(weatherDataRepository).updateAverageTemperatures(List.of(DAY));
+    }
+
+    @Test
+    void onAverageTemperaturesUpdated_putsEveryDayAndInvalidatesItsBlocks() {
+        WeatherData first = new WeatherData(DAY, 2.0);
+        WeatherData second = new WeatherData(DAY.plusDays(1), 3.0);
+
+        listener.onAverageTemperaturesUpdated(new AverageTemperaturesUpdated(List.of(first, second)));
+
+        verify(columnarPriceStore).putWeatherAfterCommit(first);
+        verify(columnarPriceStore).putWeatherAfterCommit(second);
+        verify(aggregationCache).invalidateWeatherAfterCommit(DAY);
+        verify(aggregationCache).invalidateWeatherAfterCommit(DAY.plusDays(1));
+    }
+}
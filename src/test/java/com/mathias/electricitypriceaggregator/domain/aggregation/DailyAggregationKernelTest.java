@@ -0,0 +1,61 @@
+package com.mathias.electricitypriceaggregator.domain.aggregation;
+
+import com.mathias.electricitypriceaggregator.domain.valueobject.DailyAggregatedData;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static java.time.ZoneOffset.UTC;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DailyAggregationKernelTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 10);
+
+    @Test
+    void result_averagesPricesPerUtcDayAndAddsTemperatures() {
+        DailyAggregationKernel kernel = new DailyAggregationKernel(DAY, DAY.plusDays(3));
+        kernel.addPrice(epochSecond(DAY, 0), 10.0);
+        kernel.addPrice(epochSecond(DAY, 23), 20.0);
+        kernel.addPrice(epochSecond(DAY.plusDays(1), 0), 40.0);
+        kernel.setTemperature(DAY, -2.34);
+        kernel.setTemperature(DAY.plusDays(3), 1.0);
+
+        assertEquals(List.of(
+                new DailyAggregatedData(DAY, 15.0, -2.3),
+                new DailyAggregatedData(DAY.plusDays(1), 40.0, null),
+                new DailyAggregatedData(DAY.plusDays(3), null, 1.0)), kernel.result());
+    }
+
+    @Test
+    void result_ignoresValuesOutsideTheRange() {
+        DailyAggregationKernel kernel = new DailyAggregationKernel(DAY, DAY);
+        kernel.addPrice(epochSecond(DAY.minusDays(1), 23), 500.0);
+        kernel.addPrice(epochSecond(DAY.plusDays(1), 0), 500.0);
+        kernel.addPrice(epochSecond(DAY, 12), 7.0);
+        kernel.setTemperature(DAY.plusDays(1), 3.0);
+
+        assertEquals(List.of(new DailyAggregatedData(DAY, 7.0, null)), kernel.result());
+    }
+
+    @Test
+    void result_bucketsPricesBeforeTheEpoch() {
+        LocalDate day = LocalDate.of(1969, 12, 31);
+        DailyAggregationKernel kernel = new DailyAggregationKernel(day, day.plusDays(1));
+        kernel.addPrice(-1, 4.0);
+        kernel.addPrice(0, 6.0);
+
+        assertEquals(List.of(new DailyAggregatedData(day, 4.0, null), new DailyAggregatedData(day.plusDays(1), 6.0, null)),
+                kernel.result());
+    }
+
+    @Test
+    void result_withoutData_isEmpty() {
+        assertTrue(new DailyAggregationKernel(DAY, DAY.plusDays(365)).result().isEmpty());
+    }
+
+    private static long epochSecond(LocalDate day, int hour) {
+        return day.atTime(hour, 0).toEpochSecond(UTC);
+    }
+}
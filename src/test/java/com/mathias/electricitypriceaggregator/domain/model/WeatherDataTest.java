@@ -0,0 +1,52 @@
+package com.mathias.electricitypriceaggregator.domain.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeatherDataTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 1, 1);
+
+    @Test
+    void averageOfHours_averagesOnlyTheHoursOfTheMask() {
+        float[] hourlyTemperatures = new float[WeatherData.HOURS_PER_DAY];
+        for (int hour = 0; hour < hourlyTemperatures.length; hour++) {
+            hourlyTemperatures[hour] = hour - 2.3f;
+        }
+
+        WeatherData weatherData = weatherData(hourlyTemperatures);
+
+        assertEquals(-2.3, weatherData.averageOfHours(1));
+        assertEquals(20.7, weatherData.averageOfHours(1 << 23));
+        // The decimals the API reported, without the rounding error of the stored floats
+        assertEquals((-2.3 + -1.3 + 20.7) / 3, weatherData.averageOfHours(1 | 1 << 1 | 1 << 23));
+    }
+
+    @Test
+    void averageOfHours_skipsUnknownHours() {
+        float[] hourlyTemperatures = new float[WeatherData.HOURS_PER_DAY];
+        Arrays.fill(hourlyTemperatures, Float.NaN);
+        hourlyTemperatures[5] = 4.5f;
+
+        WeatherData weatherData = weatherData(hourlyTemperatures);
+
+        assertEquals(4.5, weatherData.averageOfHours(1 << 4 | 1 << 5));
+        assertNull(weatherData.averageOfHours(1 << 4));
+        assertNull(weatherData.averageOfHours(0));
+    }
+
+    @Test
+    void averageOfHours_withoutHourlyTemperatures_isNull() {
+        assertNull(new WeatherData(DAY, 3.0).averageOfHours(0xFFFFFF));
+    }
+
+    private static WeatherData weatherData(float[] hourlyTemperatures) {
+        WeatherData weatherData = new WeatherData(DAY, null);
+        weatherData.setHourlyTemperatures(hourlyTemperatures);
+        return weatherData;
+    }
+}
@@ -0,0 +1,50 @@
+package com.mathias.electricitypriceaggregator.domain.valueobject;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OneDecimalTest {
+
+    @ParameterizedTest
+    @ValueSource(doubles = {0.0, 0.05, 0.15, 0.25, 0.35, 1.05, 2.675, 40.05, 40.04999, -0.04, -0.05, -0.15, -2.34,
+            99.95, 1234.45, 1e9, -1e12, 0.1 + 0.2, 12.349999999999998})
+    void round_matchesBigDecimalHalfUp(double value) {
+        assertEquals(bigDecimal(value), OneDecimal.round(value));
+    }
+
+    @Test
+    void round_matchesBigDecimalHalfUpForRandomAndTieValues() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 1_000_000; i++) {
+            // Averages of prices with two decimals often land on ties
+            double value = i % 2 == 0
+                    ? random.nextDouble(-500, 5_000)
+                    : random.nextInt(-50_000, 500_000) / 100.0 + (random.nextBoolean() ? 0.0 : 0.005);
+            assertEquals(bigDecimal(value), OneDecimal.round(value), () -> "value " + value);
+        }
+    }
+
+    @Test
+    void round_neverReturnsNegativeZero() {
+        assertEquals(0L, Double.doubleToRawLongBits(OneDecimal.round(-0.04)));
+    }
+
+    @Test
+    void round_keepsNullAndAlreadyRoundedInstances() {
+        Double rounded = 40.1;
+
+        assertNull(OneDecimal.round((Double) null));
+        assertSame(rounded, OneDecimal.round(rounded));
+    }
+
+    private static double bigDecimal(double value) {
+        return BigDecimal.valueOf(value).setScale(1, RoundingMode.HALF_UP).doubleValue();
+    }
+}
@@ -0,0 +1,184 @@
+package com.mathias.electricitypriceaggregator.infrastructure.cache;
+
+import com.mathias.electricitypriceaggregator.application.service.AggregationService;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceEstonia;
+import com.mathias.electricitypriceaggregator.domain.model.WeatherData;
+import com.mathias.electricitypriceaggregator.domain.repository.DataVersionRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.WeatherDataRepository;
+import com.mathias.electricitypriceaggregator.domain.valueobject.DailyAggregatedData;
+import com.mathias.electricitypriceaggregator.domain.valueobject.DataVersion;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.ElectricityPriceBulkRepository;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.JpaDailyPriceSummaryRepository;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.JpaDataVersionRepository;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.JpaElectricityPriceDayDigestRepository;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.JpaElectricityPriceRepository;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.repository.JpaWeatherDataRepository;
+import com.mathias.electricitypriceaggregator.integration.BaseIntegrationTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static java.time.ZoneOffset.UTC;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration test for invalidating cached aggregated data when prices are ingested and weather is synchronized, on
+ * this node or another
+ */
+class AggregationCacheIntegrationTest extends BaseIntegrationTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 10);
+
+    @Autowired
+    private AggregationService aggregationService;
+
+    @Autowired
+    private AggregationCache aggregationCache;
+
+    @Autowired
+    private ElectricityPriceBulkRepository bulkRepository;
+
+    @Autowired
+    private WeatherDataRepository weatherDataRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JpaElectricityPriceRepository jpaRepository;
+
+    @Autowired
+    private JpaElectricityPriceDayDigestRepository dayDigestRepository;
+
+    @Autowired
+    private JpaDailyPriceSummaryRepository dailyPriceSummaryRepository;
+
+    @Autowired
+    private JpaWeatherDataRepository jpaWeatherDataRepository;
+
+    @Autowired
+    private JpaDataVersionRepository jpaDataVersionRepository;
+
+    @Autowired
+    private DataVersionRepository dataVersionRepository;
+
+    @BeforeEach
+    void setUp() {
+        deleteAll();
+        // Rows deleted above bypass the repositories, so blocks cached by other tests are stale
+        aggregationCache.invalidateAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteAll();
+        aggregationCache.invalidateAll();
+    }
+
+    @Test
+    void getAggregatedData_afterUpsertInSameMonth_returnsNewAverage() {
+        bulkRepository.upsertAll(List.of(price(DAY, 0, 10.0), price(DAY, 1, 20.0)));
+        assertThat(aggregationService.getAggregatedData(DAY, DAY))
+                .containsExactly(new DailyAggregatedData(DAY, 15.0, null));
+
+        bulkRepository.upsertAll(List.of(price(DAY.plusDays(5), 0, 7.0), price(DAY, 1, 40.0)));
+
+        assertThat(aggregationService.getAggregatedData(DAY, DAY.plusDays(5))).containsExactly(
+                new DailyAggregatedData(DAY, 25.0, null), new DailyAggregatedData(DAY.plusDays(5), 7.0, null));
+    }
+
+    @Test
+    void getAggregatedData_afterWeatherSave_returnsNewTemperature() {
+        bulkRepository.upsertAll(List.of(price(DAY, 0, 10.0)));
+        assertThat(aggregationService.getAggregatedData(DAY, DAY))
+                .containsExactly(new DailyAggregatedData(DAY, 10.0, null));
+
+        // The weather sync saves the temperature of a day with prices but no weather yet
+        weatherDataRepository.save(new WeatherData(DAY, -3.5));
+
+        assertThat(aggregationService.getAggregatedData(DAY, DAY))
+                .containsExactly(new DailyAggregatedData(DAY, 10.0, -3.5));
+    }
+
+    @Test
+    void getAggregatedData_servesUnchangedMonthsFromCache() {
+        bulkRepository.upsertAll(List.of(price(DAY, 0, 10.0), price(DAY.plusMonths(1), 0, 20.0)));
+        aggregationService.getAggregatedData(DAY, DAY.plusMonths(1));
+        // Rows changed behind the repositories' back show which months are read from the cache
+        jdbcTemplate.update("UPDATE daily_price_summary SET price_sum = price_sum * 2");
+        double hitsBefore = hits();
+
+        bulkRepository.upsertAll(List.of(price(DAY.plusMonths(1), 1, 20.0)));
+
+        assertThat(aggregationService.getAggregatedData(DAY, DAY.plusMonths(1))).containsExactly(
+                new DailyAggregatedData(DAY, 10.0, null), new DailyAggregatedData(DAY.plusMonths(1), 20.0, null));
+        assertThat(hits() - hitsBefore).isEqualTo(1.0);
+    }
+
+    @Test
+    void getAggregatedData_afterWriteOfAnotherNode_returnsNewAverageAndVersion() {
+        bulkRepository.upsertAll(List.of(price(DAY, 0, 10.0)));
+        assertThat(aggregationService.getAggregatedData(DAY, DAY))
+                .containsExactly(new DailyAggregatedData(DAY, 10.0, null));
+        DataVersion before = aggregationService.getDataVersion(DAY, DAY);
+
+        // Another node commits a price and its version; this node's cache is not told
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE daily_price_summary SET price_sum = 30");
+            dataVersionRepository.advance(List.of(DAY));
+        });
+
+        assertThat(aggregationService.getAggregatedData(DAY, DAY))
+                .containsExactly(new DailyAggregatedData(DAY, 30.0, null));
+        assertThat(aggregationService.getDataVersion(DAY, DAY).version()).isEqualTo(before.version() + 1);
+    }
+
+    @Test
+    void upsertAll_rolledBack_keepsCachedBlock() {
+        bulkRepository.upsertAll(List.of(price(DAY, 0, 10.0)));
+        aggregationService.getAggregatedData(DAY, DAY);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            bulkRepository.upsertAll(List.of(price(DAY, 0, 99.0)));
+            status.setRollbackOnly();
+        });
+        double hitsBefore = hits();
+
+        assertThat(aggregationService.getAggregatedData(DAY, DAY))
+                .containsExactly(new DailyAggregatedData(DAY, 10.0, null));
+        assertThat(hits() - hitsBefore).isEqualTo(1.0);
+    }
+
+    private double hits() {
+        return meterRegistry.get("cache.gets").tags("cache", "aggregation", "result", "hit").functionCounter().count();
+    }
+
+    private void deleteAll() {
+        jpaRepository.deleteAllInBatch();
+        dayDigestRepository.deleteAllInBatch();
+        dailyPriceSummaryRepository.deleteAllInBatch();
+        jpaWeatherDataRepository.deleteAllInBatch();
+        jpaDataVersionRepository.deleteAllInBatch();
+    }
+
+    private static ElectricityPrice price(LocalDate day, int hour, double value) {
+        ElectricityPrice price = new ElectricityPriceEstonia();
+        price.setRecordedAt(day.atTime(hour, 0).toEpochSecond(UTC));
+        price.setPrice(value);
+        return price;
+    }
+}
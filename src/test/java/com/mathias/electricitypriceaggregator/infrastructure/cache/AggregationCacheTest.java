@@ -0,0 +1,155 @@
+package com.mathias.electricitypriceaggregator.infrastructure.cache;
+
+import com.mathias.electricitypriceaggregator.domain.valueobject.DailyAggregatedData;
+import com.mathias.electricitypriceaggregator.infrastructure.config.AggregationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AggregationCacheTest {
+
+    private static final String COUNTRY = "EE";
+    private static final Map<YearMonth, Long> NO_WRITES = Map.of();
+
+    private SimpleMeterRegistry meterRegistry;
+    private AggregationCache cache;
+    private CountingLoader loader;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new AggregationCache(new AggregationProperties(), meterRegistry);
+        loader = new CountingLoader();
+    }
+
+    @Test
+    void get_returnsEveryDayOfTheRangeOnly() {
+        List<DailyAggregatedData> result =
+                cache.get(COUNTRY, LocalDate.of(2024, 1, 30), LocalDate.of(2024, 2, 2), NO_WRITES, loader);
+
+        assertEquals(List.of(LocalDate.of(2024, 1, 30), LocalDate.of(2024, 1, 31), LocalDate.of(2024, 2, 1),
+                LocalDate.of(2024, 2, 2)), result.stream().map(DailyAggregatedData::date).toList());
+        // Both months are computed in full with one call
+        assertEquals(List.of(List.of(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 29))), loader.calls);
+    }
+
+    @Test
+    void get_overlappingRange_computesOnlyMissingRunsOfMonths() {
+        cache.get(COUNTRY, LocalDate.of(2024, 2, 10), LocalDate.of(2024, 2, 20), NO_WRITES, loader);
+        cache.get(COUNTRY, LocalDate.of(2024, 4, 1), LocalDate.of(2024, 4, 5), NO_WRITES, loader);
+        loader.calls.clear();
+
+        List<DailyAggregatedData> result = cache.get(COUNTRY, LocalDate.of(2024, 1, 15), LocalDate.of(2024, 5, 15), NO_WRITES, loader);
+
+        assertEquals(List.of(
+                List.of(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)),
+                List.of(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31)),
+                List.of(LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 31))), loader.calls);
+        assertEquals(17 + 29 + 31 + 30 + 15, result.size());
+    }
+
+    @Test
+    void invalidatePrices_recomputesOnlyTouchedMonthsOfCountry() {
+        cache.get(COUNTRY, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31), NO_WRITES, loader);
+        cache.get("LV", LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29), NO_WRITES, loader);
+        loader.calls.clear();
+
+        // Outside a transaction the blocks are invalidated at once
+        cache.invalidatePricesAfterCommit(COUNTRY, List.of(LocalDate.of(2024, 2, 3), LocalDate.of(2024, 2, 28)));
+        cache.get(COUNTRY, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31), NO_WRITES, loader);
+        cache.get("LV", LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29), NO_WRITES, loader);
+
+        assertEquals(List.of(List.of(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29))), loader.calls);
+    }
+
+    @Test
+    void invalidateWeather_recomputesMonthOfEveryCountry() {
+        cache.get(COUNTRY, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 29), NO_WRITES, loader);
+        cache.get("LV", LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29), NO_WRITES, loader);
+        loader.calls.clear();
+
+        cache.invalidateWeatherAfterCommit(LocalDate.of(2024, 2, 14));
+        cache.get(COUNTRY, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 29), NO_WRITES, loader);
+        cache.get("LV", LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29), NO_WRITES, loader);
+
+        assertEquals(2, loader.calls.size());
+        assertTrue(loader.calls.stream().allMatch(call -> call.equals(List.of(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29)))));
+    }
+
+    @Test
+    void get_invalidatedWhileComputing_returnsResultWithoutCachingIt() {
+        BiFunction<LocalDate, LocalDate, List<DailyAggregatedData>> racingLoader = (start, end) -> {
+            // A write commits after the loader read its data
+            cache.invalidatePricesAfterCommit(COUNTRY, List.of(start));
+            return loader.apply(start, end);
+        };
+
+        List<DailyAggregatedData> first =
+                cache.get(COUNTRY, LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29), NO_WRITES, racingLoader);
+        cache.get(COUNTRY, LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29), NO_WRITES, loader);
+
+        assertEquals(29, first.size());
+        assertEquals(2, loader.calls.size());
+    }
+
+    @Test
+    void get_afterWriteOfAnotherNode_recomputesOnlyTheMonthsWhoseVersionChanged() {
+        cache.get(COUNTRY, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31),
+                Map.of(YearMonth.of(2024, 1), 3L, YearMonth.of(2024, 2), 5L), loader);
+        loader.calls.clear();
+
+        // February was written elsewhere, so this node was never told to invalidate it
+        List<DailyAggregatedData> result = cache.get(COUNTRY, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31),
+                Map.of(YearMonth.of(2024, 1), 3L, YearMonth.of(2024, 2), 6L), loader);
+
+        assertEquals(91, result.size());
+        assertEquals(List.of(List.of(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29))), loader.calls);
+    }
+
+    @Test
+    void get_recordsHitsAndMissesPerBlock() {
+        cache.get(COUNTRY, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 29), NO_WRITES, loader);
+        cache.get(COUNTRY, LocalDate.of(2024, 2, 1), LocalDate.of(2024, 3, 31), NO_WRITES, loader);
+
+        assertEquals(1.0, meterRegistry.get("cache.gets").tags("cache", "aggregation", "result", "hit")
+                .functionCounter().count());
+        assertEquals(3.0, meterRegistry.get("cache.gets").tags("cache", "aggregation", "result", "miss")
+                .functionCounter().count());
+    }
+
+    @Test
+    void invalidateAll_recomputesEveryBlock() {
+        cache.get(COUNTRY, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 29), NO_WRITES, loader);
+        loader.calls.clear();
+
+        cache.invalidateAll();
+        cache.get(COUNTRY, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 29), NO_WRITES, loader);
+
+        assertEquals(List.of(List.of(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 29))), loader.calls);
+    }
+
+    /**
+     * Returns one row per day of the range and records the ranges it was called with
+     */
+    private static final class CountingLoader implements BiFunction<LocalDate, LocalDate, List<DailyAggregatedData>> {
+
+        private final List<List<LocalDate>> calls = new ArrayList<>();
+
+        @Override
+        public List<DailyAggregatedData> apply(LocalDate startDate, LocalDate endDate) {
+            calls.add(List.of(startDate, endDate));
+            return startDate.datesUntil(endDate.plusDays(1))
+                    .map(day -> new DailyAggregatedData(day, (double) day.getDayOfMonth(), null))
+                    .toList();
+        }
+    }
+}
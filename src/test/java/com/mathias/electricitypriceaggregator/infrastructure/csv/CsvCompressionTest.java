@@ -0,0 +1,104 @@
+package com.mathias.electricitypriceaggregator.infrastructure.csv;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvCompressionTest {
+
+    private static final String CSV = "Ajatempel (UTC);NPS Eesti\n1704060000;40,01\n";
+
+    @ParameterizedTest
+    @CsvSource({
+            "prices.csv, NONE",
+            "PRICES.CSV, NONE",
+            "prices.csv.gz, GZIP",
+            "prices.CSV.GZ, GZIP",
+            "prices.csv.zst, ZSTD"
+    })
+    void forFileName_resolvesCompressionFromExtension(String fileName, CsvCompression expected) {
+        assertEquals(expected, CsvCompression.forFileName(fileName));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"prices.txt", "prices.gz", "prices.zst"})
+    void forFileName_withoutCompressedCsvExtension_returnsNone(String fileName) {
+        assertEquals(CsvCompression.NONE, CsvCompression.forFileName(fileName));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"prices.csv", "prices.CSV.gz", "prices.csv.zst"})
+    void isCsvFileName_withCsvExtension_returnsTrue(String fileName) {
+        assertTrue(CsvCompression.isCsvFileName(fileName));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"prices.txt", "prices.gz", "prices.csv.bz2", "prices.zst", ""})
+    void isCsvFileName_withOtherExtension_returnsFalse(String fileName) {
+        assertFalse(CsvCompression.isCsvFileName(fileName));
+    }
+
+    @Test
+    void isCsvFileName_withNoFileName_returnsFalse() {
+        assertFalse(CsvCompression.isCsvFileName(null));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "gzip, GZIP",
+            "x-gzip, GZIP",
+            "' ZSTD ', ZSTD",
+            "identity, NONE"
+    })
+    void resolve_withContentEncoding_overridesExtension(String contentEncoding, CsvCompression expected) {
+        assertEquals(expected, CsvCompression.resolve("prices.csv", contentEncoding));
+    }
+
+    @Test
+    void resolve_withoutContentEncoding_usesExtension() {
+        assertEquals(CsvCompression.ZSTD, CsvCompression.resolve("prices.csv.zst", null));
+        assertEquals(CsvCompression.GZIP, CsvCompression.resolve("prices.csv.gz", " "));
+    }
+
+    @Test
+    void resolve_withUnsupportedContentEncoding_throwsException() {
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> CsvCompression.resolve("prices.csv", "br"));
+
+        assertEquals("Unsupported Content-Encoding: br", exception.getMessage());
+    }
+
+    @Test
+    void decompress_roundTripsEveryCompression() throws IOException {
+        assertEquals(CSV, decompress(CsvCompression.NONE, CSV.getBytes(StandardCharsets.ISO_8859_1)));
+
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (OutputStream outputStream = new GZIPOutputStream(gzip)) {
+            outputStream.write(CSV.getBytes(StandardCharsets.ISO_8859_1));
+        }
+        assertEquals(CSV, decompress(CsvCompression.GZIP, gzip.toByteArray()));
+
+        ByteArrayOutputStream zstd = new ByteArrayOutputStream();
+        try (OutputStream outputStream = new ZstdOutputStream(zstd)) {
+            outputStream.write(CSV.getBytes(StandardCharsets.ISO_8859_1));
+        }
+        assertEquals(CSV, decompress(CsvCompression.ZSTD, zstd.toByteArray()));
+    }
+
+    private static String decompress(CsvCompression compression, byte[] content) throws IOException {
+        try (InputStream inputStream = compression.decompress(new ByteArrayInputStream(content))) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.mathias.electricitypriceaggregator.infrastructure.csv;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput comparison of the hand-written NPS parser and the OpenCSV bean binding on the bundled 2024 export,
+ * and scaling of the parallel NPS parser with the number of pool threads on a file of a few hundred MB.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class NpsCsvParserBenchmarkTest {
+
+    private static final Path BUNDLED_EXPORT = Path.of("csv", "electricity-nps price_2024.csv");
+    private static final int COPIES = 20;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final int LARGE_FILE_COPIES = 400;
+
+    @Test
+    void npsParser_isFasterThanOpenCsv() throws IOException {
+        byte[] content = repeatedExport();
+
+        double openCsvRowsPerSecond = measure(new OpenCsvElectricityPriceReader(), content);
+        double npsRowsPerSecond = measure(new NpsCsvParser(), content);
+
+        System.out.printf("OpenCSV: %,.0f rows/s, NPS parser: %,.0f rows/s, speed-up: %.1fx%n",
+                openCsvRowsPerSecond, npsRowsPerSecond, npsRowsPerSecond / openCsvRowsPerSecond);
+        assertTrue(npsRowsPerSecond > openCsvRowsPerSecond);
+    }
+
+    @Test
+    void parallelNpsParser_scalesWithPoolThreads(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("prices.csv");
+        byte[] export = Files.readAllBytes(BUNDLED_EXPORT);
+        int headerEnd = indexOfNewline(export) + 1;
+        try (OutputStream outputStream = Files.newOutputStream(file)) {
+            outputStream.write(export, 0, headerEnd);
+            for (int i = 0; i < LARGE_FILE_COPIES; i++) {
+                outputStream.write(export, headerEnd, export.length - headerEnd);
+            }
+        }
+        List<NpsPriceColumn> columns = List.of(NpsPriceColumn.values());
+
+        double baseline = 0;
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                ParallelNpsCsvParser parser = new ParallelNpsCsvParser(columns, pool, 4 * 1024 * 1024);
+                readAll(parser, file);
+                long start = System.nanoTime();
+                long rows = readAll(parser, file);
+                double rowsPerSecond = rows / ((System.nanoTime() - start) / 1e9);
+                baseline = threads == 1 ? rowsPerSecond : baseline;
+                System.out.printf("Parallel NPS parser, %d thread(s), %,d MB: %,.0f rows/s, speed-up: %.1fx%n",
+                        threads, Files.size(file) >> 20, rowsPerSecond, rowsPerSecond / baseline);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static long readAll(ParallelNpsCsvParser parser, Path file) throws IOException {
+        AtomicLong rows = new AtomicLong();
+        parser.read(file, price -> rows.incrementAndGet());
+        assertTrue(rows.get() > 0);
+        return rows.get();
+    }
+
+    private static double measure(ElectricityPriceCsvReader reader, byte[] content) throws IOException {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            readAll(reader, content);
+        }
+        long rows = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            rows += readAll(reader, content);
+        }
+        return rows / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static long readAll(ElectricityPriceCsvReader reader, byte[] content) throws IOException {
+        AtomicLong checksum = new AtomicLong();
+        AtomicLong rows = new AtomicLong();
+        reader.read(new ByteArrayInputStream(content), price -> {
+            checksum.addAndGet(price.getRecordedAt());
+            rows.incrementAndGet();
+        });
+        assertTrue(checksum.get() > 0);
+        return rows.get();
+    }
+
+    /**
+     * The bundled export with its data rows repeated, so each round parses a few MB
+     */
+    private static byte[] repeatedExport() throws IOException {
+        byte[] export = Files.readAllBytes(BUNDLED_EXPORT);
+        int headerEnd = indexOfNewline(export) + 1;
+        ByteArrayOutputStream content = new ByteArrayOutputStream(export.length * COPIES);
+        content.write(export, 0, headerEnd);
+        for (int i = 0; i < COPIES; i++) {
+            content.write(export, headerEnd, export.length - headerEnd);
+        }
+        assertEquals('\n', export[export.length - 1]);
+        return content.toByteArray();
+    }
+
+    private static int indexOfNewline(byte[] content) {
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,275 @@
+package com.mathias.electricitypriceaggregator.infrastructure.csv;
+
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NpsCsvParserTest {
+
+    private static final List<NpsPriceColumn> ALL_COLUMNS = List.of(NpsPriceColumn.values());
+    private static final String HEADER = "\"Ajatempel (UTC)\";\"Kuupäev (Eesti aeg)\";\"NPS Läti\";\"NPS Leedu\";\"NPS Soome\";\"NPS Eesti\"\n";
+
+    @Test
+    void read_withQuotedCells_returnsPrices() throws IOException {
+        List<ElectricityPrice> prices = parse(HEADER + """
+                "1704060000";"01.01.2024 00:00";"40,01";"40,01";"40,01";"40,01"
+                "1704063600";"01.01.2024 01:00";"38,37";"38,37";"38,37";"38,37"
+                """);
+
+        assertEquals(2, prices.size());
+        assertEquals(1704060000L, prices.get(0).getRecordedAt());
+        assertEquals(40.01, prices.get(0).getPrice());
+        assertEquals("EE", prices.get(0).getCountry());
+        assertEquals(1704063600L, prices.get(1).getRecordedAt());
+        assertEquals(38.37, prices.get(1).getPrice());
+    }
+
+    @Test
+    void read_withUnquotedCellsAndCrLf_returnsPrices() throws IOException {
+        List<ElectricityPrice> prices = parse("Ajatempel (UTC);Kuupäev (Eesti aeg);NPS Läti;NPS Leedu;NPS Soome;NPS Eesti\r\n"
+                + "1704060000;01.01.2024 00:00;40,01;40,01;40,01;12,5\r\n");
+
+        assertEquals(1, prices.size());
+        assertEquals(12.5, prices.get(0).getPrice());
+    }
+
+    @Test
+    void read_withReorderedColumns_resolvesColumnsFromHeader() throws IOException {
+        List<ElectricityPrice> prices = parse("NPS Eesti;Ajatempel (UTC)\n7,25;1704060000\n");
+
+        assertEquals(1, prices.size());
+        assertEquals(7.25, prices.get(0).getPrice());
+        assertEquals(1704060000L, prices.get(0).getRecordedAt());
+    }
+
+    @Test
+    void read_withAllCountries_returnsOnePricePerCountryForEveryRow() throws IOException {
+        List<ElectricityPrice> prices = parse(HEADER + """
+                "1704060000";"01.01.2024 00:00";"1,5";"2,5";"3,5";"4,5"
+                "1704063600";"01.01.2024 01:00";"5";"6";"7";"8"
+                """, ALL_COLUMNS);
+
+        assertEquals(8, prices.size());
+        assertEquals(List.of("LV", "LT", "FI", "EE", "LV", "LT", "FI", "EE"),
+                prices.stream().map(ElectricityPrice::getCountry).toList());
+        assertEquals(List.of(1.5, 2.5, 3.5, 4.5, 5.0, 6.0, 7.0, 8.0),
+                prices.stream().map(ElectricityPrice::getPrice).toList());
+        assertEquals(1704060000L, prices.get(3).getRecordedAt());
+        assertEquals(1704063600L, prices.get(4).getRecordedAt());
+    }
+
+    @Test
+    void read_withRequestedColumnMissing_skipsThatCountry() throws IOException {
+        List<ElectricityPrice> prices = parse("Ajatempel (UTC);NPS Eesti;NPS Soome\n1704060000;4,5;3,5\n", ALL_COLUMNS);
+
+        assertEquals(2, prices.size());
+        assertEquals("FI", prices.get(0).getCountry());
+        assertEquals(3.5, prices.get(0).getPrice());
+        assertEquals("EE", prices.get(1).getCountry());
+        assertEquals(4.5, prices.get(1).getPrice());
+    }
+
+    @Test
+    void read_withNoRequestedColumnPresent_throwsException() {
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> parse("Ajatempel (UTC);NPS Eesti\n1704060000;4,5\n", List.of(NpsPriceColumn.LATVIA)));
+
+        assertTrue(exception.getMessage().contains("NPS Läti"));
+    }
+
+    @Test
+    void read_withMissingValueInOtherCountry_throwsException() {
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> parse(HEADER
+                + "\"1704060000\";\"01.01.2024 00:00\";\"40,01\";\"\";\"40,01\";\"40,01\"\n", ALL_COLUMNS));
+
+        assertTrue(exception.getMessage().contains("NPS Leedu"));
+    }
+
+    @Test
+    void read_withBlankLinesAndBlankTimestamps_skipsThem() throws IOException {
+        List<ElectricityPrice> prices = parse(HEADER + """
+
+                "1704060000";"01.01.2024 00:00";"40,01";"40,01";"40,01";"40,01"
+                   
+                "";"";"";"";"";""
+                "1704063600";"01.01.2024 01:00";"38,37";"38,37";"38,37";"38,37"
+                """);
+
+        assertEquals(2, prices.size());
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "40,01|40.01",
+            "40.01|40.01",
+            "-999,99|-999.99",
+            "0|0.0",
+            "40,010|40.01",
+            "99999,99|99999.99",
+            "1.23456E-10|1.23456E-10",
+            "1234567890.123456|1234567890.123456",
+            "12345678901234567890,5|12345678901234567890.5"
+    })
+    void parseDecimal_matchesDoubleParsing(String input, double expected) {
+        byte[] bytes = input.getBytes(StandardCharsets.ISO_8859_1);
+
+        assertEquals(expected, NpsCsvParser.parseDecimal(bytes, 0, bytes.length));
+    }
+
+    @Test
+    void parseDecimal_withRandomValues_matchesDoubleParsing() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            String value = String.format(Locale.ROOT, "%d,%02d", random.nextInt(200_000) - 1000, random.nextInt(100));
+            byte[] bytes = value.getBytes(StandardCharsets.ISO_8859_1);
+
+            assertEquals(Double.parseDouble(value.replace(',', '.')), NpsCsvParser.parseDecimal(bytes, 0, bytes.length), value);
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {"abc", "12,34,56", "12.34,56", "12,34.", "12a34", "-"})
+    void parseDecimal_withInvalidFormat_throwsException(String input) {
+        byte[] bytes = input.getBytes(StandardCharsets.ISO_8859_1);
+
+        Exception exception = assertThrows(RuntimeException.class,
+                () -> NpsCsvParser.parseDecimal(bytes, 0, bytes.length));
+        assertTrue(exception.getMessage().contains("Invalid number format"));
+    }
+
+    @Test
+    void read_withInvalidTimestamp_throwsException() {
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> parse(HEADER
+                + "\"invalid\";\"01.01.2024 00:00\";\"40,01\";\"40,01\";\"40,01\";\"40,01\"\n"));
+
+        assertTrue(exception.getMessage().contains("line 2"));
+    }
+
+    @Test
+    void read_withMissingPriceColumn_throwsException() {
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> parse("Ajatempel (UTC);Kuupäev (Eesti aeg);NPS Läti\n1704060000;01.01.2024 00:00;40,01\n"));
+
+        assertTrue(exception.getMessage().contains("NPS Eesti"));
+    }
+
+    @Test
+    void read_withMissingPriceValue_throwsException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> parse(HEADER + "\"1704060000\";\"01.01.2024 00:00\";\"40,01\";\"40,01\";\"40,01\";\"\"\n"));
+    }
+
+    @Test
+    void read_withShortRow_throwsException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> parse(HEADER + "\"1704060000\";\"01.01.2024 00:00\"\n"));
+    }
+
+    @Test
+    void read_withNoContent_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> parse(""));
+    }
+
+    @Test
+    void read_withRowsSpanningBufferBoundaries_returnsAllPrices() throws IOException {
+        StringBuilder content = new StringBuilder(HEADER);
+        for (int i = 0; i < 20_000; i++) {
+            content.append('"').append(1704060000L + 3600L * i).append("\";\"01.01.2024 00:00\";\"1\";\"1\";\"1\";\"")
+                    .append(i).append(",5\"\n");
+        }
+
+        List<ElectricityPrice> prices = parse(content.toString());
+
+        assertEquals(20_000, prices.size());
+        assertEquals(19_999.5, prices.get(19_999).getPrice());
+    }
+
+    @Test
+    void read_bundledExport_matchesOpenCsvReader() throws IOException {
+        Path file = Path.of("csv", "electricity-nps price_2024.csv");
+        List<ElectricityPrice> expected = new ArrayList<>();
+        List<ElectricityPrice> actual = new ArrayList<>();
+
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            new OpenCsvElectricityPriceReader(ALL_COLUMNS).read(inputStream, expected::add);
+        }
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            new NpsCsvParser(ALL_COLUMNS).read(inputStream, actual::add);
+        }
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getCountry(), actual.get(i).getCountry());
+            assertEquals(expected.get(i).getRecordedAt(), actual.get(i).getRecordedAt());
+            assertEquals(expected.get(i).getPrice(), actual.get(i).getPrice());
+        }
+    }
+
+    @Test
+    void read_withLineEndListener_reportsOffsetAfterEveryLine() throws IOException {
+        String content = "\r\nAjatempel (UTC);NPS Eesti\r\n1704060000;1,5\n\n1704063600;2,5";
+        List<Long> lineEnds = new ArrayList<>();
+        List<ElectricityPrice> prices = new ArrayList<>();
+
+        new NpsCsvParser(List.of(NpsPriceColumn.ESTONIA)).read(
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.ISO_8859_1)), prices::add, lineEnds::add);
+
+        assertEquals(2, prices.size());
+        assertEquals(List.of(2L, 29L, 44L, 45L, (long) content.length()), lineEnds);
+    }
+
+    @Test
+    void read_withLineEndListenerAcrossBufferRefills_reportsOffsetsInStream() throws IOException {
+        StringBuilder content = new StringBuilder(HEADER);
+        List<Long> expected = new ArrayList<>(List.of((long) HEADER.length()));
+        for (int i = 0; i < 50_000; i++) {
+            content.append(1704060000L + 3600L * i).append(";x;1;1;1;").append(i).append('\n');
+            expected.add((long) content.length());
+        }
+        List<Long> lineEnds = new ArrayList<>();
+
+        new NpsCsvParser(ALL_COLUMNS).read(new ByteArrayInputStream(content.toString().getBytes(StandardCharsets.ISO_8859_1)),
+                price -> {
+                }, lineEnds::add);
+
+        assertEquals(expected, lineEnds);
+    }
+
+    @Test
+    void readHeader_returnsBytesUpToEndOfFirstNonBlankLine() throws IOException {
+        byte[] content = (" \r\n" + HEADER + "1704060000;x;1;1;1;1\n").getBytes(StandardCharsets.ISO_8859_1);
+
+        byte[] header = NpsCsvParser.readHeader(new ByteArrayInputStream(content));
+
+        assertEquals(" \r\n" + HEADER, new String(header, StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    void readHeader_withOnlyBlankLines_returnsEmptyArray() throws IOException {
+        assertEquals(0, NpsCsvParser.readHeader(new ByteArrayInputStream("\n\r\n".getBytes(StandardCharsets.ISO_8859_1))).length);
+    }
+
+    private static List<ElectricityPrice> parse(String content) throws IOException {
+        return parse(content, List.of(NpsPriceColumn.ESTONIA));
+    }
+
+    private static List<ElectricityPrice> parse(String content, List<NpsPriceColumn> columns) throws IOException {
+        List<ElectricityPrice> prices = new ArrayList<>();
+        new NpsCsvParser(columns).read(new ByteArrayInputStream(content.getBytes(StandardCharsets.ISO_8859_1)), prices::add);
+        return prices;
+    }
+}
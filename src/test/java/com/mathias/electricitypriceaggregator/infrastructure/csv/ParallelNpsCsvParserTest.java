@@ -0,0 +1,142 @@
+package com.mathias.electricitypriceaggregator.infrastructure.csv;
+
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelNpsCsvParserTest {
+
+    private static final List<NpsPriceColumn> ALL_COLUMNS = List.of(NpsPriceColumn.values());
+    private static final String HEADER = "\"Ajatempel (UTC)\";\"Kuupäev (Eesti aeg)\";\"NPS Läti\";\"NPS Leedu\";\"NPS Soome\";\"NPS Eesti\"\n";
+
+    private static ForkJoinPool pool;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    static void createPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 7, 64, 1024, 1 << 20})
+    void read_withAnySegmentSize_matchesSequentialParser(int segmentSize) throws IOException {
+        StringBuilder content = new StringBuilder("\r\n" + HEADER);
+        for (int i = 0; i < 5_000; i++) {
+            content.append(i % 2 == 0 ? "\"" + (1704060000L + 3600L * i) + "\"" : String.valueOf(1704060000L + 3600L * i))
+                    .append(";\"01.01.2024 00:00\";1,25;")
+                    .append(i).append(";\"").append(i).append(",5\";-").append(i % 100).append(i % 3 == 0 ? "\r\n" : "\n");
+            if (i % 1000 == 0) {
+                content.append("\n;;;;;\n");
+            }
+        }
+        // The last line has no terminating newline
+        content.append("1800000000;x;1;2;3;4");
+
+        assertSamePrices(sequential(content.toString()), parallel(content.toString(), segmentSize));
+    }
+
+    @Test
+    void read_bundledExport_matchesSequentialParser() throws IOException {
+        Path file = Path.of("csv", "electricity-nps price_2024.csv");
+        List<ElectricityPrice> expected = new ArrayList<>();
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            new NpsCsvParser(ALL_COLUMNS).read(inputStream, expected::add);
+        }
+        List<ElectricityPrice> actual = new ArrayList<>();
+        new ParallelNpsCsvParser(ALL_COLUMNS, pool, 4096).read(file, actual::add);
+
+        assertSamePrices(expected, actual);
+    }
+
+    @Test
+    void read_withHeaderOnly_returnsNoPrices() throws IOException {
+        assertTrue(parallel(HEADER, 16).isEmpty());
+    }
+
+    @Test
+    void read_withNoContent_throwsException() {
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> parallel("\n\n", 16));
+
+        assertEquals("CSV file has no header", exception.getMessage());
+    }
+
+    @Test
+    void read_withNoRequestedColumnPresent_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> parallel("Ajatempel (UTC);Muu\n1704060000;1\n", 16));
+    }
+
+    @Test
+    void read_withInvalidRowInLaterSegment_reportsLineNumberInFile() throws IOException {
+        StringBuilder content = new StringBuilder(HEADER);
+        for (int i = 0; i < 1_000; i++) {
+            content.append(1704060000L + 3600L * i).append(";x;1;1;1;").append(i).append('\n');
+        }
+        content.append("invalid;x;1;1;1;1\n");
+        content.append("1900000000;x;1;1;1;1\n");
+
+        List<ElectricityPrice> prices = new ArrayList<>();
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> new ParallelNpsCsvParser(ALL_COLUMNS, pool, 256).read(write(content.toString()), prices::add));
+
+        assertTrue(exception.getMessage().contains("line 1002"), exception.getMessage());
+        // Rows before the invalid one are delivered, as with the sequential parser
+        assertEquals(4_000, prices.size());
+        assertEquals(999.0, prices.get(prices.size() - 1).getPrice());
+    }
+
+    @Test
+    void constructor_withNonPositiveSegmentSize_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> new ParallelNpsCsvParser(ALL_COLUMNS, pool, 0));
+    }
+
+    private List<ElectricityPrice> parallel(String content, int segmentSize) throws IOException {
+        List<ElectricityPrice> prices = new ArrayList<>();
+        new ParallelNpsCsvParser(ALL_COLUMNS, pool, segmentSize).read(write(content), prices::add);
+        return prices;
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = Files.createTempFile(tempDir, "prices", ".csv");
+        Files.write(file, content.getBytes(StandardCharsets.ISO_8859_1));
+        return file;
+    }
+
+    private static List<ElectricityPrice> sequential(String content) throws IOException {
+        List<ElectricityPrice> prices = new ArrayList<>();
+        new NpsCsvParser(ALL_COLUMNS).read(new ByteArrayInputStream(content.getBytes(StandardCharsets.ISO_8859_1)), prices::add);
+        return prices;
+    }
+
+    private static void assertSamePrices(List<ElectricityPrice> expected, List<ElectricityPrice> actual) {
+        assertFalse(expected.isEmpty());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getCountry(), actual.get(i).getCountry());
+            assertEquals(expected.get(i).getRecordedAt(), actual.get(i).getRecordedAt());
+            assertEquals(expected.get(i).getPrice(), actual.get(i).getPrice());
+        }
+    }
+}
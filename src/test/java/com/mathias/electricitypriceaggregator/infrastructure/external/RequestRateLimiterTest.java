@@ -0,0 +1,140 @@
+package com.mathias.electricitypriceaggregator.infrastructure.external;
+
+import com.mathias.electricitypriceaggregator.infrastructure.external.RequestRateLimiter.Limit;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestRateLimiterTest {
+
+    private static final Duration WINDOW = Duration.ofMillis(300);
+
+    @Test
+    void acquire_withinLimit_doesNotWait() throws InterruptedException {
+        RequestRateLimiter limiter = new RequestRateLimiter(List.of(new Limit(5, Duration.ofMinutes(1))));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire(1);
+        }
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofMillis(100)) < 0);
+    }
+
+    @Test
+    void acquire_fromConcurrentThreads_neverExceedsLimitInAnyWindow() throws Exception {
+        RequestRateLimiter limiter = new RequestRateLimiter(List.of(new Limit(4, WINDOW)));
+        List<Long> startTimes = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                futures.add(executor.submit(() -> {
+                    limiter.acquire(1);
+                    startTimes.add(System.nanoTime());
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        List<Long> sorted = startTimes.stream().sorted().toList();
+        // Every fifth request starts at least a window after the first of the four before it
+        for (int i = 4; i < sorted.size(); i++) {
+            assertTrue(sorted.get(i) - sorted.get(i - 4) >= WINDOW.toNanos() - Duration.ofMillis(5).toNanos(),
+                    "Request " + i + " started early");
+        }
+        assertTrue(sorted.get(sorted.size() - 1) - sorted.get(0) >= 2 * WINDOW.toNanos() - Duration.ofMillis(10).toNanos());
+    }
+
+    @Test
+    void acquire_withSeveralWindows_waitsForTheFullestOne() throws InterruptedException {
+        RequestRateLimiter limiter = new RequestRateLimiter(List.of(new Limit(10, WINDOW), new Limit(2, WINDOW)));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(1);
+        }
+
+        assertTrue(System.nanoTime() - start >= WINDOW.toNanos() - Duration.ofMillis(5).toNanos());
+    }
+
+    @Test
+    void acquire_severalPermits_countsEachOfThem() throws InterruptedException {
+        RequestRateLimiter limiter = new RequestRateLimiter(List.of(new Limit(4, WINDOW)));
+
+        long start = System.nanoTime();
+        limiter.acquire(3);
+        limiter.acquire(1);
+        long afterFirstWindow = System.nanoTime();
+        limiter.acquire(2);
+        // Heavier than the whole window: waits until it is empty
+        limiter.acquire(10);
+
+        assertTrue(afterFirstWindow - start < Duration.ofMillis(100).toNanos());
+        assertTrue(System.nanoTime() - start >= 2 * WINDOW.toNanos() - Duration.ofMillis(10).toNanos());
+    }
+
+    @Test
+    void acquire_withoutLimits_neverWaits() {
+        RequestRateLimiter limiter = new RequestRateLimiter(List.of(new Limit(0, Duration.ofDays(1))));
+
+        assertDoesNotThrow(() -> {
+            for (int i = 0; i < 10_000; i++) {
+                limiter.acquire(1);
+            }
+        });
+    }
+
+    @Test
+    void tryAcquire_whenTheWindowFreesTooLate_givesUpWithoutCounting() throws InterruptedException {
+        RequestRateLimiter limiter = new RequestRateLimiter(List.of(new Limit(1, WINDOW)));
+        limiter.acquire(1);
+
+        long start = System.nanoTime();
+        assertFalse(limiter.tryAcquire(1, Duration.ofMillis(50)));
+        assertTrue(System.nanoTime() - start < Duration.ofMillis(50).toNanos());
+        // The window frees within the longer wait, and the request given up on did not take its place
+        assertTrue(limiter.tryAcquire(1, WINDOW.multipliedBy(2)));
+    }
+
+    @Test
+    void tryAcquire_withSharedQuota_waitsForItAndCountsLocallyOnceAdmitted() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+        RequestRateLimiter limiter = new RequestRateLimiter(List.of(new Limit(2, Duration.ofMinutes(1))),
+                permits -> attempts.incrementAndGet() == 1 ? Duration.ofMillis(50) : Duration.ZERO);
+
+        long start = System.nanoTime();
+        assertTrue(limiter.tryAcquire(1, Duration.ofSeconds(1)));
+
+        assertEquals(2, attempts.get());
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(45).toNanos());
+        assertTrue(limiter.tryAcquire(1, Duration.ZERO));
+        // The local window is full, so the shared quota is not asked
+        assertFalse(limiter.tryAcquire(1, Duration.ZERO));
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void tryAcquire_whenSharedQuotaFreesTooLate_givesUpAtOnce() throws InterruptedException {
+        RequestRateLimiter limiter = new RequestRateLimiter(List.of(new Limit(2, Duration.ofMinutes(1))),
+                permits -> Duration.ofHours(1));
+
+        long start = System.nanoTime();
+        assertFalse(limiter.tryAcquire(1, Duration.ofSeconds(1)));
+        assertTrue(System.nanoTime() - start < Duration.ofMillis(500).toNanos());
+    }
+}
@@ -1,5 +1,6 @@
 package com.mathias.electricitypriceaggregator.infrastructure.external;
 
+import com.mathias.electricitypriceaggregator.infrastructure.config.WeatherProperties;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -9,15 +10,20 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 class WeatherApiClientIntegrationTest {
 
@@ -29,7 +35,7 @@ class WeatherApiClientIntegrationTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        weatherApiClient = new WeatherApiClient(restTemplate);
+        weatherApiClient = new WeatherApiClient(restTemplate, new WeatherProperties(), (api, permits, limits) -> Duration.ZERO);
     }
 
     @Test
@@ -56,6 +62,49 @@ class WeatherApiClientIntegrationTest {
         assertEquals(25.5, result, 0.01); // Average of first 12 hours (20.0 to 31.0)
     }
 
+    @Test
+    void fetchHourlyTemperatures_WhenSharedQuotaHasNoRoomInTime_ThrowsWithoutSending() {
+        // Arrange
+        LocalDate date = LocalDate.of(2024, 1, 1);
+        WeatherApiClient client = new WeatherApiClient(restTemplate, new WeatherProperties(),
+                (api, permits, limits) -> Duration.ofHours(1));
+
+        // Act & Assert
+        assertThrows(RequestQuotaExceededException.class,
+                () -> client.fetchHourlyTemperatures(date, date, Duration.ofSeconds(1)));
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    void fetchHourlyTemperatures_WithRange_SplitsHoursPerDateInOneRequest() {
+        // Arrange
+        LocalDate firstDate = LocalDate.of(2024, 1, 1);
+        LocalDate lastDate = LocalDate.of(2024, 1, 3);
+        List<Double> temperatures = new ArrayList<>();
+        for (int hour = 0; hour < 72; hour++) {
+            // Hour 1 of the second date and the whole last date have no temperature
+            temperatures.add(hour == 25 || hour >= 48 ? null : hour + 0.1);
+        }
+        WeatherApiClient.WeatherApiResponse mockResponse = new WeatherApiClient.WeatherApiResponse();
+        WeatherApiClient.HourlyData hourlyData = new WeatherApiClient.HourlyData();
+        hourlyData.setTemperature2m(temperatures);
+        mockResponse.setHourly(hourlyData);
+
+        when(restTemplate.getForObject(contains("start_date=2024-01-01&end_date=2024-01-03"),
+                eq(WeatherApiClient.WeatherApiResponse.class))).thenReturn(mockResponse);
+
+        // Act
+        Map<LocalDate, float[]> result = weatherApiClient.fetchHourlyTemperatures(firstDate, lastDate);
+
+        // Assert
+        assertEquals(Set.of(firstDate, firstDate.plusDays(1)), result.keySet());
+        assertEquals(0.1f, result.get(firstDate)[0]);
+        assertEquals(23.1f, result.get(firstDate)[23]);
+        assertTrue(Float.isNaN(result.get(firstDate.plusDays(1))[1]));
+        assertEquals(26.1f, result.get(firstDate.plusDays(1))[2]);
+        verify(restTemplate, times(1)).getForObject(any(String.class), eq(WeatherApiClient.WeatherApiResponse.class));
+    }
+
     @Test
     void fetchDailyAverageTemperature_WithFutureDate_ReturnsNull() {
         // Arrange
@@ -0,0 +1,73 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
+
+import com.mathias.electricitypriceaggregator.domain.repository.ApiRequestRepository;
+import com.mathias.electricitypriceaggregator.integration.BaseIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration test for counting the requests of all nodes to an API in the shared api_request table
+ */
+class ApiRequestRepositoryImplIntegrationTest extends BaseIntegrationTest {
+
+    private static final Map<Duration, Integer> LIMITS = Map.of(Duration.ofMinutes(1), 3, Duration.ofHours(1), 5);
+
+    @Autowired
+    private ApiRequestRepository apiRequestRepository;
+
+    @Autowired
+    private JpaApiRequestRepository jpaApiRequestRepository;
+
+    @BeforeEach
+    void setUp() {
+        jpaApiRequestRepository.deleteAllInBatch();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jpaApiRequestRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void tryAcquire_countsRequestsUntilAWindowIsFull() {
+        assertThat(apiRequestRepository.tryAcquire("api", 2, LIMITS)).isZero();
+        assertThat(apiRequestRepository.tryAcquire("api", 1, LIMITS)).isZero();
+
+        Duration wait = apiRequestRepository.tryAcquire("api", 1, LIMITS);
+
+        // The minute window is full until the first request leaves it
+        assertThat(wait).isPositive().isLessThanOrEqualTo(Duration.ofMinutes(1));
+        assertThat(jpaApiRequestRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void tryAcquire_waitsForTheFullestWindow() {
+        Map<Duration, Integer> limits = Map.of(Duration.ofMinutes(1), 10, Duration.ofHours(1), 2);
+        apiRequestRepository.tryAcquire("api", 2, limits);
+
+        assertThat(apiRequestRepository.tryAcquire("api", 1, limits)).isGreaterThan(Duration.ofMinutes(59));
+    }
+
+    @Test
+    void tryAcquire_countsEveryApiOnItsOwn() {
+        apiRequestRepository.tryAcquire("api", 3, LIMITS);
+
+        assertThat(apiRequestRepository.tryAcquire("other", 3, LIMITS)).isZero();
+        assertThat(apiRequestRepository.tryAcquire("api", 1, LIMITS)).isPositive();
+    }
+
+    @Test
+    void tryAcquire_withoutLimits_neverWaits() {
+        for (int i = 0; i < 10; i++) {
+            assertThat(apiRequestRepository.tryAcquire("api", 1, Map.of())).isZero();
+        }
+        assertThat(jpaApiRequestRepository.count()).isZero();
+    }
+}
@@ -0,0 +1,310 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
+
+import com.mathias.electricitypriceaggregator.application.service.AggregationService;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceEstonia;
+import com.mathias.electricitypriceaggregator.domain.model.WeatherData;
+import com.mathias.electricitypriceaggregator.domain.repository.DataVersionRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.ElectricityPriceRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.WeatherDataRepository;
+import com.mathias.electricitypriceaggregator.domain.valueobject.AggregatedData;
+import com.mathias.electricitypriceaggregator.domain.valueobject.DailyAggregatedData;
+import com.mathias.electricitypriceaggregator.domain.valueobject.Granularity;
+import com.mathias.electricitypriceaggregator.domain.valueobject.PriceStatistics;
+import com.mathias.electricitypriceaggregator.infrastructure.config.AggregationProperties;
+import com.mathias.electricitypriceaggregator.infrastructure.config.AggregationProperties.Strategy;
+import com.mathias.electricitypriceaggregator.integration.BaseIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.time.ZoneOffset.UTC;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration test for loading the in-memory price store and keeping it current with committed writes
+ */
+class ColumnarPriceStoreIntegrationTest extends BaseIntegrationTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 10);
+
+    @Autowired
+    private ColumnarPriceStore columnarPriceStore;
+
+    @Autowired
+    private ElectricityPriceBulkRepository bulkRepository;
+
+    @Autowired
+    private ElectricityPriceRepository electricityPriceRepository;
+
+    @Autowired
+    private WeatherDataRepository weatherDataRepository;
+
+    @Autowired
+    private DataVersionRepository dataVersionRepository;
+
+    @Autowired
+    private AggregationService aggregationService;
+
+    @Autowired
+    private AggregationProperties aggregationProperties;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JpaElectricityPriceRepository jpaRepository;
+
+    @Autowired
+    private JpaElectricityPriceDayDigestRepository dayDigestRepository;
+
+    @Autowired
+    private JpaDailyPriceSummaryRepository dailyPriceSummaryRepository;
+
+    @Autowired
+    private JpaWeatherDataRepository jpaWeatherDataRepository;
+
+    @Autowired
+    private JpaDataVersionRepository jpaDataVersionRepository;
+
+    @BeforeEach
+    void setUp() {
+        // Strategies are compared on fresh results
+        aggregationProperties.setCacheEnabled(false);
+        deleteAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        columnarPriceStore.unload();
+        aggregationProperties.setStrategy(Strategy.ROLLUP);
+        aggregationProperties.setCacheEnabled(true);
+        deleteAll();
+    }
+
+    @Test
+    void load_readsStoredPricesAndWeather() {
+        bulkRepository.upsertAll(List.of(price(DAY, 0, 10.0), price(DAY, 1, 20.0), price(DAY.plusDays(1), 0, 5.0)));
+        weatherDataRepository.save(new WeatherData(DAY, -1.5));
+
+        columnarPriceStore.load();
+
+        assertThat(columnarPriceStore.findDailyAverages(ElectricityPriceEstonia.COUNTRY, DAY, DAY.plusDays(1)))
+                .containsExactly(new DailyAggregatedData(DAY, 15.0, -1.5), new DailyAggregatedData(DAY.plusDays(1), 5.0, null));
+    }
+
+    @Test
+    void upsertAll_afterLoad_updatesStoreOnCommit() {
+        columnarPriceStore.load();
+        bulkRepository.upsertAll(List.of(price(DAY, 0, 10.0), price(DAY, 1, 20.0)));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            bulkRepository.upsertAll(List.of(price(DAY, 1, 40.0)));
+            // Not visible before the transaction commits
+            assertThat(columnarPriceStore.findPrices(ElectricityPriceEstonia.COUNTRY, DAY, DAY))
+                    .extracting(ElectricityPrice::getPrice).containsExactly(10.0, 20.0);
+        });
+
+        assertThat(electricityPriceRepository.findByDateBetween(ElectricityPriceEstonia.COUNTRY, DAY, DAY))
+                .extracting(ElectricityPrice::getPrice).containsExactly(10.0, 40.0);
+    }
+
+    @Test
+    void upsertAll_rolledBack_leavesStoreUnchanged() {
+        columnarPriceStore.load();
+        bulkRepository.upsertAll(List.of(price(DAY, 0, 10.0)));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            bulkRepository.upsertAll(List.of(price(DAY, 0, 99.0)));
+            status.setRollbackOnly();
+        });
+
+        assertThat(electricityPriceRepository.findByDateBetween(ElectricityPriceEstonia.COUNTRY, DAY, DAY))
+                .extracting(ElectricityPrice::getPrice).containsExactly(10.0);
+    }
+
+    @Test
+    void refresh_reloadsDaysWrittenByAnotherNode() {
+        bulkRepository.upsertAll(List.of(price(DAY, 0, 10.0), price(DAY.plusDays(1), 0, 5.0)));
+        columnarPriceStore.load();
+        // Another node writes a price and a temperature of the first day and advances its version
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE electricity_price SET price = 20 WHERE recorded_at = to_timestamp(?)",
+                    DAY.atStartOfDay().toEpochSecond(UTC));
+            jdbcTemplate.update("INSERT INTO weather_data (date, average_temperature) VALUES (?, 2.5)", DAY);
+            dataVersionRepository.advance(List.of(DAY));
+        });
+        // A change without a new version shows that unchanged days are not reloaded
+        jdbcTemplate.update("UPDATE electricity_price SET price = 99 WHERE recorded_at = to_timestamp(?)",
+                DAY.plusDays(1).atStartOfDay().toEpochSecond(UTC));
+
+        assertThat(columnarPriceStore.findDataVersion(DAY, DAY).version()).isEqualTo(1);
+        assertThat(columnarPriceStore.refresh()).isEqualTo(1);
+
+        assertThat(columnarPriceStore.findDailyAverages(ElectricityPriceEstonia.COUNTRY, DAY, DAY.plusDays(1)))
+                .containsExactly(new DailyAggregatedData(DAY, 20.0, 2.5), new DailyAggregatedData(DAY.plusDays(1), 5.0, null));
+        assertThat(columnarPriceStore.findDataVersion(DAY, DAY.plusDays(1)))
+                .isEqualTo(dataVersionRepository.findDataVersion(DAY, DAY.plusDays(1)));
+        assertThat(columnarPriceStore.findMonthVersions(YearMonth.from(DAY), YearMonth.from(DAY)))
+                .isEqualTo(dataVersionRepository.findMonthVersions(YearMonth.from(DAY), YearMonth.from(DAY)));
+        assertThat(columnarPriceStore.refresh()).isZero();
+    }
+
+    @Test
+    void findByDateBetween_afterLoad_readsFromStoreInsteadOfDatabase() {
+        bulkRepository.upsertAll(List.of(price(DAY, 0, 10.0)));
+        weatherDataRepository.save(new WeatherData(DAY, 3.0));
+        columnarPriceStore.load();
+        // Rows changed behind the repositories' back show where they read from
+        jdbcTemplate.update("UPDATE electricity_price SET price = 99");
+        jdbcTemplate.update("UPDATE weather_data SET average_temperature = 99");
+
+        assertThat(electricityPriceRepository.findByDateBetween(ElectricityPriceEstonia.COUNTRY, DAY, DAY))
+                .extracting(ElectricityPrice::getPrice).containsExactly(10.0);
+        assertThat(weatherDataRepository.findByDateBetween(DAY, DAY))
+                .extracting(WeatherData::getAverageTemperature).containsExactly(3.0);
+
+        columnarPriceStore.unload();
+
+        assertThat(electricityPriceRepository.findByDateBetween(ElectricityPriceEstonia.COUNTRY, DAY, DAY))
+                .extracting(ElectricityPrice::getPrice).containsExactly(99.0);
+    }
+
+    @Test
+    void getAggregatedData_memoryStrategyMatchesJvmStrategy() {
+        LocalDate firstDay = LocalDate.of(2023, 12, 1);
+        storeSampleData(firstDay);
+        LocalDate startDate = firstDay.minusDays(3);
+        LocalDate endDate = firstDay.plusDays(100);
+
+        aggregationProperties.setStrategy(Strategy.SQL);
+        List<DailyAggregatedData> expected = aggregationService.getAggregatedData(startDate, endDate);
+        aggregationProperties.setStrategy(Strategy.MEMORY);
+        List<DailyAggregatedData> actual = aggregationService.getAggregatedData(startDate, endDate);
+
+        assertThat(actual).hasSize(87);
+        assertThat(rounded(actual)).isEqualTo(rounded(expected));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = Granularity.class, names = {"WEEKLY", "MONTHLY", "YEARLY"})
+    void getAggregatedData_memoryStrategyMatchesRollupPeriods(Granularity granularity) {
+        LocalDate firstDay = LocalDate.of(2023, 12, 1);
+        storeSampleData(firstDay);
+        LocalDate startDate = firstDay.minusDays(3);
+        LocalDate endDate = firstDay.plusDays(100);
+
+        aggregationProperties.setStrategy(Strategy.ROLLUP);
+        List<AggregatedData> expected = aggregationService.getAggregatedData(startDate, endDate, granularity);
+        aggregationProperties.setStrategy(Strategy.MEMORY);
+        List<AggregatedData> actual = aggregationService.getAggregatedData(startDate, endDate, granularity);
+
+        assertThat(actual).isNotEmpty();
+        assertThat(roundedPeriods(actual)).isEqualTo(roundedPeriods(expected));
+    }
+
+    @Test
+    void forEachPrice_storeMatchesDatabaseCursor() {
+        LocalDate firstDay = LocalDate.of(2023, 12, 1);
+        storeSampleData(firstDay);
+        LocalDate startDate = firstDay.plusDays(10);
+        LocalDate endDate = firstDay.plusDays(60);
+        List<String> fromStore = new ArrayList<>();
+        electricityPriceRepository.forEachPrice(ElectricityPriceEstonia.COUNTRY, startDate, endDate,
+                (recordedAt, price) -> fromStore.add(recordedAt + "=" + price));
+
+        columnarPriceStore.unload();
+        List<String> fromDatabase = new ArrayList<>();
+        electricityPriceRepository.forEachPrice(ElectricityPriceEstonia.COUNTRY, startDate, endDate,
+                (recordedAt, price) -> fromDatabase.add(recordedAt + "=" + price));
+
+        assertThat(fromDatabase).hasSize(933).isEqualTo(fromStore);
+        // The first day of the range has no prices
+        assertThat(fromDatabase.get(0)).startsWith(startDate.plusDays(1).atStartOfDay().toEpochSecond(UTC) + "=");
+    }
+
+    @Test
+    void findStatistics_storeMatchesDatabase() {
+        LocalDate firstDay = LocalDate.of(2023, 12, 1);
+        storeSampleData(firstDay);
+        Instant from = firstDay.plusDays(10).atTime(7, 0).toInstant(UTC);
+        Instant to = firstDay.plusDays(45).atTime(19, 0).toInstant(UTC);
+        List<LocalDate> days = List.of(firstDay.plusDays(3), firstDay.plusDays(5), firstDay.plusDays(6),
+                firstDay.plusDays(6), firstDay.plusDays(41), firstDay.plusDays(200));
+        PriceStatistics rangeFromStore = electricityPriceRepository.findStatistics(ElectricityPriceEstonia.COUNTRY, from, to);
+        PriceStatistics daysFromStore = electricityPriceRepository.findStatistics(ElectricityPriceEstonia.COUNTRY, days);
+
+        columnarPriceStore.unload();
+
+        assertThat(electricityPriceRepository.findStatistics(ElectricityPriceEstonia.COUNTRY, from, to))
+                .isEqualTo(rangeFromStore);
+        // The day without prices and the repeated day add nothing
+        assertThat(electricityPriceRepository.findStatistics(ElectricityPriceEstonia.COUNTRY, days))
+                .isEqualTo(daysFromStore)
+                .extracting(PriceStatistics::count).isEqualTo(13L + 24 + 24);
+        assertThat(electricityPriceRepository.findStatistics(ElectricityPriceEstonia.COUNTRY, List.of(firstDay.plusDays(3))))
+                .isEqualTo(PriceStatistics.EMPTY);
+    }
+
+    private void storeSampleData(LocalDate firstDay) {
+        List<ElectricityPrice> prices = new ArrayList<>();
+        for (int dayIndex = 0; dayIndex < 90; dayIndex++) {
+            LocalDate day = firstDay.plusDays(dayIndex);
+            // Some days have no prices, some no weather and some only part of their hours
+            if (dayIndex % 7 != 3) {
+                for (int hour = 0; hour < (dayIndex % 5 == 0 ? 13 : 24); hour++) {
+                    prices.add(price(day, hour, (dayIndex * 31 + hour * 17) % 400 / 3.0));
+                }
+            }
+            if (dayIndex % 4 != 1) {
+                weatherDataRepository.save(new WeatherData(day, (dayIndex % 40 - 20) / 3.0));
+            }
+        }
+        // Half of the prices are loaded, the other half arrive as updates
+        bulkRepository.upsertAll(prices.subList(0, prices.size() / 2));
+        columnarPriceStore.load();
+        bulkRepository.upsertAll(prices.subList(prices.size() / 2, prices.size()));
+    }
+
+    private void deleteAll() {
+        jpaRepository.deleteAllInBatch();
+        dayDigestRepository.deleteAllInBatch();
+        dailyPriceSummaryRepository.deleteAllInBatch();
+        jpaWeatherDataRepository.deleteAllInBatch();
+        jpaDataVersionRepository.deleteAllInBatch();
+    }
+
+    private static List<List<Object>> rounded(List<DailyAggregatedData> dailyAverages) {
+        return dailyAverages.stream()
+                .map(data -> Arrays.<Object>asList(data.date(), data.averageElectricityPrice(), data.averageTemperature()))
+                .toList();
+    }
+
+    private static List<List<Object>> roundedPeriods(List<AggregatedData> periodAverages) {
+        return periodAverages.stream()
+                .map(data -> Arrays.<Object>asList(data.periodStart(), data.averageElectricityPrice(), data.averageTemperature()))
+                .toList();
+    }
+
+    private static ElectricityPrice price(LocalDate day, int hour, double value) {
+        ElectricityPrice price = new ElectricityPriceEstonia();
+        price.setRecordedAt(day.atTime(hour, 0).toEpochSecond(UTC));
+        price.setPrice(value);
+        return price;
+    }
+}
@@ -0,0 +1,252 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
+
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceEstonia;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceLatvia;
+import com.mathias.electricitypriceaggregator.domain.model.WeatherData;
+import com.mathias.electricitypriceaggregator.domain.valueobject.AggregatedData;
+import com.mathias.electricitypriceaggregator.domain.valueobject.DailyAggregatedData;
+import com.mathias.electricitypriceaggregator.domain.valueobject.Granularity;
+import com.mathias.electricitypriceaggregator.domain.valueobject.PriceStatistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.time.ZoneOffset.UTC;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ColumnarPriceStoreTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 10);
+
+    private ColumnarPriceStore store;
+
+    @BeforeEach
+    void setUp() {
+        // The database is empty, so the store starts out loaded without any prices
+        store = new ColumnarPriceStore(mock(JdbcTemplate.class));
+        store.load();
+    }
+
+    @Test
+    void findDailyAverages_averagesPricesPerUtcDayAndAddsTemperatures() {
+        store.putPricesAfterCommit(List.of(
+                // 23:00 on the previous day and 00:00 of the next day fall outside the day
+                price(new ElectricityPriceEstonia(), DAY.minusDays(1), 23, 500.0),
+                price(new ElectricityPriceEstonia(), DAY, 0, 10.0),
+                price(new ElectricityPriceEstonia(), DAY, 23, 20.0),
+                price(new ElectricityPriceEstonia(), DAY.plusDays(1), 0, 40.0),
+                price(new ElectricityPriceLatvia(), DAY, 12, 1000.0)));
+        store.putWeatherAfterCommit(new WeatherData(DAY, -2.34));
+        store.putWeatherAfterCommit(new WeatherData(DAY.plusDays(3), 1.0));
+
+        List<DailyAggregatedData> result = store.findDailyAverages(ElectricityPriceEstonia.COUNTRY, DAY, DAY.plusDays(5));
+
+        assertEquals(List.of(
+                new DailyAggregatedData(DAY, 15.0, -2.34),
+                new DailyAggregatedData(DAY.plusDays(1), 40.0, null),
+                new DailyAggregatedData(DAY.plusDays(3), null, 1.0)), result);
+    }
+
+    @Test
+    void forEachPrice_passesPricesOfCountryInRangeInTimeOrder() {
+        store.putPricesAfterCommit(List.of(
+                price(new ElectricityPriceEstonia(), DAY.plusDays(1), 0, 40.0),
+                price(new ElectricityPriceEstonia(), DAY, 23, 20.0),
+                price(new ElectricityPriceEstonia(), DAY.minusDays(1), 23, 500.0),
+                price(new ElectricityPriceEstonia(), DAY, 0, 10.0),
+                price(new ElectricityPriceLatvia(), DAY, 12, 1000.0)));
+        List<String> prices = new ArrayList<>();
+
+        store.forEachPrice(ElectricityPriceEstonia.COUNTRY, DAY, DAY,
+                (recordedAt, price) -> prices.add(recordedAt + "=" + price));
+
+        assertEquals(List.of(DAY.atTime(0, 0).toEpochSecond(UTC) + "=10.0",
+                DAY.atTime(23, 0).toEpochSecond(UTC) + "=20.0"), prices);
+    }
+
+    @Test
+    void findDailyAverages_withoutData_returnsEmptyList() {
+        assertTrue(store.findDailyAverages(ElectricityPriceEstonia.COUNTRY, DAY, DAY.plusDays(30)).isEmpty());
+    }
+
+    @Test
+    void putPrices_withEarlierAndExistingTimestamps_mergesAndReplacesPrices() {
+        store.putPricesAfterCommit(List.of(
+                price(new ElectricityPriceEstonia(), DAY, 2, 2.0),
+                price(new ElectricityPriceEstonia(), DAY, 4, 4.0)));
+
+        store.putPricesAfterCommit(List.of(
+                price(new ElectricityPriceEstonia(), DAY, 4, 40.0),
+                price(new ElectricityPriceEstonia(), DAY, 1, 1.0),
+                price(new ElectricityPriceEstonia(), DAY, 3, 3.0),
+                // The last price of a timestamp wins within one update
+                price(new ElectricityPriceEstonia(), DAY, 3, 30.0)));
+
+        List<ElectricityPrice> result = store.findPrices(ElectricityPriceEstonia.COUNTRY, DAY, DAY);
+        assertEquals(List.of(hour(1), hour(2), hour(3), hour(4)),
+                result.stream().map(ElectricityPrice::getRecordedAt).toList());
+        assertEquals(List.of(1.0, 2.0, 30.0, 40.0), result.stream().map(ElectricityPrice::getPrice).toList());
+        assertTrue(result.stream().allMatch(ElectricityPriceEstonia.class::isInstance));
+    }
+
+    @Test
+    void putPrices_appendedInManyUpdates_keepsAllPricesInOrder() {
+        List<ElectricityPrice> expected = new ArrayList<>();
+        for (int day = 0; day < 200; day++) {
+            List<ElectricityPrice> update = new ArrayList<>();
+            for (int hour = 0; hour < 24; hour++) {
+                update.add(price(new ElectricityPriceEstonia(), DAY.plusDays(day), hour, day * 24 + hour));
+            }
+            List<ElectricityPrice> before = store.findPrices(ElectricityPriceEstonia.COUNTRY, DAY, DAY.plusDays(day));
+            store.putPricesAfterCommit(update);
+            expected.addAll(update);
+
+            // A range read before an update does not see it
+            assertEquals(day * 24, before.size());
+        }
+
+        List<ElectricityPrice> result = store.findPrices(ElectricityPriceEstonia.COUNTRY, DAY, DAY.plusDays(199));
+        assertEquals(expected.stream().map(ElectricityPrice::getRecordedAt).toList(),
+                result.stream().map(ElectricityPrice::getRecordedAt).toList());
+        assertEquals(expected.stream().map(ElectricityPrice::getPrice).toList(),
+                result.stream().map(ElectricityPrice::getPrice).toList());
+    }
+
+    @Test
+    void findPeriodAverages_weighsEveryHourAndClipsPeriodsToRange() {
+        LocalDate march = LocalDate.of(2024, 3, 1);
+        store.putPricesAfterCommit(List.of(
+                // Before the range
+                price(new ElectricityPriceEstonia(), LocalDate.of(2024, 1, 31), 23, 500.0),
+                // A day with three hours and a day with one hour
+                price(new ElectricityPriceEstonia(), LocalDate.of(2024, 2, 10), 0, 10.0),
+                price(new ElectricityPriceEstonia(), LocalDate.of(2024, 2, 10), 1, 10.0),
+                price(new ElectricityPriceEstonia(), LocalDate.of(2024, 2, 10), 2, 10.0),
+                price(new ElectricityPriceEstonia(), LocalDate.of(2024, 2, 29), 23, 50.0),
+                price(new ElectricityPriceEstonia(), march, 0, 7.0),
+                // After the range
+                price(new ElectricityPriceEstonia(), LocalDate.of(2024, 4, 16), 0, 500.0)));
+        store.putWeatherAfterCommit(new WeatherData(LocalDate.of(2024, 2, 1), 1.0));
+        store.putWeatherAfterCommit(new WeatherData(LocalDate.of(2024, 2, 2), 2.0));
+        store.putWeatherAfterCommit(new WeatherData(LocalDate.of(2024, 4, 15), -3.0));
+
+        List<AggregatedData> result = store.findPeriodAverages(ElectricityPriceEstonia.COUNTRY,
+                LocalDate.of(2024, 2, 1), LocalDate.of(2024, 4, 15), Granularity.MONTHLY);
+
+        assertEquals(List.of(
+                new AggregatedData(LocalDate.of(2024, 2, 1).atStartOfDay(), 20.0, 1.5),
+                new AggregatedData(march.atStartOfDay(), 7.0, null),
+                new AggregatedData(LocalDate.of(2024, 4, 1).atStartOfDay(), null, -3.0)), result);
+    }
+
+    @Test
+    void findPeriodAverages_weekly_startsPeriodsOnMonday() {
+        // 2024-03-10 is a Sunday
+        store.putPricesAfterCommit(List.of(
+                price(new ElectricityPriceEstonia(), DAY, 12, 10.0),
+                price(new ElectricityPriceEstonia(), DAY.plusDays(1), 12, 30.0)));
+
+        List<AggregatedData> result = store.findPeriodAverages(ElectricityPriceEstonia.COUNTRY,
+                DAY, DAY.plusDays(1), Granularity.WEEKLY);
+
+        assertEquals(List.of(
+                new AggregatedData(DAY.minusDays(6).atStartOfDay(), 10.0, null),
+                new AggregatedData(DAY.plusDays(1).atStartOfDay(), 30.0, null)), result);
+    }
+
+    @Test
+    void findWeather_returnsDaysWithTemperatureInRange() {
+        store.putWeatherAfterCommit(new WeatherData(DAY, 1.5));
+        store.putWeatherAfterCommit(new WeatherData(DAY.minusDays(10), -4.0));
+        store.putWeatherAfterCommit(new WeatherData(DAY, 2.5));
+
+        List<WeatherData> result = store.findWeather(DAY.minusDays(10), DAY);
+
+        assertEquals(List.of(DAY.minusDays(10), DAY), result.stream().map(WeatherData::getDate).toList());
+        assertEquals(List.of(-4.0, 2.5), result.stream().map(WeatherData::getAverageTemperature).toList());
+    }
+
+    @Test
+    void findStatistics_ofHourRange_includesFromAndExcludesTo() {
+        store.putPricesAfterCommit(List.of(
+                price(new ElectricityPriceEstonia(), DAY, 5, 500.0),
+                price(new ElectricityPriceEstonia(), DAY, 6, 10.0),
+                price(new ElectricityPriceEstonia(), DAY, 7, -5.0),
+                price(new ElectricityPriceEstonia(), DAY, 8, 30.25),
+                price(new ElectricityPriceEstonia(), DAY, 9, 700.0),
+                price(new ElectricityPriceLatvia(), DAY, 7, 1000.0)));
+
+        PriceStatistics result = store.findStatistics(ElectricityPriceEstonia.COUNTRY,
+                DAY.atTime(6, 0).toInstant(UTC), DAY.atTime(9, 0).toInstant(UTC));
+
+        assertEquals(new PriceStatistics(3, 11.75, -5.0, 30.25), result);
+    }
+
+    @Test
+    void findStatistics_ofDays_combinesEachDayOnce() {
+        store.putPricesAfterCommit(List.of(
+                price(new ElectricityPriceEstonia(), DAY, 0, 10.0),
+                price(new ElectricityPriceEstonia(), DAY, 23, 20.0),
+                price(new ElectricityPriceEstonia(), DAY.plusDays(1), 12, 999.0),
+                price(new ElectricityPriceEstonia(), DAY.plusDays(2), 12, 3.0)));
+
+        PriceStatistics result = store.findStatistics(ElectricityPriceEstonia.COUNTRY,
+                List.of(DAY.plusDays(2), DAY, DAY.plusDays(2), DAY.plusDays(5)));
+
+        assertEquals(new PriceStatistics(3, 11.0, 3.0, 20.0), result);
+    }
+
+    @Test
+    void findStatistics_afterPut_reflectsUpdatedPrices() {
+        store.putPricesAfterCommit(List.of(price(new ElectricityPriceEstonia(), DAY, 1, 1.0)));
+        assertEquals(new PriceStatistics(1, 1.0, 1.0, 1.0), store.findStatistics(ElectricityPriceEstonia.COUNTRY, List.of(DAY)));
+
+        store.putPricesAfterCommit(List.of(
+                price(new ElectricityPriceEstonia(), DAY, 1, 4.0),
+                price(new ElectricityPriceEstonia(), DAY, 2, 8.0)));
+
+        assertEquals(new PriceStatistics(2, 6.0, 4.0, 8.0), store.findStatistics(ElectricityPriceEstonia.COUNTRY, List.of(DAY)));
+    }
+
+    @Test
+    void findStatistics_withoutPrices_returnsEmpty() {
+        assertEquals(PriceStatistics.EMPTY, store.findStatistics(ElectricityPriceEstonia.COUNTRY,
+                DAY.atStartOfDay().toInstant(UTC), DAY.plusDays(1).atStartOfDay().toInstant(UTC)));
+    }
+
+    @Test
+    void putPrices_beforeLoad_isIgnored() {
+        ColumnarPriceStore notLoaded = new ColumnarPriceStore(mock(JdbcTemplate.class));
+
+        notLoaded.putPricesAfterCommit(List.of(price(new ElectricityPriceEstonia(), DAY, 1, 1.0)));
+        notLoaded.load();
+
+        assertTrue(notLoaded.findPrices(ElectricityPriceEstonia.COUNTRY, DAY, DAY).isEmpty());
+    }
+
+    @Test
+    void unload_dropsPricesAndMarksStoreNotLoaded() {
+        store.putPricesAfterCommit(List.of(price(new ElectricityPriceEstonia(), DAY, 1, 1.0)));
+
+        store.unload();
+
+        assertFalse(store.isLoaded());
+        assertTrue(store.findPrices(ElectricityPriceEstonia.COUNTRY, DAY, DAY).isEmpty());
+    }
+
+    private static long hour(int hour) {
+        return DAY.atTime(hour, 0).toEpochSecond(UTC);
+    }
+
+    private static ElectricityPrice price(ElectricityPrice price, LocalDate day, int hour, double value) {
+        price.setRecordedAt(day.atTime(hour, 0).toEpochSecond(UTC));
+        price.setPrice(value);
+        return price;
+    }
+}
@@ -0,0 +1,215 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
+
+import com.mathias.electricitypriceaggregator.application.service.AggregationService;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceEstonia;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceLatvia;
+import com.mathias.electricitypriceaggregator.domain.model.WeatherData;
+import com.mathias.electricitypriceaggregator.domain.repository.DailyAggregationRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.WeatherDataRepository;
+import com.mathias.electricitypriceaggregator.domain.valueobject.AggregatedData;
+import com.mathias.electricitypriceaggregator.domain.valueobject.DailyAggregatedData;
+import com.mathias.electricitypriceaggregator.domain.valueobject.Granularity;
+import com.mathias.electricitypriceaggregator.infrastructure.config.AggregationProperties;
+import com.mathias.electricitypriceaggregator.infrastructure.config.AggregationProperties.Strategy;
+import com.mathias.electricitypriceaggregator.integration.BaseIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.time.ZoneOffset.UTC;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration test for the daily averages computed by PostgreSQL, from the hourly prices and from the rollup
+ */
+class DailyAggregationRepositoryIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private DailyAggregationRepository dailyAggregationRepository;
+
+    @Autowired
+    private AggregationService aggregationService;
+
+    @Autowired
+    private AggregationProperties aggregationProperties;
+
+    @Autowired
+    private ElectricityPriceBulkRepository bulkRepository;
+
+    @Autowired
+    private WeatherDataRepository weatherDataRepository;
+
+    @Autowired
+    private JpaElectricityPriceRepository jpaRepository;
+
+    @Autowired
+    private JpaElectricityPriceDayDigestRepository dayDigestRepository;
+
+    @Autowired
+    private JpaDailyPriceSummaryRepository dailyPriceSummaryRepository;
+
+    @Autowired
+    private JpaWeatherDataRepository jpaWeatherDataRepository;
+
+    @BeforeEach
+    void setUp() {
+        // Strategies are compared on fresh results
+        aggregationProperties.setCacheEnabled(false);
+        deleteAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        aggregationProperties.setStrategy(Strategy.ROLLUP);
+        aggregationProperties.setCacheEnabled(true);
+        deleteAll();
+    }
+
+    @Test
+    void findDailyAverages_averagesPricesPerUtcDayAndJoinsWeather() {
+        LocalDate day = LocalDate.of(2024, 3, 10);
+        bulkRepository.upsertAll(List.of(
+                // 23:00 on the previous day and 00:00 of the next day fall outside the day
+                price(new ElectricityPriceEstonia(), day.minusDays(1), 23, 500.0),
+                price(new ElectricityPriceEstonia(), day, 0, 10.0),
+                price(new ElectricityPriceEstonia(), day, 23, 20.05),
+                price(new ElectricityPriceEstonia(), day.plusDays(1), 0, 500.0),
+                price(new ElectricityPriceLatvia(), day, 12, 1000.0)));
+        weatherDataRepository.save(new WeatherData(day, -2.34));
+        weatherDataRepository.save(new WeatherData(day.plusDays(3), 1.0));
+
+        List<DailyAggregatedData> result = dailyAggregationRepository.findDailyAverages(
+                ElectricityPriceEstonia.COUNTRY, day, day.plusDays(5));
+
+        assertThat(rounded(result)).containsExactly(
+                Arrays.asList(day, 15.0, -2.3),
+                Arrays.asList(day.plusDays(1), 500.0, null),
+                Arrays.asList(day.plusDays(3), null, 1.0));
+    }
+
+    @Test
+    void findDailyAveragesFromSummary_matchesAveragesOfHourlyPrices() {
+        LocalDate day = LocalDate.of(2024, 3, 10);
+        bulkRepository.upsertAll(List.of(
+                price(new ElectricityPriceEstonia(), day.minusDays(1), 23, 500.0),
+                price(new ElectricityPriceEstonia(), day, 0, 10.0),
+                price(new ElectricityPriceEstonia(), day, 23, 20.05),
+                price(new ElectricityPriceEstonia(), day.plusDays(1), 0, 500.0),
+                price(new ElectricityPriceLatvia(), day, 12, 1000.0)));
+        weatherDataRepository.save(new WeatherData(day, -2.34));
+        weatherDataRepository.save(new WeatherData(day.plusDays(3), 1.0));
+
+        List<DailyAggregatedData> result = dailyAggregationRepository.findDailyAveragesFromSummary(
+                ElectricityPriceEstonia.COUNTRY, day, day.plusDays(5));
+
+        assertThat(rounded(result)).isEqualTo(rounded(dailyAggregationRepository.findDailyAverages(
+                ElectricityPriceEstonia.COUNTRY, day, day.plusDays(5))));
+        assertThat(result).hasSize(3);
+    }
+
+    @Test
+    void streamDailyAveragesFromSummary_passesSameDaysAsFind() {
+        LocalDate firstDay = LocalDate.of(2024, 1, 1);
+        List<ElectricityPrice> prices = new ArrayList<>();
+        // More days than fit in one fetch
+        for (int dayIndex = 0; dayIndex < 1_500; dayIndex += 2) {
+            prices.add(price(new ElectricityPriceEstonia(), firstDay.plusDays(dayIndex), 12, dayIndex / 4.0));
+        }
+        bulkRepository.upsertAll(prices);
+        List<DailyAggregatedData> streamed = new ArrayList<>();
+
+        dailyAggregationRepository.streamDailyAveragesFromSummary(
+                ElectricityPriceEstonia.COUNTRY, firstDay, firstDay.plusDays(1_499), streamed::add);
+
+        assertThat(streamed).hasSize(750).isEqualTo(dailyAggregationRepository.findDailyAveragesFromSummary(
+                ElectricityPriceEstonia.COUNTRY, firstDay, firstDay.plusDays(1_499)));
+    }
+
+    @Test
+    void findPeriodAveragesFromSummary_weighsEveryHourOfTheMonth() {
+        bulkRepository.upsertAll(List.of(
+                price(new ElectricityPriceEstonia(), LocalDate.of(2024, 1, 31), 23, 500.0),
+                price(new ElectricityPriceEstonia(), LocalDate.of(2024, 2, 10), 0, 10.0),
+                price(new ElectricityPriceEstonia(), LocalDate.of(2024, 2, 10), 1, 10.0),
+                price(new ElectricityPriceEstonia(), LocalDate.of(2024, 2, 10), 2, 10.0),
+                price(new ElectricityPriceEstonia(), LocalDate.of(2024, 2, 29), 23, 50.0),
+                price(new ElectricityPriceLatvia(), LocalDate.of(2024, 2, 10), 12, 1000.0)));
+        weatherDataRepository.save(new WeatherData(LocalDate.of(2024, 2, 1), 1.0));
+        weatherDataRepository.save(new WeatherData(LocalDate.of(2024, 2, 2), 2.0));
+        weatherDataRepository.save(new WeatherData(LocalDate.of(2024, 4, 15), -3.0));
+
+        List<AggregatedData> result = dailyAggregationRepository.findPeriodAveragesFromSummary(
+                ElectricityPriceEstonia.COUNTRY, LocalDate.of(2024, 2, 1), LocalDate.of(2024, 4, 15), Granularity.MONTHLY);
+
+        // Three hours at 10 and one at 50; March has no data
+        assertThat(result).containsExactly(
+                new AggregatedData(LocalDate.of(2024, 2, 1).atStartOfDay(), 20.0, 1.5),
+                new AggregatedData(LocalDate.of(2024, 4, 1).atStartOfDay(), null, -3.0));
+    }
+
+    @Test
+    void findDailyAverages_withoutData_returnsEmptyList() {
+        assertThat(dailyAggregationRepository.findDailyAverages(
+                ElectricityPriceEstonia.COUNTRY, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31))).isEmpty();
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = Strategy.class, names = {"ROLLUP", "SQL"})
+    void getAggregatedData_databaseStrategyMatchesJvmStrategy(Strategy strategy) {
+        LocalDate firstDay = LocalDate.of(2023, 12, 1);
+        List<ElectricityPrice> prices = new ArrayList<>();
+        for (int dayIndex = 0; dayIndex < 90; dayIndex++) {
+            LocalDate day = firstDay.plusDays(dayIndex);
+            // Some days have no prices, some no weather and some only part of their hours
+            if (dayIndex % 7 != 3) {
+                for (int hour = 0; hour < (dayIndex % 5 == 0 ? 13 : 24); hour++) {
+                    prices.add(price(new ElectricityPriceEstonia(), day, hour, (dayIndex * 31 + hour * 17) % 400 / 3.0));
+                }
+            }
+            if (dayIndex % 4 != 1) {
+                weatherDataRepository.save(new WeatherData(day, (dayIndex % 40 - 20) / 3.0));
+            }
+        }
+        bulkRepository.upsertAll(prices);
+        LocalDate startDate = firstDay.minusDays(3);
+        LocalDate endDate = firstDay.plusDays(100);
+
+        aggregationProperties.setStrategy(Strategy.JVM);
+        List<DailyAggregatedData> expected = aggregationService.getAggregatedData(startDate, endDate);
+        aggregationProperties.setStrategy(strategy);
+        List<DailyAggregatedData> actual = aggregationService.getAggregatedData(startDate, endDate);
+
+        // Days 17, 45 and 73 have neither prices nor weather
+        assertThat(actual).hasSize(87);
+        // Both strategies round to one decimal; the unrounded sums may differ in their last bits
+        assertThat(rounded(actual)).isEqualTo(rounded(expected));
+    }
+
+    private void deleteAll() {
+        jpaRepository.deleteAllInBatch();
+        dayDigestRepository.deleteAllInBatch();
+        dailyPriceSummaryRepository.deleteAllInBatch();
+        jpaWeatherDataRepository.deleteAllInBatch();
+    }
+
+    private static List<List<Object>> rounded(List<DailyAggregatedData> dailyAverages) {
+        return dailyAverages.stream()
+                .map(data -> Arrays.<Object>asList(data.date(), data.averageElectricityPrice(), data.averageTemperature()))
+                .toList();
+    }
+
+    private static ElectricityPrice price(ElectricityPrice price, LocalDate day, int hour, double value) {
+        price.setRecordedAt(day.atTime(hour, 0).toEpochSecond(UTC));
+        price.setPrice(value);
+        return price;
+    }
+}
@@ -0,0 +1,147 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
+
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceEstonia;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceLatvia;
+import com.mathias.electricitypriceaggregator.domain.model.WeatherData;
+import com.mathias.electricitypriceaggregator.domain.repository.DataVersionRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.WeatherDataRepository;
+import com.mathias.electricitypriceaggregator.domain.valueobject.DataVersion;
+import com.mathias.electricitypriceaggregator.integration.BaseIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+import static java.time.ZoneOffset.UTC;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration test for advancing the data version of the days whose prices or temperatures are written
+ */
+class DataVersionRepositoryIntegrationTest extends BaseIntegrationTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 10);
+
+    @Autowired
+    private DataVersionRepository dataVersionRepository;
+
+    @Autowired
+    private ElectricityPriceBulkRepository bulkRepository;
+
+    @Autowired
+    private WeatherDataRepository weatherDataRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JpaElectricityPriceRepository jpaRepository;
+
+    @Autowired
+    private JpaElectricityPriceDayDigestRepository dayDigestRepository;
+
+    @Autowired
+    private JpaDailyPriceSummaryRepository dailyPriceSummaryRepository;
+
+    @Autowired
+    private JpaWeatherDataRepository jpaWeatherDataRepository;
+
+    @Autowired
+    private JpaDataVersionRepository jpaDataVersionRepository;
+
+    @BeforeEach
+    void setUp() {
+        deleteAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteAll();
+    }
+
+    @Test
+    void findDataVersion_withoutWrites_isZero() {
+        assertThat(dataVersionRepository.findDataVersion(DAY, DAY.plusDays(30))).isEqualTo(new DataVersion(0, null));
+    }
+
+    @Test
+    void upsertAll_advancesVersionOfWrittenDaysOnly() {
+        bulkRepository.upsertAll(List.of(price(new ElectricityPriceEstonia(), DAY, 0, 10.0),
+                price(new ElectricityPriceLatvia(), DAY, 0, 10.0), price(new ElectricityPriceEstonia(), DAY.plusDays(2), 0, 5.0)));
+        DataVersion range = dataVersionRepository.findDataVersion(DAY, DAY.plusDays(2));
+        DataVersion otherDays = dataVersionRepository.findDataVersion(DAY.plusDays(1), DAY.plusDays(1));
+
+        bulkRepository.upsertAll(List.of(price(new ElectricityPriceEstonia(), DAY, 0, 20.0)));
+
+        // Both countries of the day advanced it once together
+        assertThat(range.version()).isEqualTo(2);
+        assertThat(range.lastModified()).isNotNull();
+        assertThat(otherDays).isEqualTo(new DataVersion(0, null));
+        assertThat(dataVersionRepository.findDataVersion(DAY, DAY.plusDays(2)).version()).isEqualTo(3);
+        assertThat(dataVersionRepository.findDataVersion(DAY.plusDays(1), DAY.plusDays(2)).version()).isEqualTo(1);
+    }
+
+    @Test
+    void findMonthVersions_sumsTheDaysOfEveryWrittenMonth() {
+        dataVersionRepository.advance(List.of(DAY, DAY.plusDays(1), LocalDate.of(2024, 5, 31)));
+        dataVersionRepository.advance(List.of(DAY));
+
+        assertThat(dataVersionRepository.findMonthVersions(YearMonth.of(2024, 2), YearMonth.of(2024, 4)))
+                .isEqualTo(Map.of(YearMonth.of(2024, 3), 3L));
+        assertThat(dataVersionRepository.findMonthVersions(YearMonth.of(2024, 3), YearMonth.of(2024, 5)))
+                .isEqualTo(Map.of(YearMonth.of(2024, 3), 3L, YearMonth.of(2024, 5), 1L));
+    }
+
+    @Test
+    void upsertAll_unchangedPrices_keepsVersion() {
+        bulkRepository.upsertAll(List.of(price(new ElectricityPriceEstonia(), DAY, 0, 10.0)));
+        DataVersion before = dataVersionRepository.findDataVersion(DAY, DAY);
+
+        bulkRepository.upsertAll(List.of(price(new ElectricityPriceEstonia(), DAY, 0, 10.0)));
+
+        assertThat(dataVersionRepository.findDataVersion(DAY, DAY)).isEqualTo(before);
+    }
+
+    @Test
+    void upsertAll_rolledBack_keepsVersion() {
+        bulkRepository.upsertAll(List.of(price(new ElectricityPriceEstonia(), DAY, 0, 10.0)));
+        DataVersion before = dataVersionRepository.findDataVersion(DAY, DAY);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            bulkRepository.upsertAll(List.of(price(new ElectricityPriceEstonia(), DAY, 0, 99.0)));
+            status.setRollbackOnly();
+        });
+
+        assertThat(dataVersionRepository.findDataVersion(DAY, DAY)).isEqualTo(before);
+    }
+
+    @Test
+    void save_advancesVersionOfWeatherDay() {
+        bulkRepository.upsertAll(List.of(price(new ElectricityPriceEstonia(), DAY, 0, 10.0)));
+
+        weatherDataRepository.save(new WeatherData(DAY, -3.5));
+
+        assertThat(dataVersionRepository.findDataVersion(DAY, DAY).version()).isEqualTo(2);
+    }
+
+    private void deleteAll() {
+        jpaRepository.deleteAllInBatch();
+        dayDigestRepository.deleteAllInBatch();
+        dailyPriceSummaryRepository.deleteAllInBatch();
+        jpaWeatherDataRepository.deleteAllInBatch();
+        jpaDataVersionRepository.deleteAllInBatch();
+    }
+
+    private static ElectricityPrice price(ElectricityPrice price, LocalDate day, int hour, double value) {
+        price.setRecordedAt(day.atTime(hour, 0).toEpochSecond(UTC));
+        price.setPrice(value);
+        return price;
+    }
+}
@@ -0,0 +1,104 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
+
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceEstonia;
+import com.mathias.electricitypriceaggregator.infrastructure.config.IngestionProperties;
+import com.mathias.electricitypriceaggregator.infrastructure.config.IngestionProperties.WriteMode;
+import com.mathias.electricitypriceaggregator.integration.BaseIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the batch, array and COPY write modes on a ten-year hourly backfill, written in ingestion-sized chunks.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class ElectricityPriceBulkRepositoryBenchmarkTest extends BaseIntegrationTest {
+
+    private static final long FIRST_HOUR = 1388534400L; // 2014-01-01T00:00:00Z
+    private static final int ROWS = 10 * 8760;
+
+    @Autowired
+    private ElectricityPriceBulkRepository bulkRepository;
+
+    @Autowired
+    private JpaElectricityPriceRepository jpaRepository;
+
+    @Autowired
+    private JpaElectricityPriceDayDigestRepository dayDigestRepository;
+
+    @Autowired
+    private JpaDailyPriceSummaryRepository dailyPriceSummaryRepository;
+
+    @Autowired
+    private IngestionProperties ingestionProperties;
+
+    @AfterEach
+    void tearDown() {
+        ingestionProperties.setWriteMode(WriteMode.ARRAY);
+    }
+
+    @Test
+    void compareWriteModes() {
+        List<ElectricityPrice> prices = generatePrices();
+
+        for (WriteMode writeMode : WriteMode.values()) {
+            ingestionProperties.setWriteMode(writeMode);
+            // Warm up the connection pool and the JIT on a small slice
+            bulkRepository.upsertAll(prices.subList(0, ingestionProperties.getChunkSize()));
+            deleteAll();
+
+            long insertNanos = writeInChunks(prices);
+            assertThat(jpaRepository.count()).isEqualTo(ROWS);
+            // Every day block matches its stored digest and is skipped
+            long skipNanos = writeInChunks(prices);
+            // Without digests, every row goes through the conditional upsert and is left untouched
+            dayDigestRepository.deleteAllInBatch();
+            long unchangedNanos = writeInChunks(prices);
+            assertThat(jpaRepository.count()).isEqualTo(ROWS);
+            deleteAll();
+
+            System.out.printf("%-5s insert: %,6d ms (%,.0f rows/s), identical re-upload: %,6d ms (%,.0f rows/s), "
+                            + "unchanged re-upsert: %,6d ms (%,.0f rows/s)%n",
+                    writeMode, insertNanos / 1_000_000, ROWS / (insertNanos / 1e9),
+                    skipNanos / 1_000_000, ROWS / (skipNanos / 1e9),
+                    unchangedNanos / 1_000_000, ROWS / (unchangedNanos / 1e9));
+        }
+    }
+
+    private void deleteAll() {
+        jpaRepository.deleteAllInBatch();
+        dayDigestRepository.deleteAllInBatch();
+        dailyPriceSummaryRepository.deleteAllInBatch();
+    }
+
+    /**
+     * Writes whole days per chunk, as the ingestion service does
+     */
+    private long writeInChunks(List<ElectricityPrice> prices) {
+        int chunkSize = ingestionProperties.getChunkSize() - ingestionProperties.getChunkSize() % 24;
+        long start = System.nanoTime();
+        for (int from = 0; from < prices.size(); from += chunkSize) {
+            bulkRepository.upsertAll(prices.subList(from, Math.min(from + chunkSize, prices.size())));
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static List<ElectricityPrice> generatePrices() {
+        List<ElectricityPrice> prices = new ArrayList<>(ROWS);
+        for (int hour = 0; hour < ROWS; hour++) {
+            ElectricityPrice price = new ElectricityPriceEstonia();
+            price.setRecordedAt(FIRST_HOUR + hour * 3600L);
+            price.setPrice((hour % 500) / 4.0);
+            prices.add(price);
+        }
+        return prices;
+    }
+}
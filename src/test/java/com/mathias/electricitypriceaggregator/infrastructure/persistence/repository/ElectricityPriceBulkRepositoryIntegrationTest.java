@@ -0,0 +1,218 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
+
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceEstonia;
+import com.mathias.electricitypriceaggregator.domain.valueobject.UpsertResult;
+import com.mathias.electricitypriceaggregator.infrastructure.config.IngestionProperties;
+import com.mathias.electricitypriceaggregator.infrastructure.config.IngestionProperties.WriteMode;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.entity.DailyPriceSummaryEntity;
+import com.mathias.electricitypriceaggregator.infrastructure.persistence.entity.ElectricityPriceEntity;
+import com.mathias.electricitypriceaggregator.integration.BaseIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration test for both write modes of ElectricityPriceBulkRepository
+ */
+class ElectricityPriceBulkRepositoryIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private ElectricityPriceBulkRepository bulkRepository;
+
+    @Autowired
+    private JpaElectricityPriceRepository jpaRepository;
+
+    @Autowired
+    private JpaElectricityPriceDayDigestRepository dayDigestRepository;
+
+    @Autowired
+    private JpaDailyPriceSummaryRepository dailyPriceSummaryRepository;
+
+    @Autowired
+    private IngestionProperties ingestionProperties;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jpaRepository.deleteAllInBatch();
+        dayDigestRepository.deleteAllInBatch();
+        dailyPriceSummaryRepository.deleteAllInBatch();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ingestionProperties.setWriteMode(WriteMode.ARRAY);
+        jpaRepository.deleteAllInBatch();
+        dayDigestRepository.deleteAllInBatch();
+        dailyPriceSummaryRepository.deleteAllInBatch();
+    }
+
+    @ParameterizedTest
+    @EnumSource(WriteMode.class)
+    void upsertAll_insertsNewAndUpdatesExistingRows(WriteMode writeMode) {
+        ingestionProperties.setWriteMode(writeMode);
+        bulkRepository.upsertAll(List.of(price(1704060000L, 40.01), price(1704063600L, 38.37)));
+
+        bulkRepository.upsertAll(List.of(price(1704063600L, 12.5), price(1704067200L, 36.0)));
+
+        List<ElectricityPriceEntity> stored = jpaRepository.findAll().stream()
+                .sorted(Comparator.comparing(ElectricityPriceEntity::getRecordedAt))
+                .toList();
+        assertThat(stored).hasSize(3);
+        assertThat(stored).extracting(ElectricityPriceEntity::getPrice).containsExactly(40.01, 12.5, 36.0);
+        assertThat(stored.get(0).getRecordedAt().getEpochSecond()).isEqualTo(1704060000L);
+        assertThat(stored).extracting(ElectricityPriceEntity::getCountry).containsOnly("EE");
+    }
+
+    @ParameterizedTest
+    @EnumSource(WriteMode.class)
+    void upsertAll_withDuplicateKeysInOneCall_keepsLastValue(WriteMode writeMode) {
+        ingestionProperties.setWriteMode(writeMode);
+
+        bulkRepository.upsertAll(List.of(price(1704060000L, 1.0), price(1704060000L, 2.0)));
+
+        assertThat(jpaRepository.findAll()).extracting(ElectricityPriceEntity::getPrice).containsExactly(2.0);
+    }
+
+    @ParameterizedTest
+    @EnumSource(WriteMode.class)
+    void upsertAll_reportsInsertedUpdatedAndUnchangedRows(WriteMode writeMode) {
+        ingestionProperties.setWriteMode(writeMode);
+        UpsertResult first = bulkRepository.upsertAll(List.of(price(1704060000L, 40.01), price(1704063600L, 38.37)));
+
+        UpsertResult second = bulkRepository.upsertAll(
+                List.of(price(1704060000L, 40.01), price(1704063600L, 12.5), price(1704067200L, 36.0)));
+
+        assertThat(first).isEqualTo(new UpsertResult(2, 0, 0));
+        assertThat(second).isEqualTo(new UpsertResult(1, 1, 1));
+    }
+
+    @ParameterizedTest
+    @EnumSource(WriteMode.class)
+    void upsertAll_withDuplicateKeys_countsEachKeyOnce(WriteMode writeMode) {
+        ingestionProperties.setWriteMode(writeMode);
+        List<ElectricityPrice> day = List.of(price(1704060000L, 1.0), price(1704060000L, 2.0), price(1704063600L, 3.0));
+        UpsertResult first = bulkRepository.upsertAll(day);
+
+        UpsertResult skipped = bulkRepository.upsertAll(day);
+        UpsertResult changed = bulkRepository.upsertAll(
+                List.of(price(1704060000L, 2.0), price(1704060000L, 2.0), price(1704063600L, 4.0)));
+
+        assertThat(first).isEqualTo(new UpsertResult(2, 0, 0));
+        assertThat(skipped).isEqualTo(UpsertResult.unchanged(2));
+        assertThat(changed).isEqualTo(new UpsertResult(0, 1, 1));
+    }
+
+    @ParameterizedTest
+    @EnumSource(WriteMode.class)
+    void upsertAll_withUnchangedPrice_doesNotRewriteRow(WriteMode writeMode) {
+        ingestionProperties.setWriteMode(writeMode);
+        bulkRepository.upsertAll(List.of(price(1704060000L, 40.01), price(1704063600L, 38.37)));
+        long unchangedRowVersion = rowVersion(1704060000L);
+        long changedRowVersion = rowVersion(1704063600L);
+
+        bulkRepository.upsertAll(List.of(price(1704060000L, 40.01), price(1704063600L, 12.5)));
+
+        assertThat(rowVersion(1704060000L)).isEqualTo(unchangedRowVersion);
+        assertThat(rowVersion(1704063600L)).isNotEqualTo(changedRowVersion);
+    }
+
+    @ParameterizedTest
+    @EnumSource(WriteMode.class)
+    void upsertAll_withUnchangedDay_skipsTheWholeDay(WriteMode writeMode) {
+        ingestionProperties.setWriteMode(writeMode);
+        List<ElectricityPrice> day = List.of(price(1704067200L, 1.0), price(1704070800L, 2.0));
+        bulkRepository.upsertAll(day);
+        // A row changed behind the repository's back shows whether the day was written again
+        jdbcTemplate.update("UPDATE electricity_price SET price = 99 WHERE recorded_at = to_timestamp(1704067200)");
+
+        UpsertResult result = bulkRepository.upsertAll(day);
+
+        assertThat(result).isEqualTo(UpsertResult.unchanged(2));
+        assertThat(jpaRepository.findAll()).extracting(ElectricityPriceEntity::getPrice).contains(99.0);
+    }
+
+    @ParameterizedTest
+    @EnumSource(WriteMode.class)
+    void upsertAll_maintainsDailySummaryPerUtcDay(WriteMode writeMode) {
+        ingestionProperties.setWriteMode(writeMode);
+        // 2024-01-01T22:00Z and 23:00Z, then 2024-01-02T00:00Z
+        bulkRepository.upsertAll(List.of(price(1704146400L, 4.0), price(1704150000L, 10.0), price(1704153600L, 7.5)));
+
+        assertThat(summaries()).containsExactly(
+                List.of("EE", LocalDate.of(2024, 1, 1), 14.0, 2, 4.0, 10.0),
+                List.of("EE", LocalDate.of(2024, 1, 2), 7.5, 1, 7.5, 7.5));
+    }
+
+    @ParameterizedTest
+    @EnumSource(WriteMode.class)
+    void upsertAll_withOverwrittenHours_recomputesDailySummary(WriteMode writeMode) {
+        ingestionProperties.setWriteMode(writeMode);
+        bulkRepository.upsertAll(List.of(price(1704146400L, 4.0), price(1704150000L, 10.0), price(1704153600L, 7.5)));
+
+        // The maximum of the first day is overwritten with a lower price and a new hour is added before it
+        bulkRepository.upsertAll(List.of(price(1704142800L, 6.0), price(1704150000L, 1.0)));
+
+        assertThat(summaries()).containsExactly(
+                List.of("EE", LocalDate.of(2024, 1, 1), 11.0, 3, 1.0, 6.0),
+                List.of("EE", LocalDate.of(2024, 1, 2), 7.5, 1, 7.5, 7.5));
+    }
+
+    @ParameterizedTest
+    @EnumSource(WriteMode.class)
+    void upsertAll_withUnchangedDay_leavesDailySummaryUntouched(WriteMode writeMode) {
+        ingestionProperties.setWriteMode(writeMode);
+        List<ElectricityPrice> day = List.of(price(1704067200L, 1.0), price(1704070800L, 2.0));
+        bulkRepository.upsertAll(day);
+        jdbcTemplate.update("UPDATE daily_price_summary SET price_sum = 99");
+
+        bulkRepository.upsertAll(day);
+
+        assertThat(summaries()).extracting(summary -> summary.get(2)).containsExactly(99.0);
+    }
+
+    @ParameterizedTest
+    @EnumSource(WriteMode.class)
+    void buildDailySummariesIfEmpty_buildsMissingRollupOnce(WriteMode writeMode) {
+        ingestionProperties.setWriteMode(writeMode);
+        bulkRepository.upsertAll(List.of(price(1704146400L, 4.0), price(1704150000L, 10.0), price(1704153600L, 7.5)));
+        List<List<Object>> maintained = summaries();
+        dailyPriceSummaryRepository.deleteAllInBatch();
+
+        assertThat(bulkRepository.buildDailySummariesIfEmpty()).isEqualTo(2);
+        assertThat(summaries()).isEqualTo(maintained);
+        assertThat(bulkRepository.buildDailySummariesIfEmpty()).isZero();
+    }
+
+    private List<List<Object>> summaries() {
+        return dailyPriceSummaryRepository.findAll().stream()
+                .sorted(Comparator.comparing(DailyPriceSummaryEntity::getDay))
+                .map(summary -> List.<Object>of(summary.getCountry(), summary.getDay(), summary.getPriceSum(),
+                        summary.getPriceCount(), summary.getMinPrice(), summary.getMaxPrice()))
+                .toList();
+    }
+
+    private long rowVersion(long recordedAt) {
+        return jdbcTemplate.queryForObject(
+                "SELECT xmin::text::bigint FROM electricity_price WHERE recorded_at = to_timestamp(?)", Long.class, recordedAt);
+    }
+
+    private static ElectricityPrice price(long recordedAt, double value) {
+        ElectricityPrice price = new ElectricityPriceEstonia();
+        price.setRecordedAt(recordedAt);
+        price.setPrice(value);
+        return price;
+    }
+}
@@ -0,0 +1,98 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
+
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceEstonia;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceLatvia;
+import com.mathias.electricitypriceaggregator.domain.model.WeatherData;
+import com.mathias.electricitypriceaggregator.domain.repository.ElectricityPriceRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.WeatherDataRepository;
+import com.mathias.electricitypriceaggregator.integration.BaseIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SortedMap;
+
+import static java.time.ZoneOffset.UTC;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration test for the set-based queries of the electricity price repository
+ */
+class ElectricityPriceRepositoryImplIntegrationTest extends BaseIntegrationTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 10);
+
+    @Autowired
+    private ElectricityPriceRepository electricityPriceRepository;
+
+    @Autowired
+    private ElectricityPriceBulkRepository bulkRepository;
+
+    @Autowired
+    private WeatherDataRepository weatherDataRepository;
+
+    @Autowired
+    private JpaElectricityPriceRepository jpaRepository;
+
+    @Autowired
+    private JpaElectricityPriceDayDigestRepository dayDigestRepository;
+
+    @Autowired
+    private JpaDailyPriceSummaryRepository dailyPriceSummaryRepository;
+
+    @Autowired
+    private JpaWeatherDataRepository jpaWeatherDataRepository;
+
+    @Autowired
+    private JpaDataVersionRepository jpaDataVersionRepository;
+
+    @BeforeEach
+    void setUp() {
+        deleteAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteAll();
+    }
+
+    @Test
+    void findRecordedHourMasksWithoutWeather_withoutPrices_isEmpty() {
+        assertThat(electricityPriceRepository.findRecordedHourMasksWithoutWeather()).isEmpty();
+    }
+
+    @Test
+    void findRecordedHourMasksWithoutWeather_combinesHoursOfAllCountriesPerDay() {
+        bulkRepository.upsertAll(List.of(
+                price(new ElectricityPriceEstonia(), DAY, 0),
+                price(new ElectricityPriceEstonia(), DAY, 23),
+                price(new ElectricityPriceLatvia(), DAY, 5),
+                price(new ElectricityPriceLatvia(), DAY.plusDays(2), 12),
+                price(new ElectricityPriceEstonia(), DAY.plusDays(3), 1)));
+        weatherDataRepository.save(new WeatherData(DAY.plusDays(3), 4.0));
+
+        SortedMap<LocalDate, Integer> hourMasks = electricityPriceRepository.findRecordedHourMasksWithoutWeather();
+
+        // The day with weather is left out
+        assertThat(hourMasks.keySet()).containsExactly(DAY, DAY.plusDays(2));
+        assertThat(hourMasks).containsEntry(DAY, 1 | 1 << 5 | 1 << 23).containsEntry(DAY.plusDays(2), 1 << 12);
+    }
+
+    private void deleteAll() {
+        jpaRepository.deleteAllInBatch();
+        dayDigestRepository.deleteAllInBatch();
+        dailyPriceSummaryRepository.deleteAllInBatch();
+        jpaWeatherDataRepository.deleteAllInBatch();
+        jpaDataVersionRepository.deleteAllInBatch();
+    }
+
+    private static ElectricityPrice price(ElectricityPrice price, LocalDate day, int hour) {
+        price.setRecordedAt(day.atTime(hour, 0).toEpochSecond(UTC));
+        price.setPrice(10.0);
+        return price;
+    }
+}
@@ -0,0 +1,200 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
+
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPrice;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceEstonia;
+import com.mathias.electricitypriceaggregator.domain.model.ElectricityPriceLatvia;
+import com.mathias.electricitypriceaggregator.domain.model.WeatherData;
+import com.mathias.electricitypriceaggregator.domain.repository.PendingWeatherRepository;
+import com.mathias.electricitypriceaggregator.domain.repository.WeatherDataRepository;
+import com.mathias.electricitypriceaggregator.integration.BaseIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.time.ZoneOffset.UTC;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration test for leasing the days without weather data from the queue shared by the nodes
+ */
+class PendingWeatherRepositoryImplIntegrationTest extends BaseIntegrationTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 10);
+    private static final Duration LEASE = Duration.ofMinutes(5);
+
+    @Autowired
+    private PendingWeatherRepository pendingWeatherRepository;
+
+    @Autowired
+    private ElectricityPriceBulkRepository bulkRepository;
+
+    @Autowired
+    private WeatherDataRepository weatherDataRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JpaElectricityPriceRepository jpaRepository;
+
+    @Autowired
+    private JpaElectricityPriceDayDigestRepository dayDigestRepository;
+
+    @Autowired
+    private JpaDailyPriceSummaryRepository dailyPriceSummaryRepository;
+
+    @Autowired
+    private JpaWeatherDataRepository jpaWeatherDataRepository;
+
+    @Autowired
+    private JpaDataVersionRepository jpaDataVersionRepository;
+
+    @Autowired
+    private JpaPendingWeatherDateRepository jpaPendingWeatherDateRepository;
+
+    @BeforeEach
+    void setUp() {
+        deleteAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteAll();
+    }
+
+    @Test
+    void upsertAll_enqueuesHoursOfDaysWithoutWeather() {
+        weatherDataRepository.save(new WeatherData(DAY.plusDays(1), 2.0));
+
+        bulkRepository.upsertAll(List.of(price(new ElectricityPriceEstonia(), DAY, 0),
+                price(new ElectricityPriceLatvia(), DAY, 7), price(new ElectricityPriceEstonia(), DAY.plusDays(1), 0)));
+        bulkRepository.upsertAll(List.of(price(new ElectricityPriceEstonia(), DAY, 23)));
+
+        // Hours of later uploads are merged, and the day with weather is not queued
+        assertThat(pendingWeatherRepository.lease(10, LEASE)).containsExactlyEntriesOf(Map.of(DAY, 1 | 1 << 7 | 1 << 23));
+    }
+
+    @Test
+    void lease_leasedDays_areNotLeasedAgainUntilTheLeaseEnds() {
+        pendingWeatherRepository.enqueue(Map.of(DAY, 1, DAY.plusDays(1), 2, DAY.plusDays(2), 4));
+
+        assertThat(pendingWeatherRepository.lease(2, LEASE)).containsOnlyKeys(DAY, DAY.plusDays(1));
+        assertThat(pendingWeatherRepository.lease(2, Duration.ZERO)).containsOnlyKeys(DAY.plusDays(2));
+        // The lease of the last day has ended
+        assertThat(pendingWeatherRepository.lease(2, LEASE)).containsOnlyKeys(DAY.plusDays(2));
+        assertThat(pendingWeatherRepository.lease(2, LEASE)).isEmpty();
+    }
+
+    @Test
+    void lease_skipsDaysLockedByAnotherTransaction() throws Exception {
+        pendingWeatherRepository.enqueue(Map.of(DAY, 1, DAY.plusDays(1), 2));
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch leased = new CountDownLatch(1);
+
+        CompletableFuture<Void> otherNode = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.queryForList("SELECT day FROM pending_weather_date WHERE day = ? FOR UPDATE", DAY);
+            locked.countDown();
+            await(leased);
+        }));
+        try {
+            await(locked);
+
+            // Returns at once instead of waiting for the lock
+            assertThat(pendingWeatherRepository.lease(10, LEASE)).containsOnlyKeys(DAY.plusDays(1));
+        } finally {
+            leased.countDown();
+            otherNode.get(10, TimeUnit.SECONDS);
+        }
+        assertThat(pendingWeatherRepository.lease(10, LEASE)).containsOnlyKeys(DAY);
+    }
+
+    @Test
+    void release_makesLeasedDaysLeasableAgainAtOnce() {
+        pendingWeatherRepository.enqueue(Map.of(DAY, 1, DAY.plusDays(1), 2));
+        assertThat(pendingWeatherRepository.lease(10, LEASE)).containsOnlyKeys(DAY, DAY.plusDays(1));
+
+        pendingWeatherRepository.release(List.of(DAY));
+
+        assertThat(pendingWeatherRepository.lease(10, LEASE)).containsExactlyEntriesOf(Map.of(DAY, 1));
+    }
+
+    @Test
+    void save_removesDayOfWeatherFromQueue() {
+        pendingWeatherRepository.enqueue(Map.of(DAY, 1, DAY.plusDays(1), 2));
+
+        weatherDataRepository.save(new WeatherData(DAY, -1.5));
+
+        assertThat(pendingWeatherRepository.lease(10, LEASE)).containsOnlyKeys(DAY.plusDays(1));
+    }
+
+    @Test
+    void save_afterHoursWereQueuedSinceTheLease_averagesOverAllHoursWithPrices() {
+        bulkRepository.upsertAll(List.of(price(new ElectricityPriceEstonia(), DAY, 0)));
+        int leasedHourMask = pendingWeatherRepository.lease(10, LEASE).get(DAY);
+        // An upload adds an hour while the weather of the leased hours is fetched
+        bulkRepository.upsertAll(List.of(price(new ElectricityPriceLatvia(), DAY, 7)));
+        float[] hourlyTemperatures = new float[WeatherData.HOURS_PER_DAY];
+        hourlyTemperatures[7] = 3.0f;
+        WeatherData weatherData = new WeatherData(DAY, 0.0);
+        weatherData.setHourlyTemperatures(hourlyTemperatures);
+
+        weatherDataRepository.save(weatherData, leasedHourMask);
+
+        assertThat(jpaWeatherDataRepository.findByDateBetween(DAY, DAY))
+                .singleElement().satisfies(stored -> assertThat(stored.getAverageTemperature()).isEqualTo(1.5));
+        assertThat(pendingWeatherRepository.lease(10, LEASE)).isEmpty();
+    }
+
+    @Test
+    void save_withTheLeasedHours_keepsItsAverage() {
+        bulkRepository.upsertAll(List.of(price(new ElectricityPriceEstonia(), DAY, 0)));
+        int leasedHourMask = pendingWeatherRepository.lease(10, LEASE).get(DAY);
+        float[] hourlyTemperatures = new float[WeatherData.HOURS_PER_DAY];
+        hourlyTemperatures[7] = 3.0f;
+        WeatherData weatherData = new WeatherData(DAY, 0.0);
+        weatherData.setHourlyTemperatures(hourlyTemperatures);
+
+        assertThat(weatherDataRepository.save(weatherData, leasedHourMask).getAverageTemperature()).isZero();
+        assertThat(pendingWeatherRepository.lease(10, LEASE)).isEmpty();
+    }
+
+    private void deleteAll() {
+        jpaRepository.deleteAllInBatch();
+        dayDigestRepository.deleteAllInBatch();
+        dailyPriceSummaryRepository.deleteAllInBatch();
+        jpaWeatherDataRepository.deleteAllInBatch();
+        jpaDataVersionRepository.deleteAllInBatch();
+        jpaPendingWeatherDateRepository.deleteAllInBatch();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Timed out");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ElectricityPrice price(ElectricityPrice price, LocalDate day, int hour) {
+        price.setRecordedAt(day.atTime(hour, 0).toEpochSecond(UTC));
+        price.setPrice(10.0);
+        return price;
+    }
+}
@@ -0,0 +1,62 @@
+package com.mathias.electricitypriceaggregator.infrastructure.persistence.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceRangeIndexTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 7, 64, 1000})
+    void sumMinMax_ofEveryRange_matchScan(int size) {
+        Random random = new Random(size);
+        long[] recordedAt = new long[size];
+        double[] prices = new double[size];
+        for (int i = 0; i < size; i++) {
+            recordedAt[i] = i * 3600L;
+            prices[i] = Math.round(random.nextGaussian() * 10_000) / 100.0;
+        }
+        PriceRangeIndex index = new PriceRangeIndex(recordedAt, prices, size);
+
+        for (int from = 0; from < size; from += Math.max(1, size / 50)) {
+            for (int to = from + 1; to <= size; to++) {
+                double sum = 0;
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (int i = from; i < to; i++) {
+                    sum += prices[i];
+                    min = Math.min(min, prices[i]);
+                    max = Math.max(max, prices[i]);
+                }
+                assertEquals(sum, index.sum(from, to), 1e-6);
+                assertEquals(min, index.min(from, to));
+                assertEquals(max, index.max(from, to));
+            }
+        }
+    }
+
+    @Test
+    void emptyRange_returnsIdentities() {
+        PriceRangeIndex index = new PriceRangeIndex(new long[]{0, 3600}, new double[]{1.0, 2.0}, 2);
+
+        assertEquals(0.0, index.sum(1, 1));
+        assertEquals(Double.POSITIVE_INFINITY, index.min(1, 1));
+        assertEquals(Double.NEGATIVE_INFINITY, index.max(1, 1));
+    }
+
+    @Test
+    void indexOf_ignoresUnusedCapacity() {
+        PriceRangeIndex index = new PriceRangeIndex(new long[]{0, 3600, 7200, 0}, new double[]{1.0, 2.0, 3.0, 0.0}, 3);
+
+        assertEquals(0, index.indexOf(-1));
+        assertEquals(1, index.indexOf(3600));
+        assertEquals(2, index.indexOf(3601));
+        assertEquals(3, index.indexOf(100_000));
+        assertEquals(3, index.size());
+        assertEquals(1.0, index.min(0, 3));
+    }
+}
@@ -0,0 +1,146 @@
+package com.mathias.electricitypriceaggregator.web.arrow;
+
+import com.mathias.electricitypriceaggregator.domain.valueobject.AggregatedData;
+import com.mathias.electricitypriceaggregator.domain.valueobject.DailyAggregatedData;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.TimeStampSecTZVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArrowResponsesTest {
+
+    private BufferAllocator allocator;
+
+    @BeforeEach
+    void setUp() {
+        allocator = new RootAllocator();
+    }
+
+    @AfterEach
+    void tearDown() {
+        allocator.close();
+    }
+
+    @Test
+    void writeDailyAggregates_writesDaysWithNulls() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ArrowResponses.writeDailyAggregates(out, consumer -> {
+            consumer.accept(new DailyAggregatedData(LocalDate.of(2024, 1, 1), 40.0, 5.5));
+            consumer.accept(new DailyAggregatedData(LocalDate.of(2024, 1, 2), null, null));
+        });
+
+        try (ArrowStreamReader reader = reader(out)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertEquals(ArrowResponses.DAILY_SCHEMA, root.getSchema());
+            assertTrue(reader.loadNextBatch());
+            assertEquals(2, root.getRowCount());
+            DateDayVector date = (DateDayVector) root.getVector("date");
+            Float8Vector price = (Float8Vector) root.getVector("average_electricity_price");
+            Float8Vector temperature = (Float8Vector) root.getVector("average_temperature");
+            assertEquals(LocalDate.of(2024, 1, 1).toEpochDay(), date.get(0));
+            assertEquals(40.0, price.get(0));
+            assertEquals(5.5, temperature.get(0));
+            assertEquals(LocalDate.of(2024, 1, 2).toEpochDay(), date.get(1));
+            assertTrue(price.isNull(1));
+            assertTrue(temperature.isNull(1));
+            assertFalse(reader.loadNextBatch());
+        }
+    }
+
+    @Test
+    void writePeriods_writesPeriodStartInUtcSeconds() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ArrowResponses.writePeriods(out, consumer ->
+                consumer.accept(new AggregatedData(LocalDateTime.of(2024, 2, 1, 0, 0), 38.25, -1.0)));
+
+        try (ArrowStreamReader reader = reader(out)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertTrue(reader.loadNextBatch());
+            assertEquals(1, root.getRowCount());
+            assertEquals(1706745600L, ((TimeStampSecTZVector) root.getVector("period_start")).get(0));
+            assertEquals(38.3, ((Float8Vector) root.getVector("average_electricity_price")).get(0));
+            assertEquals(-1.0, ((Float8Vector) root.getVector("average_temperature")).get(0));
+        }
+    }
+
+    @Test
+    void writePrices_splitsRowsIntoBatches() throws IOException {
+        int rows = ArrowResponses.BATCH_ROWS + 10;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ArrowResponses.writePrices(out, consumer -> {
+            for (int i = 0; i < rows; i++) {
+                consumer.accept(1704067200L + i * 3600L, i / 100.0);
+            }
+        });
+
+        List<Integer> batchSizes = new ArrayList<>();
+        try (ArrowStreamReader reader = reader(out)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertEquals(ArrowResponses.PRICE_SCHEMA, root.getSchema());
+            int offset = 0;
+            while (reader.loadNextBatch()) {
+                TimeStampSecTZVector recordedAt = (TimeStampSecTZVector) root.getVector("recorded_at");
+                Float8Vector price = (Float8Vector) root.getVector("price");
+                for (int row = 0; row < root.getRowCount(); row++) {
+                    assertEquals(1704067200L + (offset + row) * 3600L, recordedAt.get(row));
+                    assertEquals((offset + row) / 100.0, price.get(row));
+                }
+                offset += root.getRowCount();
+                batchSizes.add(root.getRowCount());
+            }
+        }
+        assertEquals(List.of(ArrowResponses.BATCH_ROWS, 10), batchSizes);
+    }
+
+    @Test
+    void writePrices_withoutRows_writesSchemaOnly() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ArrowResponses.writePrices(out, consumer -> {
+        });
+
+        try (ArrowStreamReader reader = reader(out)) {
+            assertEquals(ArrowResponses.PRICE_SCHEMA, reader.getVectorSchemaRoot().getSchema());
+            assertFalse(reader.loadNextBatch());
+        }
+    }
+
+    @Test
+    void writePrices_sourceFails_leavesStreamWithoutEnd() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertThrows(IllegalStateException.class, () -> ArrowResponses.writePrices(out, consumer -> {
+            consumer.accept(1704067200L, 1.0);
+            throw new IllegalStateException("Connection lost");
+        }));
+
+        ByteArrayOutputStream complete = new ByteArrayOutputStream();
+        assertDoesNotThrow(() -> ArrowResponses.writePrices(complete, consumer -> {
+        }));
+        // Only the schema was written, without the end of stream marker a complete stream finishes with
+        assertTrue(out.size() < complete.size());
+    }
+
+    private ArrowStreamReader reader(ByteArrayOutputStream out) {
+        return new ArrowStreamReader(new ByteArrayInputStream(out.toByteArray()), allocator);
+    }
+}
@@ -1,22 +1,48 @@
 package com.mathias.electricitypriceaggregator.web.controller;
 
 import com.mathias.electricitypriceaggregator.application.service.AggregationService;
+import com.mathias.electricitypriceaggregator.domain.valueobject.AggregatedData;
 import com.mathias.electricitypriceaggregator.domain.valueobject.DailyAggregatedData;
+import com.mathias.electricitypriceaggregator.domain.valueobject.DataVersion;
+import com.mathias.electricitypriceaggregator.domain.valueobject.Granularity;
+import com.mathias.electricitypriceaggregator.web.arrow.ArrowResponses;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.TimeStampSecTZVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureWebMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -33,6 +59,11 @@ public class AggregatedDataControllerIntegrationTest {
     @MockBean
     private AggregationService aggregationService;
 
+    @BeforeEach
+    void setUp() {
+        when(aggregationService.getDataVersion(any(), any())).thenReturn(new DataVersion(0, null));
+    }
+
     @Test
     void shouldReturn_aggregatedDataSuccessfully() throws Exception {
         LocalDate date = LocalDate.of(2024, 1, 1);
@@ -68,7 +99,9 @@ public class AggregatedDataControllerIntegrationTest {
         mockMvc.perform(get("/api/v1/aggregated-data")
                         .param("startDateUtc", "2024-01-02")
                         .param("endDateUtc", "2024-01-01"))
-                .andExpect(status().isBadRequest());
+                .andExpect(status().isBadRequest())
+                .andExpect(header().string("Vary", "Accept"))
+                .andExpect(content().string("End date 2024-01-01 cannot be before start date 2024-01-02"));
     }
 
     @Test
@@ -137,4 +170,323 @@ public class AggregatedDataControllerIntegrationTest {
                         .param("endDateUtc", "2024-01-01"))
                 .andExpect(status().isInternalServerError());
     }
+
+    @Test
+    void shouldReturnPeriods_whenGranularityIsMonthly() throws Exception {
+        LocalDate startDate = LocalDate.of(2024, 1, 1);
+        LocalDate endDate = LocalDate.of(2024, 2, 29);
+        when(aggregationService.getAggregatedData(startDate, endDate, Granularity.MONTHLY)).thenReturn(List.of(
+                new AggregatedData(LocalDateTime.of(2024, 1, 1, 0, 0), 40.0, -5.5),
+                new AggregatedData(LocalDateTime.of(2024, 2, 1, 0, 0), 35.0, null)));
+
+        mockMvc.perform(get("/api/v1/aggregated-data")
+                        .param("startDateUtc", "2024-01-01")
+                        .param("endDateUtc", "2024-02-29")
+                        .param("granularity", "Monthly"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].periodStart").value("2024-01-01T00:00"))
+                .andExpect(jsonPath("$[0].averageElectricityPrice").value(40.0))
+                .andExpect(jsonPath("$[0].averageTemperature").value(-5.5))
+                .andExpect(jsonPath("$[1].periodStart").value("2024-02-01T00:00"))
+                .andExpect(jsonPath("$[1].averageTemperature").doesNotExist());
+
+        verify(aggregationService, never()).getAggregatedData(any(), any());
+    }
+
+    @Test
+    void shouldReturnDailyData_whenGranularityIsDaily() throws Exception {
+        LocalDate date = LocalDate.of(2024, 1, 1);
+        when(aggregationService.getAggregatedData(date, date))
+                .thenReturn(List.of(new DailyAggregatedData(date, 40.0, 5.5)));
+
+        mockMvc.perform(get("/api/v1/aggregated-data")
+                        .param("startDateUtc", "2024-01-01")
+                        .param("endDateUtc", "2024-01-01")
+                        .param("granularity", "daily"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].date").value("2024-01-01"));
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenGranularityIsUnsupported() throws Exception {
+        mockMvc.perform(get("/api/v1/aggregated-data")
+                        .param("startDateUtc", "2024-01-01")
+                        .param("endDateUtc", "2024-01-01")
+                        .param("granularity", "quarterly"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("Unsupported granularity: quarterly")));
+
+        verifyNoInteractions(aggregationService);
+    }
+
+    @Test
+    void shouldStreamOneLinePerDay_whenNdjsonIsAccepted() throws Exception {
+        LocalDate startDate = LocalDate.of(2024, 1, 1);
+        LocalDate endDate = LocalDate.of(2024, 1, 3);
+        doAnswer(invocation -> {
+            Consumer<DailyAggregatedData> consumer = invocation.getArgument(2);
+            consumer.accept(new DailyAggregatedData(startDate, 40.0, 5.5));
+            consumer.accept(new DailyAggregatedData(endDate, 38.0, null));
+            return null;
+        }).when(aggregationService).streamAggregatedData(eq(startDate), eq(endDate), any());
+
+        MvcResult result = mockMvc.perform(get("/api/v1/aggregated-data")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .param("startDateUtc", "2024-01-01")
+                        .param("endDateUtc", "2024-01-03"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", MediaType.APPLICATION_NDJSON_VALUE))
+                .andExpect(content().string(
+                        "{\"date\":\"2024-01-01\",\"averageElectricityPrice\":40.0,\"averageTemperature\":5.5}\n"
+                                + "{\"date\":\"2024-01-03\",\"averageElectricityPrice\":38.0,\"averageTemperature\":null}\n"));
+
+        verify(aggregationService, never()).getAggregatedData(any(), any());
+    }
+
+    @Test
+    void shouldStreamOneLinePerPeriod_whenNdjsonIsAcceptedWithGranularity() throws Exception {
+        stubPeriods(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31), Granularity.YEARLY,
+                new AggregatedData(LocalDateTime.of(2024, 1, 1, 0, 0), 40.0, 5.5));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/aggregated-data")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .param("startDateUtc", "2024-01-01")
+                        .param("endDateUtc", "2024-12-31")
+                        .param("granularity", "yearly"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(
+                        "{\"periodStart\":\"2024-01-01T00:00\",\"averageElectricityPrice\":40.0,\"averageTemperature\":5.5}\n"));
+
+        verify(aggregationService, never()).getAggregatedData(any(), any(), any());
+    }
+
+    @Test
+    void shouldStreamHours_whenNdjsonIsAcceptedWithHourlyGranularity() throws Exception {
+        LocalDate date = LocalDate.of(2024, 1, 1);
+        stubPeriods(date, date, Granularity.HOURLY,
+                new AggregatedData(date.atTime(0, 0), 40.0, 5.5),
+                new AggregatedData(date.atTime(1, 0), 41.0, 5.5));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/aggregated-data")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .param("startDateUtc", "2024-01-01")
+                        .param("endDateUtc", "2024-01-01")
+                        .param("granularity", "hourly"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(
+                        "{\"periodStart\":\"2024-01-01T00:00\",\"averageElectricityPrice\":40.0,\"averageTemperature\":5.5}\n"
+                                + "{\"periodStart\":\"2024-01-01T01:00\",\"averageElectricityPrice\":41.0,\"averageTemperature\":5.5}\n"));
+
+        // The hours are written as they are passed on, never collected into a list of the range
+        verify(aggregationService, never()).getAggregatedData(any(), any(), any());
+    }
+
+    @Test
+    void shouldReturnBadRequestBeforeStreaming_whenStartDateIsAfterEndDate() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/v1/aggregated-data")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .param("startDateUtc", "2024-01-02")
+                        .param("endDateUtc", "2024-01-01"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("End date 2024-01-01 cannot be before start date 2024-01-02"));
+
+        verifyNoInteractions(aggregationService);
+    }
+
+    @Test
+    void shouldExportDaysAsArrow_whenArrowIsAccepted() throws Exception {
+        LocalDate startDate = LocalDate.of(2024, 1, 1);
+        LocalDate endDate = LocalDate.of(2024, 1, 3);
+        doAnswer(invocation -> {
+            Consumer<DailyAggregatedData> consumer = invocation.getArgument(2);
+            consumer.accept(new DailyAggregatedData(startDate, 40.0, 5.5));
+            consumer.accept(new DailyAggregatedData(endDate, 38.0, null));
+            return null;
+        }).when(aggregationService).streamAggregatedData(eq(startDate), eq(endDate), any());
+
+        MvcResult result = mockMvc.perform(get("/api/v1/aggregated-data")
+                        .accept(ArrowResponses.ARROW_STREAM)
+                        .param("startDateUtc", "2024-01-01")
+                        .param("endDateUtc", "2024-01-03"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", ArrowResponses.ARROW_STREAM_VALUE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (RootAllocator allocator = new RootAllocator();
+             ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(body), allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertTrue(reader.loadNextBatch());
+            assertEquals(2, root.getRowCount());
+            assertEquals(startDate.toEpochDay(), ((DateDayVector) root.getVector("date")).get(0));
+            assertEquals(38.0, ((Float8Vector) root.getVector("average_electricity_price")).get(1));
+            assertTrue(root.getVector("average_temperature").isNull(1));
+            assertFalse(reader.loadNextBatch());
+        }
+    }
+
+    @Test
+    void shouldExportPeriodsAsArrow_whenArrowIsAcceptedWithGranularity() throws Exception {
+        stubPeriods(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31), Granularity.YEARLY,
+                new AggregatedData(LocalDateTime.of(2024, 1, 1, 0, 0), 40.0, 5.5));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/aggregated-data")
+                        .accept(ArrowResponses.ARROW_STREAM)
+                        .param("startDateUtc", "2024-01-01")
+                        .param("endDateUtc", "2024-12-31")
+                        .param("granularity", "yearly"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (RootAllocator allocator = new RootAllocator();
+             ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(body), allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertTrue(reader.loadNextBatch());
+            assertEquals(1, root.getRowCount());
+            assertEquals(1704067200L, ((TimeStampSecTZVector) root.getVector("period_start")).get(0));
+            assertEquals(5.5, ((Float8Vector) root.getVector("average_temperature")).get(0));
+        }
+    }
+
+    @Test
+    void shouldReturnBadRequestBeforeArrowExport_whenGranularityIsUnsupported() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/v1/aggregated-data")
+                        .accept(ArrowResponses.ARROW_STREAM)
+                        .param("startDateUtc", "2024-01-01")
+                        .param("endDateUtc", "2024-01-31")
+                        .param("granularity", "fortnightly"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("Unsupported granularity: fortnightly")));
+
+        verifyNoInteractions(aggregationService);
+    }
+
+    @Test
+    void shouldReturnETagWithoutLastModified_whenDataWasWritten() throws Exception {
+        when(aggregationService.getDataVersion(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)))
+                .thenReturn(new DataVersion(7, Instant.parse("2024-02-01T10:15:30Z")));
+        when(aggregationService.getAggregatedData(any(), any())).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/v1/aggregated-data")
+                        .param("startDateUtc", "2024-01-01")
+                        .param("endDateUtc", "2024-01-31"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"json-7-1706782530000\""))
+                .andExpect(header().doesNotExist("Last-Modified"))
+                .andExpect(header().string("Vary", "Accept"));
+    }
+
+    @Test
+    void shouldReturnNotModifiedWithoutAggregating_whenETagMatches() throws Exception {
+        when(aggregationService.getDataVersion(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)))
+                .thenReturn(new DataVersion(7, Instant.parse("2024-02-01T10:15:30Z")));
+
+        mockMvc.perform(get("/api/v1/aggregated-data")
+                        .header("If-None-Match", "\"json-7-1706782530000\"")
+                        .param("startDateUtc", "2024-01-01")
+                        .param("endDateUtc", "2024-01-31")
+                        .param("granularity", "monthly"))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"json-7-1706782530000\""))
+                .andExpect(header().string("Vary", "Accept"))
+                .andExpect(content().string(""));
+
+        verify(aggregationService).getDataVersion(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31));
+        verifyNoMoreInteractions(aggregationService);
+    }
+
+    @Test
+    void shouldReturnData_whenETagIsStale() throws Exception {
+        when(aggregationService.getDataVersion(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)))
+                .thenReturn(new DataVersion(8, Instant.parse("2024-02-02T08:00:00Z")));
+        when(aggregationService.getAggregatedData(any(), any()))
+                .thenReturn(List.of(new DailyAggregatedData(LocalDate.of(2024, 1, 1), 40.0, 5.5)));
+
+        mockMvc.perform(get("/api/v1/aggregated-data")
+                        .header("If-None-Match", "\"json-7-1706782530000\"")
+                        .param("startDateUtc", "2024-01-01")
+                        .param("endDateUtc", "2024-01-31"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"json-8-1706860800000\""))
+                .andExpect(jsonPath("$[0].averageElectricityPrice").value(40.0));
+    }
+
+    @Test
+    void shouldReturnData_whenOnlyIfModifiedSinceIsSent() throws Exception {
+        when(aggregationService.getDataVersion(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)))
+                .thenReturn(new DataVersion(7, Instant.parse("2024-02-01T10:15:30Z")));
+        when(aggregationService.getAggregatedData(any(), any()))
+                .thenReturn(List.of(new DailyAggregatedData(LocalDate.of(2024, 1, 1), 40.0, 5.5)));
+
+        // A write in the same second, or committed after its start time, would otherwise pass for older
+        mockMvc.perform(get("/api/v1/aggregated-data")
+                        .header("If-Modified-Since", "Thu, 01 Feb 2024 10:15:31 GMT")
+                        .param("startDateUtc", "2024-01-01")
+                        .param("endDateUtc", "2024-01-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].averageElectricityPrice").value(40.0));
+    }
+
+    @Test
+    void shouldNotMatchETagOfOtherRepresentation_whenStreaming() throws Exception {
+        when(aggregationService.getDataVersion(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)))
+                .thenReturn(new DataVersion(7, Instant.parse("2024-02-01T10:15:30Z")));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/aggregated-data")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .header("If-None-Match", "\"json-7-1706782530000\"")
+                        .param("startDateUtc", "2024-01-01")
+                        .param("endDateUtc", "2024-01-31"))
+                .andExpect(request().asyncStarted())
+                .andExpect(header().string("ETag", "\"ndjson-7-1706782530000\""))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Vary", "Accept"));
+
+        mockMvc.perform(get("/api/v1/aggregated-data")
+                        .accept(ArrowResponses.ARROW_STREAM)
+                        .header("If-None-Match", "\"arrow-7-1706782530000\"")
+                        .param("startDateUtc", "2024-01-01")
+                        .param("endDateUtc", "2024-01-31"))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("Vary", "Accept"));
+    }
+
+    private void stubPeriods(LocalDate startDate, LocalDate endDate, Granularity granularity, AggregatedData... periods) {
+        doAnswer(invocation -> {
+            Consumer<AggregatedData> consumer = invocation.getArgument(3);
+            for (AggregatedData period : periods) {
+                consumer.accept(period);
+            }
+            return null;
+        }).when(aggregationService).streamAggregatedData(eq(startDate), eq(endDate), eq(granularity), any());
+    }
 }
@@ -0,0 +1,386 @@
+package com.mathias.electricitypriceaggregator.web.controller;
+
+import com.mathias.electricitypriceaggregator.application.service.ElectricityPriceQueryService;
+import com.mathias.electricitypriceaggregator.application.service.ElectricityPriceService;
+import com.mathias.electricitypriceaggregator.application.service.IngestionJobService;
+import com.mathias.electricitypriceaggregator.application.service.IngestionRejectedException;
+import com.mathias.electricitypriceaggregator.application.service.UploadSessionService;
+import com.mathias.electricitypriceaggregator.domain.model.IngestionJob;
+import com.mathias.electricitypriceaggregator.domain.model.UploadSession;
+import com.mathias.electricitypriceaggregator.domain.repository.ElectricityPriceRepository.PriceConsumer;
+import com.mathias.electricitypriceaggregator.domain.valueobject.UpsertResult;
+import com.mathias.electricitypriceaggregator.infrastructure.csv.CsvCompression;
+import com.mathias.electricitypriceaggregator.web.arrow.ArrowResponses;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.TimeStampSecTZVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureWebMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration test for ElectricityPriceController
+ */
+@AutoConfigureWebMvc
+@AutoConfigureJson
+@WebMvcTest(ElectricityPriceController.class)
+public class ElectricityPriceControllerIntegrationTest {
+
+    private static final MockMultipartFile CSV_FILE = new MockMultipartFile(
+            "file", "prices.csv", "text/csv", "Ajatempel (UTC);NPS Eesti\n1704060000;40,01\n".getBytes());
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ElectricityPriceService electricityPriceService;
+
+    @MockBean
+    private IngestionJobService ingestionJobService;
+
+    @MockBean
+    private UploadSessionService uploadSessionService;
+
+    @MockBean
+    private ElectricityPriceQueryService electricityPriceQueryService;
+
+    @Test
+    void shouldProcessUploadSynchronously() throws Exception {
+        when(electricityPriceService.processCsvUpload(any(), eq(CsvCompression.NONE))).thenReturn(new UpsertResult(1, 2, 3));
+
+        mockMvc.perform(multipart("/api/v1/electricity-prices/upload").file(CSV_FILE))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(1))
+                .andExpect(jsonPath("$.updated").value(2))
+                .andExpect(jsonPath("$.unchanged").value(3));
+
+        verify(electricityPriceService).processCsvUpload(any(), eq(CsvCompression.NONE));
+    }
+
+    @Test
+    void shouldAcceptUploadJob() throws Exception {
+        IngestionJob job = new IngestionJob("job-1", "prices.csv", Instant.parse("2024-01-01T00:00:00Z"));
+        when(ingestionJobService.submit(any(), eq(CsvCompression.NONE))).thenReturn(job);
+
+        mockMvc.perform(multipart("/api/v1/electricity-prices/upload-jobs").file(CSV_FILE))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/v1/electricity-prices/upload-jobs/job-1"))
+                .andExpect(jsonPath("$.jobId").value("job-1"))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+
+        verifyNoInteractions(electricityPriceService);
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenUploadJobIsNotCsv() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "prices.txt", "text/plain", "content".getBytes());
+
+        mockMvc.perform(multipart("/api/v1/electricity-prices/upload-jobs").file(file))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(ingestionJobService);
+    }
+
+    @Test
+    void shouldProcessCompressedUpload_byFileExtension() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "prices.csv.zst", "application/zstd", new byte[]{1});
+        when(electricityPriceService.processCsvUpload(any(), eq(CsvCompression.ZSTD))).thenReturn(new UpsertResult(1, 0, 0));
+
+        mockMvc.perform(multipart("/api/v1/electricity-prices/upload").file(file))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(1));
+    }
+
+    @Test
+    void shouldAcceptCompressedUploadJob_byContentEncoding() throws Exception {
+        IngestionJob job = new IngestionJob("job-1", "prices.csv", Instant.parse("2024-01-01T00:00:00Z"));
+        when(ingestionJobService.submit(any(), eq(CsvCompression.GZIP))).thenReturn(job);
+
+        mockMvc.perform(multipart("/api/v1/electricity-prices/upload-jobs").file(CSV_FILE)
+                        .header("Content-Encoding", "gzip"))
+                .andExpect(status().isAccepted());
+
+        verify(ingestionJobService).submit(any(), eq(CsvCompression.GZIP));
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenContentEncodingIsUnsupported() throws Exception {
+        mockMvc.perform(multipart("/api/v1/electricity-prices/upload").file(CSV_FILE)
+                        .header("Content-Encoding", "br"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(electricityPriceService);
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenCompressedFileIsNotCsv() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "prices.txt.gz", "application/gzip", new byte[]{1});
+
+        mockMvc.perform(multipart("/api/v1/electricity-prices/upload").file(file))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(electricityPriceService);
+    }
+
+    @Test
+    void shouldReturnTooManyRequests_whenIngestionQueueIsFull() throws Exception {
+        when(ingestionJobService.submit(any(), eq(CsvCompression.NONE)))
+                .thenThrow(new IngestionRejectedException("Ingestion queue is full", Duration.ofSeconds(30)));
+
+        mockMvc.perform(multipart("/api/v1/electricity-prices/upload-jobs").file(CSV_FILE))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "30"));
+    }
+
+    @Test
+    void shouldReturnTooManyRequests_whenSynchronousUploadIsNotAdmitted() throws Exception {
+        when(electricityPriceService.processCsvUpload(any(), eq(CsvCompression.NONE)))
+                .thenThrow(new IngestionRejectedException("Ingestion queue is full", Duration.ofSeconds(12)));
+
+        mockMvc.perform(multipart("/api/v1/electricity-prices/upload").file(CSV_FILE))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "12"));
+    }
+
+    @Test
+    void shouldReturnUploadJobProgress() throws Exception {
+        IngestionJob job = new IngestionJob("job-1", "prices.csv", Instant.parse("2024-01-01T00:00:00Z"));
+        job.start(Instant.parse("2024-01-01T00:00:00Z"));
+        job.setRowsParsed(20_000);
+        job.setRowsWritten(10_000);
+        job.complete(new UpsertResult(6_000, 3_000, 1_000), Instant.parse("2024-01-01T00:00:04Z"));
+        when(ingestionJobService.findJob("job-1")).thenReturn(Optional.of(job));
+
+        mockMvc.perform(get("/api/v1/electricity-prices/upload-jobs/job-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.rowsParsed").value(20_000))
+                .andExpect(jsonPath("$.rowsWritten").value(10_000))
+                .andExpect(jsonPath("$.rowsPerSecond").value(2_500.0))
+                .andExpect(jsonPath("$.inserted").value(6_000))
+                .andExpect(jsonPath("$.updated").value(3_000))
+                .andExpect(jsonPath("$.unchanged").value(1_000));
+    }
+
+    @Test
+    void shouldReturnNotFound_whenUploadJobIsUnknown() throws Exception {
+        when(ingestionJobService.findJob("unknown")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/v1/electricity-prices/upload-jobs/unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldCreateUploadSession() throws Exception {
+        when(uploadSessionService.create("prices.csv.gz", CsvCompression.GZIP, 1000L)).thenReturn(uploadSession());
+
+        mockMvc.perform(post("/api/v1/electricity-prices/upload-sessions")
+                        .param("fileName", "prices.csv.gz")
+                        .param("totalBytes", "1000"))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", "/api/v1/electricity-prices/upload-sessions/session-1"))
+                .andExpect(jsonPath("$.sessionId").value("session-1"))
+                .andExpect(jsonPath("$.status").value("RECEIVING"))
+                .andExpect(jsonPath("$.receivedBytes").value(0));
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenUploadSessionFileIsNotCsv() throws Exception {
+        mockMvc.perform(post("/api/v1/electricity-prices/upload-sessions").param("fileName", "prices.txt"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(uploadSessionService);
+    }
+
+    @Test
+    void shouldAppendRangeToUploadSession() throws Exception {
+        UploadSession session = uploadSession();
+        session.received(500, Instant.parse("2024-01-01T00:00:01Z"));
+        when(uploadSessionService.findSession("session-1")).thenReturn(Optional.of(uploadSession()));
+        when(uploadSessionService.append(eq("session-1"), eq(0L), eq(500L), eq(1000L), any())).thenReturn(session);
+
+        mockMvc.perform(put("/api/v1/electricity-prices/upload-sessions/session-1")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .header("Content-Range", "bytes 0-499/1000")
+                        .content(new byte[500]))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.receivedBytes").value(500));
+    }
+
+    @Test
+    void shouldAppendRangeOfUnknownSize() throws Exception {
+        when(uploadSessionService.findSession("session-1")).thenReturn(Optional.of(uploadSession()));
+        when(uploadSessionService.append(eq("session-1"), eq(10L), eq(5L), isNull(), any())).thenReturn(uploadSession());
+
+        mockMvc.perform(put("/api/v1/electricity-prices/upload-sessions/session-1")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .header("Content-Range", "bytes 10-14/*")
+                        .content(new byte[5]))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenContentRangeIsMissing() throws Exception {
+        mockMvc.perform(put("/api/v1/electricity-prices/upload-sessions/session-1")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(new byte[5]))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(uploadSessionService);
+    }
+
+    @Test
+    void shouldReturnConflictWithSession_whenRangeLeavesGap() throws Exception {
+        UploadSession session = uploadSession();
+        session.received(100, Instant.parse("2024-01-01T00:00:01Z"));
+        when(uploadSessionService.findSession("session-1")).thenReturn(Optional.of(session));
+        when(uploadSessionService.append(eq("session-1"), anyLong(), anyLong(), any(), any()))
+                .thenThrow(new IllegalStateException("Range starts at byte 500 but only 100 bytes were received"));
+
+        mockMvc.perform(put("/api/v1/electricity-prices/upload-sessions/session-1")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .header("Content-Range", "bytes 500-999/1000")
+                        .content(new byte[500]))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.receivedBytes").value(100));
+    }
+
+    @Test
+    void shouldCompleteUploadSession() throws Exception {
+        UploadSession session = uploadSession();
+        session.startIngesting(Instant.parse("2024-01-01T00:00:02Z"));
+        when(uploadSessionService.findSession("session-1")).thenReturn(Optional.of(uploadSession()));
+        when(uploadSessionService.complete("session-1")).thenReturn(session);
+
+        mockMvc.perform(post("/api/v1/electricity-prices/upload-sessions/session-1/complete"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("INGESTING"));
+    }
+
+    @Test
+    void shouldReturnConflict_whenUploadSessionIsIncomplete() throws Exception {
+        when(uploadSessionService.findSession("session-1")).thenReturn(Optional.of(uploadSession()));
+        when(uploadSessionService.complete("session-1")).thenThrow(new IllegalStateException("Only 0 of 1000 bytes were received"));
+
+        mockMvc.perform(post("/api/v1/electricity-prices/upload-sessions/session-1/complete"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void shouldReturnNotFound_whenUploadSessionIsUnknown() throws Exception {
+        when(uploadSessionService.findSession("unknown")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/v1/electricity-prices/upload-sessions/unknown"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/v1/electricity-prices/upload-sessions/unknown/complete"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(delete("/api/v1/electricity-prices/upload-sessions/unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldDeleteUploadSession() throws Exception {
+        when(uploadSessionService.findSession("session-1")).thenReturn(Optional.of(uploadSession()));
+
+        mockMvc.perform(delete("/api/v1/electricity-prices/upload-sessions/session-1"))
+                .andExpect(status().isNoContent());
+
+        verify(uploadSessionService).delete("session-1");
+    }
+
+    private static UploadSession uploadSession() {
+        return new UploadSession("session-1", "prices.csv.gz", "GZIP", 1000L, Instant.parse("2024-01-01T00:00:00Z"));
+    }
+
+    @Test
+    void shouldExportPricesAsArrow() throws Exception {
+        LocalDate startDate = LocalDate.of(2024, 1, 1);
+        LocalDate endDate = LocalDate.of(2024, 1, 2);
+        doAnswer(invocation -> {
+            PriceConsumer consumer = invocation.getArgument(3);
+            consumer.accept(1704067200L, 40.01);
+            consumer.accept(1704070800L, -0.5);
+            return null;
+        }).when(electricityPriceQueryService).forEachPrice(eq("LV"), eq(startDate), eq(endDate), any());
+
+        MvcResult result = mockMvc.perform(get("/api/v1/electricity-prices")
+                        .accept(ArrowResponses.ARROW_STREAM)
+                        .param("country", "LV")
+                        .param("startDateUtc", "2024-01-01")
+                        .param("endDateUtc", "2024-01-02"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", ArrowResponses.ARROW_STREAM_VALUE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (RootAllocator allocator = new RootAllocator();
+             ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(body), allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertTrue(reader.loadNextBatch());
+            assertEquals(2, root.getRowCount());
+            TimeStampSecTZVector recordedAt = (TimeStampSecTZVector) root.getVector("recorded_at");
+            Float8Vector price = (Float8Vector) root.getVector("price");
+            assertEquals(1704070800L, recordedAt.get(1));
+            assertEquals(40.01, price.get(0));
+            assertEquals(-0.5, price.get(1));
+            assertFalse(reader.loadNextBatch());
+        }
+        verify(electricityPriceQueryService).validate("LV", startDate, endDate);
+    }
+
+    @Test
+    void shouldReturnBadRequestBeforeArrowExport_whenRangeIsInvalid() throws Exception {
+        doThrow(new IllegalArgumentException("End date 2024-01-01 cannot be before start date 2024-01-02"))
+                .when(electricityPriceQueryService).validate("EE", LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 1));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/electricity-prices")
+                        .accept(ArrowResponses.ARROW_STREAM)
+                        .param("startDateUtc", "2024-01-02")
+                        .param("endDateUtc", "2024-01-01"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("End date 2024-01-01 cannot be before start date 2024-01-02"));
+
+        verify(electricityPriceQueryService, never()).forEachPrice(any(), any(), any(), any());
+    }
+}
@@ -0,0 +1,89 @@
+package com.mathias.electricitypriceaggregator.web.controller;
+
+import com.mathias.electricitypriceaggregator.application.service.ElectricityPriceQueryService;
+import com.mathias.electricitypriceaggregator.domain.valueobject.PriceStatistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureWebMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration test for PriceStatisticsController
+ */
+@AutoConfigureWebMvc
+@AutoConfigureJson
+@WebMvcTest(PriceStatisticsController.class)
+public class PriceStatisticsControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ElectricityPriceQueryService electricityPriceQueryService;
+
+    @Test
+    void shouldReturn_statisticsOfHourRangeInUtc() throws Exception {
+        when(electricityPriceQueryService.getStatistics("LV", Instant.parse("2024-01-01T06:00:00Z"),
+                Instant.parse("2024-01-01T18:00:00Z"))).thenReturn(new PriceStatistics(12, 45.5, 10.25, 90.0));
+
+        mockMvc.perform(get("/api/v1/price-statistics")
+                        .param("country", "LV")
+                        .param("fromUtc", "2024-01-01T06:00")
+                        .param("toUtc", "2024-01-01T18:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(12))
+                .andExpect(jsonPath("$.averagePrice").value(45.5))
+                .andExpect(jsonPath("$.minimumPrice").value(10.25))
+                .andExpect(jsonPath("$.maximumPrice").value(90.0));
+    }
+
+    @Test
+    void shouldReturn_statisticsOfDays() throws Exception {
+        when(electricityPriceQueryService.getStatistics("EE", List.of(LocalDate.of(2024, 1, 6), LocalDate.of(2024, 1, 7))))
+                .thenReturn(PriceStatistics.EMPTY);
+
+        mockMvc.perform(get("/api/v1/price-statistics")
+                        .param("days", "2024-01-06,2024-01-07"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(0))
+                .andExpect(jsonPath("$.averagePrice").doesNotExist());
+    }
+
+    @Test
+    void shouldReturn_badRequest_whenRangeAndDaysAreBothGivenOrMissing() throws Exception {
+        mockMvc.perform(get("/api/v1/price-statistics")
+                        .param("fromUtc", "2024-01-01T06:00")
+                        .param("toUtc", "2024-01-01T18:00")
+                        .param("days", "2024-01-06"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/price-statistics"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(electricityPriceQueryService);
+    }
+
+    @Test
+    void shouldReturn_badRequest_whenServiceRejectsRange() throws Exception {
+        when(electricityPriceQueryService.getStatistics(any(), any(Instant.class), any()))
+                .thenThrow(new IllegalArgumentException("From and to cannot be null"));
+
+        mockMvc.perform(get("/api/v1/price-statistics")
+                        .param("fromUtc", "2024-01-01T06:00"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("From and to cannot be null"));
+    }
+}